@@ -1,10 +1,15 @@
 package io.github.zapolyarnydev.proxyvirtualizer.api;
 
+import io.github.zapolyarnydev.proxyvirtualizer.api.balancer.BackendSelector;
+import io.github.zapolyarnydev.proxyvirtualizer.api.cluster.Cluster;
+import io.github.zapolyarnydev.proxyvirtualizer.api.command.VirtualCommandRouter;
 import io.github.zapolyarnydev.proxyvirtualizer.api.connector.ConnectionStorage;
 import io.github.zapolyarnydev.proxyvirtualizer.api.connector.Connector;
+import io.github.zapolyarnydev.proxyvirtualizer.api.queue.JoinQueue;
 import io.github.zapolyarnydev.proxyvirtualizer.api.registry.ServerContainer;
 import io.github.zapolyarnydev.proxyvirtualizer.api.server.Launcher;
 import io.github.zapolyarnydev.proxyvirtualizer.api.signal.SignalBus;
+import io.github.zapolyarnydev.proxyvirtualizer.api.world.WorldManager;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -17,14 +22,35 @@ public final class ProxyVirtualizerApi {
     private final Connector connector;
     private final ConnectionStorage connectionStorage;
     private final SignalBus signalBus;
+    private final WorldManager worldManager;
+    private final VirtualCommandRouter commandRouter;
+    private final Cluster cluster;
+    private final JoinQueue joinQueue;
+    private final BackendSelector backendSelector;
 
     public static ProxyVirtualizerApi of(
             ServerContainer serverContainer,
             Launcher launcher,
             Connector connector,
             ConnectionStorage connectionStorage,
-            SignalBus signalBus
+            SignalBus signalBus,
+            WorldManager worldManager,
+            VirtualCommandRouter commandRouter,
+            Cluster cluster,
+            JoinQueue joinQueue,
+            BackendSelector backendSelector
     ) {
-        return new ProxyVirtualizerApi(serverContainer, launcher, connector, connectionStorage, signalBus);
+        return new ProxyVirtualizerApi(
+                serverContainer,
+                launcher,
+                connector,
+                connectionStorage,
+                signalBus,
+                worldManager,
+                commandRouter,
+                cluster,
+                joinQueue,
+                backendSelector
+        );
     }
 }
@@ -0,0 +1,17 @@
+package io.github.zapolyarnydev.proxyvirtualizer.api.balancer;
+
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+
+import java.time.Duration;
+
+/**
+ * Last known state of a backend, as read by the background pings.
+ *
+ * @param server  the backend
+ * @param healthy whether the backend answers its pings; a backend not pinged yet counts as healthy
+ * @param online  players reported online by the last successful ping
+ * @param max     player limit reported by the last successful ping, zero or less when unknown
+ * @param latency round trip of the last successful ping
+ */
+public record BackendLoad(RegisteredServer server, boolean healthy, int online, int max, Duration latency) {
+}
@@ -0,0 +1,27 @@
+package io.github.zapolyarnydev.proxyvirtualizer.api.balancer;
+
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+
+import java.util.List;
+
+/**
+ * Picks the backend a player is sent to. The work is split in two: {@link #prepare} runs off the
+ * connection path each time the loads are refreshed, and the {@link Selection} it returns answers every
+ * pick until the next refresh, so it should take constant time.
+ */
+public interface BackendSelectionStrategy {
+    /**
+     * @param backends healthy backends, never empty
+     */
+    Selection prepare(List<BackendLoad> backends);
+
+    interface Selection {
+        /**
+         * Called concurrently from any thread.
+         *
+         * @return the backend to send the player to, or {@code null} to send them nowhere
+         */
+        RegisteredServer next(Player player);
+    }
+}
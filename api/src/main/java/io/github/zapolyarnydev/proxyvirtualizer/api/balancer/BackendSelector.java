@@ -0,0 +1,28 @@
+package io.github.zapolyarnydev.proxyvirtualizer.api.balancer;
+
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Chooses a backend for players leaving a virtual server without a previous server to return to.
+ * Backends are pinged in the background; a selection only reads the cached results.
+ */
+public interface BackendSelector {
+    /**
+     * @return a healthy backend chosen by the current strategy, empty if none is healthy
+     */
+    Optional<RegisteredServer> select(Player player);
+
+    /**
+     * @return the last known load of every candidate backend
+     */
+    List<BackendLoad> getLoads();
+
+    /**
+     * Replaces the strategy; it takes over once the loads are prepared for it, within moments.
+     */
+    void setStrategy(BackendSelectionStrategy strategy);
+}
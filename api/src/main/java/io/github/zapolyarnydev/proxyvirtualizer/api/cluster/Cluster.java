@@ -0,0 +1,51 @@
+package io.github.zapolyarnydev.proxyvirtualizer.api.cluster;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Eventually consistent view of the virtual servers and parked players of every proxy in the cluster.
+ * Reads are answered from local memory; changes of other proxies arrive within a flush interval, and
+ * a silent proxy is dropped after the node timeout.
+ */
+public interface Cluster {
+    String getLocalNodeId();
+
+    /**
+     * @return ids of the proxies currently known, including this one
+     */
+    Set<String> getNodes();
+
+    /**
+     * @return players parked in a virtual server on any proxy
+     */
+    int getPlayerCount();
+
+    /**
+     * @return players parked in the named virtual server on any proxy, matched ignoring case
+     */
+    int getPlayerCount(String serverName);
+
+    /**
+     * @return names of the virtual servers launched on any proxy
+     */
+    Set<String> getServerNames();
+
+    /**
+     * @return ids of the proxies on which the named virtual server is launched
+     */
+    Set<String> getNodes(String serverName);
+
+    /**
+     * @return name of the virtual server the player is parked in, on this or another proxy
+     */
+    Optional<String> findVirtualServer(UUID playerId);
+
+    /**
+     * Replaces the transport, closing the previous one. A full snapshot is sent right after, so the
+     * other proxies catch up without waiting for the next snapshot interval.
+     */
+    void setTransport(ClusterTransport transport) throws IOException;
+}
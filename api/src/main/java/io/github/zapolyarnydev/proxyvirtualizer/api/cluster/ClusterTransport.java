@@ -0,0 +1,23 @@
+package io.github.zapolyarnydev.proxyvirtualizer.api.cluster;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Carries replication frames between proxies. Delivery is best effort: frames may be lost, duplicated
+ * or reordered, which the replication layer tolerates through entry versions and periodic snapshots.
+ */
+public interface ClusterTransport {
+    /**
+     * Starts delivering frames sent by other proxies to the receiver. The receiver may be called from any
+     * thread and must not keep the array after it returns.
+     */
+    void open(Consumer<byte[]> receiver) throws IOException;
+
+    /**
+     * Sends a frame to the other proxies without waiting for delivery.
+     */
+    void broadcast(byte[] frame);
+
+    void close();
+}
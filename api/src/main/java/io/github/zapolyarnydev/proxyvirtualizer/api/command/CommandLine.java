@@ -0,0 +1,189 @@
+package io.github.zapolyarnydev.proxyvirtualizer.api.command;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Whitespace-separated tokens of a command line, kept as offsets into the raw string.
+ * Offsets are computed once on creation, so instances are immutable and safe to share between threads;
+ * a token becomes a {@code String} only when it is read.
+ */
+public final class CommandLine {
+    private static final int[] NO_TOKENS = new int[0];
+
+    private final String raw;
+    private final int[] offsets;
+
+    private CommandLine(String raw) {
+        this.raw = raw;
+        this.offsets = tokenize(raw);
+    }
+
+    /**
+     * @param raw command without the leading slash; {@code null} is treated as empty
+     */
+    public static CommandLine of(String raw) {
+        return new CommandLine(raw == null ? "" : raw);
+    }
+
+    public String raw() {
+        return raw;
+    }
+
+    /**
+     * @return number of tokens, including the label
+     */
+    public int size() {
+        return offsets.length / 2;
+    }
+
+    public boolean isEmpty() {
+        return labelStart() == raw.length();
+    }
+
+    public String token(int index) {
+        if (index < 0 || index * 2 >= offsets.length) {
+            throw new IndexOutOfBoundsException("Token " + index + " of " + offsets.length / 2);
+        }
+        return raw.substring(offsets[index * 2], offsets[index * 2 + 1]);
+    }
+
+    public int tokenStart(int index) {
+        return offsets[index * 2];
+    }
+
+    public int tokenEnd(int index) {
+        return offsets[index * 2 + 1];
+    }
+
+    /**
+     * @return the first token, or an empty string for a blank command line
+     */
+    public String label() {
+        int start = labelStart();
+        return raw.substring(start, tokenEnd(raw, start));
+    }
+
+    /**
+     * @return offset of the label in the raw string, or its length for a blank command line
+     */
+    public int labelStart() {
+        int index = 0;
+        while (index < raw.length() && isSeparator(raw.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * @return offset just past the label
+     */
+    public int labelEnd() {
+        return tokenEnd(raw, labelStart());
+    }
+
+    /**
+     * @return whether the raw string is empty or ends with whitespace, i.e. a new token has not been started
+     */
+    public boolean endsWithSeparator() {
+        return raw.isEmpty() || isSeparator(raw.charAt(raw.length() - 1));
+    }
+
+    /**
+     * Compares the label without creating it.
+     */
+    public boolean labelEqualsIgnoreCase(String label) {
+        int start = labelStart();
+        int end = tokenEnd(raw, start);
+        return end - start == label.length() && raw.regionMatches(true, start, label, 0, label.length());
+    }
+
+    /**
+     * @return the tokens after the label as an unmodifiable list that creates each element on access
+     */
+    public List<String> arguments() {
+        return size() <= 1 ? List.of() : new Arguments();
+    }
+
+    /**
+     * @return the raw text following the label, with the separating whitespace removed
+     */
+    public String argumentString() {
+        return size() <= 1 ? "" : raw.substring(tokenStart(1));
+    }
+
+    /**
+     * Whitespace as matched by {@code \s} in regular expressions.
+     */
+    public static boolean isSeparator(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other || other instanceof CommandLine line && raw.equals(line.raw);
+    }
+
+    @Override
+    public int hashCode() {
+        return raw.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return raw;
+    }
+
+    private static int tokenEnd(String raw, int start) {
+        int index = start;
+        while (index < raw.length() && !isSeparator(raw.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    private static int[] tokenize(String raw) {
+        int count = 0;
+        boolean inToken = false;
+        for (int i = 0; i < raw.length(); i++) {
+            boolean separator = isSeparator(raw.charAt(i));
+            if (!separator && !inToken) {
+                count++;
+            }
+            inToken = !separator;
+        }
+        if (count == 0) {
+            return NO_TOKENS;
+        }
+
+        int[] bounds = new int[count * 2];
+        int token = 0;
+        int index = 0;
+        while (token < count) {
+            while (isSeparator(raw.charAt(index))) {
+                index++;
+            }
+            bounds[token * 2] = index;
+            index = tokenEnd(raw, index);
+            bounds[token * 2 + 1] = index;
+            token++;
+        }
+        return bounds;
+    }
+
+    private final class Arguments extends AbstractList<String> implements RandomAccess {
+        @Override
+        public String get(int index) {
+            if (index < 0) {
+                throw new IndexOutOfBoundsException("Argument " + index);
+            }
+            return token(index + 1);
+        }
+
+        @Override
+        public int size() {
+            return CommandLine.this.size() - 1;
+        }
+    }
+}
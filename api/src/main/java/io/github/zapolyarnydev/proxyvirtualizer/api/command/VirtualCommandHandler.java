@@ -0,0 +1,26 @@
+package io.github.zapolyarnydev.proxyvirtualizer.api.command;
+
+import com.velocitypowered.api.proxy.Player;
+
+import java.util.List;
+
+/**
+ * Executes a command typed by a player inside a virtual server.
+ */
+@FunctionalInterface
+public interface VirtualCommandHandler {
+    /**
+     * @param command command line whose label is the label or alias the player typed
+     */
+    void execute(Player player, CommandLine command);
+
+    /**
+     * Suggests completions for the argument being typed. The command line ends with a separator when
+     * the player has not started the argument yet.
+     *
+     * @return candidates replacing the last argument, or an empty list
+     */
+    default List<String> suggest(Player player, CommandLine command) {
+        return List.of();
+    }
+}
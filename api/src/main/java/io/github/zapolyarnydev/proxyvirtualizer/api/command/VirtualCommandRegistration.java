@@ -0,0 +1,20 @@
+package io.github.zapolyarnydev.proxyvirtualizer.api.command;
+
+/**
+ * Handle returned when a command is registered on a virtual server.
+ */
+public interface VirtualCommandRegistration extends AutoCloseable {
+    String getLabel();
+
+    /**
+     * Removes the label and all aliases of the command.
+     *
+     * @return {@code true} if the command was registered and is now removed
+     */
+    boolean unregister();
+
+    @Override
+    default void close() {
+        unregister();
+    }
+}
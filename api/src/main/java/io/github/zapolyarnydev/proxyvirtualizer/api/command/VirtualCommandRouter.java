@@ -0,0 +1,49 @@
+package io.github.zapolyarnydev.proxyvirtualizer.api.command;
+
+import com.velocitypowered.api.proxy.Player;
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Routes commands typed inside a virtual server to the handlers registered on that server.
+ * Labels and aliases are matched ignoring case, and the same registrations answer tab completion
+ * for players in the server.
+ */
+public interface VirtualCommandRouter {
+    /**
+     * Registers a command on a virtual server.
+     *
+     * @throws IllegalArgumentException if the label or an alias is empty or contains whitespace
+     * @throws IllegalStateException if the label or an alias is already registered on the server
+     */
+    VirtualCommandRegistration register(
+            VirtualServer server,
+            String label,
+            Collection<String> aliases,
+            VirtualCommandHandler handler
+    );
+
+    default VirtualCommandRegistration register(VirtualServer server, String label, VirtualCommandHandler handler) {
+        return register(server, label, List.of(), handler);
+    }
+
+    /**
+     * Runs the handler registered for the label of the command line.
+     *
+     * @return {@code true} if a handler was found
+     */
+    boolean dispatch(VirtualServer server, Player player, CommandLine command);
+
+    /**
+     * Completes a partially typed command: labels and aliases starting with the typed prefix while the
+     * label is typed, the suggestions of the matching handler afterwards.
+     */
+    List<String> suggest(VirtualServer server, Player player, CommandLine command);
+
+    /**
+     * @return labels and aliases registered on the server, in alphabetical order
+     */
+    List<String> getLabels(VirtualServer server);
+}
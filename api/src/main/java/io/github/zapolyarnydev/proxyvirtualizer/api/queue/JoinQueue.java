@@ -0,0 +1,41 @@
+package io.github.zapolyarnydev.proxyvirtualizer.api.queue;
+
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+
+import java.util.Optional;
+import java.util.OptionalInt;
+
+/**
+ * Waiting room in front of backend servers. Queued players are parked in a virtual server and moved to
+ * their backend at the rate it keeps up with, judged by its join latency and free slots. Players holding
+ * a priority permission are moved before everyone without one.
+ */
+public interface JoinQueue {
+    /**
+     * Parks the player in the waiting room and queues them for the backend.
+     *
+     * @return {@code false} if the player is already queued or could not be parked
+     */
+    boolean enqueue(Player player, RegisteredServer backend);
+
+    /**
+     * Removes the player from the queue; they stay in the waiting room.
+     */
+    boolean leave(Player player);
+
+    /**
+     * @return position of the player among those waiting for the same backend, starting at 1
+     */
+    OptionalInt getPosition(Player player);
+
+    /**
+     * @return backend the player waits for
+     */
+    Optional<RegisteredServer> getBackend(Player player);
+
+    /**
+     * @return players waiting for the named backend, matched ignoring case
+     */
+    int getQueuedCount(String backendName);
+}
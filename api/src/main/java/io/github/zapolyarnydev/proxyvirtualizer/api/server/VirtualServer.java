@@ -1,5 +1,9 @@
 package io.github.zapolyarnydev.proxyvirtualizer.api.server;
 
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.tick.Ticker;
+import io.github.zapolyarnydev.proxyvirtualizer.api.signal.SignalBus;
+import io.github.zapolyarnydev.proxyvirtualizer.api.spatial.PlayerPositionIndex;
+
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -23,6 +27,22 @@ public interface VirtualServer {
 
     Map<String, Set<PacketVersionRule>> getPacketVersionMatrix();
 
+    /**
+     * Returns the optional tick loop of this server. It is idle until started.
+     */
+    Ticker getTicker();
+
+    /**
+     * Returns the index of the last known positions of the players in this server.
+     */
+    PlayerPositionIndex getPositionIndex();
+
+    /**
+     * Returns a view of the signal bus whose subscribers only receive signals tagged with this server.
+     * Signals published through the view go to the whole bus.
+     */
+    SignalBus getSignalBus();
+
     record PacketVersionRule(String packetKey, int protocolVersion, int packetVersion) {
     }
 }
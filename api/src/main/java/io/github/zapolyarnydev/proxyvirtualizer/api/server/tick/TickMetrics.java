@@ -0,0 +1,25 @@
+package io.github.zapolyarnydev.proxyvirtualizer.api.server.tick;
+
+/**
+ * Snapshot of a ticker's timing.
+ *
+ * @param tickCount          ticks executed since the ticker was started
+ * @param overrunCount       ticks whose duration exceeded the tick period
+ * @param skippedTicks       ticks dropped because the ticker fell more than one period behind
+ * @param deferredTasks      task executions postponed to a later tick because the budget was spent
+ * @param averageTickMillis  moving average of tick duration
+ * @param maxTickMillis      longest tick observed
+ * @param lastLagMillis      delay between the scheduled and actual start of the last tick
+ * @param tps                measured ticks per second
+ */
+public record TickMetrics(
+        long tickCount,
+        long overrunCount,
+        long skippedTicks,
+        long deferredTasks,
+        double averageTickMillis,
+        double maxTickMillis,
+        double lastLagMillis,
+        double tps
+) {
+}
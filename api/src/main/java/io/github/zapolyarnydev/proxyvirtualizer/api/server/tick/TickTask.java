@@ -0,0 +1,12 @@
+package io.github.zapolyarnydev.proxyvirtualizer.api.server.tick;
+
+/**
+ * Work executed on every tick of a virtual server.
+ */
+@FunctionalInterface
+public interface TickTask {
+    /**
+     * @param tick sequential number of the current tick, starting at {@code 0}
+     */
+    void tick(long tick);
+}
@@ -0,0 +1,18 @@
+package io.github.zapolyarnydev.proxyvirtualizer.api.server.tick;
+
+/**
+ * Handle returned when a tick task is registered.
+ */
+public interface TickTaskHandle extends AutoCloseable {
+    /**
+     * Removes the task from the ticker.
+     *
+     * @return {@code true} if the task was active and is now removed
+     */
+    boolean cancel();
+
+    @Override
+    default void close() {
+        cancel();
+    }
+}
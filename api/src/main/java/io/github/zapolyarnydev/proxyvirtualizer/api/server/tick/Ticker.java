@@ -0,0 +1,35 @@
+package io.github.zapolyarnydev.proxyvirtualizer.api.server.tick;
+
+/**
+ * Optional fixed-rate tick loop of a virtual server.
+ * <p>
+ * Tasks run in registration order on a shared scheduler thread. When a tick spends its time budget,
+ * the remaining tasks are deferred and run first on the next tick.
+ */
+public interface Ticker {
+    /**
+     * Registers a task executed on every tick.
+     */
+    TickTaskHandle register(TickTask task);
+
+    /**
+     * Starts ticking. Does nothing if the ticker is already running.
+     */
+    void start();
+
+    /**
+     * Stops ticking. Registered tasks are kept.
+     */
+    void stop();
+
+    boolean isRunning();
+
+    int getTargetTps();
+
+    /**
+     * Changes the tick rate; a running ticker is rescheduled.
+     */
+    void setTargetTps(int targetTps);
+
+    TickMetrics getMetrics();
+}
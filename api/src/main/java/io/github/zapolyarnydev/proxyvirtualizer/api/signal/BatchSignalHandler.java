@@ -0,0 +1,16 @@
+package io.github.zapolyarnydev.proxyvirtualizer.api.signal;
+
+import java.util.List;
+
+/**
+ * A consumer of typed signals that receives everything published together in one call.
+ *
+ * @param <T> signal type
+ */
+@FunctionalInterface
+public interface BatchSignalHandler<T extends Signal<?, ?>> {
+    /**
+     * @param signals matching signals of one publication, in publication order; never empty
+     */
+    void handle(List<? extends T> signals);
+}
@@ -1,6 +1,11 @@
 package io.github.zapolyarnydev.proxyvirtualizer.api.signal;
 
+import com.velocitypowered.api.proxy.Player;
+
+import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
+import java.util.UUID;
 import java.util.function.Predicate;
 
 /**
@@ -12,6 +17,17 @@ public interface SignalBus {
      */
     void publish(Signal<?, ?> signal);
 
+    /**
+     * Publishes signals produced together. Batch handlers receive all of their matching signals in one
+     * call; other handlers receive them one by one, in order.
+     */
+    default void publishAll(Collection<? extends Signal<?, ?>> signals) {
+        Objects.requireNonNull(signals, "signals");
+        for (Signal<?, ?> signal : signals) {
+            publish(signal);
+        }
+    }
+
     /**
      * Subscribes to all signals.
      */
@@ -37,4 +53,45 @@ public interface SignalBus {
             Predicate<? super T> filter,
             SignalHandler<? super T> handler
     );
+
+    /**
+     * Subscribes a batch handler to signals assignable to the provided type.
+     */
+    default <T extends Signal<?, ?>> SignalSubscription subscribeBatch(
+            Class<T> signalType,
+            BatchSignalHandler<? super T> handler
+    ) {
+        return subscribeBatch(signalType, signal -> true, handler);
+    }
+
+    /**
+     * Subscribes a batch handler to signals assignable to the provided type and matching the filter.
+     * This default delivers each signal as a batch of one.
+     */
+    default <T extends Signal<?, ?>> SignalSubscription subscribeBatch(
+            Class<T> signalType,
+            Predicate<? super T> filter,
+            BatchSignalHandler<? super T> handler
+    ) {
+        Objects.requireNonNull(handler, "handler");
+        return subscribe(signalType, filter, signal -> handler.handle(List.of(signal)));
+    }
+
+    /**
+     * Subscribes to signals assignable to the provided type whose source is the given player.
+     * Implementations may index such subscriptions by player and drop them when the player disconnects;
+     * this default only filters.
+     */
+    default <T extends Signal<?, ?>> SignalSubscription subscribe(
+            UUID playerId,
+            Class<T> signalType,
+            SignalHandler<? super T> handler
+    ) {
+        Objects.requireNonNull(playerId, "playerId");
+        return subscribe(
+                signalType,
+                signal -> signal.source() instanceof Player player && playerId.equals(player.getUniqueId()),
+                handler
+        );
+    }
 }
@@ -0,0 +1,80 @@
+package io.github.zapolyarnydev.proxyvirtualizer.api.signal;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Isolation limits of one subscription.
+ *
+ * @param maxRunTime       run time over which a call counts as an overrun; zero disables offloading
+ * @param failureThreshold failures within {@code failureWindow} that suspend the handler; zero disables
+ * @param failureWindow    window in which failures and overruns are counted
+ * @param openDuration     time a suspended handler waits before a single trial call is let through
+ * @param overrunThreshold overruns within {@code failureWindow} that move the handler off the publishing thread
+ * @param offloadRecovery  time without overruns after which an offloaded handler moves back; zero keeps it offloaded
+ */
+public record SignalHandlerPolicy(
+        Duration maxRunTime,
+        int failureThreshold,
+        Duration failureWindow,
+        Duration openDuration,
+        int overrunThreshold,
+        Duration offloadRecovery
+) {
+    public static final Duration DEFAULT_MAX_RUN_TIME = Duration.ofMillis(5);
+    public static final int DEFAULT_FAILURE_THRESHOLD = 20;
+    public static final Duration DEFAULT_FAILURE_WINDOW = Duration.ofSeconds(10);
+    public static final Duration DEFAULT_OPEN_DURATION = Duration.ofSeconds(30);
+    public static final int DEFAULT_OVERRUN_THRESHOLD = 3;
+    public static final Duration DEFAULT_OFFLOAD_RECOVERY = Duration.ofSeconds(60);
+
+    public SignalHandlerPolicy {
+        Objects.requireNonNull(maxRunTime, "maxRunTime");
+        Objects.requireNonNull(failureWindow, "failureWindow");
+        Objects.requireNonNull(openDuration, "openDuration");
+        Objects.requireNonNull(offloadRecovery, "offloadRecovery");
+        if (maxRunTime.isNegative()) {
+            throw new IllegalArgumentException("Handler run time budget cannot be negative");
+        }
+        if (failureThreshold < 0) {
+            throw new IllegalArgumentException("Handler failure threshold cannot be negative");
+        }
+        if (failureWindow.isNegative() || failureWindow.isZero()) {
+            throw new IllegalArgumentException("Handler failure window must be positive");
+        }
+        if (openDuration.isNegative()) {
+            throw new IllegalArgumentException("Handler suspension cannot be negative");
+        }
+        if (overrunThreshold < 1) {
+            throw new IllegalArgumentException("Handler overrun threshold must be positive");
+        }
+        if (offloadRecovery.isNegative()) {
+            throw new IllegalArgumentException("Handler offload recovery cannot be negative");
+        }
+    }
+
+    /**
+     * Policy with the default overrun threshold and offload recovery.
+     */
+    public SignalHandlerPolicy(Duration maxRunTime, int failureThreshold, Duration failureWindow, Duration openDuration) {
+        this(
+                maxRunTime,
+                failureThreshold,
+                failureWindow,
+                openDuration,
+                DEFAULT_OVERRUN_THRESHOLD,
+                DEFAULT_OFFLOAD_RECOVERY
+        );
+    }
+
+    public static SignalHandlerPolicy defaults() {
+        return new SignalHandlerPolicy(
+                DEFAULT_MAX_RUN_TIME,
+                DEFAULT_FAILURE_THRESHOLD,
+                DEFAULT_FAILURE_WINDOW,
+                DEFAULT_OPEN_DURATION,
+                DEFAULT_OVERRUN_THRESHOLD,
+                DEFAULT_OFFLOAD_RECOVERY
+        );
+    }
+}
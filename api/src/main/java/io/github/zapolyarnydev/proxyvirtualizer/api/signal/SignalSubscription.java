@@ -11,6 +11,15 @@ public interface SignalSubscription extends AutoCloseable {
      */
     boolean unsubscribe();
 
+    /**
+     * Replaces the isolation limits of this subscription. Buses without handler isolation ignore them.
+     *
+     * @return this subscription
+     */
+    default SignalSubscription withPolicy(SignalHandlerPolicy policy) {
+        return this;
+    }
+
     @Override
     default void close() {
         unsubscribe();
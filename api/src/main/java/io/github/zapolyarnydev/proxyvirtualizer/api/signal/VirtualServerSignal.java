@@ -0,0 +1,17 @@
+package io.github.zapolyarnydev.proxyvirtualizer.api.signal;
+
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer;
+
+/**
+ * A signal tagged with the virtual server it was produced in. Tagged signals reach the
+ * {@link VirtualServer#getSignalBus() signal bus of that server} besides the shared one.
+ *
+ * @param <S> source type
+ * @param <P> payload type
+ */
+public interface VirtualServerSignal<S, P> extends Signal<S, P> {
+    /**
+     * @return the server of the source, or {@code null} if the signal was not produced inside one
+     */
+    VirtualServer server();
+}
@@ -1,8 +1,12 @@
 package io.github.zapolyarnydev.proxyvirtualizer.api.signal.player;
 
 import com.velocitypowered.api.proxy.Player;
-import io.github.zapolyarnydev.proxyvirtualizer.api.signal.Signal;
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer;
+import io.github.zapolyarnydev.proxyvirtualizer.api.signal.VirtualServerSignal;
 
-public record PlayerChatSignal(Player source, PlayerChatPayload payload)
-        implements Signal<Player, PlayerChatPayload> {
+public record PlayerChatSignal(Player source, PlayerChatPayload payload, VirtualServer server)
+        implements VirtualServerSignal<Player, PlayerChatPayload> {
+    public PlayerChatSignal(Player source, PlayerChatPayload payload) {
+        this(source, payload, null);
+    }
 }
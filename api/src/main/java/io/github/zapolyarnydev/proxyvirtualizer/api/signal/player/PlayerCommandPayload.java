@@ -1,12 +1,39 @@
 package io.github.zapolyarnydev.proxyvirtualizer.api.signal.player;
 
+import io.github.zapolyarnydev.proxyvirtualizer.api.command.CommandLine;
+
 import java.util.List;
+import java.util.Objects;
 
+/**
+ * Command sent by a player. The label and arguments are read from the tokenized command line, so a
+ * token becomes a {@code String} only when a handler asks for it.
+ */
 public record PlayerCommandPayload(
-        String rawCommand,
-        String label,
-        List<String> arguments,
+        CommandLine commandLine,
         String invocationSource,
         String signedState
 ) {
+    public PlayerCommandPayload {
+        Objects.requireNonNull(commandLine, "commandLine");
+    }
+
+    public static PlayerCommandPayload of(CommandLine command, String invocationSource, String signedState) {
+        return new PlayerCommandPayload(command, invocationSource, signedState);
+    }
+
+    public String rawCommand() {
+        return commandLine.raw();
+    }
+
+    public String label() {
+        return commandLine.label();
+    }
+
+    /**
+     * @return the tokens after the label as an unmodifiable list that creates each element on access
+     */
+    public List<String> arguments() {
+        return commandLine.arguments();
+    }
 }
@@ -1,8 +1,12 @@
 package io.github.zapolyarnydev.proxyvirtualizer.api.signal.player;
 
 import com.velocitypowered.api.proxy.Player;
-import io.github.zapolyarnydev.proxyvirtualizer.api.signal.Signal;
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer;
+import io.github.zapolyarnydev.proxyvirtualizer.api.signal.VirtualServerSignal;
 
-public record PlayerCommandSignal(Player source, PlayerCommandPayload payload)
-        implements Signal<Player, PlayerCommandPayload> {
+public record PlayerCommandSignal(Player source, PlayerCommandPayload payload, VirtualServer server)
+        implements VirtualServerSignal<Player, PlayerCommandPayload> {
+    public PlayerCommandSignal(Player source, PlayerCommandPayload payload) {
+        this(source, payload, null);
+    }
 }
@@ -1,8 +1,12 @@
 package io.github.zapolyarnydev.proxyvirtualizer.api.signal.player;
 
 import com.velocitypowered.api.proxy.Player;
-import io.github.zapolyarnydev.proxyvirtualizer.api.signal.Signal;
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer;
+import io.github.zapolyarnydev.proxyvirtualizer.api.signal.VirtualServerSignal;
 
-public record PlayerLookSignal(Player source, PlayerLookPayload payload)
-        implements Signal<Player, PlayerLookPayload> {
+public record PlayerLookSignal(Player source, PlayerLookPayload payload, VirtualServer server)
+        implements VirtualServerSignal<Player, PlayerLookPayload> {
+    public PlayerLookSignal(Player source, PlayerLookPayload payload) {
+        this(source, payload, null);
+    }
 }
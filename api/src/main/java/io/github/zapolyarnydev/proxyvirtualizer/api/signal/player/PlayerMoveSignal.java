@@ -1,8 +1,12 @@
 package io.github.zapolyarnydev.proxyvirtualizer.api.signal.player;
 
 import com.velocitypowered.api.proxy.Player;
-import io.github.zapolyarnydev.proxyvirtualizer.api.signal.Signal;
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer;
+import io.github.zapolyarnydev.proxyvirtualizer.api.signal.VirtualServerSignal;
 
-public record PlayerMoveSignal(Player source, PlayerMovePayload payload)
-        implements Signal<Player, PlayerMovePayload> {
+public record PlayerMoveSignal(Player source, PlayerMovePayload payload, VirtualServer server)
+        implements VirtualServerSignal<Player, PlayerMovePayload> {
+    public PlayerMoveSignal(Player source, PlayerMovePayload payload) {
+        this(source, payload, null);
+    }
 }
@@ -0,0 +1,61 @@
+package io.github.zapolyarnydev.proxyvirtualizer.api.spatial;
+
+import com.velocitypowered.api.proxy.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Spatial index of the last known positions of the players in a virtual server.
+ * Positions are updated from the movement packets players send.
+ * <p>
+ * Consumers passed to the {@code forEach*} methods run while the index is read-locked
+ * and must not block.
+ */
+public interface PlayerPositionIndex {
+    /**
+     * @return number of players with a known position
+     */
+    int size();
+
+    boolean contains(Player player);
+
+    /**
+     * Visits players inside the axis-aligned box (bounds inclusive).
+     *
+     * @return number of visited players
+     */
+    int forEachInBox(
+            double minX, double minY, double minZ,
+            double maxX, double maxY, double maxZ,
+            Consumer<? super Player> consumer
+    );
+
+    /**
+     * Visits players within {@code radius} blocks of the point.
+     *
+     * @return number of visited players
+     */
+    int forEachInRadius(double x, double y, double z, double radius, Consumer<? super Player> consumer);
+
+    /**
+     * Returns up to {@code limit} players closest to the point, nearest first.
+     */
+    List<Player> getNearest(double x, double y, double z, int limit);
+
+    default List<Player> getInBox(
+            double minX, double minY, double minZ,
+            double maxX, double maxY, double maxZ
+    ) {
+        List<Player> result = new ArrayList<>();
+        forEachInBox(minX, minY, minZ, maxX, maxY, maxZ, result::add);
+        return result;
+    }
+
+    default List<Player> getInRadius(double x, double y, double z, double radius) {
+        List<Player> result = new ArrayList<>();
+        forEachInRadius(x, y, z, radius, result::add);
+        return result;
+    }
+}
@@ -0,0 +1,27 @@
+package io.github.zapolyarnydev.proxyvirtualizer.api.world;
+
+import java.nio.file.Path;
+
+/**
+ * Read-only world snapshot attached to a virtual server. Chunks are streamed to the players
+ * of the server around their last known position.
+ */
+public interface VirtualWorld {
+    /**
+     * @return world directory, region directory or schematic file the snapshot was loaded from
+     */
+    Path getSource();
+
+    /**
+     * @return number of chunks stored in the snapshot
+     */
+    int getChunkCount();
+
+    boolean hasChunk(int chunkX, int chunkZ);
+
+    double getSpawnX();
+
+    double getSpawnY();
+
+    double getSpawnZ();
+}
@@ -0,0 +1,28 @@
+package io.github.zapolyarnydev.proxyvirtualizer.api.world;
+
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Attaches read-only world snapshots to virtual servers.
+ */
+public interface WorldManager {
+    /**
+     * Loads an Anvil world (or its {@code region} directory) or a Sponge schematic and attaches it to
+     * the server, replacing the previously attached world. Players already in the server start receiving
+     * chunks on the next tick.
+     */
+    VirtualWorld load(VirtualServer virtualServer, Path source) throws IOException;
+
+    /**
+     * Detaches and closes the world of the server.
+     *
+     * @return {@code true} if a world was attached
+     */
+    boolean unload(VirtualServer virtualServer);
+
+    Optional<VirtualWorld> getWorld(VirtualServer virtualServer);
+}
@@ -6,6 +6,7 @@ import com.velocitypowered.api.event.connection.DisconnectEvent;
 import com.velocitypowered.api.event.proxy.ProxyInitializeEvent;
 import com.velocitypowered.api.event.proxy.ProxyShutdownEvent;
 import com.velocitypowered.api.plugin.Plugin;
+import com.velocitypowered.api.plugin.annotation.DataDirectory;
 import com.velocitypowered.api.proxy.ProxyServer;
 import io.github.zapolyarnydev.proxyvirtualizer.api.ProxyVirtualizerApi;
 import io.github.zapolyarnydev.proxyvirtualizer.api.ProxyVirtualizerApiProvider;
@@ -14,16 +15,41 @@ import io.github.zapolyarnydev.proxyvirtualizer.api.connector.Connector;
 import io.github.zapolyarnydev.proxyvirtualizer.api.registry.ServerContainer;
 import io.github.zapolyarnydev.proxyvirtualizer.api.server.Launcher;
 import io.github.zapolyarnydev.proxyvirtualizer.api.signal.SignalBus;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.capture.CaptureService;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.balancer.PingingBackendSelector;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.cluster.ClusterReplicator;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.cluster.ClusterSettings;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.cluster.LoopbackClusterTransport;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.cluster.UdpClusterTransport;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.command.DefaultVirtualCommandRouter;
 import io.github.zapolyarnydev.proxyvirtualizer.plugin.command.VirtualServerCommand;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.config.PluginSettings;
 import io.github.zapolyarnydev.proxyvirtualizer.plugin.connector.InMemoryConnectionStorage;
 import io.github.zapolyarnydev.proxyvirtualizer.plugin.connector.VelocityConnectorImpl;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.keepalive.KeepAliveService;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.metrics.MetricsHttpServer;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.metrics.MetricsRegistry;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.metrics.PluginMetrics;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.metrics.StatsDashboard;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.network.OutboundQueueService;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.packet.ActionBarPacketCache;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.packet.LimboChunkCache;
 import io.github.zapolyarnydev.proxyvirtualizer.plugin.packet.VelocityVirtualPacketSender;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.queue.DefaultJoinQueue;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.queue.LoginShield;
 import io.github.zapolyarnydev.proxyvirtualizer.plugin.registry.InMemoryServerContainer;
 import io.github.zapolyarnydev.proxyvirtualizer.plugin.server.DefaultVirtualServerLauncher;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.server.profile.ServerProfileManager;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.server.tick.TickScheduler;
 import io.github.zapolyarnydev.proxyvirtualizer.plugin.signal.DefaultSignalBus;
 import io.github.zapolyarnydev.proxyvirtualizer.plugin.signal.VelocitySignalBridge;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.state.WarmStateStore;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.world.DefaultWorldManager;
 import org.slf4j.Logger;
 
+import java.io.IOException;
+import java.nio.file.Path;
+
 @Plugin(
         id = "proxyvirtualizer",
         name = "ProxyVirtualizer",
@@ -33,56 +59,226 @@ public final class ProxyVirtualizerVelocityPlugin {
 
     private final ProxyServer proxyServer;
     private final Logger logger;
+    private final PluginSettings settings;
 
-    private final ServerContainer serverContainer;
-    private final ConnectionStorage connectionStorage;
+    private final InMemoryServerContainer serverContainer;
+    private final InMemoryConnectionStorage connectionStorage;
+    private final PluginMetrics metrics;
+    private final ClusterReplicator cluster;
+    private final WarmStateStore warmState;
+    private final MetricsHttpServer metricsHttpServer;
+    private final PingingBackendSelector backendSelector;
     private final VelocityConnectorImpl connector;
+    private final LimboChunkCache chunkCache;
+    private final ActionBarPacketCache actionBarCache;
+    private final OutboundQueueService outboundQueues;
     private final VelocityVirtualPacketSender packetSender;
-    private final Launcher launcher;
-    private final SignalBus signalBus;
+    private final KeepAliveService keepAliveService;
+    private final TickScheduler tickScheduler;
+    private final DefaultWorldManager worldManager;
+    private final DefaultVirtualServerLauncher launcher;
+    private final ServerProfileManager serverProfiles;
+    private final DefaultJoinQueue joinQueue;
+    private final LoginShield loginShield;
+    private final DefaultSignalBus signalBus;
+    private final DefaultVirtualCommandRouter commandRouter;
+    private final CaptureService captureService;
     private final VelocitySignalBridge signalBridge;
+    private final StatsDashboard statsDashboard;
     private final ProxyVirtualizerApi api;
 
     @Inject
-    public ProxyVirtualizerVelocityPlugin(ProxyServer proxyServer, Logger logger) {
+    public ProxyVirtualizerVelocityPlugin(ProxyServer proxyServer, Logger logger, @DataDirectory Path dataDirectory) {
         this.proxyServer = proxyServer;
         this.logger = logger;
+        this.settings = PluginSettings.load(dataDirectory, logger);
 
         this.serverContainer = new InMemoryServerContainer();
         this.connectionStorage = new InMemoryConnectionStorage();
-        this.packetSender = new VelocityVirtualPacketSender(proxyServer, connectionStorage);
-        this.connector = new VelocityConnectorImpl(proxyServer, connectionStorage, packetSender);
-        this.launcher = new DefaultVirtualServerLauncher(proxyServer, serverContainer, connectionStorage, connector);
-        this.signalBus = new DefaultSignalBus(logger);
-        this.signalBridge = new VelocitySignalBridge(proxyServer, connectionStorage, signalBus, logger);
-        this.api = ProxyVirtualizerApi.of(serverContainer, launcher, connector, connectionStorage, signalBus);
+        this.metrics = new PluginMetrics(new MetricsRegistry(), proxyServer, serverContainer, connectionStorage);
+        this.metricsHttpServer = new MetricsHttpServer(metrics.getRegistry(), settings.metrics(), logger);
+        this.cluster = new ClusterReplicator(settings.cluster(), metrics, logger);
+        this.warmState = new WarmStateStore(proxyServer, serverContainer, settings.warmState(), dataDirectory, logger);
+        serverContainer.addListener(cluster);
+        connectionStorage.addListener(cluster);
+        connectionStorage.addListener(warmState);
+        this.chunkCache = new LimboChunkCache(settings.limboChunks());
+        this.actionBarCache = new ActionBarPacketCache();
+        this.outboundQueues = new OutboundQueueService(settings.outbound(), metrics, logger);
+        this.packetSender = new VelocityVirtualPacketSender(
+                proxyServer,
+                connectionStorage,
+                chunkCache,
+                actionBarCache,
+                outboundQueues,
+                metrics
+        );
+        this.keepAliveService = new KeepAliveService(connectionStorage, packetSender, settings.keepAlive(), logger);
+        this.worldManager = new DefaultWorldManager(
+                proxyServer,
+                connectionStorage,
+                packetSender,
+                settings.worlds(),
+                settings.limboChunks(),
+                dataDirectory,
+                logger
+        );
+        this.signalBus = new DefaultSignalBus(proxyServer, logger, metrics, settings.signals());
+        this.commandRouter = new DefaultVirtualCommandRouter(logger);
+        this.captureService = new CaptureService(connectionStorage, settings.capture(), dataDirectory, logger);
+        this.signalBridge = new VelocitySignalBridge(
+                proxyServer,
+                connectionStorage,
+                signalBus,
+                commandRouter,
+                keepAliveService,
+                worldManager,
+                outboundQueues,
+                captureService,
+                metrics,
+                logger
+        );
+        this.backendSelector = new PingingBackendSelector(proxyServer, settings.balancer(), metrics, logger);
+        this.connector = new VelocityConnectorImpl(
+                proxyServer,
+                connectionStorage,
+                packetSender,
+                keepAliveService,
+                worldManager,
+                outboundQueues,
+                signalBridge,
+                warmState,
+                backendSelector,
+                metrics
+        );
+        this.tickScheduler = new TickScheduler(settings.tick(), logger);
+        this.launcher = new DefaultVirtualServerLauncher(
+                proxyServer,
+                serverContainer,
+                connectionStorage,
+                connector,
+                tickScheduler,
+                worldManager,
+                commandRouter,
+                signalBus
+        );
+        this.serverProfiles = new ServerProfileManager(
+                launcher,
+                serverContainer,
+                worldManager,
+                settings.serverProfiles(),
+                dataDirectory,
+                logger
+        );
+        this.joinQueue = new DefaultJoinQueue(
+                serverContainer,
+                launcher,
+                connector,
+                connectionStorage,
+                packetSender,
+                settings.joinQueue(),
+                metrics,
+                logger
+        );
+        connectionStorage.addListener(joinQueue);
+        this.loginShield = new LoginShield(settings.loginShield(), metrics, logger);
+        this.statsDashboard = new StatsDashboard(this, proxyServer, serverContainer, connectionStorage, metrics);
+        this.api = ProxyVirtualizerApi.of(
+                serverContainer,
+                launcher,
+                connector,
+                connectionStorage,
+                signalBus,
+                worldManager,
+                commandRouter,
+                cluster,
+                joinQueue,
+                backendSelector
+        );
     }
 
     @Subscribe
     public void onProxyInitialize(ProxyInitializeEvent event) {
+        serverProfiles.start();
+        warmState.restore(launcher);
         ProxyVirtualizerApiProvider.register(api);
         proxyServer.getEventManager().register(this, signalBridge);
+        proxyServer.getEventManager().register(this, joinQueue);
+        proxyServer.getEventManager().register(this, loginShield);
         proxyServer.getCommandManager().register(
                 proxyServer.getCommandManager()
                         .metaBuilder("vserver")
                         .aliases("virtualserver", "vs")
                         .plugin(this)
                         .build(),
-                new VirtualServerCommand(serverContainer, proxyServer, launcher, connector, packetSender)
+                new VirtualServerCommand(
+                        serverContainer,
+                        proxyServer,
+                        launcher,
+                        connector,
+                        packetSender,
+                        keepAliveService,
+                        worldManager,
+                        captureService,
+                        signalBridge,
+                        statsDashboard,
+                        joinQueue,
+                        loginShield,
+                        backendSelector
+                )
         );
+        startCluster(settings.cluster());
+        if (settings.metrics().enabled()) {
+            try {
+                metricsHttpServer.start();
+            } catch (IOException exception) {
+                logger.warn("Unable to start the metrics endpoint", exception);
+            }
+        }
         logger.info("ProxyVirtualizer initialized");
     }
 
     @Subscribe
     public void onProxyShutdown(ProxyShutdownEvent event) {
+        serverProfiles.shutdown();
+        joinQueue.shutdown();
+        loginShield.shutdown();
+        backendSelector.shutdown();
+        metricsHttpServer.stop();
+        cluster.shutdown();
+        warmState.shutdown();
+        statsDashboard.shutdown();
         signalBridge.shutdown();
+        signalBus.shutdown();
+        captureService.shutdown();
+        keepAliveService.shutdown();
+        worldManager.shutdown();
+        tickScheduler.shutdown();
+        chunkCache.clear();
+        actionBarCache.clear();
         ProxyVirtualizerApiProvider.unregister();
     }
 
+    private void startCluster(ClusterSettings clusterSettings) {
+        try {
+            switch (clusterSettings.transport()) {
+                case ClusterSettings.TRANSPORT_LOOPBACK -> cluster.setTransport(LoopbackClusterTransport.Hub.shared().join());
+                case ClusterSettings.TRANSPORT_UDP -> cluster.setTransport(UdpClusterTransport.fromSettings(clusterSettings, logger));
+                default -> {
+                    return;
+                }
+            }
+            logger.info("Cluster replication started as node {}", cluster.getLocalNodeId());
+        } catch (IOException | RuntimeException exception) {
+            logger.warn("Unable to start cluster replication, continuing standalone", exception);
+        }
+    }
+
     @Subscribe
     public void onPlayerDisconnect(DisconnectEvent event) {
         connector.disconnect(event.getPlayer());
         connector.forgetPlayer(event.getPlayer());
+        signalBus.forgetPlayer(event.getPlayer().getUniqueId());
     }
 
     public ProxyServer getProxyServer() {
@@ -113,10 +309,50 @@ public final class ProxyVirtualizerVelocityPlugin {
         return signalBus;
     }
 
+    public ClusterReplicator getCluster() {
+        return cluster;
+    }
+
+    public DefaultJoinQueue getJoinQueue() {
+        return joinQueue;
+    }
+
+    public PingingBackendSelector getBackendSelector() {
+        return backendSelector;
+    }
+
+    public DefaultVirtualCommandRouter getCommandRouter() {
+        return commandRouter;
+    }
+
     public VelocityVirtualPacketSender getPacketSender() {
         return packetSender;
     }
 
+    public KeepAliveService getKeepAliveService() {
+        return keepAliveService;
+    }
+
+    public OutboundQueueService getOutboundQueues() {
+        return outboundQueues;
+    }
+
+    public DefaultWorldManager getWorldManager() {
+        return worldManager;
+    }
+
+    public PluginMetrics getMetrics() {
+        return metrics;
+    }
+
+    public CaptureService getCaptureService() {
+        return captureService;
+    }
+
+    public PluginSettings getSettings() {
+        return settings;
+    }
+
     public ProxyVirtualizerApi getApi() {
         return api;
     }
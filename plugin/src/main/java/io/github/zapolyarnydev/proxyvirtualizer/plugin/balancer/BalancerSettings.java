@@ -0,0 +1,46 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.balancer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Backend selection for players leaving a virtual server without a previous server.
+ *
+ * @param strategy         {@code least-loaded} or {@code weighted-random}
+ * @param servers          candidate backends, empty for every backend registered with the proxy
+ * @param pingInterval     delay between two pings of each backend
+ * @param failureThreshold failed pings in a row after which a backend is skipped
+ */
+public record BalancerSettings(
+        String strategy,
+        List<String> servers,
+        Duration pingInterval,
+        int failureThreshold
+) {
+    public static final String STRATEGY_LEAST_LOADED = "least-loaded";
+    public static final String STRATEGY_WEIGHTED_RANDOM = "weighted-random";
+
+    public static final String DEFAULT_STRATEGY = STRATEGY_LEAST_LOADED;
+    public static final Duration DEFAULT_PING_INTERVAL = Duration.ofSeconds(3);
+    public static final int DEFAULT_FAILURE_THRESHOLD = 2;
+
+    public BalancerSettings {
+        Objects.requireNonNull(strategy, "strategy");
+        servers = List.copyOf(Objects.requireNonNull(servers, "servers"));
+        Objects.requireNonNull(pingInterval, "pingInterval");
+        if (!strategy.equals(STRATEGY_LEAST_LOADED) && !strategy.equals(STRATEGY_WEIGHTED_RANDOM)) {
+            throw new IllegalArgumentException("Balancer strategy must be least-loaded or weighted-random");
+        }
+        if (pingInterval.isZero()) {
+            throw new IllegalArgumentException("Balancer ping interval must be positive");
+        }
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("Balancer failure threshold must be positive");
+        }
+    }
+
+    public static BalancerSettings defaults() {
+        return new BalancerSettings(DEFAULT_STRATEGY, List.of(), DEFAULT_PING_INTERVAL, DEFAULT_FAILURE_THRESHOLD);
+    }
+}
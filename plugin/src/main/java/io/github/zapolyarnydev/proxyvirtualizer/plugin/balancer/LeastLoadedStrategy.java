@@ -0,0 +1,53 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.balancer;
+
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import io.github.zapolyarnydev.proxyvirtualizer.api.balancer.BackendLoad;
+import io.github.zapolyarnydev.proxyvirtualizer.api.balancer.BackendSelectionStrategy;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Sends a player to the less loaded of two backends drawn at random. Players sent since the last ping
+ * are added to its online count, so a burst spreads out instead of piling onto the backend that looked
+ * emptiest at the ping. With two backends the choice is exact; with more, two draws keep the busiest
+ * ones out of reach at constant cost. Load is the share of the player limit in use, or the online
+ * count for backends that report no limit, which then rank after every backend with room.
+ */
+final class LeastLoadedStrategy implements BackendSelectionStrategy {
+    @Override
+    public Selection prepare(List<BackendLoad> backends) {
+        int size = backends.size();
+        RegisteredServer[] servers = new RegisteredServer[size];
+        int[] online = new int[size];
+        int[] max = new int[size];
+        for (int i = 0; i < size; i++) {
+            BackendLoad load = backends.get(i);
+            servers[i] = load.server();
+            online[i] = Math.max(0, load.online());
+            max[i] = load.max();
+        }
+        AtomicIntegerArray sent = new AtomicIntegerArray(size);
+
+        return player -> {
+            int chosen = 0;
+            if (size > 1) {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int first = random.nextInt(size);
+                int second = random.nextInt(size - 1);
+                if (second >= first) {
+                    second++;
+                }
+                chosen = load(first, online, max, sent) <= load(second, online, max, sent) ? first : second;
+            }
+            sent.incrementAndGet(chosen);
+            return servers[chosen];
+        };
+    }
+
+    private static double load(int index, int[] online, int[] max, AtomicIntegerArray sent) {
+        int players = online[index] + sent.get(index);
+        return max[index] > 0 ? (double) players / max[index] : 1.0D + players;
+    }
+}
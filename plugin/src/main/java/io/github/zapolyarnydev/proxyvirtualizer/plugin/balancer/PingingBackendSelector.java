@@ -0,0 +1,239 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.balancer;
+
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.proxy.server.ServerPing;
+import io.github.zapolyarnydev.proxyvirtualizer.api.balancer.BackendLoad;
+import io.github.zapolyarnydev.proxyvirtualizer.api.balancer.BackendSelectionStrategy;
+import io.github.zapolyarnydev.proxyvirtualizer.api.balancer.BackendSelector;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.metrics.PluginMetrics;
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BackendSelector} fed by background server list pings.
+ * <p>
+ * Every ping interval each candidate backend is pinged, unless its previous ping is still running. Ping
+ * results are folded in on a single thread, which hands the healthy backends to the strategy and publishes
+ * the resulting selection once every ping of the round has finished, or when the next round starts. A
+ * selection reads only that published snapshot, so sending a player never waits on the network, and the
+ * players a strategy has counted since the last publication are only reset once per round. A backend is
+ * skipped after {@code failureThreshold} failed pings in a row and returns with its next answered ping; a
+ * backend not pinged yet counts as healthy and empty.
+ */
+public final class PingingBackendSelector implements BackendSelector {
+    private final ProxyServer proxyServer;
+    private final BalancerSettings settings;
+    private final Logger logger;
+    private final Set<String> candidates = new HashSet<>();
+    private final ScheduledExecutorService executor;
+    private volatile BackendSelectionStrategy strategy;
+    private volatile BackendSelectionStrategy.Selection selection;
+    private volatile List<BackendLoad> loads = List.of();
+    private volatile int healthyCount;
+
+    // Confined to the executor thread.
+    private final Map<String, Backend> backends = new HashMap<>();
+    private long round;
+    private int pendingPings;
+    private boolean changed;
+
+    public PingingBackendSelector(ProxyServer proxyServer, BalancerSettings settings, PluginMetrics metrics, Logger logger) {
+        this.proxyServer = Objects.requireNonNull(proxyServer, "proxyServer");
+        this.settings = Objects.requireNonNull(settings, "settings");
+        this.logger = Objects.requireNonNull(logger, "logger");
+        for (String server : settings.servers()) {
+            candidates.add(normalize(server));
+        }
+        this.strategy = switch (settings.strategy()) {
+            case BalancerSettings.STRATEGY_WEIGHTED_RANDOM -> new WeightedRandomStrategy();
+            default -> new LeastLoadedStrategy();
+        };
+
+        metrics.getRegistry().gauge(
+                "proxyvirtualizer_backends_healthy", "Backends answering their pings", () -> healthyCount
+        );
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "proxyvirtualizer-backend-pings");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = settings.pingInterval().toMillis();
+        this.executor.scheduleWithFixedDelay(this::refreshSafely, 0L, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Optional<RegisteredServer> select(Player player) {
+        Objects.requireNonNull(player, "player");
+        BackendSelectionStrategy.Selection current = selection;
+        return current == null ? Optional.empty() : Optional.ofNullable(current.next(player));
+    }
+
+    @Override
+    public List<BackendLoad> getLoads() {
+        return loads;
+    }
+
+    @Override
+    public void setStrategy(BackendSelectionStrategy strategy) {
+        this.strategy = Objects.requireNonNull(strategy, "strategy");
+        executor.execute(this::publishSafely);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void refreshSafely() {
+        try {
+            refresh();
+        } catch (RuntimeException exception) {
+            logger.warn("Unable to refresh backend loads", exception);
+        }
+    }
+
+    private void refresh() {
+        if (pendingPings > 0) {
+            // The previous round ran out of time; publish what it got.
+            finishRound();
+        }
+        round++;
+        Set<String> registered = new HashSet<>();
+        for (RegisteredServer server : proxyServer.getAllServers()) {
+            String name = normalize(server.getServerInfo().getName());
+            if (!candidates.isEmpty() && !candidates.contains(name)) {
+                continue;
+            }
+            registered.add(name);
+            Backend backend = backends.get(name);
+            if (backend == null || !backend.server.equals(server)) {
+                backend = new Backend(server);
+                backends.put(name, backend);
+                changed = true;
+            }
+            if (ping(backend, round)) {
+                pendingPings++;
+            }
+        }
+        if (backends.keySet().retainAll(registered)) {
+            changed = true;
+        }
+        if (pendingPings == 0) {
+            finishRound();
+        }
+    }
+
+    /**
+     * @return whether a ping was sent; a backend whose previous ping is still running is left alone
+     */
+    private boolean ping(Backend backend, long pingRound) {
+        if (backend.pinging) {
+            return false;
+        }
+        backend.pinging = true;
+        long started = System.nanoTime();
+        CompletableFuture<ServerPing> ping;
+        try {
+            ping = backend.server.ping();
+        } catch (RuntimeException exception) {
+            ping = CompletableFuture.failedFuture(exception);
+        }
+        ping.whenComplete((result, error) -> {
+            long latency = System.nanoTime() - started;
+            executor.execute(() -> {
+                pinged(backend, error == null ? result : null, latency);
+                if (pingRound == round && pendingPings > 0 && --pendingPings == 0) {
+                    finishRound();
+                }
+            });
+        });
+        return true;
+    }
+
+    private void finishRound() {
+        pendingPings = 0;
+        if (changed) {
+            publishSafely();
+        }
+    }
+
+    private void pinged(Backend backend, ServerPing result, long latencyNanos) {
+        backend.pinging = false;
+        changed = true;
+        if (result == null) {
+            backend.failures++;
+            return;
+        }
+        backend.failures = 0;
+        ServerPing.Players players = result.getPlayers().orElse(null);
+        backend.online = players == null ? 0 : players.getOnline();
+        backend.max = players == null ? 0 : players.getMax();
+        backend.latency = Duration.ofNanos(latencyNanos);
+    }
+
+    private void publishSafely() {
+        try {
+            publish();
+        } catch (RuntimeException exception) {
+            logger.warn("Backend selection strategy {} failed, keeping the previous selection",
+                    strategy.getClass().getName(), exception);
+        }
+    }
+
+    private void publish() {
+        changed = false;
+        List<BackendLoad> all = new ArrayList<>(backends.size());
+        List<BackendLoad> healthy = new ArrayList<>(backends.size());
+        for (Backend backend : backends.values()) {
+            BackendLoad load = new BackendLoad(
+                    backend.server,
+                    backend.failures < settings.failureThreshold(),
+                    backend.online,
+                    backend.max,
+                    backend.latency
+            );
+            all.add(load);
+            // Skipped backends are still pinged every interval, only selection leaves them out.
+            if (load.healthy()) {
+                healthy.add(load);
+            }
+        }
+        all.sort((left, right) -> left.server().getServerInfo().getName()
+                .compareToIgnoreCase(right.server().getServerInfo().getName()));
+        loads = List.copyOf(all);
+        healthyCount = healthy.size();
+        selection = healthy.isEmpty() ? null : strategy.prepare(List.copyOf(healthy));
+    }
+
+    private static String normalize(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Backend {
+        private final RegisteredServer server;
+        private boolean pinging;
+        private int failures;
+        private int online;
+        private int max;
+        private Duration latency = Duration.ZERO;
+
+        private Backend(RegisteredServer server) {
+            this.server = server;
+        }
+    }
+}
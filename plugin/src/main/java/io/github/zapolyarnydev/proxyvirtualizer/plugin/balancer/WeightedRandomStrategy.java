@@ -0,0 +1,79 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.balancer;
+
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import io.github.zapolyarnydev.proxyvirtualizer.api.balancer.BackendLoad;
+import io.github.zapolyarnydev.proxyvirtualizer.api.balancer.BackendSelectionStrategy;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sends a player to a random backend, weighted by its free share of the player limit, or by the inverse
+ * of its online count when it reports no limit. Picks go through an alias table built once per refresh,
+ * so each one costs two random numbers whatever the number of backends. Full backends are never drawn
+ * unless every backend is full, in which case all weigh the same.
+ */
+final class WeightedRandomStrategy implements BackendSelectionStrategy {
+    @Override
+    public Selection prepare(List<BackendLoad> backends) {
+        int size = backends.size();
+        RegisteredServer[] servers = new RegisteredServer[size];
+        double[] weights = new double[size];
+        double total = 0.0D;
+        for (int i = 0; i < size; i++) {
+            BackendLoad load = backends.get(i);
+            servers[i] = load.server();
+            int online = Math.max(0, load.online());
+            weights[i] = load.max() > 0
+                    ? Math.max(0, load.max() - online) / (double) load.max()
+                    : 1.0D / (1 + online);
+            total += weights[i];
+        }
+        if (total <= 0.0D) {
+            Arrays.fill(weights, 1.0D);
+            total = size;
+        }
+
+        // Vose's alias method: every column holds its own share and, above it, an alias for the rest.
+        double[] probability = new double[size];
+        int[] alias = new int[size];
+        int[] small = new int[size];
+        int[] large = new int[size];
+        int smallCount = 0;
+        int largeCount = 0;
+        double[] scaled = new double[size];
+        for (int i = 0; i < size; i++) {
+            scaled[i] = weights[i] * size / total;
+            if (scaled[i] < 1.0D) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            probability[less] = scaled[less];
+            alias[less] = more;
+            scaled[more] = scaled[more] + scaled[less] - 1.0D;
+            if (scaled[more] < 1.0D) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+        while (largeCount > 0) {
+            probability[large[--largeCount]] = 1.0D;
+        }
+        while (smallCount > 0) {
+            probability[small[--smallCount]] = 1.0D;
+        }
+
+        return player -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int column = random.nextInt(size);
+            return random.nextDouble() < probability[column] ? servers[column] : servers[alias[column]];
+        };
+    }
+}
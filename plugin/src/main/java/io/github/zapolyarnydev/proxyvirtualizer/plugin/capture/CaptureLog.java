@@ -0,0 +1,170 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.capture;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Append-only capture file written through memory-mapped segments.
+ * <p>
+ * Layout (big-endian): a header of {@link #MAGIC} and the capture start in epoch millis, followed by
+ * records. A player record assigns an index to a (player, server, protocol) combination the first time
+ * it is seen; frame records reference that index and carry the nanoseconds since the capture started.
+ * The file is truncated to the written length on close; a zero tag marks the end of the data otherwise.
+ */
+final class CaptureLog implements Closeable {
+    static final long MAGIC = 0x5056_4341_5054_0001L;
+    static final int HEADER_BYTES = Long.BYTES * 2;
+    static final byte RECORD_END = 0;
+    static final byte RECORD_PLAYER = 1;
+    static final byte RECORD_FRAME = 2;
+
+    private static final int SEGMENT_BYTES = 4 * 1024 * 1024;
+    private static final int FRAME_RECORD_OVERHEAD = 1 + Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final long maxBytes;
+    private final long startNanos;
+    private final Map<PlayerKey, Integer> playerIndexes = new HashMap<>();
+    private MappedByteBuffer segment;
+    private long segmentOffset;
+    private long frames;
+    private boolean closed;
+
+    private CaptureLog(Path file, FileChannel channel, long maxBytes) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        this.maxBytes = maxBytes;
+        this.segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.min(SEGMENT_BYTES, maxBytes));
+        this.segment.putLong(MAGIC);
+        this.segment.putLong(System.currentTimeMillis());
+        this.startNanos = System.nanoTime();
+    }
+
+    static CaptureLog create(Path file, long maxBytes) throws IOException {
+        Objects.requireNonNull(file, "file");
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        FileChannel channel = FileChannel.open(
+                file,
+                StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE
+        );
+        try {
+            return new CaptureLog(file, channel, maxBytes);
+        } catch (IOException | RuntimeException exception) {
+            channel.close();
+            throw exception;
+        }
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    /**
+     * Appends one frame.
+     *
+     * @return {@code false} when the log is closed or the frame would exceed the size limit
+     */
+    synchronized boolean append(UUID playerId, String username, String server, int protocol, byte[] frame)
+            throws IOException {
+        if (closed) {
+            return false;
+        }
+
+        long timestamp = System.nanoTime() - startNanos;
+        PlayerKey key = new PlayerKey(playerId, server, protocol);
+        Integer index = playerIndexes.get(key);
+        if (index == null) {
+            byte[] name = username.getBytes(StandardCharsets.UTF_8);
+            byte[] serverName = server.getBytes(StandardCharsets.UTF_8);
+            if (!ensureCapacity(1 + Integer.BYTES + Long.BYTES * 2 + Integer.BYTES
+                    + Short.BYTES * 2 + name.length + serverName.length)) {
+                return false;
+            }
+            index = playerIndexes.size();
+            segment.put(RECORD_PLAYER);
+            segment.putInt(index);
+            segment.putLong(playerId.getMostSignificantBits());
+            segment.putLong(playerId.getLeastSignificantBits());
+            segment.putInt(protocol);
+            putString(name);
+            putString(serverName);
+            playerIndexes.put(key, index);
+        }
+
+        if (!ensureCapacity(FRAME_RECORD_OVERHEAD + frame.length)) {
+            return false;
+        }
+        segment.put(RECORD_FRAME);
+        segment.putInt(index);
+        segment.putLong(timestamp);
+        segment.putInt(frame.length);
+        segment.put(frame);
+        frames++;
+        return true;
+    }
+
+    synchronized long getFrameCount() {
+        return frames;
+    }
+
+    synchronized long getSizeBytes() {
+        return segmentOffset + segment.position();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        long size = segmentOffset + segment.position();
+        try {
+            segment.force();
+            channel.truncate(size);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void putString(byte[] value) {
+        segment.putShort((short) value.length);
+        segment.put(value);
+    }
+
+    private boolean ensureCapacity(int bytes) throws IOException {
+        if (segment.remaining() >= bytes) {
+            return true;
+        }
+        long position = segmentOffset + segment.position();
+        if (position + bytes > maxBytes) {
+            return false;
+        }
+
+        segmentOffset = position;
+        segment = channel.map(
+                FileChannel.MapMode.READ_WRITE,
+                segmentOffset,
+                Math.min(Math.max(SEGMENT_BYTES, bytes), maxBytes - segmentOffset)
+        );
+        return true;
+    }
+
+    private record PlayerKey(UUID playerId, String server, int protocol) {
+    }
+}
@@ -0,0 +1,84 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.capture;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+
+/**
+ * Sequential reader of files written by {@link CaptureLog}. The file is mapped read-only and
+ * records are handed to the visitor in write order; every player record precedes its frames.
+ */
+final class CaptureReader {
+
+    private CaptureReader() {
+    }
+
+    /**
+     * @return epoch millis at which the capture started
+     */
+    static long read(Path file, Visitor visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < CaptureLog.HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a capture file: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getLong() != CaptureLog.MAGIC) {
+                throw new IOException("Not a capture file: " + file);
+            }
+            long startedAtMillis = buffer.getLong();
+
+            try {
+                while (buffer.hasRemaining()) {
+                    byte tag = buffer.get();
+                    switch (tag) {
+                        case CaptureLog.RECORD_END -> {
+                            return startedAtMillis;
+                        }
+                        case CaptureLog.RECORD_PLAYER -> {
+                            int index = buffer.getInt();
+                            UUID playerId = new UUID(buffer.getLong(), buffer.getLong());
+                            int protocol = buffer.getInt();
+                            String username = getString(buffer);
+                            String server = getString(buffer);
+                            visitor.player(index, playerId, username, server, protocol);
+                        }
+                        case CaptureLog.RECORD_FRAME -> {
+                            int index = buffer.getInt();
+                            long timestampNanos = buffer.getLong();
+                            byte[] frame = new byte[buffer.getInt()];
+                            buffer.get(frame);
+                            if (!visitor.frame(index, timestampNanos, frame)) {
+                                return startedAtMillis;
+                            }
+                        }
+                        default -> throw new IOException("Corrupt capture record " + tag + " at " + (buffer.position() - 1));
+                    }
+                }
+            } catch (BufferUnderflowException | NegativeArraySizeException exception) {
+                throw new IOException("Truncated capture file: " + file, exception);
+            }
+            return startedAtMillis;
+        }
+    }
+
+    private static String getString(MappedByteBuffer buffer) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    interface Visitor {
+        void player(int index, UUID playerId, String username, String server, int protocol);
+
+        /**
+         * @return {@code false} to stop reading
+         */
+        boolean frame(int index, long timestampNanos, byte[] frame);
+    }
+}
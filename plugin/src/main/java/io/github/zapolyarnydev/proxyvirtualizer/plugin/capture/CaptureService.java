@@ -0,0 +1,275 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.capture;
+
+import com.velocitypowered.api.proxy.Player;
+import io.github.zapolyarnydev.proxyvirtualizer.api.connector.ConnectionStorage;
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.network.NettyBuffers;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Records the raw inbound frames of players in virtual servers and replays captures through a
+ * frame sink, normally the signal bridge's decode path.
+ * <p>
+ * At most one capture runs at a time. Frames are copied on the channel's event loop and appended
+ * to a memory-mapped {@link CaptureLog} under {@code captures/} in the plugin data directory.
+ */
+public final class CaptureService {
+    private static final String CAPTURES_DIRECTORY = "captures";
+    private static final String FILE_EXTENSION = ".pvcap";
+
+    private final ConnectionStorage connectionStorage;
+    private final CaptureSettings settings;
+    private final Path directory;
+    private final Logger logger;
+    private final ExecutorService replayExecutor;
+    private volatile ActiveCapture active;
+
+    public CaptureService(
+            ConnectionStorage connectionStorage,
+            CaptureSettings settings,
+            Path dataDirectory,
+            Logger logger
+    ) {
+        this.connectionStorage = Objects.requireNonNull(connectionStorage, "connectionStorage");
+        this.settings = Objects.requireNonNull(settings, "settings");
+        this.directory = Objects.requireNonNull(dataDirectory, "dataDirectory").resolve(CAPTURES_DIRECTORY);
+        this.logger = Objects.requireNonNull(logger, "logger");
+        this.replayExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "proxyvirtualizer-capture-replay");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts capturing frames of the selected players and servers into a new file.
+     * Empty selections capture every player inside a virtual server.
+     *
+     * @param players player names or ids
+     * @param servers virtual server names
+     * @throws IllegalStateException if a capture is already running
+     */
+    public synchronized Path start(String name, Set<String> players, Set<String> servers) throws IOException {
+        if (active != null) {
+            throw new IllegalStateException("A capture is already running: " + active.log().getFile().getFileName());
+        }
+        Path file = resolve(name);
+        CaptureLog log = CaptureLog.create(file, settings.maxFileBytes());
+        active = new ActiveCapture(log, normalize(players), normalize(servers));
+        logger.info("Started packet capture {}", file);
+        return file;
+    }
+
+    /**
+     * Stops the running capture and closes its file.
+     */
+    public synchronized Optional<CaptureStatus> stop() {
+        ActiveCapture capture = active;
+        if (capture == null) {
+            return Optional.empty();
+        }
+        active = null;
+        CaptureStatus status = status(capture);
+        try {
+            capture.log().close();
+        } catch (IOException exception) {
+            logger.warn("Unable to close packet capture {}", capture.log().getFile(), exception);
+        }
+        logger.info("Stopped packet capture {} ({} frames, {} bytes)", status.file(), status.frames(), status.sizeBytes());
+        return Optional.of(status);
+    }
+
+    public Optional<CaptureStatus> getStatus() {
+        ActiveCapture capture = active;
+        return capture == null ? Optional.empty() : Optional.of(status(capture));
+    }
+
+    public CaptureSettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Appends a raw inbound frame if a capture is running and selects the player.
+     * Called from the player's event loop; the frame buffer is not modified.
+     */
+    public void capture(Player player, Object frame) {
+        ActiveCapture capture = active;
+        if (capture == null) {
+            return;
+        }
+        VirtualServer virtualServer = connectionStorage.getVirtualServer(player).orElse(null);
+        if (virtualServer == null || !capture.selects(player, virtualServer)) {
+            return;
+        }
+
+        try {
+            byte[] bytes = NettyBuffers.copyReadable(frame);
+            boolean appended = capture.log().append(
+                    player.getUniqueId(),
+                    player.getUsername(),
+                    virtualServer.getName(),
+                    player.getProtocolVersion().getProtocol(),
+                    bytes
+            );
+            if (!appended) {
+                stopFull(capture);
+            }
+        } catch (IOException | ReflectiveOperationException | RuntimeException exception) {
+            logger.debug("Failed to capture inbound frame of player {}", player.getUsername(), exception);
+        }
+    }
+
+    /**
+     * Replays a capture on the replay thread, one frame at a time.
+     *
+     * @param speed playback speed relative to the original timing, {@code 0} for as fast as possible
+     * @param sink  receives a stand-in player and a buffer holding each frame
+     */
+    public CompletableFuture<ReplayResult> replay(String name, double speed, BiConsumer<Player, Object> sink) {
+        Objects.requireNonNull(sink, "sink");
+        if (!(speed >= 0) || Double.isInfinite(speed)) {
+            throw new IllegalArgumentException("Replay speed must be a finite non-negative number");
+        }
+        Path file = resolve(name);
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                Replay replay = new Replay(speed, sink);
+                CaptureReader.read(file, replay);
+                return new ReplayResult(
+                        file,
+                        replay.frames,
+                        replay.players.size(),
+                        replay.frames == 0 ? 0 : replay.lastTimestampNanos - replay.firstTimestampNanos,
+                        System.nanoTime() - replay.startedNanos
+                );
+            } catch (IOException exception) {
+                throw new CompletionException(exception);
+            }
+        }, replayExecutor);
+    }
+
+    /**
+     * @return the capture file of the given name inside the captures directory
+     * @throws InvalidPathException if the name is not a valid path or points outside the captures directory
+     */
+    public Path resolve(String name) {
+        String fileName = name.endsWith(FILE_EXTENSION) ? name : name + FILE_EXTENSION;
+        Path base = directory.normalize();
+        Path file = base.resolve(fileName).normalize();
+        if (!file.startsWith(base) || file.equals(base)) {
+            throw new InvalidPathException(name, "Capture files must stay inside the captures directory");
+        }
+        return file;
+    }
+
+    public void shutdown() {
+        replayExecutor.shutdownNow();
+        stop();
+    }
+
+    private synchronized void stopFull(ActiveCapture capture) {
+        if (active == capture) {
+            logger.warn("Packet capture {} reached {} bytes", capture.log().getFile(), settings.maxFileBytes());
+            stop();
+        }
+    }
+
+    private static CaptureStatus status(ActiveCapture capture) {
+        return new CaptureStatus(capture.log().getFile(), capture.log().getFrameCount(), capture.log().getSizeBytes());
+    }
+
+    private static Set<String> normalize(Set<String> values) {
+        return values.stream().map(value -> value.toLowerCase(Locale.ROOT)).collect(Collectors.toUnmodifiableSet());
+    }
+
+    public record CaptureStatus(Path file, long frames, long sizeBytes) {
+    }
+
+    /**
+     * @param capturedNanos span between the first and last replayed frame as captured
+     * @param elapsedNanos  wall time the replay took
+     */
+    public record ReplayResult(Path file, long frames, int players, long capturedNanos, long elapsedNanos) {
+    }
+
+    private record ActiveCapture(CaptureLog log, Set<String> players, Set<String> servers) {
+        private boolean selects(Player player, VirtualServer virtualServer) {
+            if (players.isEmpty() && servers.isEmpty()) {
+                return true;
+            }
+            return servers.contains(virtualServer.getName().toLowerCase(Locale.ROOT))
+                    || players.contains(player.getUsername().toLowerCase(Locale.ROOT))
+                    || players.contains(player.getUniqueId().toString());
+        }
+    }
+
+    private final class Replay implements CaptureReader.Visitor {
+        private final double speed;
+        private final BiConsumer<Player, Object> sink;
+        private final Map<Integer, Player> players = new HashMap<>();
+        private final long startedNanos = System.nanoTime();
+        private long frames;
+        private long firstTimestampNanos = -1;
+        private long lastTimestampNanos;
+
+        private Replay(double speed, BiConsumer<Player, Object> sink) {
+            this.speed = speed;
+            this.sink = sink;
+        }
+
+        @Override
+        public void player(int index, UUID playerId, String username, String server, int protocol) {
+            players.put(index, ReplayPlayer.create(playerId, username, protocol));
+        }
+
+        @Override
+        public boolean frame(int index, long timestampNanos, byte[] frame) {
+            if (firstTimestampNanos < 0) {
+                firstTimestampNanos = timestampNanos;
+            }
+            if (speed > 0) {
+                long due = startedNanos + (long) ((timestampNanos - firstTimestampNanos) / speed);
+                long wait;
+                while ((wait = due - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                    if (Thread.currentThread().isInterrupted()) {
+                        return false;
+                    }
+                }
+            } else if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+
+            Player player = players.get(index);
+            if (player == null) {
+                return true;
+            }
+            try {
+                sink.accept(player, NettyBuffers.wrap(frame));
+            } catch (ReflectiveOperationException | RuntimeException exception) {
+                logger.debug("Failed to replay frame {} of player {}", frames, player.getUsername(), exception);
+            }
+            frames++;
+            lastTimestampNanos = timestampNanos;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.capture;
+
+/**
+ * Limits of inbound packet captures.
+ *
+ * @param maxFileBytes size at which a capture file stops growing and the capture ends
+ */
+public record CaptureSettings(long maxFileBytes) {
+    public static final long DEFAULT_MAX_FILE_BYTES = 256L * 1024 * 1024;
+    public static final long MIN_FILE_BYTES = 1024;
+    public static final long MAX_FILE_BYTES = Integer.MAX_VALUE;
+
+    public CaptureSettings {
+        if (maxFileBytes < MIN_FILE_BYTES || maxFileBytes > MAX_FILE_BYTES) {
+            throw new IllegalArgumentException("Capture file size must be between " + MIN_FILE_BYTES + " and " + MAX_FILE_BYTES + " bytes");
+        }
+    }
+
+    public static CaptureSettings defaults() {
+        return new CaptureSettings(DEFAULT_MAX_FILE_BYTES);
+    }
+}
@@ -0,0 +1,71 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.capture;
+
+import com.velocitypowered.api.network.ProtocolVersion;
+import com.velocitypowered.api.proxy.Player;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Stand-in {@link Player} for replayed frames. It reports the captured name and protocol but a
+ * derived id, so replayed signals never touch the state of the real, possibly online, player.
+ * Other methods do nothing and return empty values.
+ */
+final class ReplayPlayer {
+
+    private ReplayPlayer() {
+    }
+
+    static Player create(UUID capturedId, String username, int protocol) {
+        UUID replayId = UUID.nameUUIDFromBytes(("replay:" + capturedId).getBytes(StandardCharsets.UTF_8));
+        ProtocolVersion protocolVersion = ProtocolVersion.getProtocolVersion(protocol);
+        return (Player) Proxy.newProxyInstance(
+                Player.class.getClassLoader(),
+                new Class<?>[]{Player.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getUniqueId" -> replayId;
+                    case "getUsername" -> username;
+                    case "getProtocolVersion" -> protocolVersion;
+                    case "toString" -> "ReplayPlayer[" + username + "]";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> emptyValue(method);
+                }
+        );
+    }
+
+    private static Object emptyValue(Method method) {
+        Class<?> type = method.getReturnType();
+        if (type == Optional.class) {
+            return Optional.empty();
+        }
+        if (!type.isPrimitive() || type == void.class) {
+            return null;
+        }
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == float.class) {
+            return 0F;
+        }
+        if (type == double.class) {
+            return 0D;
+        }
+        if (type == char.class) {
+            return '\0';
+        }
+        if (type == byte.class) {
+            return (byte) 0;
+        }
+        if (type == short.class) {
+            return (short) 0;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,166 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.cluster;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Wire format of replication frames: a header naming the sending node, its incarnation and state
+ * version, followed by versioned entries. An entry without a value removes its key. Entries are split
+ * over as many frames as needed to keep each one under {@link #MAX_BYTES}; the frames of a snapshot
+ * are numbered so the receiver knows when it has seen all of them.
+ */
+final class ClusterFrame {
+    static final byte DELTA = 0;
+    static final byte SNAPSHOT = 1;
+    static final byte LEAVE = 2;
+
+    static final byte PLAYER = 0;
+    static final byte SERVER = 1;
+
+    static final int MAX_BYTES = 16 * 1024;
+    /**
+     * Largest snapshot accepted from a peer. The part count of a frame is checked against it before
+     * the receiver sizes anything from it.
+     */
+    static final int MAX_SNAPSHOT_BYTES = 64 * 1024 * 1024;
+    static final int MAX_PARTS = MAX_SNAPSHOT_BYTES / MAX_BYTES;
+
+    private static final int MAGIC = 0x50565843;
+    private static final int ENTRY_FIXED_BYTES = 1 + 8 + 1;
+
+    private ClusterFrame() {
+    }
+
+    /**
+     * @param key {@link UUID} of a player or normalized name of a server
+     * @param value server name, or {@code null} for a removed key
+     */
+    record Entry(byte kind, Object key, long version, String value) {
+    }
+
+    /**
+     * @param snapshot version the snapshot was taken at, {@code 0} outside snapshots
+     */
+    record Header(String nodeId, long incarnation, long version, byte type, long snapshot, int part, int parts) {
+    }
+
+    record Decoded(Header header, List<Entry> entries) {
+    }
+
+    /**
+     * Encodes the entries into one or more frames; an empty entry list yields a single frame.
+     */
+    static List<byte[]> encode(String nodeId, long incarnation, long version, byte type, long snapshot, List<Entry> entries) {
+        int headerBytes = 4 + utfBytes(nodeId) + 8 + 8 + 1 + 8 + 4 + 4 + 4;
+        List<List<Entry>> groups = new ArrayList<>();
+        List<Entry> group = new ArrayList<>();
+        int groupBytes = headerBytes;
+        for (Entry entry : entries) {
+            int entryBytes = entryBytes(entry);
+            if (!group.isEmpty() && groupBytes + entryBytes > MAX_BYTES) {
+                groups.add(group);
+                group = new ArrayList<>();
+                groupBytes = headerBytes;
+            }
+            group.add(entry);
+            groupBytes += entryBytes;
+        }
+        groups.add(group);
+
+        List<byte[]> frames = new ArrayList<>(groups.size());
+        for (int part = 0; part < groups.size(); part++) {
+            Header header = new Header(nodeId, incarnation, version, type, snapshot, part, groups.size());
+            frames.add(write(header, groups.get(part)));
+        }
+        return frames;
+    }
+
+    static Decoded decode(byte[] frame) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a cluster frame");
+        }
+        Header header = new Header(
+                in.readUTF(),
+                in.readLong(),
+                in.readLong(),
+                in.readByte(),
+                in.readLong(),
+                in.readInt(),
+                in.readInt()
+        );
+        if (header.parts() > MAX_PARTS || header.part() < 0 || header.part() >= header.parts()) {
+            throw new IOException("Invalid frame part " + header.part() + " of " + header.parts());
+        }
+
+        int count = in.readInt();
+        if (count < 0 || count > frame.length / ENTRY_FIXED_BYTES) {
+            throw new IOException("Invalid entry count " + count);
+        }
+        List<Entry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte kind = in.readByte();
+            Object key = switch (kind) {
+                case PLAYER -> new UUID(in.readLong(), in.readLong());
+                case SERVER -> in.readUTF();
+                default -> throw new IOException("Unknown entry kind " + kind);
+            };
+            long version = in.readLong();
+            String value = in.readBoolean() ? in.readUTF() : null;
+            entries.add(new Entry(kind, key, version, value));
+        }
+        return new Decoded(header, entries);
+    }
+
+    private static byte[] write(Header header, List<Entry> entries) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeUTF(header.nodeId());
+            out.writeLong(header.incarnation());
+            out.writeLong(header.version());
+            out.writeByte(header.type());
+            out.writeLong(header.snapshot());
+            out.writeInt(header.part());
+            out.writeInt(header.parts());
+            out.writeInt(entries.size());
+            for (Entry entry : entries) {
+                out.writeByte(entry.kind());
+                if (entry.kind() == PLAYER) {
+                    UUID playerId = (UUID) entry.key();
+                    out.writeLong(playerId.getMostSignificantBits());
+                    out.writeLong(playerId.getLeastSignificantBits());
+                } else {
+                    out.writeUTF((String) entry.key());
+                }
+                out.writeLong(entry.version());
+                out.writeBoolean(entry.value() != null);
+                if (entry.value() != null) {
+                    out.writeUTF(entry.value());
+                }
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static int entryBytes(Entry entry) {
+        int keyBytes = entry.kind() == PLAYER ? 16 : utfBytes((String) entry.key());
+        return ENTRY_FIXED_BYTES + keyBytes + (entry.value() == null ? 0 : utfBytes(entry.value()));
+    }
+
+    /**
+     * Upper bound of the modified UTF-8 length written by {@link DataOutputStream#writeUTF}.
+     */
+    private static int utfBytes(String value) {
+        return 2 + value.length() * 3;
+    }
+}
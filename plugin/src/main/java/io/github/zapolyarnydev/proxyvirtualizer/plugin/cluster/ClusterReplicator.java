@@ -0,0 +1,545 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.cluster;
+
+import io.github.zapolyarnydev.proxyvirtualizer.api.cluster.Cluster;
+import io.github.zapolyarnydev.proxyvirtualizer.api.cluster.ClusterTransport;
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.connector.InMemoryConnectionStorage;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.connector.VirtualSession;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.metrics.PluginMetrics;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.registry.InMemoryServerContainer;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replicates the parked players and launched servers of this proxy to the other proxies of the cluster
+ * and keeps a merged view of theirs.
+ * <p>
+ * Every local change gets the next value of a per-proxy version counter and marks its key dirty. Each
+ * flush interval the latest entry of every dirty key is sent as one delta batch, so a player hopping
+ * between servers costs one entry per flush. Each snapshot interval the whole live state is sent; it
+ * doubles as a heartbeat and lets receivers drop entries whose removal was lost. Receivers keep an entry
+ * only if it is newer than the one they hold, which makes lost, duplicated and reordered frames harmless.
+ * <p>
+ * Remote frames are applied on a single thread. Global counts are maintained incrementally on every
+ * change, so lookups read one map entry.
+ */
+public final class ClusterReplicator implements Cluster, InMemoryConnectionStorage.Listener, InMemoryServerContainer.Listener {
+    private final ClusterSettings settings;
+    private final Logger logger;
+    private final String nodeId;
+    private final long incarnation = System.currentTimeMillis();
+    private final AtomicLong version = new AtomicLong();
+    private final Map<UUID, LocalEntry> localPlayers = new ConcurrentHashMap<>();
+    private final Map<String, LocalEntry> localServers = new ConcurrentHashMap<>();
+    private final Set<Object> dirty = ConcurrentHashMap.newKeySet();
+    private final Map<String, NodeState> nodes = new ConcurrentHashMap<>();
+    private final Map<UUID, Placement> remotePlayers = new ConcurrentHashMap<>();
+    private final Map<String, Integer> playerCounts = new ConcurrentHashMap<>();
+    private final AtomicInteger playerCount = new AtomicInteger();
+    private final ScheduledExecutorService executor;
+    private volatile ClusterTransport transport;
+
+    // Confined to the executor thread.
+    private long lastSnapshotNanos;
+    private boolean duplicateReported;
+
+    public ClusterReplicator(ClusterSettings settings, PluginMetrics metrics, Logger logger) {
+        this.settings = Objects.requireNonNull(settings, "settings");
+        this.logger = Objects.requireNonNull(logger, "logger");
+        Objects.requireNonNull(metrics, "metrics");
+        this.nodeId = settings.nodeId().isBlank()
+                ? "proxy-" + Long.toHexString(ThreadLocalRandom.current().nextLong() >>> 16)
+                : settings.nodeId();
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "proxyvirtualizer-cluster");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long flushMillis = settings.flushInterval().toMillis();
+        this.executor.scheduleAtFixedRate(this::flushSafely, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+
+        metrics.getRegistry().gauge(
+                "proxyvirtualizer_cluster_nodes", "Proxies in the cluster view, including this one", () -> nodes.size() + 1
+        );
+        metrics.getRegistry().gauge(
+                "proxyvirtualizer_cluster_players", "Players parked in a virtual server on any proxy", playerCount::get
+        );
+    }
+
+    @Override
+    public String getLocalNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public Set<String> getNodes() {
+        Set<String> ids = new LinkedHashSet<>();
+        ids.add(nodeId);
+        ids.addAll(nodes.keySet());
+        return Set.copyOf(ids);
+    }
+
+    @Override
+    public int getPlayerCount() {
+        return playerCount.get();
+    }
+
+    @Override
+    public int getPlayerCount(String serverName) {
+        if (serverName == null || serverName.isBlank()) {
+            return 0;
+        }
+        return playerCounts.getOrDefault(normalize(serverName), 0);
+    }
+
+    @Override
+    public Set<String> getServerNames() {
+        Map<String, String> names = new HashMap<>();
+        localServers.forEach((key, entry) -> {
+            if (entry.value() != null) {
+                names.putIfAbsent(key, entry.value());
+            }
+        });
+        for (NodeState node : nodes.values()) {
+            node.servers.forEach((key, entry) -> {
+                if (entry.value() != null) {
+                    names.putIfAbsent(key, entry.value());
+                }
+            });
+        }
+        return Set.copyOf(names.values());
+    }
+
+    @Override
+    public Set<String> getNodes(String serverName) {
+        if (serverName == null || serverName.isBlank()) {
+            return Set.of();
+        }
+        String key = normalize(serverName);
+        Set<String> ids = new HashSet<>();
+        LocalEntry local = localServers.get(key);
+        if (local != null && local.value() != null) {
+            ids.add(nodeId);
+        }
+        for (NodeState node : nodes.values()) {
+            RemoteEntry remote = node.servers.get(key);
+            if (remote != null && remote.value() != null) {
+                ids.add(node.id);
+            }
+        }
+        return Set.copyOf(ids);
+    }
+
+    @Override
+    public Optional<String> findVirtualServer(UUID playerId) {
+        Objects.requireNonNull(playerId, "playerId");
+        LocalEntry local = localPlayers.get(playerId);
+        if (local != null && local.value() != null) {
+            return Optional.of(local.value());
+        }
+        Placement remote = remotePlayers.get(playerId);
+        return remote == null ? Optional.empty() : Optional.of(remote.server());
+    }
+
+    @Override
+    public synchronized void setTransport(ClusterTransport transport) throws IOException {
+        ClusterTransport previous = this.transport;
+        this.transport = null;
+        if (previous != null) {
+            previous.close();
+        }
+        if (transport != null) {
+            transport.open(this::receive);
+            this.transport = transport;
+        }
+        try {
+            executor.execute(() -> {
+                lastSnapshotNanos = 0L;
+                if (this.transport == null) {
+                    new ArrayList<>(nodes.values()).forEach(this::dropNode);
+                }
+            });
+        } catch (RejectedExecutionException ignored) {
+
+        }
+    }
+
+    /**
+     * Tells the other proxies this one is leaving, so they drop its entries right away.
+     */
+    public synchronized void shutdown() {
+        executor.shutdownNow();
+        ClusterTransport current = transport;
+        transport = null;
+        if (current == null) {
+            return;
+        }
+        for (byte[] frame : ClusterFrame.encode(nodeId, incarnation, version.get(), ClusterFrame.LEAVE, 0L, List.of())) {
+            current.broadcast(frame);
+        }
+        current.close();
+    }
+
+    @Override
+    public void sessionOpened(VirtualSession session) {
+        UUID playerId = session.getPlayer().getUniqueId();
+        String server = session.getServer().getName();
+        localPlayers.compute(playerId, (ignored, previous) -> {
+            if (previous != null && previous.value() != null) {
+                countPlayer(previous.value(), -1);
+            }
+            countPlayer(server, 1);
+            return new LocalEntry(version.incrementAndGet(), server, session);
+        });
+        dirty.add(playerId);
+    }
+
+    @Override
+    public void sessionClosed(VirtualSession session) {
+        UUID playerId = session.getPlayer().getUniqueId();
+        boolean[] changed = new boolean[1];
+        localPlayers.computeIfPresent(playerId, (ignored, previous) -> {
+            if (previous.owner() != session || previous.value() == null) {
+                return previous;
+            }
+            countPlayer(previous.value(), -1);
+            changed[0] = true;
+            return new LocalEntry(version.incrementAndGet(), null, session);
+        });
+        if (changed[0]) {
+            dirty.add(playerId);
+        }
+    }
+
+    @Override
+    public void serverRegistered(VirtualServer server) {
+        String key = normalize(server.getName());
+        localServers.put(key, new LocalEntry(version.incrementAndGet(), server.getName(), server));
+        dirty.add(key);
+    }
+
+    @Override
+    public void serverRemoved(VirtualServer server) {
+        String key = normalize(server.getName());
+        boolean[] changed = new boolean[1];
+        localServers.computeIfPresent(key, (ignored, previous) -> {
+            if (previous.owner() != server || previous.value() == null) {
+                return previous;
+            }
+            changed[0] = true;
+            return new LocalEntry(version.incrementAndGet(), null, server);
+        });
+        if (changed[0]) {
+            dirty.add(key);
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException exception) {
+            logger.warn("Cluster flush failed", exception);
+        }
+    }
+
+    private void flush() {
+        List<ClusterFrame.Entry> delta = new ArrayList<>();
+        for (Iterator<Object> iterator = dirty.iterator(); iterator.hasNext(); ) {
+            Object key = iterator.next();
+            iterator.remove();
+            if (key instanceof UUID playerId) {
+                LocalEntry entry = localPlayers.get(playerId);
+                if (entry != null) {
+                    delta.add(new ClusterFrame.Entry(ClusterFrame.PLAYER, playerId, entry.version(), entry.value()));
+                    if (entry.value() == null) {
+                        localPlayers.remove(playerId, entry);
+                    }
+                }
+            } else {
+                String serverKey = (String) key;
+                LocalEntry entry = localServers.get(serverKey);
+                if (entry != null) {
+                    delta.add(new ClusterFrame.Entry(ClusterFrame.SERVER, serverKey, entry.version(), entry.value()));
+                    if (entry.value() == null) {
+                        localServers.remove(serverKey, entry);
+                    }
+                }
+            }
+        }
+
+        ClusterTransport current = transport;
+        if (current == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (lastSnapshotNanos == 0L || now - lastSnapshotNanos >= settings.snapshotInterval().toNanos()) {
+            lastSnapshotNanos = now;
+            sendSnapshot(current);
+        } else if (!delta.isEmpty()) {
+            send(current, ClusterFrame.DELTA, 0L, delta);
+        }
+        expireNodes(now);
+    }
+
+    /**
+     * Sends every live entry. The snapshot version is read first, so an entry missing from the snapshot
+     * is either newer than it or no longer live.
+     */
+    private void sendSnapshot(ClusterTransport current) {
+        long snapshot = version.get();
+        List<ClusterFrame.Entry> entries = new ArrayList<>(localPlayers.size() + localServers.size());
+        localServers.forEach((key, entry) -> {
+            if (entry.value() != null) {
+                entries.add(new ClusterFrame.Entry(ClusterFrame.SERVER, key, entry.version(), entry.value()));
+            }
+        });
+        localPlayers.forEach((key, entry) -> {
+            if (entry.value() != null) {
+                entries.add(new ClusterFrame.Entry(ClusterFrame.PLAYER, key, entry.version(), entry.value()));
+            }
+        });
+        send(current, ClusterFrame.SNAPSHOT, snapshot, entries);
+    }
+
+    private void send(ClusterTransport current, byte type, long snapshot, List<ClusterFrame.Entry> entries) {
+        for (byte[] frame : ClusterFrame.encode(nodeId, incarnation, version.get(), type, snapshot, entries)) {
+            current.broadcast(frame);
+        }
+    }
+
+    private void receive(byte[] frame) {
+        byte[] copy = frame.clone();
+        try {
+            executor.execute(() -> apply(copy));
+        } catch (RejectedExecutionException ignored) {
+
+        }
+    }
+
+    private void apply(byte[] frame) {
+        ClusterFrame.Decoded decoded;
+        try {
+            decoded = ClusterFrame.decode(frame);
+        } catch (IOException | RuntimeException exception) {
+            logger.debug("Ignoring a malformed cluster frame", exception);
+            return;
+        }
+
+        ClusterFrame.Header header = decoded.header();
+        if (header.nodeId().equals(nodeId)) {
+            if (header.incarnation() != incarnation && !duplicateReported) {
+                duplicateReported = true;
+                logger.warn("Another proxy uses the cluster node id {}; its frames are ignored", nodeId);
+            }
+            return;
+        }
+
+        NodeState node = nodes.get(header.nodeId());
+        if (node != null && node.incarnation != header.incarnation()) {
+            if (header.incarnation() < node.incarnation) {
+                return;
+            }
+            dropNode(node);
+            node = null;
+        }
+        if (header.type() == ClusterFrame.LEAVE) {
+            if (node != null) {
+                dropNode(node);
+            }
+            return;
+        }
+        if (node == null) {
+            node = new NodeState(header.nodeId(), header.incarnation());
+            nodes.put(node.id, node);
+            logger.info("Proxy {} joined the cluster", node.id);
+        }
+        node.lastSeenNanos = System.nanoTime();
+
+        for (ClusterFrame.Entry entry : decoded.entries()) {
+            applyEntry(node, entry);
+        }
+        if (header.type() == ClusterFrame.SNAPSHOT) {
+            applySnapshotPart(node, header, decoded.entries());
+        }
+    }
+
+    private void applyEntry(NodeState node, ClusterFrame.Entry entry) {
+        if (entry.version() <= node.floor) {
+            return;
+        }
+        if (entry.kind() == ClusterFrame.PLAYER) {
+            UUID playerId = (UUID) entry.key();
+            RemoteEntry previous = node.players.get(playerId);
+            if (previous != null && previous.version() >= entry.version()) {
+                return;
+            }
+            node.players.put(playerId, new RemoteEntry(entry.version(), entry.value()));
+            if (previous != null && previous.value() != null) {
+                countPlayer(previous.value(), -1);
+                unplace(playerId, node);
+            }
+            if (entry.value() != null) {
+                countPlayer(entry.value(), 1);
+                remotePlayers.put(playerId, new Placement(node.id, entry.value()));
+            }
+        } else {
+            String key = (String) entry.key();
+            RemoteEntry previous = node.servers.get(key);
+            if (previous == null || previous.version() < entry.version()) {
+                node.servers.put(key, new RemoteEntry(entry.version(), entry.value()));
+            }
+        }
+    }
+
+    /**
+     * Once every part of a snapshot has arrived, entries at or below its version that it did not carry
+     * are dead, and older frames still in flight can be ignored.
+     */
+    private void applySnapshotPart(NodeState node, ClusterFrame.Header header, List<ClusterFrame.Entry> entries) {
+        if (header.snapshot() <= node.floor) {
+            return;
+        }
+        if (header.snapshot() != node.snapshot) {
+            node.snapshot = header.snapshot();
+            node.snapshotParts = new BitSet(header.parts());
+            node.snapshotKeys = new HashSet<>();
+        }
+        node.snapshotParts.set(header.part());
+        for (ClusterFrame.Entry entry : entries) {
+            node.snapshotKeys.add(entry.key());
+        }
+        if (node.snapshotParts.cardinality() < header.parts()) {
+            return;
+        }
+
+        long snapshot = node.snapshot;
+        Set<Object> live = node.snapshotKeys;
+        node.players.entrySet().removeIf(mapping -> {
+            RemoteEntry entry = mapping.getValue();
+            if (entry.version() > snapshot || live.contains(mapping.getKey())) {
+                return false;
+            }
+            if (entry.value() != null) {
+                countPlayer(entry.value(), -1);
+                unplace(mapping.getKey(), node);
+            }
+            return true;
+        });
+        node.servers.entrySet().removeIf(mapping ->
+                mapping.getValue().version() <= snapshot && !live.contains(mapping.getKey())
+        );
+        node.floor = snapshot;
+        node.snapshotParts = null;
+        node.snapshotKeys = null;
+    }
+
+    private void expireNodes(long now) {
+        long timeout = settings.nodeTimeout().toNanos();
+        for (NodeState node : nodes.values()) {
+            if (now - node.lastSeenNanos > timeout) {
+                logger.info("Proxy {} left the cluster after {} ms of silence", node.id, settings.nodeTimeout().toMillis());
+                dropNode(node);
+            }
+        }
+    }
+
+    private void dropNode(NodeState node) {
+        if (!nodes.remove(node.id, node)) {
+            return;
+        }
+        node.players.forEach((playerId, entry) -> {
+            if (entry.value() != null) {
+                countPlayer(entry.value(), -1);
+                unplace(playerId, node);
+            }
+        });
+        node.players.clear();
+        node.servers.clear();
+    }
+
+    /**
+     * Drops the placement of a player recorded for the node, falling back to another node that still
+     * holds the player, as happens while a player moves between proxies.
+     */
+    private void unplace(UUID playerId, NodeState node) {
+        remotePlayers.computeIfPresent(playerId, (ignored, placement) -> {
+            if (!placement.nodeId().equals(node.id)) {
+                return placement;
+            }
+            for (NodeState other : nodes.values()) {
+                RemoteEntry entry = other.players.get(playerId);
+                if (other != node && entry != null && entry.value() != null) {
+                    return new Placement(other.id, entry.value());
+                }
+            }
+            return null;
+        });
+    }
+
+    private void countPlayer(String serverName, int delta) {
+        playerCounts.compute(normalize(serverName), (ignored, count) -> {
+            int updated = (count == null ? 0 : count) + delta;
+            return updated == 0 ? null : updated;
+        });
+        playerCount.addAndGet(delta);
+    }
+
+    private static String normalize(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @param value server name, or {@code null} once removed and not yet flushed
+     * @param owner session or server the entry was written for
+     */
+    private record LocalEntry(long version, String value, Object owner) {
+    }
+
+    private record RemoteEntry(long version, String value) {
+    }
+
+    private record Placement(String nodeId, String server) {
+    }
+
+    /**
+     * Entries replicated from one proxy. Maps are written on the executor thread only.
+     */
+    private static final class NodeState {
+        private final String id;
+        private final long incarnation;
+        private final Map<UUID, RemoteEntry> players = new ConcurrentHashMap<>();
+        private final Map<String, RemoteEntry> servers = new ConcurrentHashMap<>();
+        private volatile long lastSeenNanos;
+        private long floor;
+        private long snapshot = -1L;
+        private BitSet snapshotParts;
+        private Set<Object> snapshotKeys;
+
+        private NodeState(String id, long incarnation) {
+            this.id = id;
+            this.incarnation = incarnation;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.cluster;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Replication of connection and server state between proxies.
+ *
+ * @param transport        {@code none}, {@code loopback} (in-process, for tests) or {@code udp}
+ * @param nodeId           id of this proxy, blank to generate one on startup
+ * @param host             address the UDP transport binds to
+ * @param port             UDP port of the transport
+ * @param peers            {@code host:port} addresses of the other proxies
+ * @param flushInterval    delay between two delta batches
+ * @param snapshotInterval delay between two full snapshots, which also serve as heartbeats
+ * @param nodeTimeout      silence after which a proxy and its entries are dropped
+ */
+public record ClusterSettings(
+        String transport,
+        String nodeId,
+        String host,
+        int port,
+        List<String> peers,
+        Duration flushInterval,
+        Duration snapshotInterval,
+        Duration nodeTimeout
+) {
+    public static final String TRANSPORT_NONE = "none";
+    public static final String TRANSPORT_LOOPBACK = "loopback";
+    public static final String TRANSPORT_UDP = "udp";
+
+    public static final String DEFAULT_TRANSPORT = TRANSPORT_NONE;
+    public static final String DEFAULT_NODE_ID = "";
+    public static final String DEFAULT_HOST = "127.0.0.1";
+    public static final int DEFAULT_PORT = 25590;
+    public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(100);
+    public static final Duration DEFAULT_SNAPSHOT_INTERVAL = Duration.ofSeconds(5);
+    public static final Duration DEFAULT_NODE_TIMEOUT = Duration.ofSeconds(15);
+
+    private static final int MAX_NODE_ID_LENGTH = 64;
+
+    public ClusterSettings {
+        Objects.requireNonNull(transport, "transport");
+        Objects.requireNonNull(nodeId, "nodeId");
+        Objects.requireNonNull(host, "host");
+        Objects.requireNonNull(flushInterval, "flushInterval");
+        Objects.requireNonNull(snapshotInterval, "snapshotInterval");
+        Objects.requireNonNull(nodeTimeout, "nodeTimeout");
+        peers = List.copyOf(peers);
+        if (!transport.equals(TRANSPORT_NONE) && !transport.equals(TRANSPORT_LOOPBACK) && !transport.equals(TRANSPORT_UDP)) {
+            throw new IllegalArgumentException("Cluster transport must be none, loopback or udp");
+        }
+        if (nodeId.length() > MAX_NODE_ID_LENGTH) {
+            throw new IllegalArgumentException("Cluster node id cannot be longer than " + MAX_NODE_ID_LENGTH + " characters");
+        }
+        if (host.isBlank()) {
+            throw new IllegalArgumentException("Cluster host cannot be blank");
+        }
+        if (port < 1 || port > 65535) {
+            throw new IllegalArgumentException("Cluster port must be between 1 and 65535");
+        }
+        for (String peer : peers) {
+            int separator = peer.lastIndexOf(':');
+            if (separator <= 0 || !isPort(peer.substring(separator + 1))) {
+                throw new IllegalArgumentException("Cluster peer must be host:port, got '" + peer + "'");
+            }
+        }
+        if (flushInterval.isZero() || snapshotInterval.isZero()) {
+            throw new IllegalArgumentException("Cluster flush and snapshot intervals must be positive");
+        }
+        if (nodeTimeout.compareTo(snapshotInterval.multipliedBy(2)) < 0) {
+            throw new IllegalArgumentException("Cluster node timeout must be at least twice the snapshot interval");
+        }
+    }
+
+    public static ClusterSettings defaults() {
+        return new ClusterSettings(
+                DEFAULT_TRANSPORT,
+                DEFAULT_NODE_ID,
+                DEFAULT_HOST,
+                DEFAULT_PORT,
+                List.of(),
+                DEFAULT_FLUSH_INTERVAL,
+                DEFAULT_SNAPSHOT_INTERVAL,
+                DEFAULT_NODE_TIMEOUT
+        );
+    }
+
+    private static boolean isPort(String value) {
+        try {
+            int port = Integer.parseInt(value);
+            return port >= 1 && port <= 65535;
+        } catch (NumberFormatException exception) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.cluster;
+
+import io.github.zapolyarnydev.proxyvirtualizer.api.cluster.ClusterTransport;
+
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Transport between replicators living in the same JVM, for tests and local experiments. A frame is
+ * delivered synchronously to every other open member of the hub.
+ */
+public final class LoopbackClusterTransport implements ClusterTransport {
+    private final Hub hub;
+    private volatile Consumer<byte[]> receiver;
+
+    private LoopbackClusterTransport(Hub hub) {
+        this.hub = hub;
+    }
+
+    @Override
+    public void open(Consumer<byte[]> receiver) {
+        this.receiver = Objects.requireNonNull(receiver, "receiver");
+        hub.members.addIfAbsent(this);
+    }
+
+    @Override
+    public void broadcast(byte[] frame) {
+        Objects.requireNonNull(frame, "frame");
+        for (LoopbackClusterTransport member : hub.members) {
+            Consumer<byte[]> memberReceiver = member.receiver;
+            if (member != this && memberReceiver != null) {
+                memberReceiver.accept(frame);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        hub.members.remove(this);
+        receiver = null;
+    }
+
+    /**
+     * Group of loopback transports that see each other's frames.
+     */
+    public static final class Hub {
+        private static final Hub SHARED = new Hub();
+
+        private final CopyOnWriteArrayList<LoopbackClusterTransport> members = new CopyOnWriteArrayList<>();
+
+        /**
+         * @return the hub joined by the {@code loopback} transport setting
+         */
+        public static Hub shared() {
+            return SHARED;
+        }
+
+        public LoopbackClusterTransport join() {
+            return new LoopbackClusterTransport(this);
+        }
+    }
+}
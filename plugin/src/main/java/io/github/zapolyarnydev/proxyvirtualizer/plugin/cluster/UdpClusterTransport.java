@@ -0,0 +1,124 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.cluster;
+
+import io.github.zapolyarnydev.proxyvirtualizer.api.cluster.ClusterTransport;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Sends every frame as one datagram to each configured peer and receives frames on a single daemon
+ * thread. Frames are small enough to fit a datagram; losses are repaired by the next snapshot. Datagrams
+ * whose source is not a configured peer are dropped unread.
+ */
+public final class UdpClusterTransport implements ClusterTransport {
+    private static final int MAX_DATAGRAM_BYTES = 65507;
+
+    private final InetSocketAddress bindAddress;
+    private final List<InetSocketAddress> peers;
+    private final Set<InetSocketAddress> trustedSenders;
+    private final Logger logger;
+    private volatile DatagramChannel channel;
+
+    public UdpClusterTransport(InetSocketAddress bindAddress, List<InetSocketAddress> peers, Logger logger) {
+        this.bindAddress = Objects.requireNonNull(bindAddress, "bindAddress");
+        this.peers = List.copyOf(peers);
+        this.trustedSenders = new HashSet<>(this.peers);
+        this.logger = Objects.requireNonNull(logger, "logger");
+    }
+
+    public static UdpClusterTransport fromSettings(ClusterSettings settings, Logger logger) {
+        List<InetSocketAddress> peers = new ArrayList<>(settings.peers().size());
+        for (String peer : settings.peers()) {
+            int separator = peer.lastIndexOf(':');
+            peers.add(new InetSocketAddress(peer.substring(0, separator), Integer.parseInt(peer.substring(separator + 1))));
+        }
+        return new UdpClusterTransport(new InetSocketAddress(settings.host(), settings.port()), peers, logger);
+    }
+
+    @Override
+    public synchronized void open(Consumer<byte[]> receiver) throws IOException {
+        Objects.requireNonNull(receiver, "receiver");
+        if (channel != null) {
+            throw new IllegalStateException("UDP cluster transport is already open");
+        }
+        DatagramChannel opened = DatagramChannel.open();
+        try {
+            opened.bind(bindAddress);
+        } catch (IOException exception) {
+            opened.close();
+            throw exception;
+        }
+        channel = opened;
+
+        Thread thread = new Thread(() -> receive(opened, receiver), "proxyvirtualizer-cluster-receiver");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void broadcast(byte[] frame) {
+        Objects.requireNonNull(frame, "frame");
+        DatagramChannel current = channel;
+        if (current == null) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(frame);
+        for (InetSocketAddress peer : peers) {
+            try {
+                current.send(buffer.duplicate(), peer);
+            } catch (IOException exception) {
+                logger.debug("Unable to send a cluster frame to {}", peer, exception);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        DatagramChannel current = channel;
+        channel = null;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.close();
+        } catch (IOException exception) {
+            logger.debug("Unable to close the cluster channel", exception);
+        }
+    }
+
+    private void receive(DatagramChannel opened, Consumer<byte[]> receiver) {
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_DATAGRAM_BYTES);
+        while (opened.isOpen()) {
+            try {
+                buffer.clear();
+                SocketAddress sender = opened.receive(buffer);
+                if (sender == null) {
+                    continue;
+                }
+                if (!trustedSenders.contains(sender)) {
+                    logger.debug("Dropped a cluster frame from {}, which is not a configured peer", sender);
+                    continue;
+                }
+                buffer.flip();
+                byte[] frame = new byte[buffer.remaining()];
+                buffer.get(frame);
+                receiver.accept(frame);
+            } catch (ClosedChannelException exception) {
+                return;
+            } catch (IOException | RuntimeException exception) {
+                logger.debug("Unable to receive a cluster frame", exception);
+            }
+        }
+    }
+}
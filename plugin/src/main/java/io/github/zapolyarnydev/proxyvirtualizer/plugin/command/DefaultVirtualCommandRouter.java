@@ -0,0 +1,324 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.command;
+
+import com.velocitypowered.api.proxy.Player;
+import io.github.zapolyarnydev.proxyvirtualizer.api.command.CommandLine;
+import io.github.zapolyarnydev.proxyvirtualizer.api.command.VirtualCommandHandler;
+import io.github.zapolyarnydev.proxyvirtualizer.api.command.VirtualCommandRegistration;
+import io.github.zapolyarnydev.proxyvirtualizer.api.command.VirtualCommandRouter;
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the commands of each virtual server in a case-insensitive prefix trie over labels and aliases.
+ * A dispatch walks the label characters of the raw command line once; label completion collects the
+ * subtree under the typed prefix. The trie is rebuilt on registration changes and published as a whole,
+ * so lookups never lock.
+ */
+public final class DefaultVirtualCommandRouter implements VirtualCommandRouter {
+    private final Logger logger;
+    private final Map<VirtualServer, Routes> routes = new ConcurrentHashMap<>();
+
+    public DefaultVirtualCommandRouter(Logger logger) {
+        this.logger = Objects.requireNonNull(logger, "logger");
+    }
+
+    @Override
+    public VirtualCommandRegistration register(
+            VirtualServer server,
+            String label,
+            Collection<String> aliases,
+            VirtualCommandHandler handler
+    ) {
+        Objects.requireNonNull(server, "server");
+        Objects.requireNonNull(label, "label");
+        Objects.requireNonNull(aliases, "aliases");
+        Objects.requireNonNull(handler, "handler");
+
+        List<String> names = new ArrayList<>(aliases.size() + 1);
+        names.add(label);
+        for (String alias : aliases) {
+            names.add(Objects.requireNonNull(alias, "alias"));
+        }
+        for (String name : names) {
+            if (!isValidName(name)) {
+                throw new IllegalArgumentException("Invalid command label: '" + name + "'");
+            }
+        }
+
+        RegistrationImpl registration = new RegistrationImpl(server, List.copyOf(names), handler);
+        routes.compute(server, (ignored, current) -> {
+            Routes serverRoutes = current == null ? new Routes() : current;
+            serverRoutes.add(registration);
+            return serverRoutes;
+        });
+        return registration;
+    }
+
+    @Override
+    public boolean dispatch(VirtualServer server, Player player, CommandLine command) {
+        Objects.requireNonNull(player, "player");
+        RegistrationImpl registration = find(server, command);
+        if (registration == null) {
+            return false;
+        }
+
+        try {
+            registration.handler.execute(player, command);
+        } catch (Throwable throwable) {
+            logger.warn("Virtual command /{} failed on {}", registration.getLabel(), server.getName(), throwable);
+        }
+        return true;
+    }
+
+    @Override
+    public List<String> suggest(VirtualServer server, Player player, CommandLine command) {
+        Objects.requireNonNull(player, "player");
+        Objects.requireNonNull(command, "command");
+        Node root = root(server);
+        if (root == null) {
+            return List.of();
+        }
+
+        if (command.isEmpty() || (command.size() == 1 && !command.endsWithSeparator())) {
+            Node prefix = walk(root, command.raw(), command.labelStart(), command.labelEnd());
+            if (prefix == null) {
+                return List.of();
+            }
+            List<String> labels = new ArrayList<>();
+            prefix.collect(labels);
+            return labels;
+        }
+
+        RegistrationImpl registration = find(server, command);
+        if (registration == null) {
+            return List.of();
+        }
+        try {
+            List<String> suggestions = registration.handler.suggest(player, command);
+            return suggestions == null ? List.of() : suggestions;
+        } catch (Throwable throwable) {
+            logger.warn("Virtual command /{} failed to suggest on {}", registration.getLabel(), server.getName(), throwable);
+            return List.of();
+        }
+    }
+
+    @Override
+    public List<String> getLabels(VirtualServer server) {
+        Node root = root(server);
+        if (root == null) {
+            return List.of();
+        }
+        List<String> labels = new ArrayList<>();
+        root.collect(labels);
+        return labels;
+    }
+
+    /**
+     * @return whether the label of the command line is registered on the server
+     */
+    public boolean isRegistered(VirtualServer server, CommandLine command) {
+        return find(server, command) != null;
+    }
+
+    public boolean hasCommands(VirtualServer server) {
+        return root(server) != null;
+    }
+
+    /**
+     * Drops every command of a server that is being stopped.
+     */
+    public void unregisterAll(VirtualServer server) {
+        Routes removed = routes.remove(Objects.requireNonNull(server, "server"));
+        if (removed != null) {
+            removed.clear();
+        }
+    }
+
+    private RegistrationImpl find(VirtualServer server, CommandLine command) {
+        Objects.requireNonNull(command, "command");
+        Node root = root(server);
+        if (root == null) {
+            return null;
+        }
+        Node node = walk(root, command.raw(), command.labelStart(), command.labelEnd());
+        return node == null ? null : node.registration;
+    }
+
+    private Node root(VirtualServer server) {
+        Routes serverRoutes = routes.get(Objects.requireNonNull(server, "server"));
+        return serverRoutes == null ? null : serverRoutes.root;
+    }
+
+    private static Node walk(Node root, String raw, int start, int end) {
+        Node node = root;
+        for (int i = start; i < end && node != null; i++) {
+            node = node.child(fold(raw.charAt(i)));
+        }
+        return node;
+    }
+
+    private static boolean isValidName(String name) {
+        if (name.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (CommandLine.isSeparator(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * Registrations of one server. Mutations run inside the compute functions of the router map and
+     * replace {@link #root}, which is {@code null} once the server has no commands.
+     */
+    private static final class Routes {
+        private final List<RegistrationImpl> registrations = new ArrayList<>();
+        private volatile Node root;
+
+        private synchronized void add(RegistrationImpl registration) {
+            Node rebuilt = build(registrations);
+            for (String name : registration.names) {
+                if (insert(rebuilt, name, registration) != null) {
+                    throw new IllegalStateException("Command label already registered: " + name);
+                }
+            }
+            registrations.add(registration);
+            root = rebuilt;
+        }
+
+        private synchronized boolean remove(RegistrationImpl registration) {
+            if (!registrations.remove(registration)) {
+                return false;
+            }
+            root = registrations.isEmpty() ? null : build(registrations);
+            return true;
+        }
+
+        private synchronized void clear() {
+            registrations.forEach(registration -> registration.active.set(false));
+            registrations.clear();
+            root = null;
+        }
+
+        private static Node build(List<RegistrationImpl> registrations) {
+            Node root = new Node();
+            for (RegistrationImpl registration : registrations) {
+                for (String name : registration.names) {
+                    insert(root, name, registration);
+                }
+            }
+            return root;
+        }
+
+        /**
+         * @return the registration that already owned the name, in which case nothing is changed
+         */
+        private static RegistrationImpl insert(Node root, String name, RegistrationImpl registration) {
+            Node node = root;
+            for (int i = 0; i < name.length(); i++) {
+                node = node.childOrCreate(fold(name.charAt(i)));
+            }
+            if (node.registration != null) {
+                return node.registration;
+            }
+            node.registration = registration;
+            node.name = name;
+            return null;
+        }
+    }
+
+    /**
+     * Trie node with children kept in arrays sorted by key, so collection yields names in order.
+     * Nodes are only mutated before the trie they belong to is published.
+     */
+    private static final class Node {
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private RegistrationImpl registration;
+        private String name;
+
+        private Node child(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            return index >= 0 ? children[index] : null;
+        }
+
+        private Node childOrCreate(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            if (index >= 0) {
+                return children[index];
+            }
+
+            int insertion = -index - 1;
+            char[] grownKeys = new char[keys.length + 1];
+            Node[] grownChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, grownKeys, 0, insertion);
+            System.arraycopy(children, 0, grownChildren, 0, insertion);
+            System.arraycopy(keys, insertion, grownKeys, insertion + 1, keys.length - insertion);
+            System.arraycopy(children, insertion, grownChildren, insertion + 1, children.length - insertion);
+            Node created = new Node();
+            grownKeys[insertion] = key;
+            grownChildren[insertion] = created;
+            keys = grownKeys;
+            children = grownChildren;
+            return created;
+        }
+
+        private void collect(List<String> names) {
+            if (name != null) {
+                names.add(name);
+            }
+            for (Node child : children) {
+                child.collect(names);
+            }
+        }
+    }
+
+    private final class RegistrationImpl implements VirtualCommandRegistration {
+        private final VirtualServer server;
+        private final List<String> names;
+        private final VirtualCommandHandler handler;
+        private final AtomicBoolean active = new AtomicBoolean(true);
+
+        private RegistrationImpl(VirtualServer server, List<String> names, VirtualCommandHandler handler) {
+            this.server = server;
+            this.names = names;
+            this.handler = handler;
+        }
+
+        @Override
+        public String getLabel() {
+            return names.get(0);
+        }
+
+        @Override
+        public boolean unregister() {
+            if (!active.compareAndSet(true, false)) {
+                return false;
+            }
+            boolean[] removed = new boolean[1];
+            routes.computeIfPresent(server, (ignored, current) -> {
+                removed[0] = current.remove(this);
+                return current.root == null ? null : current;
+            });
+            return removed[0];
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.command;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * Reflective access to Velocity's tab completion packets. Handles are resolved once, from the class
+ * loader of the first request seen; the response class lives next to the request class.
+ */
+public final class TabCompletePackets {
+    private static final String REQUEST_SUFFIX = "TabCompleteRequestPacket";
+    private static final String RESPONSE_SIMPLE_NAME = "TabCompleteResponsePacket";
+
+    private static volatile Handles handles;
+
+    private TabCompletePackets() {
+    }
+
+    public static boolean isRequest(Object packet) {
+        return packet != null && packet.getClass().getName().endsWith(REQUEST_SUFFIX);
+    }
+
+    /**
+     * @return text typed by the player, including the leading slash of a command
+     */
+    public static String command(Object request) throws ReflectiveOperationException {
+        return (String) handles(request).getCommand.invoke(request);
+    }
+
+    /**
+     * @param start offset in the typed text where the offers begin
+     * @param length number of typed characters the offers replace
+     */
+    public static Object response(Object request, int start, int length, List<String> offers)
+            throws ReflectiveOperationException {
+        Handles resolved = handles(request);
+        Object response = resolved.responseConstructor.newInstance();
+        resolved.setTransactionId.invoke(response, resolved.getTransactionId.invoke(request));
+        resolved.setStart.invoke(response, start);
+        resolved.setLength.invoke(response, length);
+
+        @SuppressWarnings("unchecked")
+        List<Object> responseOffers = (List<Object>) resolved.getOffers.invoke(response);
+        for (String offer : offers) {
+            responseOffers.add(resolved.offerConstructor.getParameterCount() == 1
+                    ? resolved.offerConstructor.newInstance(offer)
+                    : resolved.offerConstructor.newInstance(offer, null));
+        }
+        return response;
+    }
+
+    private static Handles handles(Object request) throws ReflectiveOperationException {
+        Handles resolved = handles;
+        if (resolved == null) {
+            Class<?> requestClass = request.getClass();
+            ClassLoader classLoader = requestClass.getClassLoader();
+            String responseName = requestClass.getPackageName() + "." + RESPONSE_SIMPLE_NAME;
+            Class<?> responseClass = Class.forName(responseName, true, classLoader);
+            Class<?> offerClass = Class.forName(responseName + "$Offer", true, classLoader);
+            resolved = new Handles(
+                    requestClass.getMethod("getCommand"),
+                    requestClass.getMethod("getTransactionId"),
+                    responseClass.getConstructor(),
+                    responseClass.getMethod("setTransactionId", int.class),
+                    responseClass.getMethod("setStart", int.class),
+                    responseClass.getMethod("setLength", int.class),
+                    responseClass.getMethod("getOffers"),
+                    offerConstructor(offerClass)
+            );
+            handles = resolved;
+        }
+        return resolved;
+    }
+
+    private static Constructor<?> offerConstructor(Class<?> offerClass) throws NoSuchMethodException {
+        for (Constructor<?> constructor : offerClass.getConstructors()) {
+            Class<?>[] parameters = constructor.getParameterTypes();
+            if (parameters.length == 1 && parameters[0] == String.class) {
+                return constructor;
+            }
+        }
+        for (Constructor<?> constructor : offerClass.getConstructors()) {
+            Class<?>[] parameters = constructor.getParameterTypes();
+            if (parameters.length == 2 && parameters[0] == String.class && !parameters[1].isPrimitive()) {
+                return constructor;
+            }
+        }
+        throw new NoSuchMethodException(offerClass.getName() + ".<init>(String)");
+    }
+
+    private record Handles(
+            Method getCommand,
+            Method getTransactionId,
+            Constructor<?> responseConstructor,
+            Method setTransactionId,
+            Method setStart,
+            Method setLength,
+            Method getOffers,
+            Constructor<?> offerConstructor
+    ) {
+    }
+}
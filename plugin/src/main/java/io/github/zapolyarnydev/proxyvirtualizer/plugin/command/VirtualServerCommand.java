@@ -4,23 +4,41 @@ import com.velocitypowered.api.command.CommandSource;
 import com.velocitypowered.api.command.SimpleCommand;
 import com.velocitypowered.api.proxy.Player;
 import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import io.github.zapolyarnydev.proxyvirtualizer.api.balancer.BackendLoad;
+import io.github.zapolyarnydev.proxyvirtualizer.api.balancer.BackendSelector;
 import io.github.zapolyarnydev.proxyvirtualizer.api.connector.Connector;
 import io.github.zapolyarnydev.proxyvirtualizer.api.exception.PlayerAlreadyConnectedException;
 import io.github.zapolyarnydev.proxyvirtualizer.api.exception.VirtualServerAlreadyLaunchedException;
 import io.github.zapolyarnydev.proxyvirtualizer.api.registry.ServerContainer;
 import io.github.zapolyarnydev.proxyvirtualizer.api.server.Launcher;
 import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer;
+import io.github.zapolyarnydev.proxyvirtualizer.api.world.VirtualWorld;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.capture.CaptureService;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.keepalive.KeepAliveService;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.metrics.StatsDashboard;
 import io.github.zapolyarnydev.proxyvirtualizer.plugin.packet.VelocityVirtualPacketSender;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.queue.DefaultJoinQueue;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.queue.LoginShield;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.signal.VelocitySignalBridge;
 import io.github.zapolyarnydev.proxyvirtualizer.plugin.text.AdventureComponentParser;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.world.DefaultWorldManager;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
 import net.kyori.adventure.text.format.TextDecoration;
 
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 public final class VirtualServerCommand implements SimpleCommand {
@@ -36,7 +54,12 @@ public final class VirtualServerCommand implements SimpleCommand {
             "allow-protocol",
             "deny-protocol",
             "packet-map",
-            "packet"
+            "packet",
+            "world",
+            "capture",
+            "stats",
+            "queue",
+            "backends"
     );
 
     private final ServerContainer serverContainer;
@@ -44,19 +67,43 @@ public final class VirtualServerCommand implements SimpleCommand {
     private final Launcher launcher;
     private final Connector connector;
     private final VelocityVirtualPacketSender packetSender;
+    private final KeepAliveService keepAliveService;
+    private final DefaultWorldManager worldManager;
+    private final CaptureService captureService;
+    private final VelocitySignalBridge signalBridge;
+    private final StatsDashboard statsDashboard;
+    private final DefaultJoinQueue joinQueue;
+    private final LoginShield loginShield;
+    private final BackendSelector backendSelector;
 
     public VirtualServerCommand(
             ServerContainer serverContainer,
             ProxyServer proxyServer,
             Launcher launcher,
             Connector connector,
-            VelocityVirtualPacketSender packetSender
+            VelocityVirtualPacketSender packetSender,
+            KeepAliveService keepAliveService,
+            DefaultWorldManager worldManager,
+            CaptureService captureService,
+            VelocitySignalBridge signalBridge,
+            StatsDashboard statsDashboard,
+            DefaultJoinQueue joinQueue,
+            LoginShield loginShield,
+            BackendSelector backendSelector
     ) {
         this.serverContainer = serverContainer;
         this.proxyServer = proxyServer;
         this.launcher = launcher;
         this.connector = connector;
         this.packetSender = packetSender;
+        this.keepAliveService = keepAliveService;
+        this.worldManager = worldManager;
+        this.captureService = captureService;
+        this.signalBridge = signalBridge;
+        this.statsDashboard = statsDashboard;
+        this.joinQueue = joinQueue;
+        this.loginShield = loginShield;
+        this.backendSelector = backendSelector;
     }
 
     @Override
@@ -79,6 +126,11 @@ public final class VirtualServerCommand implements SimpleCommand {
             case "deny-protocol" -> handleDenyProtocol(invocation.source(), args);
             case "packet-map" -> handlePacketMap(invocation.source(), args);
             case "packet" -> handlePacket(invocation.source(), args);
+            case "world" -> handleWorld(invocation.source(), args);
+            case "capture" -> handleCapture(invocation.source(), args);
+            case "stats" -> handleStats(invocation.source(), args);
+            case "queue" -> handleQueue(invocation.source(), args);
+            case "backends" -> handleBackends(invocation.source());
             default -> {
                 error(invocation.source(), "Unknown subcommand: " + args[0]);
                 sendHelp(invocation.source());
@@ -99,7 +151,7 @@ public final class VirtualServerCommand implements SimpleCommand {
         }
 
         String subcommand = args[0].toLowerCase(Locale.ROOT);
-        if (List.of("stop", "connect", "allow-protocol", "deny-protocol", "packet-map").contains(subcommand)
+        if (List.of("stop", "connect", "allow-protocol", "deny-protocol", "packet-map", "world").contains(subcommand)
                 && args.length == 2) {
             return suggestServerNames(args[1]);
         }
@@ -108,10 +160,37 @@ public final class VirtualServerCommand implements SimpleCommand {
             return filterPrefix(List.of("limbo", "keepalive", "chat", "actionbar", "title", "disconnect"), args[1]);
         }
 
+        if ("world".equals(subcommand) && args.length == 3) {
+            return filterPrefix(List.of("load", "unload"), args[2]);
+        }
+
+        if ("capture".equals(subcommand) && args.length == 2) {
+            return filterPrefix(List.of("start", "stop", "status", "replay"), args[1]);
+        }
+
         if ("packet".equals(subcommand) && args.length == 3) {
             return suggestServerNames(args[2]);
         }
 
+        if ("stats".equals(subcommand) && args.length == 2) {
+            List<String> suggestions = new ArrayList<>(filterPrefix(List.of("watch"), args[1]));
+            suggestions.addAll(suggestServerNames(args[1]));
+            return suggestions;
+        }
+
+        if ("stats".equals(subcommand) && "watch".equalsIgnoreCase(args[1]) && args.length == 3) {
+            return suggestServerNames(args[2]);
+        }
+
+        if ("queue".equals(subcommand) && args.length == 2) {
+            String prefix = args[1].toLowerCase(Locale.ROOT);
+            return proxyServer.getAllServers().stream()
+                    .map(server -> server.getServerInfo().getName())
+                    .filter(name -> name.toLowerCase(Locale.ROOT).startsWith(prefix))
+                    .sorted()
+                    .toList();
+        }
+
         return List.of();
     }
 
@@ -293,7 +372,7 @@ public final class VirtualServerCommand implements SimpleCommand {
                 success(source, "Void limbo bootstrap sent to " + sent + " player(s) in " + virtualServer.getName() + " (target 1.21.4).");
             }
             case "keepalive" -> {
-                int sent = packetSender.broadcastKeepAlive(virtualServer);
+                int sent = keepAliveService.sendNow(virtualServer);
                 success(source, "KeepAlive sent to " + sent + " player(s) in " + virtualServer.getName());
             }
             case "chat" -> {
@@ -338,6 +417,232 @@ public final class VirtualServerCommand implements SimpleCommand {
         }
     }
 
+    private void handleWorld(CommandSource source, String[] args) {
+        if (args.length < 2) {
+            usage(source, "/vserver world <server> [load <path>|unload]");
+            return;
+        }
+
+        Optional<VirtualServer> serverOptional = serverContainer.findServerByName(args[1]);
+        if (serverOptional.isEmpty()) {
+            error(source, "Virtual server not found: " + args[1]);
+            return;
+        }
+
+        VirtualServer virtualServer = serverOptional.get();
+        String action = args.length < 3 ? "info" : args[2].toLowerCase(Locale.ROOT);
+        switch (action) {
+            case "info" -> {
+                Optional<VirtualWorld> world = worldManager.getWorld(virtualServer);
+                if (world.isEmpty()) {
+                    info(source, "No world loaded in " + virtualServer.getName());
+                    return;
+                }
+                info(source, "World " + world.get().getSource() + " (" + world.get().getChunkCount()
+                        + " chunks), cache " + worldManager.getCachedChunkCount() + " chunk(s) / "
+                        + worldManager.getCacheSizeBytes() / 1024 + " KiB");
+            }
+            case "load" -> {
+                String rawPath = joinTail(args, 3);
+                if (rawPath.isBlank()) {
+                    usage(source, "/vserver world <server> load <path>");
+                    return;
+                }
+                try {
+                    VirtualWorld world = worldManager.load(virtualServer, Path.of(rawPath));
+                    success(source, "Loaded " + world.getSource() + " (" + world.getChunkCount()
+                            + " chunks) into " + virtualServer.getName());
+                } catch (IOException | InvalidPathException exception) {
+                    error(source, "Unable to load world: " + exception.getMessage());
+                }
+            }
+            case "unload" -> {
+                if (worldManager.unload(virtualServer)) {
+                    success(source, "Unloaded the world of " + virtualServer.getName());
+                } else {
+                    error(source, "No world loaded in " + virtualServer.getName());
+                }
+            }
+            default -> error(source, "Unknown world action: " + action);
+        }
+    }
+
+    private void handleCapture(CommandSource source, String[] args) {
+        String action = args.length < 2 ? "status" : args[1].toLowerCase(Locale.ROOT);
+        switch (action) {
+            case "status" -> {
+                Optional<CaptureService.CaptureStatus> status = captureService.getStatus();
+                if (status.isEmpty()) {
+                    info(source, "No capture running.");
+                    return;
+                }
+                info(source, "Capturing to " + status.get().file().getFileName() + ": " + status.get().frames()
+                        + " frame(s), " + status.get().sizeBytes() / 1024 + " KiB");
+            }
+            case "start" -> {
+                if (args.length < 3) {
+                    usage(source, "/vserver capture start <file> [player:<name>|server:<name>]...");
+                    return;
+                }
+                Set<String> players = new HashSet<>();
+                Set<String> servers = new HashSet<>();
+                for (int i = 3; i < args.length; i++) {
+                    String selector = args[i];
+                    if (selector.startsWith("player:")) {
+                        players.add(selector.substring("player:".length()));
+                    } else if (selector.startsWith("server:")) {
+                        servers.add(selector.substring("server:".length()));
+                    } else {
+                        error(source, "Unknown capture selector: " + selector);
+                        return;
+                    }
+                }
+                try {
+                    Path file = captureService.start(args[2], players, servers);
+                    success(source, "Capturing inbound frames to " + file.getFileName());
+                } catch (IllegalStateException exception) {
+                    error(source, exception.getMessage());
+                } catch (IOException | InvalidPathException exception) {
+                    error(source, "Unable to start capture: " + exception.getMessage());
+                }
+            }
+            case "stop" -> {
+                Optional<CaptureService.CaptureStatus> status = captureService.stop();
+                if (status.isEmpty()) {
+                    info(source, "No capture running.");
+                    return;
+                }
+                success(source, "Saved " + status.get().frames() + " frame(s) to " + status.get().file().getFileName());
+            }
+            case "replay" -> {
+                if (args.length < 3) {
+                    usage(source, "/vserver capture replay <file> [speed|max]");
+                    return;
+                }
+                double speed = 1;
+                if (args.length > 3) {
+                    if ("max".equalsIgnoreCase(args[3])) {
+                        speed = 0;
+                    } else {
+                        try {
+                            speed = Double.parseDouble(args[3]);
+                        } catch (NumberFormatException ignored) {
+                            speed = -1;
+                        }
+                        if (!(speed > 0) || Double.isInfinite(speed)) {
+                            error(source, "Replay speed must be a positive number or 'max'.");
+                            return;
+                        }
+                    }
+                }
+                CompletableFuture<CaptureService.ReplayResult> replay;
+                try {
+                    replay = captureService.replay(args[2], speed, signalBridge::replayInboundFrame);
+                } catch (InvalidPathException exception) {
+                    error(source, "Invalid capture file: " + exception.getMessage());
+                    return;
+                }
+                info(source, "Replaying " + args[2] + (speed == 0 ? " as fast as possible" : " at " + speed + "x"));
+                replay.whenComplete((result, failure) -> {
+                    if (failure != null) {
+                        Throwable cause = failure.getCause() != null ? failure.getCause() : failure;
+                        error(source, "Replay failed: " + cause.getMessage());
+                        return;
+                    }
+                    success(source, "Replayed " + result.frames() + " frame(s) of " + result.players()
+                            + " player(s) in " + TimeUnit.NANOSECONDS.toMillis(result.elapsedNanos())
+                            + " ms (captured over " + TimeUnit.NANOSECONDS.toMillis(result.capturedNanos()) + " ms)");
+                });
+            }
+            default -> error(source, "Unknown capture action: " + action);
+        }
+    }
+
+    private void handleStats(CommandSource source, String[] args) {
+        boolean watch = args.length > 1 && "watch".equalsIgnoreCase(args[1]);
+        int serverArgIndex = watch ? 2 : 1;
+        VirtualServer virtualServer = null;
+        if (args.length > serverArgIndex) {
+            Optional<VirtualServer> serverOptional = serverContainer.findServerByName(args[serverArgIndex]);
+            if (serverOptional.isEmpty()) {
+                error(source, "Virtual server not found: " + args[serverArgIndex]);
+                return;
+            }
+            virtualServer = serverOptional.get();
+        }
+
+        if (watch) {
+            if (!(source instanceof Player player)) {
+                error(source, "Stats watch mode shows in the action bar and requires a player.");
+                return;
+            }
+            if (statsDashboard.toggleWatch(player, virtualServer)) {
+                success(source, "Watching live stats in the action bar. Run the command again to stop.");
+            } else {
+                info(source, "Stopped watching live stats.");
+            }
+            return;
+        }
+
+        info(source, "Live stats" + (virtualServer == null ? "" : " for " + virtualServer.getName()) + ":");
+        for (String line : statsDashboard.render(virtualServer)) {
+            helpLine(source, line);
+        }
+    }
+
+    private void handleQueue(CommandSource source, String[] args) {
+        if (args.length < 2) {
+            List<String> lines = new ArrayList<>(joinQueue.describe());
+            String shield = loginShield.describe();
+            if (shield != null) {
+                lines.add(shield);
+            }
+            if (lines.isEmpty()) {
+                info(source, "Nobody is waiting in the join queue.");
+                return;
+            }
+            info(source, "Join queue:");
+            for (String line : lines) {
+                helpLine(source, line);
+            }
+            return;
+        }
+
+        Player player = resolveTargetPlayer(source, args, 2);
+        if (player == null) {
+            return;
+        }
+
+        Optional<RegisteredServer> backend = proxyServer.getServer(args[1]);
+        if (backend.isEmpty()) {
+            error(source, "Backend server not found: " + args[1]);
+            return;
+        }
+
+        if (!joinQueue.enqueue(player, backend.get())) {
+            error(source, player.getUsername() + " is already queued or could not enter the waiting room.");
+            return;
+        }
+        int position = joinQueue.getPosition(player).orElse(0);
+        success(source, "Queued " + player.getUsername() + " for " + backend.get().getServerInfo().getName()
+                + " at position " + position);
+    }
+
+    private void handleBackends(CommandSource source) {
+        List<BackendLoad> loads = backendSelector.getLoads();
+        if (loads.isEmpty()) {
+            info(source, "No backend has been pinged yet.");
+            return;
+        }
+        info(source, "Backends:");
+        for (BackendLoad load : loads) {
+            helpLine(source, load.server().getServerInfo().getName() + ": "
+                    + (load.healthy() ? "up" : "down") + ", "
+                    + load.online() + "/" + (load.max() > 0 ? String.valueOf(load.max()) : "?") + " players, ping "
+                    + load.latency().toMillis() + " ms");
+        }
+    }
+
     private void sendHelp(CommandSource source) {
         List<String> lines = Arrays.asList(
                 "/vserver list",
@@ -356,6 +661,14 @@ public final class VirtualServerCommand implements SimpleCommand {
                 "/vserver packet chat <server> <message>",
                 "/vserver packet title <server> <title[||subtitle]>",
                 "/vserver packet disconnect <server> [reason]",
+                "/vserver world <server> [load <path>|unload]",
+                "/vserver capture <start <file> [player:<name>|server:<name>]...|stop|status>",
+                "/vserver capture replay <file> [speed|max]",
+                "/vserver stats [server]",
+                "/vserver stats watch [server]",
+                "/vserver queue",
+                "/vserver queue <backend> [player]",
+                "/vserver backends",
                 "Message formats: mm:<...> | legacy:&a... | json:{...} (default tries MiniMessage)"
         );
 
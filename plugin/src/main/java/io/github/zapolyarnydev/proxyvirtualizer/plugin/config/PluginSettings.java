@@ -0,0 +1,336 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.config;
+
+import io.github.zapolyarnydev.proxyvirtualizer.api.signal.SignalHandlerPolicy;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.balancer.BalancerSettings;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.capture.CaptureSettings;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.cluster.ClusterSettings;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.keepalive.KeepAliveSettings;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.metrics.MetricsSettings;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.network.OutboundSettings;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.packet.LimboChunkSettings;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.queue.JoinQueueSettings;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.queue.LoginShieldSettings;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.server.profile.ServerProfileSettings;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.server.tick.TickSettings;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.signal.SignalSettings;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.state.WarmStateSettings;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.world.WorldSettings;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+
+/**
+ * Plugin settings backed by {@code config.properties} in the plugin data directory.
+ * Missing or malformed values fall back to defaults.
+ */
+public final class PluginSettings {
+    private static final String FILE_NAME = "config.properties";
+
+    private final Properties properties;
+    private final Logger logger;
+
+    private PluginSettings(Properties properties, Logger logger) {
+        this.properties = properties;
+        this.logger = logger;
+    }
+
+    public static PluginSettings load(Path dataDirectory, Logger logger) {
+        Objects.requireNonNull(logger, "logger");
+        Properties properties = new Properties();
+        if (dataDirectory == null) {
+            return new PluginSettings(properties, logger);
+        }
+
+        Path file = dataDirectory.resolve(FILE_NAME);
+        try {
+            if (Files.notExists(file)) {
+                Files.createDirectories(dataDirectory);
+                try (InputStream defaults = PluginSettings.class.getClassLoader().getResourceAsStream(FILE_NAME)) {
+                    if (defaults != null) {
+                        Files.copy(defaults, file);
+                    }
+                }
+            }
+            if (Files.exists(file)) {
+                try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    properties.load(reader);
+                }
+            }
+        } catch (IOException exception) {
+            logger.warn("Unable to load {}, using defaults", file, exception);
+        }
+        return new PluginSettings(properties, logger);
+    }
+
+    public KeepAliveSettings keepAlive() {
+        try {
+            return new KeepAliveSettings(
+                    getDuration("keep-alive.interval-millis", KeepAliveSettings.DEFAULT_INTERVAL),
+                    getDuration("keep-alive.jitter-millis", KeepAliveSettings.DEFAULT_JITTER),
+                    getDuration("keep-alive.timeout-millis", KeepAliveSettings.DEFAULT_TIMEOUT)
+            );
+        } catch (IllegalArgumentException exception) {
+            logger.warn("Invalid keep-alive settings ({}), using defaults", exception.getMessage());
+            return KeepAliveSettings.defaults();
+        }
+    }
+
+    public TickSettings tick() {
+        try {
+            return new TickSettings(
+                    (int) getLong("tick.threads", TickSettings.DEFAULT_THREADS),
+                    (int) getLong("tick.default-tps", TickSettings.DEFAULT_TPS),
+                    (int) getLong("tick.budget-percent", TickSettings.DEFAULT_BUDGET_PERCENT)
+            );
+        } catch (IllegalArgumentException exception) {
+            logger.warn("Invalid tick settings ({}), using defaults", exception.getMessage());
+            return TickSettings.defaults();
+        }
+    }
+
+    public LimboChunkSettings limboChunks() {
+        try {
+            return new LimboChunkSettings(
+                    getBoolean("limbo-chunks.enabled", LimboChunkSettings.DEFAULT_ENABLED),
+                    (int) getLong("limbo-chunks.radius", LimboChunkSettings.DEFAULT_RADIUS),
+                    (int) getLong("limbo-chunks.min-y", LimboChunkSettings.DEFAULT_MIN_Y),
+                    (int) getLong("limbo-chunks.height", LimboChunkSettings.DEFAULT_HEIGHT),
+                    (int) getLong("limbo-chunks.floor-block-state", LimboChunkSettings.DEFAULT_FLOOR_BLOCK_STATE),
+                    (int) getLong("limbo-chunks.floor-y", LimboChunkSettings.DEFAULT_FLOOR_Y),
+                    (int) getLong("limbo-chunks.biome-id", LimboChunkSettings.DEFAULT_BIOME_ID)
+            );
+        } catch (IllegalArgumentException exception) {
+            logger.warn("Invalid limbo chunk settings ({}), using defaults", exception.getMessage());
+            return LimboChunkSettings.defaults();
+        }
+    }
+
+    public WorldSettings worlds() {
+        try {
+            return new WorldSettings(
+                    (int) getLong("worlds.view-distance", WorldSettings.DEFAULT_VIEW_DISTANCE),
+                    (int) getLong("worlds.chunks-per-tick", WorldSettings.DEFAULT_CHUNKS_PER_TICK),
+                    (int) getLong("worlds.bytes-per-tick", WorldSettings.DEFAULT_BYTES_PER_TICK),
+                    getLong("worlds.cache-bytes", WorldSettings.DEFAULT_CACHE_BYTES),
+                    (int) getLong("worlds.global-palette-bits", WorldSettings.DEFAULT_GLOBAL_PALETTE_BITS),
+                    (int) getLong("worlds.unknown-block-state", WorldSettings.DEFAULT_UNKNOWN_BLOCK_STATE),
+                    (int) getLong("worlds.schematic-y", WorldSettings.DEFAULT_SCHEMATIC_Y)
+            );
+        } catch (IllegalArgumentException exception) {
+            logger.warn("Invalid world settings ({}), using defaults", exception.getMessage());
+            return WorldSettings.defaults();
+        }
+    }
+
+    public OutboundSettings outbound() {
+        try {
+            return new OutboundSettings(
+                    getLong("outbound.max-queued-bytes", OutboundSettings.DEFAULT_MAX_QUEUED_BYTES)
+            );
+        } catch (IllegalArgumentException exception) {
+            logger.warn("Invalid outbound queue settings ({}), using defaults", exception.getMessage());
+            return OutboundSettings.defaults();
+        }
+    }
+
+    public CaptureSettings capture() {
+        try {
+            return new CaptureSettings(
+                    getLong("capture.max-file-bytes", CaptureSettings.DEFAULT_MAX_FILE_BYTES)
+            );
+        } catch (IllegalArgumentException exception) {
+            logger.warn("Invalid capture settings ({}), using defaults", exception.getMessage());
+            return CaptureSettings.defaults();
+        }
+    }
+
+    public SignalSettings signals() {
+        try {
+            return new SignalSettings(
+                    new SignalHandlerPolicy(
+                            getDuration("signals.max-run-time-millis", SignalHandlerPolicy.DEFAULT_MAX_RUN_TIME),
+                            (int) getLong("signals.failure-threshold", SignalHandlerPolicy.DEFAULT_FAILURE_THRESHOLD),
+                            getDuration("signals.failure-window-millis", SignalHandlerPolicy.DEFAULT_FAILURE_WINDOW),
+                            getDuration("signals.suspend-millis", SignalHandlerPolicy.DEFAULT_OPEN_DURATION),
+                            (int) getLong("signals.overrun-threshold", SignalHandlerPolicy.DEFAULT_OVERRUN_THRESHOLD),
+                            getDuration("signals.offload-recovery-millis", SignalHandlerPolicy.DEFAULT_OFFLOAD_RECOVERY)
+                    ),
+                    (int) getLong("signals.offload-threads", SignalSettings.DEFAULT_OFFLOAD_THREADS),
+                    (int) getLong("signals.offload-queue-size", SignalSettings.DEFAULT_OFFLOAD_QUEUE_SIZE),
+                    getDuration("signals.error-log-interval-millis", SignalSettings.DEFAULT_ERROR_LOG_INTERVAL)
+            );
+        } catch (IllegalArgumentException exception) {
+            logger.warn("Invalid signal settings ({}), using defaults", exception.getMessage());
+            return SignalSettings.defaults();
+        }
+    }
+
+    public WarmStateSettings warmState() {
+        try {
+            return new WarmStateSettings(
+                    getBoolean("warm-state.enabled", WarmStateSettings.DEFAULT_ENABLED),
+                    getDuration("warm-state.flush-interval-millis", WarmStateSettings.DEFAULT_FLUSH_INTERVAL),
+                    getLong("warm-state.max-file-bytes", WarmStateSettings.DEFAULT_MAX_FILE_BYTES),
+                    (int) getLong("warm-state.max-players", WarmStateSettings.DEFAULT_MAX_PLAYERS)
+            );
+        } catch (IllegalArgumentException exception) {
+            logger.warn("Invalid warm state settings ({}), using defaults", exception.getMessage());
+            return WarmStateSettings.defaults();
+        }
+    }
+
+    public ServerProfileSettings serverProfiles() {
+        try {
+            return new ServerProfileSettings(
+                    getBoolean("server-profiles.watch", ServerProfileSettings.DEFAULT_WATCH),
+                    getDuration("server-profiles.reload-delay-millis", ServerProfileSettings.DEFAULT_RELOAD_DELAY),
+                    (int) getLong("server-profiles.launch-threads", ServerProfileSettings.DEFAULT_LAUNCH_THREADS)
+            );
+        } catch (IllegalArgumentException exception) {
+            logger.warn("Invalid server profile settings ({}), using defaults", exception.getMessage());
+            return ServerProfileSettings.defaults();
+        }
+    }
+
+    public JoinQueueSettings joinQueue() {
+        try {
+            return new JoinQueueSettings(
+                    getString("queue.server", JoinQueueSettings.DEFAULT_SERVER),
+                    getList("queue.backends"),
+                    getLong("queue.rate-per-second", JoinQueueSettings.DEFAULT_RATE_PER_SECOND),
+                    (int) getLong("queue.burst", JoinQueueSettings.DEFAULT_BURST),
+                    (int) getLong("queue.max-in-flight", JoinQueueSettings.DEFAULT_MAX_IN_FLIGHT),
+                    getDuration("queue.target-join-latency-millis", JoinQueueSettings.DEFAULT_TARGET_JOIN_LATENCY),
+                    getDuration("queue.capacity-interval-millis", JoinQueueSettings.DEFAULT_CAPACITY_INTERVAL),
+                    getDuration("queue.position-interval-millis", JoinQueueSettings.DEFAULT_POSITION_INTERVAL),
+                    properties.getProperty("queue.priority-permissions") == null
+                            ? JoinQueueSettings.DEFAULT_PRIORITY_PERMISSIONS
+                            : getList("queue.priority-permissions")
+            );
+        } catch (IllegalArgumentException exception) {
+            logger.warn("Invalid join queue settings ({}), using defaults", exception.getMessage());
+            return JoinQueueSettings.defaults();
+        }
+    }
+
+    public LoginShieldSettings loginShield() {
+        try {
+            return new LoginShieldSettings(
+                    getBoolean("login-shield.enabled", LoginShieldSettings.DEFAULT_ENABLED),
+                    (int) getLong("login-shield.max-pending", LoginShieldSettings.DEFAULT_MAX_PENDING),
+                    getDuration("login-shield.max-connect-latency-millis", LoginShieldSettings.DEFAULT_MAX_CONNECT_LATENCY),
+                    getLong("login-shield.release-rate", LoginShieldSettings.DEFAULT_RELEASE_RATE),
+                    getDuration("login-shield.batch-interval-millis", LoginShieldSettings.DEFAULT_BATCH_INTERVAL),
+                    getDuration("login-shield.max-wait-millis", LoginShieldSettings.DEFAULT_MAX_WAIT)
+            );
+        } catch (IllegalArgumentException exception) {
+            logger.warn("Invalid login shield settings ({}), using defaults", exception.getMessage());
+            return LoginShieldSettings.defaults();
+        }
+    }
+
+    public BalancerSettings balancer() {
+        try {
+            return new BalancerSettings(
+                    getString("balancer.strategy", BalancerSettings.DEFAULT_STRATEGY),
+                    getList("balancer.servers"),
+                    getDuration("balancer.ping-interval-millis", BalancerSettings.DEFAULT_PING_INTERVAL),
+                    (int) getLong("balancer.failure-threshold", BalancerSettings.DEFAULT_FAILURE_THRESHOLD)
+            );
+        } catch (IllegalArgumentException exception) {
+            logger.warn("Invalid balancer settings ({}), using defaults", exception.getMessage());
+            return BalancerSettings.defaults();
+        }
+    }
+
+    public ClusterSettings cluster() {
+        try {
+            return new ClusterSettings(
+                    getString("cluster.transport", ClusterSettings.DEFAULT_TRANSPORT),
+                    getString("cluster.node-id", ClusterSettings.DEFAULT_NODE_ID),
+                    getString("cluster.host", ClusterSettings.DEFAULT_HOST),
+                    (int) getLong("cluster.port", ClusterSettings.DEFAULT_PORT),
+                    getList("cluster.peers"),
+                    getDuration("cluster.flush-interval-millis", ClusterSettings.DEFAULT_FLUSH_INTERVAL),
+                    getDuration("cluster.snapshot-interval-millis", ClusterSettings.DEFAULT_SNAPSHOT_INTERVAL),
+                    getDuration("cluster.node-timeout-millis", ClusterSettings.DEFAULT_NODE_TIMEOUT)
+            );
+        } catch (IllegalArgumentException exception) {
+            logger.warn("Invalid cluster settings ({}), using defaults", exception.getMessage());
+            return ClusterSettings.defaults();
+        }
+    }
+
+    public MetricsSettings metrics() {
+        try {
+            return new MetricsSettings(
+                    getBoolean("metrics.enabled", MetricsSettings.DEFAULT_ENABLED),
+                    getString("metrics.host", MetricsSettings.DEFAULT_HOST),
+                    (int) getLong("metrics.port", MetricsSettings.DEFAULT_PORT),
+                    getString("metrics.path", MetricsSettings.DEFAULT_PATH)
+            );
+        } catch (IllegalArgumentException exception) {
+            logger.warn("Invalid metrics settings ({}), using defaults", exception.getMessage());
+            return MetricsSettings.defaults();
+        }
+    }
+
+    private String getString(String key, String defaultValue) {
+        String raw = properties.getProperty(key);
+        return raw == null || raw.isBlank() ? defaultValue : raw.trim();
+    }
+
+    private List<String> getList(String key) {
+        String raw = properties.getProperty(key);
+        List<String> values = new ArrayList<>();
+        if (raw == null) {
+            return values;
+        }
+        for (String value : raw.split(",")) {
+            if (!value.isBlank()) {
+                values.add(value.trim());
+            }
+        }
+        return values;
+    }
+
+    private boolean getBoolean(String key, boolean defaultValue) {
+        String raw = properties.getProperty(key);
+        if (raw == null || raw.isBlank()) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(raw.trim());
+    }
+
+    private Duration getDuration(String key, Duration defaultValue) {
+        long millis = getLong(key, defaultValue.toMillis());
+        if (millis < 0) {
+            logger.warn("Setting {} cannot be negative, using {}", key, defaultValue.toMillis());
+            return defaultValue;
+        }
+        return Duration.ofMillis(millis);
+    }
+
+    private long getLong(String key, long defaultValue) {
+        String raw = properties.getProperty(key);
+        if (raw == null || raw.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(raw.trim());
+        } catch (NumberFormatException exception) {
+            logger.warn("Setting {} must be an integer, got '{}'", key, raw);
+            return defaultValue;
+        }
+    }
+}
@@ -1,37 +1,128 @@
 package io.github.zapolyarnydev.proxyvirtualizer.plugin.connector;
 
 import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
 import io.github.zapolyarnydev.proxyvirtualizer.api.connector.ConnectionStorage;
 import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+/**
+ * Keeps one {@link VirtualSession} per player. Opening a session is atomic per player, so two
+ * concurrent connects cannot both claim the same player.
+ */
 public final class InMemoryConnectionStorage implements ConnectionStorage {
 
-    private final Map<UUID, VirtualServer> connections = new ConcurrentHashMap<>();
+    private final Map<UUID, VirtualSession> sessions = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public void addListener(Listener listener) {
+        listeners.add(Objects.requireNonNull(listener, "listener"));
+    }
 
     @Override
     public boolean isInVirtualServer(Player player) {
         Objects.requireNonNull(player, "player");
-        return connections.containsKey(player.getUniqueId());
+        VirtualSession session = sessions.get(player.getUniqueId());
+        return session != null && session.isConnected();
     }
 
     @Override
     public Optional<VirtualServer> getVirtualServer(Player player) {
         Objects.requireNonNull(player, "player");
-        return Optional.ofNullable(connections.get(player.getUniqueId()));
+        VirtualSession session = sessions.get(player.getUniqueId());
+        return session != null && session.isConnected() ? Optional.of(session.getServer()) : Optional.empty();
+    }
+
+    /**
+     * @return the latest session of the player in any state, including a closed one
+     */
+    public Optional<VirtualSession> getSession(Player player) {
+        Objects.requireNonNull(player, "player");
+        return Optional.ofNullable(sessions.get(player.getUniqueId()));
+    }
+
+    /**
+     * Claims the player for a connect. The previous server defaults to the one remembered by an
+     * earlier closed session.
+     *
+     * @return the new session in {@link VirtualSession.State#CONNECTING}, or {@code null} if the player
+     * is already connecting to or inside a virtual server
+     */
+    public VirtualSession open(Player player, VirtualServer virtualServer, RegisteredServer previousServer) {
+        Objects.requireNonNull(player, "player");
+        Objects.requireNonNull(virtualServer, "virtualServer");
+        VirtualSession[] opened = new VirtualSession[1];
+        sessions.compute(player.getUniqueId(), (playerId, existing) -> {
+            if (existing != null && existing.getState() != VirtualSession.State.CLOSED) {
+                return existing;
+            }
+            opened[0] = new VirtualSession(
+                    player,
+                    virtualServer,
+                    previousServer != null || existing == null ? previousServer : existing.getPreviousServer(),
+                    VirtualSession.State.CONNECTING
+            );
+            return opened[0];
+        });
+        if (opened[0] != null) {
+            notifyOpened(opened[0]);
+        }
+        return opened[0];
+    }
+
+    /**
+     * Closes a session; the entry is kept so its previous server stays known.
+     */
+    public boolean close(VirtualSession session) {
+        Objects.requireNonNull(session, "session");
+        if (!session.close()) {
+            return false;
+        }
+        for (Listener listener : listeners) {
+            listener.sessionClosed(session);
+        }
+        return true;
+    }
+
+    /**
+     * Drops everything known about the player, closing an open session first.
+     */
+    public void forget(Player player) {
+        Objects.requireNonNull(player, "player");
+        VirtualSession session = sessions.remove(player.getUniqueId());
+        if (session != null) {
+            close(session);
+        }
+    }
+
+    /**
+     * Drops the entry of a closed session, unless a newer session replaced it.
+     */
+    public void discard(VirtualSession session) {
+        Objects.requireNonNull(session, "session");
+        if (session.getState() == VirtualSession.State.CLOSED) {
+            sessions.remove(session.getPlayer().getUniqueId(), session);
+        }
     }
 
     @Override
     public void register(Player player, VirtualServer virtualServer) {
         Objects.requireNonNull(player, "player");
         Objects.requireNonNull(virtualServer, "virtualServer");
-        connections.put(player.getUniqueId(), virtualServer);
+        VirtualSession session = new VirtualSession(player, virtualServer, null, VirtualSession.State.ACTIVE);
+        VirtualSession previous = sessions.put(player.getUniqueId(), session);
+        if (previous != null) {
+            close(previous);
+        }
+        notifyOpened(session);
     }
 
     @Override
@@ -45,7 +136,8 @@ public final class InMemoryConnectionStorage implements ConnectionStorage {
     @Override
     public boolean remove(Player player) {
         Objects.requireNonNull(player, "player");
-        return connections.remove(player.getUniqueId()) != null;
+        VirtualSession session = sessions.get(player.getUniqueId());
+        return session != null && session.isConnected() && close(session);
     }
 
     @Override
@@ -55,4 +147,19 @@ public final class InMemoryConnectionStorage implements ConnectionStorage {
             remove(value);
         }
     }
+
+    private void notifyOpened(VirtualSession session) {
+        for (Listener listener : listeners) {
+            listener.sessionOpened(session);
+        }
+    }
+
+    /**
+     * Observes sessions as they are opened and closed. Calls run on the thread changing the session.
+     */
+    public interface Listener {
+        void sessionOpened(VirtualSession session);
+
+        void sessionClosed(VirtualSession session);
+    }
 }
@@ -4,32 +4,57 @@ import com.velocitypowered.api.proxy.Player;
 import com.velocitypowered.api.proxy.ProxyServer;
 import com.velocitypowered.api.proxy.ServerConnection;
 import com.velocitypowered.api.proxy.server.RegisteredServer;
-import io.github.zapolyarnydev.proxyvirtualizer.api.connector.ConnectionStorage;
+import io.github.zapolyarnydev.proxyvirtualizer.api.balancer.BackendSelector;
 import io.github.zapolyarnydev.proxyvirtualizer.api.connector.Connector;
 import io.github.zapolyarnydev.proxyvirtualizer.api.exception.PlayerAlreadyConnectedException;
 import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.diagnostics.ConnectPhaseEvent;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.keepalive.KeepAliveService;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.metrics.PluginMetrics;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.network.OutboundQueueService;
 import io.github.zapolyarnydev.proxyvirtualizer.plugin.packet.VelocityVirtualPacketSender;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.signal.VelocitySignalBridge;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.spatial.GridPlayerPositionIndex;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.state.WarmStateStore;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.world.DefaultWorldManager;
 
-import java.util.Map;
 import java.util.Objects;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
 public final class VelocityConnectorImpl implements Connector {
 
     private final ProxyServer proxyServer;
-    private final ConnectionStorage connectionStorage;
+    private final InMemoryConnectionStorage connectionStorage;
     private final VelocityVirtualPacketSender packetSender;
-    private final Map<UUID, RegisteredServer> previousServers = new ConcurrentHashMap<>();
+    private final KeepAliveService keepAliveService;
+    private final DefaultWorldManager worldManager;
+    private final OutboundQueueService outboundQueues;
+    private final VelocitySignalBridge signalBridge;
+    private final WarmStateStore warmState;
+    private final BackendSelector backendSelector;
+    private final PluginMetrics metrics;
 
     public VelocityConnectorImpl(
             ProxyServer proxyServer,
-            ConnectionStorage connectionStorage,
-            VelocityVirtualPacketSender packetSender
+            InMemoryConnectionStorage connectionStorage,
+            VelocityVirtualPacketSender packetSender,
+            KeepAliveService keepAliveService,
+            DefaultWorldManager worldManager,
+            OutboundQueueService outboundQueues,
+            VelocitySignalBridge signalBridge,
+            WarmStateStore warmState,
+            BackendSelector backendSelector,
+            PluginMetrics metrics
     ) {
         this.proxyServer = Objects.requireNonNull(proxyServer, "proxyServer");
         this.connectionStorage = Objects.requireNonNull(connectionStorage, "connectionStorage");
         this.packetSender = Objects.requireNonNull(packetSender, "packetSender");
+        this.keepAliveService = Objects.requireNonNull(keepAliveService, "keepAliveService");
+        this.worldManager = Objects.requireNonNull(worldManager, "worldManager");
+        this.outboundQueues = Objects.requireNonNull(outboundQueues, "outboundQueues");
+        this.signalBridge = Objects.requireNonNull(signalBridge, "signalBridge");
+        this.warmState = Objects.requireNonNull(warmState, "warmState");
+        this.backendSelector = Objects.requireNonNull(backendSelector, "backendSelector");
+        this.metrics = Objects.requireNonNull(metrics, "metrics");
     }
 
     @Override
@@ -48,31 +73,54 @@ public final class VelocityConnectorImpl implements Connector {
             return false;
         }
 
-        player.getCurrentServer()
-                .map(ServerConnection::getServer)
-                .ifPresent(serverConnection -> previousServers.put(player.getUniqueId(), serverConnection));
+        ConnectPhaseEvent registerEvent = ConnectPhaseEvent.start();
+        RegisteredServer currentServer = player.getCurrentServer().map(ServerConnection::getServer).orElse(null);
+        VirtualSession session = connectionStorage.open(player, server, currentServer);
+        if (session == null) {
+            registerEvent.finish(ConnectPhaseEvent.REGISTER, player, server, false);
+            throw new PlayerAlreadyConnectedException(
+                    "Player " + player.getUsername() + " is already connected to a virtual server"
+            );
+        }
+        signalBridge.attach(session);
+        registerEvent.finish(ConnectPhaseEvent.REGISTER, player, server, true);
 
-        connectionStorage.register(player, server);
+        ConnectPhaseEvent detachEvent = ConnectPhaseEvent.start();
         detachBackendIfPossible(player);
-        if (!packetSender.bootstrapVoidLimbo(server, player)) {
-            connectionStorage.remove(player);
+        detachEvent.finish(ConnectPhaseEvent.DETACH, player, server, true);
+
+        ConnectPhaseEvent bootstrapEvent = ConnectPhaseEvent.start();
+        long bootstrapStarted = System.nanoTime();
+        boolean bootstrapped = packetSender.bootstrapVoidLimbo(server, player);
+        bootstrapEvent.finish(ConnectPhaseEvent.BOOTSTRAP, player, server, bootstrapped);
+        if (bootstrapped) {
+            metrics.recordBootstrap(System.nanoTime() - bootstrapStarted);
+        } else {
+            metrics.recordBootstrapFailure(server);
+            leaveVirtualServer(player);
             sendToPreviousServer(player);
             return false;
         }
+        if (!session.activate()) {
+            return false;
+        }
+        keepAliveService.track(server, player);
+        worldManager.join(server, player);
+        metrics.recordConnect(server);
         return true;
     }
 
     @Override
     public boolean disconnect(Player player) {
         Objects.requireNonNull(player, "player");
-        return connectionStorage.remove(player);
+        return leaveVirtualServer(player);
     }
 
     @Override
     public void disconnectAll() {
         for (Player player : proxyServer.getAllPlayers()) {
             if (connectionStorage.isInVirtualServer(player)) {
-                connectionStorage.remove(player);
+                leaveVirtualServer(player);
             }
         }
     }
@@ -85,9 +133,8 @@ public final class VelocityConnectorImpl implements Connector {
             return true;
         }
 
-        return proxyServer.getAllServers().stream()
-                .findFirst()
-                .map(server -> sendAndLeaveVirtualServer(player, server, false))
+        return backendSelector.select(player)
+                .map(server -> sendAndLeaveVirtualServer(player, server))
                 .orElse(false);
     }
 
@@ -95,19 +142,31 @@ public final class VelocityConnectorImpl implements Connector {
     public boolean sendToPreviousServer(Player player) {
         Objects.requireNonNull(player, "player");
 
-        RegisteredServer previous = previousServers.get(player.getUniqueId());
-        if (previous == null) {
+        VirtualSession session = connectionStorage.getSession(player).orElse(null);
+        if (session == null) {
+            return false;
+        }
+        // A player who joined straight into a virtual server after a restart has no backend in this
+        // session; the affinity saved before the restart stands in for it.
+        RegisteredServer previousServer = session.getPreviousServer() != null
+                ? session.getPreviousServer()
+                : warmState.findPreviousServer(player).orElse(null);
+        if (previousServer == null) {
             return false;
         }
 
-        return sendAndLeaveVirtualServer(player, previous, true);
+        boolean sent = sendAndLeaveVirtualServer(player, previousServer);
+        if (sent) {
+            connectionStorage.discard(session);
+        }
+        return sent;
     }
 
     public void forgetPlayer(Player player) {
         if (player == null) {
             return;
         }
-        previousServers.remove(player.getUniqueId());
+        connectionStorage.forget(player);
     }
 
     private void detachBackendIfPossible(Player player) {
@@ -156,16 +215,32 @@ public final class VelocityConnectorImpl implements Connector {
         return true;
     }
 
-    private boolean sendAndLeaveVirtualServer(Player player, RegisteredServer server, boolean removePreviousOnSuccess) {
+    private boolean sendAndLeaveVirtualServer(Player player, RegisteredServer server) {
         boolean sent = send(player, server);
         if (!sent) {
             return false;
         }
 
-        connectionStorage.remove(player);
-        if (removePreviousOnSuccess) {
-            previousServers.remove(player.getUniqueId());
+        leaveVirtualServer(player);
+        return true;
+    }
+
+    private boolean leaveVirtualServer(Player player) {
+        VirtualSession session = connectionStorage.getSession(player).orElse(null);
+        if (session == null || !session.beginLeaving()) {
+            return false;
+        }
+
+        VirtualServer server = session.getServer();
+        keepAliveService.untrack(player);
+        worldManager.leave(player);
+        outboundQueues.discard(player);
+        signalBridge.detach(session);
+        if (server.getPositionIndex() instanceof GridPlayerPositionIndex positionIndex) {
+            positionIndex.remove(player);
         }
+        connectionStorage.close(session);
+        metrics.recordDisconnect(server);
         return true;
     }
 }
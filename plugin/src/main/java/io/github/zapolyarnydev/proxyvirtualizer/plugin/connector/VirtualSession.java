@@ -0,0 +1,152 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.connector;
+
+import com.velocitypowered.api.network.ProtocolVersion;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * State of one stay of a player in a virtual server. A session is created when a connect claims the
+ * player, moves forward only through compare-and-set transitions and is never reused.
+ * <p>
+ * Closed sessions stay in the {@link InMemoryConnectionStorage} until the player is sent back or
+ * disconnects, so the previous backend server survives leaving the virtual server. The inbound packet
+ * taps hold the session they were installed for, so packet handling never looks it up.
+ */
+public final class VirtualSession {
+    private final Player player;
+    private final VirtualServer server;
+    private final ProtocolVersion protocolVersion;
+    private final RegisteredServer previousServer;
+    private final long startedNanos = System.nanoTime();
+    private final AtomicReference<State> state;
+    private final AtomicBoolean packetTapClaimed = new AtomicBoolean();
+    private final LongAdder inboundFrames = new LongAdder();
+    private volatile boolean rawPacketTap;
+    private volatile boolean decodedPacketTap;
+
+    VirtualSession(Player player, VirtualServer server, RegisteredServer previousServer, State state) {
+        this.player = Objects.requireNonNull(player, "player");
+        this.server = Objects.requireNonNull(server, "server");
+        this.protocolVersion = player.getProtocolVersion();
+        this.previousServer = previousServer;
+        this.state = new AtomicReference<>(Objects.requireNonNull(state, "state"));
+    }
+
+    public Player getPlayer() {
+        return player;
+    }
+
+    public VirtualServer getServer() {
+        return server;
+    }
+
+    public ProtocolVersion getProtocolVersion() {
+        return protocolVersion;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * @return whether the player is connecting to or inside the virtual server
+     */
+    public boolean isConnected() {
+        State current = state.get();
+        return current == State.CONNECTING || current == State.ACTIVE;
+    }
+
+    public RegisteredServer getPreviousServer() {
+        return previousServer;
+    }
+
+    public long getStartedNanos() {
+        return startedNanos;
+    }
+
+    public long getInboundFrames() {
+        return inboundFrames.sum();
+    }
+
+    public void recordInboundFrame() {
+        inboundFrames.increment();
+    }
+
+    /**
+     * Marks the session active once the limbo bootstrap has been written.
+     *
+     * @return {@code false} if the player left while connecting
+     */
+    public boolean activate() {
+        return state.compareAndSet(State.CONNECTING, State.ACTIVE);
+    }
+
+    /**
+     * Starts leaving; only one caller wins, so teardown runs once per session.
+     */
+    public boolean beginLeaving() {
+        State current;
+        do {
+            current = state.get();
+            if (current != State.CONNECTING && current != State.ACTIVE) {
+                return false;
+            }
+        } while (!state.compareAndSet(current, State.LEAVING));
+        return true;
+    }
+
+    boolean close() {
+        State current;
+        do {
+            current = state.get();
+            if (current == State.CLOSED) {
+                return false;
+            }
+        } while (!state.compareAndSet(current, State.CLOSED));
+        return true;
+    }
+
+    /**
+     * Claims the right to install packet taps for this session.
+     *
+     * @return {@code false} if taps were already claimed
+     */
+    public boolean claimPacketTap() {
+        return packetTapClaimed.compareAndSet(false, true);
+    }
+
+    /**
+     * @return {@code true} if taps were claimed and now have to be removed
+     */
+    public boolean releasePacketTap() {
+        rawPacketTap = false;
+        decodedPacketTap = false;
+        return packetTapClaimed.getAndSet(false);
+    }
+
+    public void setPacketTaps(boolean rawInstalled, boolean decodedInstalled) {
+        this.rawPacketTap = rawInstalled;
+        this.decodedPacketTap = decodedInstalled;
+    }
+
+    public boolean hasPacketTap() {
+        return rawPacketTap || decodedPacketTap;
+    }
+
+    public boolean hasRawPacketTap() {
+        return rawPacketTap;
+    }
+
+    public enum State {
+        CONNECTING,
+        ACTIVE,
+        LEAVING,
+        CLOSED
+    }
+}
@@ -0,0 +1,55 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.diagnostics;
+
+import com.velocitypowered.api.proxy.Player;
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * One phase of moving a player into a virtual server.
+ */
+@Name("proxyvirtualizer.ConnectPhase")
+@Label("Virtual Server Connect Phase")
+@Category({"ProxyVirtualizer", "Connect"})
+@Description("Detach, register or limbo bootstrap step of a virtual server connect")
+@Enabled(false)
+@Threshold("1 ms")
+public final class ConnectPhaseEvent extends Event {
+    public static final String DETACH = "detach";
+    public static final String REGISTER = "register";
+    public static final String BOOTSTRAP = "bootstrap";
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Player")
+    String player;
+
+    @Label("Server")
+    String server;
+
+    @Label("Success")
+    boolean success;
+
+    public static ConnectPhaseEvent start() {
+        ConnectPhaseEvent event = new ConnectPhaseEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish(String phase, Player player, VirtualServer server, boolean success) {
+        end();
+        if (shouldCommit()) {
+            this.phase = phase;
+            this.player = player.getUsername();
+            this.server = server.getName();
+            this.success = success;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.diagnostics;
+
+import com.velocitypowered.api.proxy.Player;
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Write of a single packet of the limbo bootstrap to the player's connection.
+ */
+@Name("proxyvirtualizer.LimboPacketWrite")
+@Label("Limbo Packet Write")
+@Category({"ProxyVirtualizer", "Connect"})
+@Description("Encoding and writing of one limbo bootstrap packet")
+@Enabled(false)
+@Threshold("100 us")
+@StackTrace(false)
+public final class LimboPacketWriteEvent extends Event {
+    @Label("Packet")
+    String packet;
+
+    @Label("Player")
+    String player;
+
+    @Label("Server")
+    String server;
+
+    public static LimboPacketWriteEvent start() {
+        LimboPacketWriteEvent event = new LimboPacketWriteEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish(String packetKey, Player player, VirtualServer server) {
+        end();
+        if (shouldCommit()) {
+            this.packet = packetKey;
+            this.player = player.getUsername();
+            this.server = server.getName();
+            commit();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.diagnostics;
+
+import com.velocitypowered.api.proxy.Player;
+import io.github.zapolyarnydev.proxyvirtualizer.api.connector.ConnectionStorage;
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Inspection of one inbound packet by the signal bridge, including the signals it published.
+ */
+@Name("proxyvirtualizer.PacketInspection")
+@Label("Inbound Packet Inspection")
+@Category({"ProxyVirtualizer", "Signals"})
+@Description("Decoding of an inbound raw frame or Velocity packet into signals")
+@Enabled(false)
+@Threshold("100 us")
+@StackTrace(false)
+public final class PacketInspectionEvent extends Event {
+    public static final String RAW = "raw";
+    public static final String DECODED = "decoded";
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Packet")
+    @Description("Packet id of raw frames, class name of decoded packets")
+    String packet;
+
+    @Label("Player")
+    String player;
+
+    @Label("Server")
+    String server;
+
+    public static PacketInspectionEvent start() {
+        PacketInspectionEvent event = new PacketInspectionEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Commits the event if it is enabled and over its threshold; the server is only looked up then.
+     */
+    public void finishRaw(int packetId, Player player, ConnectionStorage connectionStorage) {
+        end();
+        if (shouldCommit()) {
+            commit(RAW, "0x" + Integer.toHexString(packetId), player, connectionStorage);
+        }
+    }
+
+    public void finishDecoded(Object packet, Player player, ConnectionStorage connectionStorage) {
+        end();
+        if (shouldCommit()) {
+            commit(DECODED, packet.getClass().getSimpleName(), player, connectionStorage);
+        }
+    }
+
+    private void commit(String stage, String packet, Player player, ConnectionStorage connectionStorage) {
+        this.stage = stage;
+        this.packet = packet;
+        this.player = player.getUsername();
+        this.server = connectionStorage.getVirtualServer(player).map(VirtualServer::getName).orElse(null);
+        commit();
+    }
+}
@@ -0,0 +1,60 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.diagnostics;
+
+import com.velocitypowered.api.proxy.Player;
+import io.github.zapolyarnydev.proxyvirtualizer.api.signal.Signal;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Invocation of one signal handler.
+ */
+@Name("proxyvirtualizer.SignalDispatch")
+@Label("Signal Handler Invocation")
+@Category({"ProxyVirtualizer", "Signals"})
+@Description("Time a signal bus subscriber spent handling a signal")
+@Enabled(false)
+@Threshold("100 us")
+@StackTrace(false)
+public final class SignalDispatchEvent extends Event {
+    @Label("Signal Type")
+    Class<?> signalType;
+
+    @Label("Handler")
+    Class<?> handler;
+
+    @Label("Player")
+    String player;
+
+    @Label("Batch Size")
+    int batchSize;
+
+    public static SignalDispatchEvent start() {
+        SignalDispatchEvent event = new SignalDispatchEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish(Signal<?, ?> signal, Object handler) {
+        finish(signal, handler, 1);
+    }
+
+    /**
+     * @param signal first signal of the batch
+     */
+    public void finish(Signal<?, ?> signal, Object handler, int batchSize) {
+        end();
+        if (shouldCommit()) {
+            this.signalType = signal.getClass();
+            this.handler = handler.getClass();
+            this.player = signal.source() instanceof Player source ? source.getUsername() : null;
+            this.batchSize = batchSize;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.keepalive;
+
+import com.velocitypowered.api.proxy.Player;
+import io.github.zapolyarnydev.proxyvirtualizer.api.connector.ConnectionStorage;
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.network.MinecraftConnections;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.packet.VelocityVirtualPacketSender;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.packet.VirtualPacketKeys;
+import net.kyori.adventure.text.Component;
+import org.slf4j.Logger;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends keep-alives to every player parked in a virtual server from a single hashed timing wheel.
+ * <p>
+ * Each wheel tick collects the sessions that are due, groups their writes by Netty event loop and
+ * submits one task per loop, so the cost scales with the number of ticks rather than players.
+ */
+public final class KeepAliveService {
+    private static final String KEEP_ALIVE_PACKET_CLASS = "com.velocitypowered.proxy.protocol.packet.KeepAlivePacket";
+    private static final long TICK_MILLIS = 100L;
+    private static final int WHEEL_SIZE = 512;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final Component TIMEOUT_REASON = Component.text("Timed out");
+
+    private final ConnectionStorage connectionStorage;
+    private final VelocityVirtualPacketSender packetSender;
+    private final KeepAliveSettings settings;
+    private final Logger logger;
+    private final Map<UUID, KeepAliveSession> sessions = new ConcurrentHashMap<>();
+    private final Queue<KeepAliveSession> scheduleQueue = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService timer;
+    private final AtomicLong sentKeepAlives = new AtomicLong();
+    private final AtomicLong invalidResponses = new AtomicLong();
+    private final AtomicLong timedOutSessions = new AtomicLong();
+
+    // Wheel state below is confined to the timer thread.
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final ArrayDeque<KeepAliveSession>[] wheel = new ArrayDeque[WHEEL_SIZE];
+    private long currentTick;
+
+    private volatile Constructor<?> keepAliveConstructor;
+    private volatile Method setRandomIdMethod;
+
+    public KeepAliveService(
+            ConnectionStorage connectionStorage,
+            VelocityVirtualPacketSender packetSender,
+            KeepAliveSettings settings,
+            Logger logger
+    ) {
+        this.connectionStorage = Objects.requireNonNull(connectionStorage, "connectionStorage");
+        this.packetSender = Objects.requireNonNull(packetSender, "packetSender");
+        this.settings = Objects.requireNonNull(settings, "settings");
+        this.logger = Objects.requireNonNull(logger, "logger");
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new ArrayDeque<>();
+        }
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "proxyvirtualizer-keepalive-wheel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timer.scheduleAtFixedRate(this::tickSafely, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts sending keep-alives to a player that has just entered a virtual server. The first one goes
+     * out on the next wheel tick, so every keep-alive the player answers carries an id known here.
+     *
+     * @return {@code true} if the player is now tracked
+     */
+    public boolean track(VirtualServer virtualServer, Player player) {
+        Objects.requireNonNull(virtualServer, "virtualServer");
+        Objects.requireNonNull(player, "player");
+        if (!packetSender.isPacketAllowed(virtualServer, player, VirtualPacketKeys.KEEP_ALIVE)) {
+            return false;
+        }
+
+        try {
+            Object connection = MinecraftConnections.connection(player);
+            Executor eventLoop = connection == null ? null : MinecraftConnections.eventLoop(connection);
+            if (eventLoop == null) {
+                return false;
+            }
+
+            KeepAliveSession session = new KeepAliveSession(player, connection, eventLoop);
+            session.nextFireDelayMillis = 0L;
+            KeepAliveSession previous = sessions.put(player.getUniqueId(), session);
+            if (previous != null) {
+                previous.cancelled = true;
+            }
+            scheduleQueue.add(session);
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException exception) {
+            logger.debug("Unable to track keep-alive for player {}", player.getUsername(), exception);
+            return false;
+        }
+    }
+
+    public void untrack(Player player) {
+        if (player == null) {
+            return;
+        }
+        KeepAliveSession session = sessions.remove(player.getUniqueId());
+        if (session != null) {
+            session.cancelled = true;
+        }
+    }
+
+    /**
+     * Validates a keep-alive response sent by a player.
+     *
+     * @return {@code true} if the response matches the pending keep-alive of a tracked player
+     */
+    public boolean handleResponse(Player player, long keepAliveId) {
+        KeepAliveSession session = sessions.get(player.getUniqueId());
+        if (session == null) {
+            return false;
+        }
+
+        long sentAt = session.pendingSentNanos;
+        if (sentAt == 0L || session.pendingId != keepAliveId) {
+            invalidResponses.incrementAndGet();
+            return false;
+        }
+        session.lastRoundTripNanos = System.nanoTime() - sentAt;
+        session.pendingSentNanos = 0L;
+        return true;
+    }
+
+    /**
+     * Sends a keep-alive right away to every tracked player of the virtual server that has none
+     * unanswered. The wheel keeps its schedule and times such keep-alives out like its own.
+     *
+     * @return number of tracked players of the server
+     */
+    public int sendNow(VirtualServer virtualServer) {
+        Objects.requireNonNull(virtualServer, "virtualServer");
+        List<KeepAliveSession> targets = new ArrayList<>();
+        for (KeepAliveSession session : sessions.values()) {
+            if (!session.cancelled
+                    && connectionStorage.getVirtualServer(session.player).filter(virtualServer::equals).isPresent()) {
+                targets.add(session);
+            }
+        }
+        if (targets.isEmpty()) {
+            return 0;
+        }
+        try {
+            timer.execute(() -> fireNow(targets));
+        } catch (RejectedExecutionException exception) {
+            return 0;
+        }
+        return targets.size();
+    }
+
+    public boolean isTracked(Player player) {
+        return sessions.containsKey(player.getUniqueId());
+    }
+
+    /**
+     * @return last measured keep-alive round trip in milliseconds, or {@code -1} if none was answered yet
+     */
+    public long getRoundTripMillis(Player player) {
+        KeepAliveSession session = sessions.get(player.getUniqueId());
+        if (session == null || session.lastRoundTripNanos == 0L) {
+            return -1L;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(session.lastRoundTripNanos);
+    }
+
+    public int getTrackedCount() {
+        return sessions.size();
+    }
+
+    public long getSentCount() {
+        return sentKeepAlives.get();
+    }
+
+    public long getInvalidResponseCount() {
+        return invalidResponses.get();
+    }
+
+    public long getTimedOutCount() {
+        return timedOutSessions.get();
+    }
+
+    public KeepAliveSettings getSettings() {
+        return settings;
+    }
+
+    public void shutdown() {
+        timer.shutdownNow();
+        for (KeepAliveSession session : sessions.values()) {
+            session.cancelled = true;
+        }
+        sessions.clear();
+        scheduleQueue.clear();
+    }
+
+    private void tickSafely() {
+        try {
+            tick();
+        } catch (Throwable throwable) {
+            logger.warn("Keep-alive wheel tick failed", throwable);
+        }
+    }
+
+    private void tick() {
+        KeepAliveSession queued;
+        while ((queued = scheduleQueue.poll()) != null) {
+            schedule(queued, queued.nextFireDelayMillis);
+        }
+
+        ArrayDeque<KeepAliveSession> bucket = wheel[(int) (currentTick & WHEEL_MASK)];
+        if (!bucket.isEmpty()) {
+            fireBucket(bucket);
+        }
+        currentTick++;
+    }
+
+    private void fireBucket(ArrayDeque<KeepAliveSession> bucket) {
+        long now = System.nanoTime();
+        long timeoutNanos = settings.timeout().toNanos();
+        Map<Executor, List<KeepAliveSession>> batches = new IdentityHashMap<>();
+        List<KeepAliveSession> rescheduled = new ArrayList<>();
+
+        Iterator<KeepAliveSession> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            KeepAliveSession session = iterator.next();
+            if (session.cancelled) {
+                iterator.remove();
+                continue;
+            }
+            if (session.deadlineTick > currentTick) {
+                continue;
+            }
+            iterator.remove();
+
+            if (!isStillParked(session)) {
+                sessions.remove(session.player.getUniqueId(), session);
+                continue;
+            }
+
+            long pendingSince = session.pendingSentNanos;
+            if (pendingSince != 0L) {
+                long waited = now - pendingSince;
+                if (waited >= timeoutNanos) {
+                    timeOut(session);
+                } else {
+                    session.nextFireDelayMillis = TimeUnit.NANOSECONDS.toMillis(timeoutNanos - waited);
+                    rescheduled.add(session);
+                }
+                continue;
+            }
+
+            markPending(session, now, batches);
+            session.nextFireDelayMillis = nextIntervalMillis();
+            rescheduled.add(session);
+        }
+
+        for (KeepAliveSession session : rescheduled) {
+            schedule(session, session.nextFireDelayMillis);
+        }
+        for (Map.Entry<Executor, List<KeepAliveSession>> batch : batches.entrySet()) {
+            dispatch(batch.getKey(), batch.getValue());
+        }
+    }
+
+    private void fireNow(List<KeepAliveSession> targets) {
+        long now = System.nanoTime();
+        Map<Executor, List<KeepAliveSession>> batches = new IdentityHashMap<>();
+        for (KeepAliveSession session : targets) {
+            if (!session.cancelled && session.pendingSentNanos == 0L) {
+                markPending(session, now, batches);
+            }
+        }
+        for (Map.Entry<Executor, List<KeepAliveSession>> batch : batches.entrySet()) {
+            dispatch(batch.getKey(), batch.getValue());
+        }
+    }
+
+    private static void markPending(KeepAliveSession session, long now, Map<Executor, List<KeepAliveSession>> batches) {
+        session.pendingId = ThreadLocalRandom.current().nextLong();
+        session.pendingSentNanos = now;
+        batches.computeIfAbsent(session.eventLoop, ignored -> new ArrayList<>()).add(session);
+    }
+
+    private void dispatch(Executor eventLoop, List<KeepAliveSession> batch) {
+        try {
+            eventLoop.execute(() -> writeBatch(batch));
+        } catch (RuntimeException exception) {
+            logger.debug("Unable to submit keep-alive batch of {} player(s)", batch.size(), exception);
+        }
+    }
+
+    private void writeBatch(List<KeepAliveSession> batch) {
+        for (KeepAliveSession session : batch) {
+            try {
+                MinecraftConnections.delayedWrite(session.connection, createKeepAlivePacket(session.pendingId));
+            } catch (ReflectiveOperationException | RuntimeException exception) {
+                logger.debug("Failed to write keep-alive for player {}", session.player.getUsername(), exception);
+            }
+        }
+        for (KeepAliveSession session : batch) {
+            try {
+                MinecraftConnections.flush(session.connection);
+                sentKeepAlives.incrementAndGet();
+            } catch (ReflectiveOperationException | RuntimeException exception) {
+                logger.debug("Failed to flush keep-alive for player {}", session.player.getUsername(), exception);
+            }
+        }
+    }
+
+    private void timeOut(KeepAliveSession session) {
+        sessions.remove(session.player.getUniqueId(), session);
+        session.cancelled = true;
+        timedOutSessions.incrementAndGet();
+        logger.debug("Player {} did not answer keep-alive in a virtual server", session.player.getUsername());
+        session.player.disconnect(TIMEOUT_REASON);
+    }
+
+    private boolean isStillParked(KeepAliveSession session) {
+        if (!connectionStorage.isInVirtualServer(session.player)) {
+            return false;
+        }
+        try {
+            return !MinecraftConnections.isClosed(session.connection);
+        } catch (ReflectiveOperationException exception) {
+            return true;
+        }
+    }
+
+    private void schedule(KeepAliveSession session, long delayMillis) {
+        if (session.cancelled) {
+            return;
+        }
+        long ticks = Math.max(1L, (delayMillis + TICK_MILLIS - 1) / TICK_MILLIS);
+        session.deadlineTick = currentTick + ticks;
+        wheel[(int) (session.deadlineTick & WHEEL_MASK)].add(session);
+    }
+
+    private long nextIntervalMillis() {
+        long jitter = settings.jitter().toMillis();
+        long interval = settings.interval().toMillis();
+        return jitter == 0L ? interval : interval + ThreadLocalRandom.current().nextLong(jitter + 1);
+    }
+
+    private Object createKeepAlivePacket(long id) throws ReflectiveOperationException {
+        Constructor<?> constructor = keepAliveConstructor;
+        Method setRandomId = setRandomIdMethod;
+        if (constructor == null || setRandomId == null) {
+            Class<?> packetClass = Class.forName(KEEP_ALIVE_PACKET_CLASS, true, getClass().getClassLoader());
+            constructor = packetClass.getConstructor();
+            setRandomId = packetClass.getMethod("setRandomId", long.class);
+            keepAliveConstructor = constructor;
+            setRandomIdMethod = setRandomId;
+        }
+        Object packet = constructor.newInstance();
+        setRandomId.invoke(packet, id);
+        return packet;
+    }
+
+    private static final class KeepAliveSession {
+        private final Player player;
+        private final Object connection;
+        private final Executor eventLoop;
+        private volatile boolean cancelled;
+        private volatile long pendingId;
+        private volatile long pendingSentNanos;
+        private volatile long lastRoundTripNanos;
+        private long deadlineTick;
+        private long nextFireDelayMillis;
+
+        private KeepAliveSession(Player player, Object connection, Executor eventLoop) {
+            this.player = player;
+            this.connection = connection;
+            this.eventLoop = eventLoop;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.keepalive;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Keep-alive timings for players parked in virtual servers.
+ *
+ * @param interval delay between two keep-alives sent to the same player
+ * @param jitter   maximum random delay added to each interval so batches do not line up
+ * @param timeout  time a player may leave a keep-alive unanswered before being disconnected
+ */
+public record KeepAliveSettings(Duration interval, Duration jitter, Duration timeout) {
+    public static final Duration DEFAULT_INTERVAL = Duration.ofSeconds(10);
+    public static final Duration DEFAULT_JITTER = Duration.ofSeconds(1);
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+
+    public KeepAliveSettings {
+        Objects.requireNonNull(interval, "interval");
+        Objects.requireNonNull(jitter, "jitter");
+        Objects.requireNonNull(timeout, "timeout");
+        if (interval.isZero() || interval.isNegative()) {
+            throw new IllegalArgumentException("Keep-alive interval must be positive");
+        }
+        if (jitter.isNegative()) {
+            throw new IllegalArgumentException("Keep-alive jitter cannot be negative");
+        }
+        if (timeout.compareTo(interval) <= 0) {
+            throw new IllegalArgumentException("Keep-alive timeout must be greater than the interval");
+        }
+    }
+
+    public static KeepAliveSettings defaults() {
+        return new KeepAliveSettings(DEFAULT_INTERVAL, DEFAULT_JITTER, DEFAULT_TIMEOUT);
+    }
+}
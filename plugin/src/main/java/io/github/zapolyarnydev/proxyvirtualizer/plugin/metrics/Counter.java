@@ -0,0 +1,28 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic counter backed by a striped {@link LongAdder}, cheap to increment from many threads.
+ */
+public final class Counter {
+    private final LongAdder value = new LongAdder();
+
+    Counter() {
+    }
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void add(long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Counter increments cannot be negative");
+        }
+        value.add(amount);
+    }
+
+    public long get() {
+        return value.sum();
+    }
+}
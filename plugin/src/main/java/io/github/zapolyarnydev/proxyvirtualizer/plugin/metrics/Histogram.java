@@ -0,0 +1,66 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram with fixed upper bucket bounds. Each observation increments one striped bucket,
+ * cumulative counts are only computed when read.
+ */
+public final class Histogram {
+    private final double[] bounds;
+    private final LongAdder[] buckets;
+    private final LongAdder count = new LongAdder();
+    private final DoubleAdder sum = new DoubleAdder();
+
+    Histogram(double[] bounds) {
+        if (bounds.length == 0) {
+            throw new IllegalArgumentException("Histogram needs at least one bucket");
+        }
+        double[] sorted = bounds.clone();
+        Arrays.sort(sorted);
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] == sorted[i - 1]) {
+                throw new IllegalArgumentException("Duplicate histogram bucket " + sorted[i]);
+            }
+        }
+        this.bounds = sorted;
+        this.buckets = new LongAdder[sorted.length + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void observe(double value) {
+        int index = Arrays.binarySearch(bounds, value);
+        buckets[index >= 0 ? index : -index - 1].increment();
+        count.increment();
+        sum.add(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getSum() {
+        return sum.sum();
+    }
+
+    double[] bounds() {
+        return bounds;
+    }
+
+    /**
+     * @return cumulative counts per bound, the last entry being the {@code +Inf} bucket
+     */
+    long[] cumulativeCounts() {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            total += buckets[i].sum();
+            counts[i] = total;
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,31 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.metrics;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counters sharing a name and distinguished by the value of a single label.
+ */
+public final class LabeledCounter {
+    private final String labelName;
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    LabeledCounter(String labelName) {
+        this.labelName = labelName;
+    }
+
+    public Counter labels(String labelValue) {
+        Objects.requireNonNull(labelValue, "labelValue");
+        Counter counter = counters.get(labelValue);
+        return counter != null ? counter : counters.computeIfAbsent(labelValue, ignored -> new Counter());
+    }
+
+    String labelName() {
+        return labelName;
+    }
+
+    Map<String, Counter> counters() {
+        return counters;
+    }
+}
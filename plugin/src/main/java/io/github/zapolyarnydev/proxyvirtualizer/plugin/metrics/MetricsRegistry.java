@@ -0,0 +1,164 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.metrics;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Registry of named metrics rendered in the Prometheus text exposition format.
+ * Recording never locks; gauges are evaluated only when the registry is scraped.
+ */
+public final class MetricsRegistry {
+    private static final Pattern NAME_PATTERN = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+    private static final Pattern LABEL_PATTERN = Pattern.compile("[a-zA-Z_][a-zA-Z0-9_]*");
+
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    public Counter counter(String name, String help) {
+        Counter counter = new Counter();
+        register(name, help, "counter", out -> writeSample(out, name, null, null, counter.get()));
+        return counter;
+    }
+
+    public LabeledCounter labeledCounter(String name, String help, String labelName) {
+        LabeledCounter counter = new LabeledCounter(validateLabel(labelName));
+        register(name, help, "counter", out -> {
+            for (Map.Entry<String, Counter> entry : new TreeMap<>(counter.counters()).entrySet()) {
+                writeSample(out, name, labelName, entry.getKey(), entry.getValue().get());
+            }
+        });
+        return counter;
+    }
+
+    public Histogram histogram(String name, String help, double... bounds) {
+        Histogram histogram = new Histogram(bounds);
+        register(name, help, "histogram", out -> {
+            double[] upperBounds = histogram.bounds();
+            long[] counts = histogram.cumulativeCounts();
+            for (int i = 0; i < upperBounds.length; i++) {
+                writeSample(out, name + "_bucket", "le", formatDouble(upperBounds[i]), counts[i]);
+            }
+            writeSample(out, name + "_bucket", "le", "+Inf", counts[counts.length - 1]);
+            writeSample(out, name + "_sum", null, null, histogram.getSum());
+            writeSample(out, name + "_count", null, null, counts[counts.length - 1]);
+        });
+        return histogram;
+    }
+
+    public void gauge(String name, String help, DoubleSupplier supplier) {
+        Objects.requireNonNull(supplier, "supplier");
+        register(name, help, "gauge", out -> writeSample(out, name, null, null, supplier.getAsDouble()));
+    }
+
+    /**
+     * Registers a gauge whose label values and readings are produced on each scrape.
+     */
+    public void labeledGauge(
+            String name,
+            String help,
+            String labelName,
+            Supplier<? extends Map<String, ? extends Number>> supplier
+    ) {
+        Objects.requireNonNull(supplier, "supplier");
+        validateLabel(labelName);
+        register(name, help, "gauge", out -> {
+            for (Map.Entry<String, ? extends Number> entry : new TreeMap<>(supplier.get()).entrySet()) {
+                writeSample(out, name, labelName, entry.getKey(), entry.getValue().doubleValue());
+            }
+        });
+    }
+
+    public boolean unregister(String name) {
+        return families.remove(name) != null;
+    }
+
+    /**
+     * Renders every metric in the Prometheus text format, version 0.0.4.
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(families.size() * 128);
+        for (Map.Entry<String, Family> entry : families.entrySet()) {
+            Family family = entry.getValue();
+            out.append("# HELP ").append(entry.getKey()).append(' ').append(escapeHelp(family.help())).append('\n');
+            out.append("# TYPE ").append(entry.getKey()).append(' ').append(family.type()).append('\n');
+            family.writer().write(out);
+        }
+        return out.toString();
+    }
+
+    private void register(String name, String help, String type, SampleWriter writer) {
+        Objects.requireNonNull(name, "name");
+        Objects.requireNonNull(help, "help");
+        if (!NAME_PATTERN.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid metric name: " + name);
+        }
+        if (families.putIfAbsent(name, new Family(help, type, writer)) != null) {
+            throw new IllegalArgumentException("Metric already registered: " + name);
+        }
+    }
+
+    private static String validateLabel(String labelName) {
+        Objects.requireNonNull(labelName, "labelName");
+        if (!LABEL_PATTERN.matcher(labelName).matches() || labelName.startsWith("__")) {
+            throw new IllegalArgumentException("Invalid label name: " + labelName);
+        }
+        return labelName;
+    }
+
+    private static void writeSample(StringBuilder out, String name, String labelName, String labelValue, long value) {
+        writeSampleName(out, name, labelName, labelValue);
+        out.append(value).append('\n');
+    }
+
+    private static void writeSample(StringBuilder out, String name, String labelName, String labelValue, double value) {
+        writeSampleName(out, name, labelName, labelValue);
+        out.append(formatDouble(value)).append('\n');
+    }
+
+    private static void writeSampleName(StringBuilder out, String name, String labelName, String labelValue) {
+        out.append(name);
+        if (labelName != null) {
+            out.append('{').append(labelName).append("=\"");
+            for (int i = 0; i < labelValue.length(); i++) {
+                char c = labelValue.charAt(i);
+                switch (c) {
+                    case '\\' -> out.append("\\\\");
+                    case '"' -> out.append("\\\"");
+                    case '\n' -> out.append("\\n");
+                    default -> out.append(c);
+                }
+            }
+            out.append("\"}");
+        }
+        out.append(' ');
+    }
+
+    private static String escapeHelp(String help) {
+        return help.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+
+    private static String formatDouble(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    @FunctionalInterface
+    private interface SampleWriter {
+        void write(StringBuilder out);
+    }
+
+    private record Family(String help, String type, SampleWriter writer) {
+    }
+}
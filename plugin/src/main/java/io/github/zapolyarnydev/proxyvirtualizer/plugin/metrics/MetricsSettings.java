@@ -0,0 +1,36 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.metrics;
+
+import java.util.Objects;
+
+/**
+ * Embedded Prometheus endpoint settings.
+ *
+ * @param enabled whether the HTTP endpoint is started
+ * @param host    address the endpoint binds to
+ * @param port    TCP port of the endpoint
+ * @param path    request path serving the metrics
+ */
+public record MetricsSettings(boolean enabled, String host, int port, String path) {
+    public static final boolean DEFAULT_ENABLED = false;
+    public static final String DEFAULT_HOST = "127.0.0.1";
+    public static final int DEFAULT_PORT = 9464;
+    public static final String DEFAULT_PATH = "/metrics";
+
+    public MetricsSettings {
+        Objects.requireNonNull(host, "host");
+        Objects.requireNonNull(path, "path");
+        if (host.isBlank()) {
+            throw new IllegalArgumentException("Metrics host cannot be blank");
+        }
+        if (port < 1 || port > 65535) {
+            throw new IllegalArgumentException("Metrics port must be between 1 and 65535");
+        }
+        if (!path.startsWith("/")) {
+            throw new IllegalArgumentException("Metrics path must start with '/'");
+        }
+    }
+
+    public static MetricsSettings defaults() {
+        return new MetricsSettings(DEFAULT_ENABLED, DEFAULT_HOST, DEFAULT_PORT, DEFAULT_PATH);
+    }
+}
@@ -0,0 +1,193 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.metrics;
+
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ProxyServer;
+import io.github.zapolyarnydev.proxyvirtualizer.api.connector.ConnectionStorage;
+import io.github.zapolyarnydev.proxyvirtualizer.api.registry.ServerContainer;
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer;
+import io.github.zapolyarnydev.proxyvirtualizer.api.signal.Signal;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Metrics recorded by the plugin components. Totals are registered in a shared {@link MetricsRegistry};
+ * rolling windows of the last {@link #WINDOW_SECONDS} seconds back the {@code /vserver stats} dashboard.
+ */
+public final class PluginMetrics {
+    public static final int WINDOW_SECONDS = 60;
+
+    private static final double[] BROADCAST_BUCKETS = {0, 1, 5, 10, 25, 50, 100, 250, 500, 1000};
+    private static final double[] BOOTSTRAP_MILLIS_BUCKETS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000};
+    private static final int WINDOW_SLOTS = WINDOW_SECONDS + 1;
+
+    private final MetricsRegistry registry;
+    private final LabeledCounter connects;
+    private final LabeledCounter disconnects;
+    private final LabeledCounter bootstrapFailures;
+    private final LabeledCounter signalsPublished;
+    private final Counter decodeErrors;
+    private final Histogram broadcastRecipients;
+    private final Histogram bootstrapSeconds;
+    private final Counter outboundBytes;
+    private final Map<String, RollingCounter> signalRates = new ConcurrentHashMap<>();
+    private final RollingCounter decodeErrorRate = new RollingCounter(WINDOW_SLOTS);
+    private final RollingCounter outboundByteRate = new RollingCounter(WINDOW_SLOTS);
+    private final RollingCounter handlerInvocations = new RollingCounter(WINDOW_SLOTS);
+    private final RollingCounter handlerNanos = new RollingCounter(WINDOW_SLOTS);
+    private final RollingHistogram bootstrapMillis = new RollingHistogram(WINDOW_SLOTS, BOOTSTRAP_MILLIS_BUCKETS);
+    private final ClassValue<SignalCounters> signalCounters = new ClassValue<>() {
+        @Override
+        protected SignalCounters computeValue(Class<?> type) {
+            String name = type.getSimpleName();
+            return new SignalCounters(
+                    signalsPublished.labels(name),
+                    signalRates.computeIfAbsent(name, ignored -> new RollingCounter(WINDOW_SLOTS))
+            );
+        }
+    };
+
+    public PluginMetrics(
+            MetricsRegistry registry,
+            ProxyServer proxyServer,
+            ServerContainer serverContainer,
+            ConnectionStorage connectionStorage
+    ) {
+        this.registry = Objects.requireNonNull(registry, "registry");
+        Objects.requireNonNull(proxyServer, "proxyServer");
+        Objects.requireNonNull(serverContainer, "serverContainer");
+        Objects.requireNonNull(connectionStorage, "connectionStorage");
+
+        this.connects = registry.labeledCounter(
+                "proxyvirtualizer_connects_total", "Players moved into a virtual server", "server"
+        );
+        this.disconnects = registry.labeledCounter(
+                "proxyvirtualizer_disconnects_total", "Players that left a virtual server", "server"
+        );
+        this.bootstrapFailures = registry.labeledCounter(
+                "proxyvirtualizer_bootstrap_failures_total", "Connects aborted because the limbo bootstrap failed", "server"
+        );
+        this.signalsPublished = registry.labeledCounter(
+                "proxyvirtualizer_signals_published_total", "Signals published on the signal bus", "type"
+        );
+        this.decodeErrors = registry.counter(
+                "proxyvirtualizer_decode_errors_total", "Inbound packets the signal bridge failed to decode"
+        );
+        this.broadcastRecipients = registry.histogram(
+                "proxyvirtualizer_broadcast_recipients", "Players reached by a packet broadcast", BROADCAST_BUCKETS
+        );
+        this.bootstrapSeconds = registry.histogram(
+                "proxyvirtualizer_bootstrap_duration_seconds", "Duration of successful limbo bootstraps",
+                0.001, 0.002, 0.005, 0.01, 0.02, 0.05, 0.1, 0.2, 0.5, 1, 2, 5
+        );
+        this.outboundBytes = registry.counter(
+                "proxyvirtualizer_outbound_bytes_total", "Estimated bytes written from the outbound queues"
+        );
+        registry.gauge(
+                "proxyvirtualizer_servers", "Launched virtual servers", () -> serverContainer.getServers().size()
+        );
+        registry.labeledGauge(
+                "proxyvirtualizer_server_players", "Players inside each virtual server", "server",
+                () -> population(proxyServer, serverContainer, connectionStorage)
+        );
+    }
+
+    public MetricsRegistry getRegistry() {
+        return registry;
+    }
+
+    public void recordConnect(VirtualServer server) {
+        connects.labels(server.getName()).increment();
+    }
+
+    public void recordDisconnect(VirtualServer server) {
+        disconnects.labels(server.getName()).increment();
+    }
+
+    public void recordBootstrapFailure(VirtualServer server) {
+        bootstrapFailures.labels(server.getName()).increment();
+    }
+
+    public void recordSignal(Signal<?, ?> signal) {
+        SignalCounters counters = signalCounters.get(signal.getClass());
+        counters.total().increment();
+        counters.rate().increment();
+    }
+
+    public void recordDecodeError() {
+        decodeErrors.increment();
+        decodeErrorRate.increment();
+    }
+
+    public void recordBootstrap(long durationNanos) {
+        bootstrapSeconds.observe(durationNanos / 1e9);
+        bootstrapMillis.observe(durationNanos / 1e6);
+    }
+
+    public void recordHandler(long durationNanos) {
+        handlerInvocations.increment();
+        handlerNanos.add(durationNanos);
+    }
+
+    public void recordOutbound(int bytes) {
+        outboundBytes.add(bytes);
+        outboundByteRate.add(bytes);
+    }
+
+    /**
+     * @return signals per second by signal class name, averaged over the window
+     */
+    public Map<String, Double> getSignalRates(int windowSeconds) {
+        Map<String, Double> rates = new HashMap<>();
+        signalRates.forEach((type, rate) -> rates.put(type, rate.ratePerSecond(windowSeconds)));
+        return rates;
+    }
+
+    public double getDecodeErrorRate(int windowSeconds) {
+        return decodeErrorRate.ratePerSecond(windowSeconds);
+    }
+
+    public double getOutboundByteRate(int windowSeconds) {
+        return outboundByteRate.ratePerSecond(windowSeconds);
+    }
+
+    /**
+     * @return mean signal handler duration in nanoseconds, {@code NaN} without invocations
+     */
+    public double getAverageHandlerNanos(int windowSeconds) {
+        long invocations = handlerInvocations.sum(windowSeconds);
+        return invocations == 0 ? Double.NaN : (double) handlerNanos.sum(windowSeconds) / invocations;
+    }
+
+    /**
+     * @return bucketed bootstrap latency quantile in milliseconds, {@code NaN} without bootstraps
+     */
+    public double getBootstrapLatencyMillis(double quantile, int windowSeconds) {
+        return bootstrapMillis.quantile(quantile, windowSeconds);
+    }
+
+    public void recordBroadcast(int recipients) {
+        broadcastRecipients.observe(recipients);
+    }
+
+    private static Map<String, Integer> population(
+            ProxyServer proxyServer,
+            ServerContainer serverContainer,
+            ConnectionStorage connectionStorage
+    ) {
+        Map<String, Integer> population = new HashMap<>();
+        for (VirtualServer server : serverContainer.getServers()) {
+            population.put(server.getName(), 0);
+        }
+        for (Player player : proxyServer.getAllPlayers()) {
+            connectionStorage.getVirtualServer(player)
+                    .ifPresent(server -> population.merge(server.getName(), 1, Integer::sum));
+        }
+        return population;
+    }
+
+    private record SignalCounters(Counter total, RollingCounter rate) {
+    }
+}
@@ -0,0 +1,71 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Event totals per second over a ring of one-second slots.
+ * <p>
+ * A slot is reset lazily by the first writer of a new second; increments racing with the reset may
+ * be lost, which is acceptable for dashboard figures.
+ */
+public final class RollingCounter {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final long ORIGIN_NANOS = System.nanoTime();
+
+    private final int slots;
+    private final AtomicLongArray seconds;
+    private final LongAdder[] counts;
+
+    public RollingCounter(int slots) {
+        if (slots < 2) {
+            throw new IllegalArgumentException("Rolling counter needs at least two slots");
+        }
+        this.slots = slots;
+        this.seconds = new AtomicLongArray(slots);
+        this.counts = new LongAdder[slots];
+        for (int i = 0; i < slots; i++) {
+            counts[i] = new LongAdder();
+            seconds.set(i, -1);
+        }
+    }
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(long amount) {
+        long second = currentSecond();
+        int index = (int) (second % slots);
+        long slotSecond = seconds.get(index);
+        if (slotSecond != second && seconds.compareAndSet(index, slotSecond, second)) {
+            counts[index].reset();
+        }
+        counts[index].add(amount);
+    }
+
+    /**
+     * Sums the last {@code windowSeconds} completed seconds; the current, partial second is excluded.
+     */
+    public long sum(int windowSeconds) {
+        int window = Math.min(windowSeconds, slots - 1);
+        long now = currentSecond();
+        long total = 0;
+        for (long second = Math.max(0, now - window); second < now; second++) {
+            int index = (int) (second % slots);
+            if (seconds.get(index) == second) {
+                total += counts[index].sum();
+            }
+        }
+        return total;
+    }
+
+    public double ratePerSecond(int windowSeconds) {
+        int window = Math.max(1, Math.min(windowSeconds, slots - 1));
+        return (double) sum(window) / window;
+    }
+
+    private static long currentSecond() {
+        return (System.nanoTime() - ORIGIN_NANOS) / NANOS_PER_SECOND;
+    }
+}
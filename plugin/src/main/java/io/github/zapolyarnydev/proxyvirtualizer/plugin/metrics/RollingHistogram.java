@@ -0,0 +1,66 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-bucket histogram over a rolling window, used for dashboard percentiles.
+ * Quantiles resolve to the upper bound of the bucket that contains them.
+ */
+public final class RollingHistogram {
+    private final double[] bounds;
+    private final RollingCounter[] buckets;
+
+    public RollingHistogram(int slots, double... bounds) {
+        if (bounds.length == 0) {
+            throw new IllegalArgumentException("Rolling histogram needs at least one bucket");
+        }
+        this.bounds = bounds.clone();
+        Arrays.sort(this.bounds);
+        this.buckets = new RollingCounter[bounds.length + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new RollingCounter(slots);
+        }
+    }
+
+    public void observe(double value) {
+        int index = Arrays.binarySearch(bounds, value);
+        buckets[index >= 0 ? index : -index - 1].increment();
+    }
+
+    public long count(int windowSeconds) {
+        long total = 0;
+        for (RollingCounter bucket : buckets) {
+            total += bucket.sum(windowSeconds);
+        }
+        return total;
+    }
+
+    /**
+     * @return upper bound of the bucket holding the quantile, {@code NaN} without observations and
+     * {@code +Infinity} when it falls past the last bound
+     */
+    public double quantile(double quantile, int windowSeconds) {
+        if (quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1");
+        }
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum(windowSeconds);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return Double.NaN;
+        }
+
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(rank, 1)) {
+                return bounds[i];
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+}
@@ -0,0 +1,218 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.metrics;
+
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.scheduler.ScheduledTask;
+import io.github.zapolyarnydev.proxyvirtualizer.api.connector.ConnectionStorage;
+import io.github.zapolyarnydev.proxyvirtualizer.api.registry.ServerContainer;
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Live figures behind {@code /vserver stats}: population from the current connections and rates from
+ * the rolling windows of {@link PluginMetrics}. Watchers get a compact summary in their action bar
+ * every second.
+ */
+public final class StatsDashboard {
+    public static final int RATE_WINDOW_SECONDS = 10;
+    public static final int LATENCY_WINDOW_SECONDS = PluginMetrics.WINDOW_SECONDS;
+
+    private static final int MAX_SIGNAL_TYPES = 6;
+
+    private final Object plugin;
+    private final ProxyServer proxyServer;
+    private final ServerContainer serverContainer;
+    private final ConnectionStorage connectionStorage;
+    private final PluginMetrics metrics;
+    private final Map<UUID, ScheduledTask> watchers = new ConcurrentHashMap<>();
+
+    public StatsDashboard(
+            Object plugin,
+            ProxyServer proxyServer,
+            ServerContainer serverContainer,
+            ConnectionStorage connectionStorage,
+            PluginMetrics metrics
+    ) {
+        this.plugin = Objects.requireNonNull(plugin, "plugin");
+        this.proxyServer = Objects.requireNonNull(proxyServer, "proxyServer");
+        this.serverContainer = Objects.requireNonNull(serverContainer, "serverContainer");
+        this.connectionStorage = Objects.requireNonNull(connectionStorage, "connectionStorage");
+        this.metrics = Objects.requireNonNull(metrics, "metrics");
+    }
+
+    /**
+     * @param server virtual server to restrict the population figures to, or {@code null} for all
+     */
+    public List<String> render(VirtualServer server) {
+        List<String> lines = new ArrayList<>();
+        Map<String, Map<String, Integer>> population = population(server);
+        if (population.isEmpty()) {
+            lines.add("Members: no virtual servers launched");
+        }
+        population.forEach((name, protocols) -> {
+            int members = protocols.values().stream().mapToInt(Integer::intValue).sum();
+            StringBuilder line = new StringBuilder("Members of ").append(name).append(": ").append(members);
+            if (!protocols.isEmpty()) {
+                line.append(" (");
+                protocols.forEach((protocol, count) -> line.append(protocol).append(' ').append(count).append(", "));
+                line.setLength(line.length() - 2);
+                line.append(')');
+            }
+            lines.add(line.toString());
+        });
+
+        Map<String, Double> signalRates = metrics.getSignalRates(RATE_WINDOW_SECONDS);
+        double totalSignalRate = signalRates.values().stream().mapToDouble(Double::doubleValue).sum();
+        StringBuilder signals = new StringBuilder("Signals/s (")
+                .append(RATE_WINDOW_SECONDS).append("s): ").append(formatRate(totalSignalRate));
+        List<Map.Entry<String, Double>> busiest = signalRates.entrySet().stream()
+                .filter(entry -> entry.getValue() > 0)
+                .sorted(Map.Entry.<String, Double>comparingByValue(Comparator.reverseOrder()))
+                .limit(MAX_SIGNAL_TYPES)
+                .toList();
+        for (Map.Entry<String, Double> entry : busiest) {
+            signals.append(" | ").append(entry.getKey()).append(' ').append(formatRate(entry.getValue()));
+        }
+        lines.add(signals.toString());
+
+        lines.add("Bootstrap p50/p99 (" + LATENCY_WINDOW_SECONDS + "s): "
+                + formatMillis(metrics.getBootstrapLatencyMillis(0.5, LATENCY_WINDOW_SECONDS)) + " / "
+                + formatMillis(metrics.getBootstrapLatencyMillis(0.99, LATENCY_WINDOW_SECONDS)));
+        lines.add("Decode errors/s: " + formatRate(metrics.getDecodeErrorRate(RATE_WINDOW_SECONDS))
+                + " | Avg handler: " + formatNanos(metrics.getAverageHandlerNanos(RATE_WINDOW_SECONDS)));
+        lines.add("Outbound: " + formatBytes(metrics.getOutboundByteRate(RATE_WINDOW_SECONDS)) + "/s");
+        return lines;
+    }
+
+    public Component renderActionBar(VirtualServer server) {
+        Map<String, Map<String, Integer>> population = population(server);
+        int members = population.values().stream()
+                .flatMap(protocols -> protocols.values().stream())
+                .mapToInt(Integer::intValue)
+                .sum();
+        double signalRate = metrics.getSignalRates(RATE_WINDOW_SECONDS).values().stream()
+                .mapToDouble(Double::doubleValue)
+                .sum();
+
+        String text = (server == null ? "all" : server.getName()) + " " + members
+                + " | " + formatRate(signalRate) + " sig/s"
+                + " | p99 " + formatMillis(metrics.getBootstrapLatencyMillis(0.99, LATENCY_WINDOW_SECONDS))
+                + " | err " + formatRate(metrics.getDecodeErrorRate(RATE_WINDOW_SECONDS)) + "/s"
+                + " | handler " + formatNanos(metrics.getAverageHandlerNanos(RATE_WINDOW_SECONDS))
+                + " | out " + formatBytes(metrics.getOutboundByteRate(RATE_WINDOW_SECONDS)) + "/s";
+        return Component.text(text, NamedTextColor.AQUA);
+    }
+
+    /**
+     * Starts refreshing the summary in the player's action bar every second, or stops it if running.
+     *
+     * @return {@code true} if the player is now watching
+     */
+    public boolean toggleWatch(Player player, VirtualServer server) {
+        Objects.requireNonNull(player, "player");
+        ScheduledTask existing = watchers.remove(player.getUniqueId());
+        if (existing != null) {
+            existing.cancel();
+            return false;
+        }
+
+        UUID playerId = player.getUniqueId();
+        ScheduledTask[] task = new ScheduledTask[1];
+        task[0] = proxyServer.getScheduler()
+                .buildTask(plugin, () -> {
+                    if (!player.isActive()) {
+                        if (watchers.remove(playerId, task[0])) {
+                            task[0].cancel();
+                        }
+                        return;
+                    }
+                    player.sendActionBar(renderActionBar(server));
+                })
+                .repeat(1, TimeUnit.SECONDS)
+                .schedule();
+        ScheduledTask previous = watchers.put(playerId, task[0]);
+        if (previous != null) {
+            previous.cancel();
+        }
+        return true;
+    }
+
+    public void stopWatching(Player player) {
+        ScheduledTask task = watchers.remove(player.getUniqueId());
+        if (task != null) {
+            task.cancel();
+        }
+    }
+
+    public void shutdown() {
+        watchers.values().forEach(ScheduledTask::cancel);
+        watchers.clear();
+    }
+
+    private Map<String, Map<String, Integer>> population(VirtualServer server) {
+        Map<String, Map<String, Integer>> population = new TreeMap<>();
+        if (server != null) {
+            population.put(server.getName(), new TreeMap<>());
+        } else {
+            for (VirtualServer launched : serverContainer.getServers()) {
+                population.put(launched.getName(), new TreeMap<>());
+            }
+        }
+
+        for (Player player : proxyServer.getAllPlayers()) {
+            VirtualServer current = connectionStorage.getVirtualServer(player).orElse(null);
+            if (current == null || (server != null && current != server)) {
+                continue;
+            }
+            population.computeIfAbsent(current.getName(), ignored -> new TreeMap<>())
+                    .merge(player.getProtocolVersion().getMostRecentSupportedVersion(), 1, Integer::sum);
+        }
+        return population;
+    }
+
+    private static String formatRate(double value) {
+        return String.format(Locale.ROOT, "%.1f", value);
+    }
+
+    private static String formatMillis(double millis) {
+        if (Double.isNaN(millis)) {
+            return "-";
+        }
+        if (Double.isInfinite(millis)) {
+            return ">5s";
+        }
+        return "<=" + String.format(Locale.ROOT, "%.0f", millis) + "ms";
+    }
+
+    private static String formatNanos(double nanos) {
+        if (Double.isNaN(nanos)) {
+            return "-";
+        }
+        if (nanos >= 1_000_000) {
+            return String.format(Locale.ROOT, "%.1fms", nanos / 1_000_000);
+        }
+        return String.format(Locale.ROOT, "%.1fus", nanos / 1_000);
+    }
+
+    private static String formatBytes(double bytes) {
+        if (bytes >= 1024 * 1024) {
+            return String.format(Locale.ROOT, "%.1f MiB", bytes / (1024 * 1024));
+        }
+        if (bytes >= 1024) {
+            return String.format(Locale.ROOT, "%.1f KiB", bytes / 1024);
+        }
+        return String.format(Locale.ROOT, "%.0f B", bytes);
+    }
+}
@@ -0,0 +1,94 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.network;
+
+import com.velocitypowered.api.proxy.Player;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+
+/**
+ * Reflective access to Velocity's {@code MinecraftConnection} and its Netty channel.
+ * Method lookups are cached per runtime class so hot paths only pay for {@link Method#invoke}.
+ */
+public final class MinecraftConnections {
+    private static final ClassValue<Method> GET_CONNECTION = methodLookup("getConnection");
+    private static final ClassValue<Method> GET_CHANNEL = methodLookup("getChannel");
+    private static final ClassValue<Method> EVENT_LOOP = methodLookup("eventLoop");
+    private static final ClassValue<Method> WRITE = methodLookup("write", Object.class);
+    private static final ClassValue<Method> DELAYED_WRITE = methodLookup("delayedWrite", Object.class);
+    private static final ClassValue<Method> FLUSH = methodLookup("flush");
+    private static final ClassValue<Method> IS_CLOSED = methodLookup("isClosed");
+    private static final ClassValue<Method> IS_WRITABLE = methodLookup("isWritable");
+
+    private MinecraftConnections() {
+    }
+
+    public static Object connection(Player player) throws ReflectiveOperationException {
+        return invoke(GET_CONNECTION, player);
+    }
+
+    public static Object channel(Object connection) throws ReflectiveOperationException {
+        return invoke(GET_CHANNEL, connection);
+    }
+
+    public static Executor eventLoop(Object connection) throws ReflectiveOperationException {
+        Object channel = channel(connection);
+        if (channel == null) {
+            return null;
+        }
+        return invoke(EVENT_LOOP, channel) instanceof Executor executor ? executor : null;
+    }
+
+    public static void write(Object connection, Object message) throws ReflectiveOperationException {
+        invoke(WRITE, connection, message);
+    }
+
+    public static void delayedWrite(Object connection, Object message) throws ReflectiveOperationException {
+        invoke(DELAYED_WRITE, connection, message);
+    }
+
+    public static void flush(Object connection) throws ReflectiveOperationException {
+        invoke(FLUSH, connection);
+    }
+
+    public static boolean isClosed(Object connection) throws ReflectiveOperationException {
+        return Boolean.TRUE.equals(invoke(IS_CLOSED, connection));
+    }
+
+    /**
+     * @return whether the channel of the connection is below its outbound high water mark
+     */
+    public static boolean isWritable(Object connection) throws ReflectiveOperationException {
+        Object channel = channel(connection);
+        return channel == null || Boolean.TRUE.equals(invoke(IS_WRITABLE, channel));
+    }
+
+    private static Object invoke(ClassValue<Method> lookup, Object target, Object... args)
+            throws ReflectiveOperationException {
+        Method method = lookup.get(target.getClass());
+        if (method == null) {
+            throw new NoSuchMethodException(target.getClass().getName());
+        }
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException exception) {
+            if (exception.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw exception;
+        }
+    }
+
+    private static ClassValue<Method> methodLookup(String name, Class<?>... parameterTypes) {
+        return new ClassValue<>() {
+            @Override
+            protected Method computeValue(Class<?> type) {
+                try {
+                    return type.getMethod(name, parameterTypes);
+                } catch (NoSuchMethodException exception) {
+                    return null;
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,171 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.network;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Reflective access to Netty's {@code ByteBuf} for packets encoded by the plugin itself.
+ * Methods are resolved once, on first use, from the proxy's class loader.
+ */
+public final class NettyBuffers {
+    private static final String BYTE_BUF_CLASS = "io.netty.buffer.ByteBuf";
+    private static final String UNPOOLED_CLASS = "io.netty.buffer.Unpooled";
+
+    private static volatile Methods methods;
+
+    private NettyBuffers() {
+    }
+
+    /**
+     * Copies the bytes into a new unpooled direct buffer owned by the caller.
+     */
+    public static Object directBuffer(byte[] bytes) throws ReflectiveOperationException {
+        Methods resolved = methods();
+        Object buffer = invoke(resolved.directBuffer, null, bytes.length);
+        invoke(resolved.writeBytes, buffer, (Object) bytes);
+        return buffer;
+    }
+
+    /**
+     * Wraps the bytes without copying; the array must not be modified afterwards.
+     */
+    public static Object wrap(byte[] bytes) throws ReflectiveOperationException {
+        return invoke(methods().wrappedBuffer, null, (Object) bytes);
+    }
+
+    public static Object retainedDuplicate(Object buffer) throws ReflectiveOperationException {
+        return invoke(methods().retainedDuplicate, buffer);
+    }
+
+    public static boolean release(Object buffer) throws ReflectiveOperationException {
+        return Boolean.TRUE.equals(invoke(methods().release, buffer));
+    }
+
+    public static int readableBytes(Object buffer) throws ReflectiveOperationException {
+        return (Integer) invoke(methods().readableBytes, buffer);
+    }
+
+    /**
+     * Copies the readable bytes of a buffer without moving its reader index.
+     */
+    public static byte[] copyReadable(Object buffer) throws ReflectiveOperationException {
+        Methods resolved = methods();
+        byte[] bytes = new byte[(Integer) invoke(resolved.readableBytes, buffer)];
+        invoke(resolved.getBytes, buffer, invoke(resolved.readerIndex, buffer), bytes);
+        return bytes;
+    }
+
+    /**
+     * Reads the VarInt at the reader index with absolute reads, leaving the buffer untouched.
+     * Runs on every inbound frame, so it goes through exactly typed method handles that involve no
+     * boxing or argument arrays.
+     *
+     * @return the value, or {@code -1} if the readable bytes do not hold a complete VarInt
+     */
+    public static int peekVarInt(Object buffer) throws ReflectiveOperationException {
+        if (VarIntPeek.FAILURE != null) {
+            throw VarIntPeek.FAILURE;
+        }
+        try {
+            int readerIndex = (int) VarIntPeek.READER_INDEX.invokeExact(buffer);
+            int length = Math.min((int) VarIntPeek.READABLE_BYTES.invokeExact(buffer), 5);
+            int result = 0;
+            for (int i = 0; i < length; i++) {
+                byte read = (byte) VarIntPeek.GET_BYTE.invokeExact(buffer, readerIndex + i);
+                result |= (read & 0x7F) << (7 * i);
+                if ((read & 0x80) == 0) {
+                    return result;
+                }
+            }
+            return -1;
+        } catch (RuntimeException | Error exception) {
+            throw exception;
+        } catch (Throwable throwable) {
+            throw new InvocationTargetException(throwable);
+        }
+    }
+
+    private static Methods methods() throws ReflectiveOperationException {
+        Methods resolved = methods;
+        if (resolved == null) {
+            ClassLoader classLoader = NettyBuffers.class.getClassLoader();
+            Class<?> byteBufClass = Class.forName(BYTE_BUF_CLASS, true, classLoader);
+            Class<?> unpooledClass = Class.forName(UNPOOLED_CLASS, true, classLoader);
+            resolved = new Methods(
+                    unpooledClass.getMethod("directBuffer", int.class),
+                    unpooledClass.getMethod("wrappedBuffer", byte[].class),
+                    byteBufClass.getMethod("writeBytes", byte[].class),
+                    byteBufClass.getMethod("retainedDuplicate"),
+                    byteBufClass.getMethod("release"),
+                    byteBufClass.getMethod("readableBytes"),
+                    byteBufClass.getMethod("readerIndex"),
+                    byteBufClass.getMethod("getBytes", int.class, byte[].class)
+            );
+            methods = resolved;
+        }
+        return resolved;
+    }
+
+    private static Object invoke(Method method, Object target, Object... args) throws ReflectiveOperationException {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException exception) {
+            if (exception.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw exception;
+        }
+    }
+
+    /**
+     * Handles for {@link #peekVarInt(Object)}, held in constants so the JIT can inline the calls.
+     */
+    private static final class VarIntPeek {
+        private static final MethodHandle READER_INDEX;
+        private static final MethodHandle READABLE_BYTES;
+        private static final MethodHandle GET_BYTE;
+        private static final ReflectiveOperationException FAILURE;
+
+        static {
+            MethodHandle readerIndex = null;
+            MethodHandle readableBytes = null;
+            MethodHandle getByte = null;
+            ReflectiveOperationException failure = null;
+            try {
+                Class<?> byteBufClass = Class.forName(BYTE_BUF_CLASS, true, NettyBuffers.class.getClassLoader());
+                MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                MethodType intGetter = MethodType.methodType(int.class, Object.class);
+                readerIndex = lookup.findVirtual(byteBufClass, "readerIndex", MethodType.methodType(int.class))
+                        .asType(intGetter);
+                readableBytes = lookup.findVirtual(byteBufClass, "readableBytes", MethodType.methodType(int.class))
+                        .asType(intGetter);
+                getByte = lookup.findVirtual(byteBufClass, "getByte", MethodType.methodType(byte.class, int.class))
+                        .asType(MethodType.methodType(byte.class, Object.class, int.class));
+            } catch (ReflectiveOperationException exception) {
+                failure = exception;
+            }
+            READER_INDEX = readerIndex;
+            READABLE_BYTES = readableBytes;
+            GET_BYTE = getByte;
+            FAILURE = failure;
+        }
+
+        private VarIntPeek() {
+        }
+    }
+
+    private record Methods(
+            Method directBuffer,
+            Method wrappedBuffer,
+            Method writeBytes,
+            Method retainedDuplicate,
+            Method release,
+            Method readableBytes,
+            Method readerIndex,
+            Method getBytes
+    ) {
+    }
+}
@@ -0,0 +1,17 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.network;
+
+/**
+ * Priority classes of queued outbound packets, highest first.
+ */
+public enum OutboundPriority {
+    /**
+     * Keep-alives and disconnects; never dropped.
+     */
+    CONTROL,
+    POSITION,
+    CHAT,
+    /**
+     * Action bars and other packets that are fine to lose under pressure.
+     */
+    COSMETIC
+}
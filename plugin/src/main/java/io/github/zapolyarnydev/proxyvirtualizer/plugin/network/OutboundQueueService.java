@@ -0,0 +1,294 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.network;
+
+import com.velocitypowered.api.proxy.Player;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.metrics.PluginMetrics;
+import org.slf4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-player outbound queues of players in virtual servers.
+ * <p>
+ * Writes are drained on the player's event loop, highest priority first, and only while the channel is
+ * writable; a drain stopped by a full channel resumes on {@link #onWritabilityChanged(Player)}.
+ * {@link OutboundPriority#CONTROL} writes are small and go out even while the channel is not writable. Writes
+ * submitted with a coalesce key replace a pending write with the same key instead of queuing behind it.
+ * When a player's estimated queued bytes exceed the cap, queued writes of lower priority than the new
+ * one are dropped oldest first; {@link OutboundPriority#CONTROL} writes are never dropped.
+ */
+public final class OutboundQueueService {
+    private static final OutboundPriority[] PRIORITIES = OutboundPriority.values();
+
+    private final OutboundSettings settings;
+    private final PluginMetrics metrics;
+    private final Logger logger;
+    private final Map<UUID, OutboundQueue> queues = new ConcurrentHashMap<>();
+    private final AtomicInteger queuedWrites = new AtomicInteger();
+    private final AtomicLong droppedWrites = new AtomicLong();
+    private final AtomicLong coalescedWrites = new AtomicLong();
+
+    public OutboundQueueService(OutboundSettings settings, PluginMetrics metrics, Logger logger) {
+        this.settings = Objects.requireNonNull(settings, "settings");
+        this.metrics = Objects.requireNonNull(metrics, "metrics");
+        this.logger = Objects.requireNonNull(logger, "logger");
+    }
+
+    /**
+     * Queues a write for the player and schedules a drain.
+     *
+     * @param coalesceKey    key of writes superseding each other, or {@code null}
+     * @param estimatedBytes estimated encoded size, counted against the player's cap
+     * @return {@code false} if the write was dropped
+     */
+    public boolean submit(
+            Player player,
+            OutboundPriority priority,
+            String coalesceKey,
+            int estimatedBytes,
+            Runnable write
+    ) {
+        Objects.requireNonNull(player, "player");
+        Objects.requireNonNull(priority, "priority");
+        Objects.requireNonNull(write, "write");
+
+        OutboundQueue queue = queues.computeIfAbsent(player.getUniqueId(), ignored -> new OutboundQueue(player));
+        if (!player.isActive()) {
+            // The player left, possibly after its queue was discarded; do not leave a new one behind.
+            if (queues.remove(player.getUniqueId(), queue)) {
+                queue.clear();
+            }
+            droppedWrites.incrementAndGet();
+            return false;
+        }
+        if (!queue.offer(priority, coalesceKey, Math.max(0, estimatedBytes), write)) {
+            droppedWrites.incrementAndGet();
+            return false;
+        }
+        scheduleDrain(queue);
+        return true;
+    }
+
+    public void onWritabilityChanged(Player player) {
+        OutboundQueue queue = queues.get(player.getUniqueId());
+        if (queue != null) {
+            scheduleDrain(queue);
+        }
+    }
+
+    /**
+     * Drops every queued write of the player, e.g. when it leaves its virtual server.
+     */
+    public void discard(Player player) {
+        OutboundQueue queue = queues.remove(player.getUniqueId());
+        if (queue != null) {
+            queue.clear();
+        }
+    }
+
+    public int getQueueDepth(Player player) {
+        OutboundQueue queue = queues.get(player.getUniqueId());
+        return queue == null ? 0 : queue.depth();
+    }
+
+    public long getQueuedBytes(Player player) {
+        OutboundQueue queue = queues.get(player.getUniqueId());
+        return queue == null ? 0L : queue.bytes();
+    }
+
+    /**
+     * @return writes queued across all players
+     */
+    public int getTotalQueueDepth() {
+        return queuedWrites.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedWrites.get();
+    }
+
+    public long getCoalescedCount() {
+        return coalescedWrites.get();
+    }
+
+    public OutboundSettings getSettings() {
+        return settings;
+    }
+
+    private void scheduleDrain(OutboundQueue queue) {
+        if (!queue.drainScheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        Executor eventLoop = null;
+        try {
+            Object connection = MinecraftConnections.connection(queue.player);
+            eventLoop = connection == null ? null : MinecraftConnections.eventLoop(connection);
+        } catch (ReflectiveOperationException | RuntimeException exception) {
+            logger.debug("Unable to resolve event loop of {}", queue.player.getUsername(), exception);
+        }
+        if (eventLoop == null) {
+            drain(queue);
+            return;
+        }
+        try {
+            eventLoop.execute(() -> drain(queue));
+        } catch (RuntimeException exception) {
+            queue.drainScheduled.set(false);
+            logger.debug("Unable to schedule outbound drain for {}", queue.player.getUsername(), exception);
+        }
+    }
+
+    private void drain(OutboundQueue queue) {
+        queue.drainScheduled.set(false);
+        Object connection;
+        try {
+            connection = MinecraftConnections.connection(queue.player);
+        } catch (ReflectiveOperationException | RuntimeException exception) {
+            connection = null;
+        }
+
+        while (true) {
+            Entry entry = queue.poll(isWritable(connection));
+            if (entry == null) {
+                return;
+            }
+            try {
+                entry.write.run();
+                metrics.recordOutbound(entry.bytes);
+            } catch (RuntimeException exception) {
+                logger.debug("Queued write to {} failed", queue.player.getUsername(), exception);
+            }
+        }
+    }
+
+    private static boolean isWritable(Object connection) {
+        if (connection == null) {
+            return true;
+        }
+        try {
+            return !MinecraftConnections.isClosed(connection) && MinecraftConnections.isWritable(connection);
+        } catch (ReflectiveOperationException | RuntimeException exception) {
+            return true;
+        }
+    }
+
+    private final class OutboundQueue {
+        private final Player player;
+        private final AtomicBoolean drainScheduled = new AtomicBoolean();
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private final ArrayDeque<Entry>[] lanes = new ArrayDeque[PRIORITIES.length];
+        private final Map<String, Entry> pendingByKey = new HashMap<>();
+        private long bytes;
+        private int depth;
+
+        private OutboundQueue(Player player) {
+            this.player = player;
+            for (int i = 0; i < lanes.length; i++) {
+                lanes[i] = new ArrayDeque<>();
+            }
+        }
+
+        private synchronized boolean offer(
+                OutboundPriority priority,
+                String coalesceKey,
+                int estimatedBytes,
+                Runnable write
+        ) {
+            Entry pending = coalesceKey == null ? null : pendingByKey.get(coalesceKey);
+            if (pending != null) {
+                coalescedWrites.incrementAndGet();
+                if (pending.priority == priority) {
+                    bytes += estimatedBytes - pending.bytes;
+                    pending.bytes = estimatedBytes;
+                    pending.write = write;
+                    return true;
+                }
+                lanes[pending.priority.ordinal()].remove(pending);
+                remove(pending);
+            }
+
+            long limit = settings.maxQueuedBytes();
+            for (int lane = lanes.length - 1; lane > priority.ordinal() && bytes + estimatedBytes > limit; lane--) {
+                while (!lanes[lane].isEmpty() && bytes + estimatedBytes > limit) {
+                    remove(lanes[lane].pollFirst());
+                    droppedWrites.incrementAndGet();
+                }
+            }
+            if (priority != OutboundPriority.CONTROL && bytes + estimatedBytes > limit) {
+                return false;
+            }
+
+            Entry entry = new Entry(priority, coalesceKey, estimatedBytes, write);
+            lanes[priority.ordinal()].addLast(entry);
+            if (coalesceKey != null) {
+                pendingByKey.put(coalesceKey, entry);
+            }
+            bytes += estimatedBytes;
+            depth++;
+            queuedWrites.incrementAndGet();
+            return true;
+        }
+
+        private synchronized Entry poll(boolean writable) {
+            int lastLane = writable ? lanes.length - 1 : OutboundPriority.CONTROL.ordinal();
+            for (int lane = 0; lane <= lastLane; lane++) {
+                Entry entry = lanes[lane].pollFirst();
+                if (entry != null) {
+                    remove(entry);
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        private synchronized void clear() {
+            for (ArrayDeque<Entry> lane : lanes) {
+                queuedWrites.addAndGet(-lane.size());
+                lane.clear();
+            }
+            pendingByKey.clear();
+            bytes = 0;
+            depth = 0;
+        }
+
+        private synchronized int depth() {
+            return depth;
+        }
+
+        private synchronized long bytes() {
+            return bytes;
+        }
+
+        private void remove(Entry entry) {
+            if (entry.coalesceKey != null) {
+                pendingByKey.remove(entry.coalesceKey, entry);
+            }
+            bytes -= entry.bytes;
+            depth--;
+            queuedWrites.decrementAndGet();
+        }
+    }
+
+    private static final class Entry {
+        private final OutboundPriority priority;
+        private final String coalesceKey;
+        private int bytes;
+        private Runnable write;
+
+        private Entry(OutboundPriority priority, String coalesceKey, int bytes, Runnable write) {
+            this.priority = priority;
+            this.coalesceKey = coalesceKey;
+            this.bytes = bytes;
+            this.write = write;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.network;
+
+/**
+ * Limits of the per-player outbound queues.
+ *
+ * @param maxQueuedBytes estimated bytes a player may have queued before lower priority packets are dropped
+ */
+public record OutboundSettings(long maxQueuedBytes) {
+    public static final long DEFAULT_MAX_QUEUED_BYTES = 64L * 1024;
+
+    public OutboundSettings {
+        if (maxQueuedBytes <= 0) {
+            throw new IllegalArgumentException("Outbound queue byte cap must be positive");
+        }
+    }
+
+    public static OutboundSettings defaults() {
+        return new OutboundSettings(DEFAULT_MAX_QUEUED_BYTES);
+    }
+}
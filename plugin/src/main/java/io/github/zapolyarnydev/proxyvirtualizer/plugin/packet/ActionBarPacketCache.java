@@ -0,0 +1,104 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.packet;
+
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.network.NettyBuffers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shared cache of encoded action bar packets (system chat with the overlay flag) for plain colored texts.
+ * <p>
+ * Each (packet id, text, color) is encoded once into a direct buffer owned by the cache; senders receive
+ * retained duplicates. Texts such as queue positions repeat across players and updates, so a refresh of
+ * thousands of players costs no encoding. The least recently used entries are released past
+ * {@link #MAX_ENTRIES}.
+ */
+public final class ActionBarPacketCache {
+    static final int MAX_ENTRIES = 4096;
+
+    private static final byte NBT_TAG_END = 0;
+    private static final byte NBT_TAG_STRING = 8;
+    private static final byte NBT_TAG_COMPOUND = 10;
+
+    private final Map<Key, Object> buffers = new LinkedHashMap<>(64, 0.75f, true);
+
+    /**
+     * Returns a retained duplicate of the encoded packet. The caller owns the returned buffer.
+     *
+     * @param color named text color, such as {@code gold}
+     */
+    public Object retainedPacket(int packetId, String text, String color) throws ReflectiveOperationException {
+        Key key = new Key(packetId, text, color);
+        synchronized (buffers) {
+            Object buffer = buffers.get(key);
+            if (buffer == null) {
+                buffer = NettyBuffers.directBuffer(encode(packetId, text, color));
+                buffers.put(key, buffer);
+                if (buffers.size() > MAX_ENTRIES) {
+                    var eldest = buffers.entrySet().iterator();
+                    NettyBuffers.release(eldest.next().getValue());
+                    eldest.remove();
+                }
+            }
+            return NettyBuffers.retainedDuplicate(buffer);
+        }
+    }
+
+    public int size() {
+        synchronized (buffers) {
+            return buffers.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (buffers) {
+            for (Object buffer : buffers.values()) {
+                try {
+                    NettyBuffers.release(buffer);
+                } catch (ReflectiveOperationException ignored) {
+
+                }
+            }
+            buffers.clear();
+        }
+    }
+
+    /**
+     * Packet id, then the text component as nameless network NBT, then the overlay flag.
+     */
+    static byte[] encode(int packetId, String text, String color) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + text.length());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeVarInt(out, packetId);
+            out.writeByte(NBT_TAG_COMPOUND);
+            out.writeByte(NBT_TAG_STRING);
+            out.writeUTF("text");
+            out.writeUTF(text);
+            if (color != null) {
+                out.writeByte(NBT_TAG_STRING);
+                out.writeUTF("color");
+                out.writeUTF(color);
+            }
+            out.writeByte(NBT_TAG_END);
+            out.writeBoolean(true);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private record Key(int packetId, String text, String color) {
+    }
+}
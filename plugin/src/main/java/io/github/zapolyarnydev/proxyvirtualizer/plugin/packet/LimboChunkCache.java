@@ -0,0 +1,162 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.packet;
+
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.network.NettyBuffers;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared cache of encoded "chunk data and update light" packets for the limbo world.
+ * <p>
+ * Every (protocol, packet id, chunk) combination is encoded once into a direct buffer owned by the
+ * cache; senders receive retained duplicates, so joins only pay for a reference count increment.
+ */
+public final class LimboChunkCache {
+    private static final int SECTION_VOLUME = 16 * 16 * 16;
+    private static final int FLOOR_BITS_PER_ENTRY = 4;
+    private static final int FLOOR_LONGS = SECTION_VOLUME * FLOOR_BITS_PER_ENTRY / Long.SIZE;
+    private static final long FLOOR_LAYER_WORD = 0x1111_1111_1111_1111L;
+    private static final byte NBT_TAG_COMPOUND = 10;
+    private static final byte NBT_TAG_END = 0;
+
+    private final LimboChunkSettings settings;
+    private final Map<ChunkKey, Object> buffers = new ConcurrentHashMap<>();
+    private volatile byte[] sectionData;
+
+    public LimboChunkCache(LimboChunkSettings settings) {
+        this.settings = Objects.requireNonNull(settings, "settings");
+    }
+
+    public LimboChunkSettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Returns a retained duplicate of the encoded chunk packet. The caller owns the returned buffer.
+     */
+    public Object retainedChunkPacket(int protocolVersion, int packetId, int chunkX, int chunkZ)
+            throws ReflectiveOperationException {
+        ChunkKey key = new ChunkKey(protocolVersion, packetId, chunkX, chunkZ);
+        Object buffer = buffers.get(key);
+        if (buffer == null) {
+            Object encoded = NettyBuffers.directBuffer(encodeChunkPacket(packetId, chunkX, chunkZ));
+            buffer = buffers.putIfAbsent(key, encoded);
+            if (buffer == null) {
+                buffer = encoded;
+            } else {
+                NettyBuffers.release(encoded);
+            }
+        }
+        return NettyBuffers.retainedDuplicate(buffer);
+    }
+
+    public int size() {
+        return buffers.size();
+    }
+
+    public void clear() {
+        for (ChunkKey key : buffers.keySet()) {
+            Object buffer = buffers.remove(key);
+            if (buffer != null) {
+                try {
+                    NettyBuffers.release(buffer);
+                } catch (ReflectiveOperationException ignored) {
+
+                }
+            }
+        }
+    }
+
+    private byte[] encodeChunkPacket(int packetId, int chunkX, int chunkZ) {
+        byte[] sections = sectionData();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(sections.length + 32);
+        writeVarInt(out, packetId);
+        writeInt(out, chunkX);
+        writeInt(out, chunkZ);
+
+        // Heightmaps: empty network NBT compound.
+        out.write(NBT_TAG_COMPOUND);
+        out.write(NBT_TAG_END);
+
+        writeVarInt(out, sections.length);
+        out.write(sections, 0, sections.length);
+        writeVarInt(out, 0); // block entities
+
+        // Light: empty sky/block masks, empty-section masks and no light arrays.
+        for (int i = 0; i < 6; i++) {
+            writeVarInt(out, 0);
+        }
+        return out.toByteArray();
+    }
+
+    private byte[] sectionData() {
+        byte[] data = sectionData;
+        if (data != null) {
+            return data;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int floorSection = settings.hasFloor() ? (settings.floorY() - settings.minY()) >> 4 : -1;
+        for (int section = 0; section < settings.sectionCount(); section++) {
+            if (section == floorSection) {
+                writeFloorSection(out, (settings.floorY() - settings.minY()) & 15);
+            } else {
+                writeShort(out, 0);
+                writeSingleValuedContainer(out, 0);
+            }
+            writeSingleValuedContainer(out, settings.biomeId());
+        }
+        data = out.toByteArray();
+        sectionData = data;
+        return data;
+    }
+
+    private void writeFloorSection(ByteArrayOutputStream out, int localY) {
+        writeShort(out, 16 * 16);
+        out.write(FLOOR_BITS_PER_ENTRY);
+        writeVarInt(out, 2);
+        writeVarInt(out, 0);
+        writeVarInt(out, settings.floorBlockState());
+        writeVarInt(out, FLOOR_LONGS);
+        int longsPerLayer = FLOOR_LONGS / 16;
+        for (int i = 0; i < FLOOR_LONGS; i++) {
+            writeLong(out, i / longsPerLayer == localY ? FLOOR_LAYER_WORD : 0L);
+        }
+    }
+
+    private static void writeSingleValuedContainer(ByteArrayOutputStream out, int value) {
+        out.write(0);
+        writeVarInt(out, value);
+        writeVarInt(out, 0);
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static void writeShort(ByteArrayOutputStream out, int value) {
+        out.write((value >>> 8) & 0xFF);
+        out.write(value & 0xFF);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write((value >>> 24) & 0xFF);
+        out.write((value >>> 16) & 0xFF);
+        out.write((value >>> 8) & 0xFF);
+        out.write(value & 0xFF);
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long value) {
+        writeInt(out, (int) (value >>> 32));
+        writeInt(out, (int) value);
+    }
+
+    private record ChunkKey(int protocolVersion, int packetId, int chunkX, int chunkZ) {
+    }
+}
@@ -0,0 +1,63 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.packet;
+
+/**
+ * Layout of the chunks streamed around the limbo spawn.
+ *
+ * @param enabled         whether chunks are streamed during the limbo bootstrap
+ * @param radius          chunk radius of the square sent around spawn
+ * @param minY            lowest block of the dimension
+ * @param height          dimension height in blocks, a multiple of 16
+ * @param floorBlockState block state id of an optional single-layer floor, {@code 0} (air) for void chunks
+ * @param floorY          block y of the floor layer
+ * @param biomeId         biome registry id written to every section
+ */
+public record LimboChunkSettings(
+        boolean enabled,
+        int radius,
+        int minY,
+        int height,
+        int floorBlockState,
+        int floorY,
+        int biomeId
+) {
+    public static final boolean DEFAULT_ENABLED = true;
+    public static final int DEFAULT_RADIUS = 2;
+    public static final int DEFAULT_MIN_Y = -64;
+    public static final int DEFAULT_HEIGHT = 384;
+    public static final int DEFAULT_FLOOR_BLOCK_STATE = 0;
+    public static final int DEFAULT_FLOOR_Y = 0;
+    public static final int DEFAULT_BIOME_ID = 0;
+    public static final int MAX_RADIUS = 32;
+
+    public LimboChunkSettings {
+        if (radius < 0 || radius > MAX_RADIUS) {
+            throw new IllegalArgumentException("Limbo chunk radius must be between 0 and " + MAX_RADIUS);
+        }
+        if (height <= 0 || height % 16 != 0 || minY % 16 != 0) {
+            throw new IllegalArgumentException("Limbo dimension height and min Y must be multiples of 16");
+        }
+        if (floorBlockState < 0 || biomeId < 0) {
+            throw new IllegalArgumentException("Block state and biome ids cannot be negative");
+        }
+    }
+
+    public static LimboChunkSettings defaults() {
+        return new LimboChunkSettings(
+                DEFAULT_ENABLED,
+                DEFAULT_RADIUS,
+                DEFAULT_MIN_Y,
+                DEFAULT_HEIGHT,
+                DEFAULT_FLOOR_BLOCK_STATE,
+                DEFAULT_FLOOR_Y,
+                DEFAULT_BIOME_ID
+        );
+    }
+
+    public int sectionCount() {
+        return height >> 4;
+    }
+
+    public boolean hasFloor() {
+        return floorBlockState != 0 && floorY >= minY && floorY < minY + height;
+    }
+}
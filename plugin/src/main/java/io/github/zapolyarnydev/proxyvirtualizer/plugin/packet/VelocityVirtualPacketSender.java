@@ -5,10 +5,20 @@ import com.velocitypowered.api.proxy.Player;
 import com.velocitypowered.api.proxy.ProxyServer;
 import io.github.zapolyarnydev.proxyvirtualizer.api.connector.ConnectionStorage;
 import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.diagnostics.LimboPacketWriteEvent;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.metrics.PluginMetrics;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.network.MinecraftConnections;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.network.OutboundPriority;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.network.OutboundQueueService;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.server.DefaultVirtualServer;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.server.LimboSpawn;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.server.PacketMatrix;
 import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
 import net.kyori.adventure.title.Title;
 
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -25,57 +35,111 @@ public final class VelocityVirtualPacketSender {
     private static final int NETHER_DIMENSION_ID = 1;
     private static final int GAME_EVENT_PACKET_ID_1_21_4 = 0x23;
     private static final int PLAYER_POSITION_PACKET_ID_1_21_4 = 0x42;
+    private static final int CHUNK_DATA_PACKET_ID_1_21_4 = 0x28;
+    private static final int CHUNK_BATCH_START_PACKET_ID_1_21_4 = 0x0D;
+    private static final int CHUNK_BATCH_FINISHED_PACKET_ID_1_21_4 = 0x0C;
+    private static final int SYSTEM_CHAT_PACKET_ID_1_21_4 = 0x73;
     private static final int GAME_EVENT_START_WAITING_FOR_LEVEL_CHUNKS = 13;
     private static final long LIMBO_SEED_HASH = 0L;
     private static final short GAMEMODE_SPECTATOR = 3;
     private static final short PREVIOUS_GAMEMODE_UNKNOWN = -1;
     private static final byte RESPAWN_KEEP_NOTHING = 0;
     private static final int LIMBO_SEA_LEVEL = 63;
-    private static final double LIMBO_X = 0.0D;
-    private static final double LIMBO_Y = 1024.0D;
-    private static final double LIMBO_Z = 0.0D;
-    private static final float LIMBO_YAW = 0.0F;
-    private static final float LIMBO_PITCH = 0.0F;
     private static final int TELEPORT_FLAGS_ABSOLUTE = 0;
+    private static final int ESTIMATED_POSITION_BYTES = 64;
+    private static final int ESTIMATED_CHAT_BYTES = 256;
+    private static final int ESTIMATED_ACTION_BAR_BYTES = 256;
+    private static final int ESTIMATED_TITLE_BYTES = 512;
+    private static final int ESTIMATED_DISCONNECT_BYTES = 256;
+    private static final String COALESCE_POSITION = "position";
+    private static final String COALESCE_ACTION_BAR = "action_bar";
+    private static final String COALESCE_TITLE = "title";
 
     private final ProxyServer proxyServer;
     private final ConnectionStorage connectionStorage;
+    private final LimboChunkCache chunkCache;
+    private final ActionBarPacketCache actionBarCache;
+    private final OutboundQueueService outboundQueues;
+    private final PluginMetrics metrics;
     private final AtomicInteger teleportIdSequence = new AtomicInteger(1);
 
-    public VelocityVirtualPacketSender(ProxyServer proxyServer, ConnectionStorage connectionStorage) {
+    public VelocityVirtualPacketSender(
+            ProxyServer proxyServer,
+            ConnectionStorage connectionStorage,
+            LimboChunkCache chunkCache,
+            ActionBarPacketCache actionBarCache,
+            OutboundQueueService outboundQueues,
+            PluginMetrics metrics
+    ) {
         this.proxyServer = Objects.requireNonNull(proxyServer, "proxyServer");
         this.connectionStorage = Objects.requireNonNull(connectionStorage, "connectionStorage");
+        this.chunkCache = Objects.requireNonNull(chunkCache, "chunkCache");
+        this.actionBarCache = Objects.requireNonNull(actionBarCache, "actionBarCache");
+        this.outboundQueues = Objects.requireNonNull(outboundQueues, "outboundQueues");
+        this.metrics = Objects.requireNonNull(metrics, "metrics");
     }
 
-    public boolean sendKeepAlive(VirtualServer virtualServer, Player player) {
-        if (!canSend(virtualServer, player, VirtualPacketKeys.KEEP_ALIVE)) {
+    public boolean sendChat(VirtualServer virtualServer, Player player, Component message) {
+        if (!canSend(virtualServer, player, VirtualPacketKeys.CHAT)) {
             return false;
         }
 
-        try {
-            player.getClass().getMethod("sendKeepAlive").invoke(player);
-            return true;
-        } catch (ReflectiveOperationException exception) {
-            return false;
-        }
+        return outboundQueues.submit(
+                player,
+                OutboundPriority.CHAT,
+                null,
+                ESTIMATED_CHAT_BYTES,
+                () -> player.sendMessage(message)
+        );
     }
 
-    public boolean sendChat(VirtualServer virtualServer, Player player, Component message) {
-        if (!canSend(virtualServer, player, VirtualPacketKeys.CHAT)) {
+    public boolean sendActionBar(VirtualServer virtualServer, Player player, Component message) {
+        if (!canSend(virtualServer, player, VirtualPacketKeys.ACTION_BAR)) {
             return false;
         }
 
-        player.sendMessage(message);
-        return true;
+        return outboundQueues.submit(
+                player,
+                OutboundPriority.COSMETIC,
+                COALESCE_ACTION_BAR,
+                ESTIMATED_ACTION_BAR_BYTES,
+                () -> player.sendActionBar(message)
+        );
     }
 
-    public boolean sendActionBar(VirtualServer virtualServer, Player player, Component message) {
+    /**
+     * Queues a plain action bar whose packet is encoded once per text and shared by every player it is
+     * sent to. Players on other protocols than 1.21.4 get it through {@link #sendActionBar}.
+     */
+    public boolean sendCachedActionBar(VirtualServer virtualServer, Player player, String text, NamedTextColor color) {
+        Objects.requireNonNull(text, "text");
+        if (!ProtocolVersion.MINECRAFT_1_21_4.equals(player.getProtocolVersion())) {
+            return sendActionBar(virtualServer, player, color == null ? Component.text(text) : Component.text(text, color));
+        }
         if (!canSend(virtualServer, player, VirtualPacketKeys.ACTION_BAR)) {
             return false;
         }
 
-        player.sendActionBar(message);
-        return true;
+        String colorName = color == null ? null : color.toString();
+        return outboundQueues.submit(
+                player,
+                OutboundPriority.COSMETIC,
+                COALESCE_ACTION_BAR,
+                ESTIMATED_ACTION_BAR_BYTES,
+                () -> {
+                    try {
+                        Object connection = MinecraftConnections.connection(player);
+                        if (connection != null) {
+                            MinecraftConnections.write(
+                                    connection,
+                                    actionBarCache.retainedPacket(SYSTEM_CHAT_PACKET_ID_1_21_4, text, colorName)
+                            );
+                        }
+                    } catch (ReflectiveOperationException ignored) {
+
+                    }
+                }
+        );
     }
 
     public boolean sendTitle(VirtualServer virtualServer, Player player, Component title, Component subtitle) {
@@ -83,16 +147,27 @@ public final class VelocityVirtualPacketSender {
             return false;
         }
 
-        player.showTitle(Title.title(title, subtitle));
-        return true;
+        Title packet = Title.title(title, subtitle);
+        return outboundQueues.submit(
+                player,
+                OutboundPriority.CHAT,
+                COALESCE_TITLE,
+                ESTIMATED_TITLE_BYTES,
+                () -> player.showTitle(packet)
+        );
     }
 
     public boolean disconnectClient(VirtualServer virtualServer, Player player, Component reason) {
         if (!canSend(virtualServer, player, VirtualPacketKeys.DISCONNECT)) {
             return false;
         }
-        player.disconnect(reason);
-        return true;
+        return outboundQueues.submit(
+                player,
+                OutboundPriority.CONTROL,
+                null,
+                ESTIMATED_DISCONNECT_BYTES,
+                () -> player.disconnect(reason)
+        );
     }
 
     public boolean bootstrapVoidLimbo(VirtualServer virtualServer, Player player) {
@@ -133,26 +208,56 @@ public final class VelocityVirtualPacketSender {
                     true
             );
 
+            LimboPacketWriteEvent event = LimboPacketWriteEvent.start();
             connection.getClass().getMethod("write", Object.class).invoke(connection, netherRespawn);
+            event.finish(VirtualPacketKeys.RESPAWN, player, virtualServer);
+
+            event = LimboPacketWriteEvent.start();
             connection.getClass().getMethod("write", Object.class).invoke(connection, overworldRespawn);
+            event.finish(VirtualPacketKeys.RESPAWN, player, virtualServer);
+
+            event = LimboPacketWriteEvent.start();
             sendStartWaitingForLevelChunksGameEvent(virtualServer, player, connection);
-            sendSynchronizePlayerPosition(virtualServer, player, connection);
+            event.finish(VirtualPacketKeys.GAME_EVENT, player, virtualServer);
+
+            LimboSpawn spawn = virtualServer instanceof DefaultVirtualServer server ? server.getSpawn() : LimboSpawn.DEFAULT;
+            event = LimboPacketWriteEvent.start();
+            sendSynchronizePlayerPosition(
+                    virtualServer, player, connection, spawn.x(), spawn.y(), spawn.z(), spawn.yaw(), spawn.pitch()
+            );
+            event.finish(VirtualPacketKeys.PLAYER_POSITION, player, virtualServer);
 
-            sendKeepAlive(virtualServer, player);
+            sendLimboChunks(virtualServer, player, connection, spawn);
             return true;
         } catch (ReflectiveOperationException exception) {
             return false;
         }
     }
 
-    public int broadcastKeepAlive(VirtualServer virtualServer) {
-        int sent = 0;
-        for (Player player : proxyServer.getAllPlayers()) {
-            if (sendKeepAlive(virtualServer, player)) {
-                sent++;
-            }
+    /**
+     * Queues a move of a player of the virtual server to the given absolute position.
+     */
+    public boolean teleport(VirtualServer virtualServer, Player player, double x, double y, double z) {
+        if (!canSend(virtualServer, player, VirtualPacketKeys.PLAYER_POSITION)) {
+            return false;
         }
-        return sent;
+
+        return outboundQueues.submit(
+                player,
+                OutboundPriority.POSITION,
+                COALESCE_POSITION,
+                ESTIMATED_POSITION_BYTES,
+                () -> {
+                    try {
+                        Object connection = MinecraftConnections.connection(player);
+                        if (connection != null) {
+                            sendSynchronizePlayerPosition(virtualServer, player, connection, x, y, z, 0.0F, 0.0F);
+                        }
+                    } catch (ReflectiveOperationException ignored) {
+
+                    }
+                }
+        );
     }
 
     public int broadcastChat(VirtualServer virtualServer, Component message) {
@@ -162,6 +267,7 @@ public final class VelocityVirtualPacketSender {
                 sent++;
             }
         }
+        metrics.recordBroadcast(sent);
         return sent;
     }
 
@@ -172,6 +278,7 @@ public final class VelocityVirtualPacketSender {
                 sent++;
             }
         }
+        metrics.recordBroadcast(sent);
         return sent;
     }
 
@@ -182,6 +289,7 @@ public final class VelocityVirtualPacketSender {
                 sent++;
             }
         }
+        metrics.recordBroadcast(sent);
         return sent;
     }
 
@@ -192,6 +300,7 @@ public final class VelocityVirtualPacketSender {
                 sent++;
             }
         }
+        metrics.recordBroadcast(sent);
         return sent;
     }
 
@@ -202,9 +311,14 @@ public final class VelocityVirtualPacketSender {
                 sent++;
             }
         }
+        metrics.recordBroadcast(sent);
         return sent;
     }
 
+    public boolean isPacketAllowed(VirtualServer virtualServer, Player player, String packetKey) {
+        return canSend(virtualServer, player, packetKey);
+    }
+
     private boolean canSend(VirtualServer virtualServer, Player player, String packetKey) {
         Objects.requireNonNull(virtualServer, "virtualServer");
         Objects.requireNonNull(player, "player");
@@ -218,6 +332,11 @@ public final class VelocityVirtualPacketSender {
         }
 
         int protocolVersion = player.getProtocolVersion().getProtocol();
+        if (virtualServer instanceof DefaultVirtualServer server) {
+            PacketMatrix matrix = server.getPacketMatrix();
+            return matrix.supports(protocolVersion)
+                    && (!matrix.hasRules(packetKey) || matrix.rule(packetKey, protocolVersion).isPresent());
+        }
         if (!virtualServer.isProtocolVersionSupported(protocolVersion)) {
             return false;
         }
@@ -309,7 +428,12 @@ public final class VelocityVirtualPacketSender {
     private void sendSynchronizePlayerPosition(
             VirtualServer virtualServer,
             Player player,
-            Object connection
+            Object connection,
+            double x,
+            double y,
+            double z,
+            float yaw,
+            float pitch
     ) throws ReflectiveOperationException {
         ClassLoader classLoader = getClass().getClassLoader();
         Class<?> unpooledClass = Class.forName(UNPOOLED_CLASS, true, classLoader);
@@ -329,19 +453,91 @@ public final class VelocityVirtualPacketSender {
         protocolUtilsClass.getMethod("writeVarInt", byteBufClass, int.class)
                 .invoke(null, byteBuf, teleportId);
 
-        byteBufClass.getMethod("writeDouble", double.class).invoke(byteBuf, LIMBO_X);
-        byteBufClass.getMethod("writeDouble", double.class).invoke(byteBuf, LIMBO_Y);
-        byteBufClass.getMethod("writeDouble", double.class).invoke(byteBuf, LIMBO_Z);
+        byteBufClass.getMethod("writeDouble", double.class).invoke(byteBuf, x);
+        byteBufClass.getMethod("writeDouble", double.class).invoke(byteBuf, y);
+        byteBufClass.getMethod("writeDouble", double.class).invoke(byteBuf, z);
         byteBufClass.getMethod("writeDouble", double.class).invoke(byteBuf, 0.0D); // velocity X
         byteBufClass.getMethod("writeDouble", double.class).invoke(byteBuf, 0.0D); // velocity Y
         byteBufClass.getMethod("writeDouble", double.class).invoke(byteBuf, 0.0D); // velocity Z
-        byteBufClass.getMethod("writeFloat", float.class).invoke(byteBuf, LIMBO_YAW);
-        byteBufClass.getMethod("writeFloat", float.class).invoke(byteBuf, LIMBO_PITCH);
+        byteBufClass.getMethod("writeFloat", float.class).invoke(byteBuf, yaw);
+        byteBufClass.getMethod("writeFloat", float.class).invoke(byteBuf, pitch);
         byteBufClass.getMethod("writeInt", int.class).invoke(byteBuf, TELEPORT_FLAGS_ABSOLUTE);
 
         connection.getClass().getMethod("write", Object.class).invoke(connection, byteBuf);
     }
 
+    private void sendLimboChunks(
+            VirtualServer virtualServer,
+            Player player,
+            Object connection,
+            LimboSpawn spawn
+    ) throws ReflectiveOperationException {
+        LimboChunkSettings settings = chunkCache.getSettings();
+        if (!settings.enabled() || !canSend(virtualServer, player, VirtualPacketKeys.CHUNK_DATA)) {
+            return;
+        }
+
+        int protocol = player.getProtocolVersion().getProtocol();
+        int chunkDataId = resolvePacketId(virtualServer, VirtualPacketKeys.CHUNK_DATA, protocol, CHUNK_DATA_PACKET_ID_1_21_4);
+        boolean batched = canSend(virtualServer, player, VirtualPacketKeys.CHUNK_BATCH_START)
+                && canSend(virtualServer, player, VirtualPacketKeys.CHUNK_BATCH_FINISHED);
+        if (batched) {
+            LimboPacketWriteEvent event = LimboPacketWriteEvent.start();
+            writeVarIntPacket(connection, resolvePacketId(
+                    virtualServer, VirtualPacketKeys.CHUNK_BATCH_START, protocol, CHUNK_BATCH_START_PACKET_ID_1_21_4
+            ));
+            event.finish(VirtualPacketKeys.CHUNK_BATCH_START, player, virtualServer);
+        }
+
+        int centerX = spawn.chunkX();
+        int centerZ = spawn.chunkZ();
+        int sentChunks = 0;
+        for (int ring = 0; ring <= settings.radius(); ring++) {
+            for (int dx = -ring; dx <= ring; dx++) {
+                for (int dz = -ring; dz <= ring; dz++) {
+                    if (Math.max(Math.abs(dx), Math.abs(dz)) != ring) {
+                        continue;
+                    }
+                    LimboPacketWriteEvent event = LimboPacketWriteEvent.start();
+                    Object chunk = chunkCache.retainedChunkPacket(protocol, chunkDataId, centerX + dx, centerZ + dz);
+                    MinecraftConnections.delayedWrite(connection, chunk);
+                    event.finish(VirtualPacketKeys.CHUNK_DATA, player, virtualServer);
+                    sentChunks++;
+                }
+            }
+        }
+
+        if (batched) {
+            LimboPacketWriteEvent event = LimboPacketWriteEvent.start();
+            writeVarIntPacket(connection, resolvePacketId(
+                    virtualServer, VirtualPacketKeys.CHUNK_BATCH_FINISHED, protocol, CHUNK_BATCH_FINISHED_PACKET_ID_1_21_4
+            ), sentChunks);
+            event.finish(VirtualPacketKeys.CHUNK_BATCH_FINISHED, player, virtualServer);
+        }
+        MinecraftConnections.flush(connection);
+    }
+
+    private void writeVarIntPacket(Object connection, int... values) throws ReflectiveOperationException {
+        ClassLoader classLoader = getClass().getClassLoader();
+        Class<?> unpooledClass = Class.forName(UNPOOLED_CLASS, true, classLoader);
+        Object byteBuf = unpooledClass.getMethod("buffer").invoke(null);
+
+        Class<?> byteBufClass = Class.forName(BYTE_BUF_CLASS, true, classLoader);
+        Class<?> protocolUtilsClass = Class.forName(PROTOCOL_UTILS_CLASS, true, classLoader);
+        Method writeVarInt = protocolUtilsClass.getMethod("writeVarInt", byteBufClass, int.class);
+        for (int value : values) {
+            writeVarInt.invoke(null, byteBuf, value);
+        }
+
+        MinecraftConnections.delayedWrite(connection, byteBuf);
+    }
+
+    private static int resolvePacketId(VirtualServer virtualServer, String packetKey, int protocol, int fallback) {
+        return virtualServer.getPacketVersion(packetKey, protocol)
+                .map(VirtualServer.PacketVersionRule::packetVersion)
+                .orElse(fallback);
+    }
+
     private int nextTeleportId() {
         int id = teleportIdSequence.getAndIncrement();
         if (id > 0) {
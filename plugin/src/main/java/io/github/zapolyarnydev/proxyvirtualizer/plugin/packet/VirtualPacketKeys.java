@@ -10,6 +10,11 @@ public final class VirtualPacketKeys {
     public static final String PLAYER_POSITION = "clientbound.player_position";
     public static final String RESPAWN = "clientbound.respawn";
     public static final String DISCONNECT = "clientbound.disconnect";
+    public static final String CHUNK_DATA = "clientbound.chunk_data";
+    public static final String CHUNK_BATCH_START = "clientbound.chunk_batch_start";
+    public static final String CHUNK_BATCH_FINISHED = "clientbound.chunk_batch_finished";
+    public static final String CHUNK_CACHE_CENTER = "clientbound.set_chunk_cache_center";
+    public static final String FORGET_LEVEL_CHUNK = "clientbound.forget_level_chunk";
     public static final String LIMBO_BOOTSTRAP = "virtual.limbo.bootstrap";
 
     private VirtualPacketKeys() {
@@ -0,0 +1,251 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.queue;
+
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Players waiting for one backend, in priority lanes, and the admission control in front of it.
+ * <p>
+ * A player is moved only while a token is available, fewer than {@code maxInFlight} connections are in
+ * progress and the last ping reported a free slot. The token rate follows the backend: it is cut back
+ * when joins fail or their smoothed latency exceeds the target, and recovers step by step while joins
+ * stay fast. Not thread-safe; guarded by the owning queue.
+ */
+final class BackendQueue {
+    private static final double MIN_RATE_FACTOR = 0.1D;
+    private static final double RATE_DECREASE = 0.7D;
+    private static final double RATE_INCREASE = 0.05D;
+    private static final double LATENCY_WEIGHT = 0.2D;
+    private static final long DECREASE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final RegisteredServer backend;
+    private final JoinQueueSettings settings;
+    private final List<ArrayDeque<Entry>> lanes;
+    private final TokenBucket bucket;
+    private int size;
+    private int inFlight;
+    private double rateFactor = 1.0D;
+    private long latencyNanos;
+    private long decreasedAt;
+
+    private boolean reachable = true;
+    private int online = -1;
+    private int max = -1;
+    private long admitted;
+    private long admittedAtPing;
+    private long pingedAt;
+    private boolean pinging;
+
+    BackendQueue(RegisteredServer backend, JoinQueueSettings settings, long now) {
+        this.backend = backend;
+        this.settings = settings;
+        this.lanes = new ArrayList<>(settings.priorityPermissions().size() + 1);
+        for (int i = 0; i <= settings.priorityPermissions().size(); i++) {
+            lanes.add(new ArrayDeque<>());
+        }
+        this.bucket = new TokenBucket(settings.burst(), now);
+        this.pingedAt = now - settings.capacityInterval().toNanos();
+        this.decreasedAt = now - DECREASE_INTERVAL_NANOS;
+    }
+
+    RegisteredServer backend() {
+        return backend;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int inFlight() {
+        return inFlight;
+    }
+
+    double rateFactor() {
+        return rateFactor;
+    }
+
+    long latencyNanos() {
+        return latencyNanos;
+    }
+
+    boolean isIdle() {
+        return size == 0 && inFlight == 0 && !pinging;
+    }
+
+    void add(Entry entry, boolean first) {
+        if (first) {
+            lanes.get(entry.lane).addFirst(entry);
+        } else {
+            lanes.get(entry.lane).addLast(entry);
+        }
+        size++;
+    }
+
+    boolean remove(Entry entry) {
+        if (!lanes.get(entry.lane).remove(entry)) {
+            return false;
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * @return the players to move now, highest lane first; they count as in flight until
+     * {@link #completed} or {@link #abandoned}
+     */
+    List<Entry> admit(long now) {
+        bucket.refill(now, settings.ratePerSecond() * rateFactor);
+        List<Entry> moved = new ArrayList<>();
+        while (size > 0 && inFlight < settings.maxInFlight() && hasFreeSlot() && bucket.tryAcquire()) {
+            moved.add(poll());
+            inFlight++;
+            admitted++;
+        }
+        return moved;
+    }
+
+    /**
+     * Lets a connection through without queueing it when nobody waits and the backend has room.
+     */
+    boolean tryPass(long now) {
+        if (size > 0 || inFlight >= settings.maxInFlight() || !hasFreeSlot()) {
+            return false;
+        }
+        bucket.refill(now, settings.ratePerSecond() * rateFactor);
+        if (!bucket.tryAcquire()) {
+            return false;
+        }
+        admitted++;
+        return true;
+    }
+
+    /**
+     * Releases the slot of a player who left before the join finished; the rate stays as it is,
+     * since the backend had no part in it.
+     */
+    void abandoned() {
+        inFlight--;
+        admitted = Math.max(0L, admitted - 1);
+    }
+
+    void completed(long now, long joinNanos, boolean success) {
+        inFlight--;
+        if (!success) {
+            admitted = Math.max(0L, admitted - 1);
+            slowDown(now);
+            return;
+        }
+        latencyNanos = latencyNanos == 0
+                ? joinNanos
+                : (long) (latencyNanos * (1.0D - LATENCY_WEIGHT) + joinNanos * LATENCY_WEIGHT);
+        if (latencyNanos > settings.targetJoinLatency().toNanos()) {
+            slowDown(now);
+        } else {
+            rateFactor = Math.min(1.0D, rateFactor + RATE_INCREASE);
+        }
+    }
+
+    /**
+     * @return whether a ping is due; if so the ping counts as started
+     */
+    boolean startPing(long now) {
+        if (pinging || now - pingedAt < settings.capacityInterval().toNanos()) {
+            return false;
+        }
+        pinging = true;
+        pingedAt = now;
+        admittedAtPing = admitted;
+        return true;
+    }
+
+    /**
+     * Records the player counts of a ping; {@code max} of zero or less means the backend sets no limit.
+     */
+    void pinged(int online, int max) {
+        pinging = false;
+        reachable = true;
+        this.online = online;
+        this.max = max;
+        // Players admitted before the ping went out are part of its online count.
+        admitted = Math.max(0L, admitted - admittedAtPing);
+        admittedAtPing = 0;
+    }
+
+    void pingFailed() {
+        pinging = false;
+        reachable = false;
+        admittedAtPing = 0;
+    }
+
+    /**
+     * Reports every waiting player with their position, starting at 1.
+     */
+    void forEachPosition(ObjIntConsumer<Entry> consumer) {
+        int position = 0;
+        for (ArrayDeque<Entry> lane : lanes) {
+            for (Entry entry : lane) {
+                consumer.accept(entry, ++position);
+            }
+        }
+    }
+
+    int positionOf(Entry entry) {
+        int position = 0;
+        for (int i = 0; i < entry.lane; i++) {
+            position += lanes.get(i).size();
+        }
+        for (Entry queued : lanes.get(entry.lane)) {
+            position++;
+            if (queued == entry) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    private boolean hasFreeSlot() {
+        if (!reachable) {
+            return false;
+        }
+        return max <= 0 || online + admitted < max;
+    }
+
+    private Entry poll() {
+        for (ArrayDeque<Entry> lane : lanes) {
+            Entry entry = lane.pollFirst();
+            if (entry != null) {
+                size--;
+                return entry;
+            }
+        }
+        throw new IllegalStateException("Queue is empty");
+    }
+
+    private void slowDown(long now) {
+        if (now - decreasedAt < DECREASE_INTERVAL_NANOS) {
+            return;
+        }
+        decreasedAt = now;
+        rateFactor = Math.max(MIN_RATE_FACTOR, rateFactor * RATE_DECREASE);
+    }
+
+    static final class Entry {
+        final Player player;
+        final int lane;
+        final BackendQueue queue;
+        int shownPosition;
+        long shownAt;
+
+        Entry(Player player, int lane, BackendQueue queue) {
+            this.player = player;
+            this.lane = lane;
+            this.queue = queue;
+        }
+    }
+}
@@ -0,0 +1,434 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.queue;
+
+import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.player.ServerPreConnectEvent;
+import com.velocitypowered.api.proxy.ConnectionRequestBuilder;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import com.velocitypowered.api.proxy.server.ServerPing;
+import io.github.zapolyarnydev.proxyvirtualizer.api.connector.Connector;
+import io.github.zapolyarnydev.proxyvirtualizer.api.exception.PlayerAlreadyConnectedException;
+import io.github.zapolyarnydev.proxyvirtualizer.api.exception.VirtualServerAlreadyLaunchedException;
+import io.github.zapolyarnydev.proxyvirtualizer.api.queue.JoinQueue;
+import io.github.zapolyarnydev.proxyvirtualizer.api.registry.ServerContainer;
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.Launcher;
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.connector.InMemoryConnectionStorage;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.connector.VirtualSession;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.metrics.Counter;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.metrics.PluginMetrics;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.packet.VelocityVirtualPacketSender;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waiting room backed by a virtual server.
+ * <p>
+ * Connections from another server to one of the configured backends are denied and the player is
+ * parked in the waiting room instead, unless nobody waits and the backend has room. Every admission
+ * period each backend's {@link BackendQueue} decides who moves on. A failed move puts the player back at
+ * the head of their lane. Positions are shown in the action bar through cached packets: a position text
+ * is encoded once and shared by every player who reaches it.
+ */
+public final class DefaultJoinQueue implements JoinQueue, InMemoryConnectionStorage.Listener {
+    private static final long ADMISSION_PERIOD_MILLIS = 50;
+    private static final long ACTION_BAR_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(2);
+    private static final String BYPASS_PERMISSION = "proxyvirtualizer.queue.bypass";
+
+    private final ServerContainer serverContainer;
+    private final Launcher launcher;
+    private final Connector connector;
+    private final InMemoryConnectionStorage connectionStorage;
+    private final VelocityVirtualPacketSender packetSender;
+    private final JoinQueueSettings settings;
+    private final Logger logger;
+    private final Set<String> queuedBackends = new HashSet<>();
+    private final Set<UUID> admitting = ConcurrentHashMap.newKeySet();
+    private final Counter admissions;
+    private final ScheduledExecutorService executor;
+
+    private final Object lock = new Object();
+    private final Map<String, BackendQueue> queues = new HashMap<>();
+    private final Map<UUID, BackendQueue.Entry> entries = new HashMap<>();
+    private long positionsAt;
+
+    public DefaultJoinQueue(
+            ServerContainer serverContainer,
+            Launcher launcher,
+            Connector connector,
+            InMemoryConnectionStorage connectionStorage,
+            VelocityVirtualPacketSender packetSender,
+            JoinQueueSettings settings,
+            PluginMetrics metrics,
+            Logger logger
+    ) {
+        this.serverContainer = Objects.requireNonNull(serverContainer, "serverContainer");
+        this.launcher = Objects.requireNonNull(launcher, "launcher");
+        this.connector = Objects.requireNonNull(connector, "connector");
+        this.connectionStorage = Objects.requireNonNull(connectionStorage, "connectionStorage");
+        this.packetSender = Objects.requireNonNull(packetSender, "packetSender");
+        this.settings = Objects.requireNonNull(settings, "settings");
+        this.logger = Objects.requireNonNull(logger, "logger");
+        for (String backend : settings.backends()) {
+            queuedBackends.add(normalize(backend));
+        }
+
+        this.admissions = metrics.getRegistry().counter(
+                "proxyvirtualizer_queue_admissions_total", "Players moved from the waiting room to their backend"
+        );
+        metrics.getRegistry().gauge(
+                "proxyvirtualizer_queue_players", "Players waiting in the queue for a backend", this::queuedCount
+        );
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "proxyvirtualizer-join-queue");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.scheduleAtFixedRate(this::tickSafely, ADMISSION_PERIOD_MILLIS, ADMISSION_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public boolean enqueue(Player player, RegisteredServer backend) {
+        Objects.requireNonNull(player, "player");
+        Objects.requireNonNull(backend, "backend");
+        synchronized (lock) {
+            if (entries.containsKey(player.getUniqueId())) {
+                return false;
+            }
+        }
+        VirtualServer waitingRoom = waitingRoom();
+        if (waitingRoom == null || !park(player, waitingRoom)) {
+            return false;
+        }
+
+        synchronized (lock) {
+            if (entries.containsKey(player.getUniqueId())) {
+                return false;
+            }
+            BackendQueue queue = queues.computeIfAbsent(
+                    normalize(backend.getServerInfo().getName()),
+                    ignored -> new BackendQueue(backend, settings, System.nanoTime())
+            );
+            BackendQueue.Entry entry = new BackendQueue.Entry(player, laneOf(player), queue);
+            queue.add(entry, false);
+            entries.put(player.getUniqueId(), entry);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean leave(Player player) {
+        Objects.requireNonNull(player, "player");
+        synchronized (lock) {
+            BackendQueue.Entry entry = entries.remove(player.getUniqueId());
+            return entry != null && entry.queue.remove(entry);
+        }
+    }
+
+    @Override
+    public OptionalInt getPosition(Player player) {
+        Objects.requireNonNull(player, "player");
+        synchronized (lock) {
+            BackendQueue.Entry entry = entries.get(player.getUniqueId());
+            if (entry == null) {
+                return OptionalInt.empty();
+            }
+            int position = entry.queue.positionOf(entry);
+            return position < 0 ? OptionalInt.empty() : OptionalInt.of(position);
+        }
+    }
+
+    @Override
+    public Optional<RegisteredServer> getBackend(Player player) {
+        Objects.requireNonNull(player, "player");
+        synchronized (lock) {
+            BackendQueue.Entry entry = entries.get(player.getUniqueId());
+            return entry == null ? Optional.empty() : Optional.of(entry.queue.backend());
+        }
+    }
+
+    @Override
+    public int getQueuedCount(String backendName) {
+        if (backendName == null) {
+            return 0;
+        }
+        synchronized (lock) {
+            BackendQueue queue = queues.get(normalize(backendName));
+            return queue == null ? 0 : queue.size();
+        }
+    }
+
+    /**
+     * @return one line per backend with waiting players: queued, in flight, rate and join latency
+     */
+    public List<String> describe() {
+        List<String> lines = new ArrayList<>();
+        synchronized (lock) {
+            for (BackendQueue queue : queues.values()) {
+                lines.add(String.format(
+                        Locale.ROOT,
+                        "%s: %d waiting, %d joining, %.1f/s, join %d ms",
+                        queue.backend().getServerInfo().getName(),
+                        queue.size(),
+                        queue.inFlight(),
+                        settings.ratePerSecond() * queue.rateFactor(),
+                        TimeUnit.NANOSECONDS.toMillis(queue.latencyNanos())
+                ));
+            }
+        }
+        return lines;
+    }
+
+    @Subscribe
+    public void onServerPreConnect(ServerPreConnectEvent event) {
+        Player player = event.getPlayer();
+        if (admitting.contains(player.getUniqueId()) || !event.getResult().isAllowed()) {
+            return;
+        }
+        RegisteredServer backend = event.getResult().getServer().orElse(null);
+        if (backend == null || !queuedBackends.contains(normalize(backend.getServerInfo().getName()))) {
+            return;
+        }
+        // Players still logging in cannot be parked in limbo yet.
+        if (player.getCurrentServer().isEmpty() && !connectionStorage.isInVirtualServer(player)) {
+            return;
+        }
+        if (player.hasPermission(BYPASS_PERMISSION)) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        synchronized (lock) {
+            BackendQueue queue = queues.computeIfAbsent(
+                    normalize(backend.getServerInfo().getName()),
+                    ignored -> new BackendQueue(backend, settings, now)
+            );
+            if (!entries.containsKey(player.getUniqueId()) && queue.tryPass(now)) {
+                return;
+            }
+        }
+        event.setResult(ServerPreConnectEvent.ServerResult.denied());
+        executor.execute(() -> enqueue(player, backend));
+    }
+
+    @Override
+    public void sessionOpened(VirtualSession session) {
+    }
+
+    @Override
+    public void sessionClosed(VirtualSession session) {
+        if (!session.getServer().getName().equalsIgnoreCase(settings.server())) {
+            return;
+        }
+        synchronized (lock) {
+            BackendQueue.Entry entry = entries.remove(session.getPlayer().getUniqueId());
+            if (entry != null) {
+                entry.queue.remove(entry);
+            }
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void tickSafely() {
+        try {
+            tick();
+        } catch (RuntimeException exception) {
+            logger.warn("Join queue tick failed", exception);
+        }
+    }
+
+    private void tick() {
+        long now = System.nanoTime();
+        List<BackendQueue.Entry> moves = new ArrayList<>();
+        List<BackendQueue> pings = new ArrayList<>();
+        List<BackendQueue.Entry> notices = new ArrayList<>();
+        synchronized (lock) {
+            if (queues.isEmpty()) {
+                return;
+            }
+            boolean showPositions = now - positionsAt >= settings.positionInterval().toNanos();
+            if (showPositions) {
+                positionsAt = now;
+            }
+            for (var iterator = queues.values().iterator(); iterator.hasNext(); ) {
+                BackendQueue queue = iterator.next();
+                // Queues of the configured backends keep their rate and capacity state while empty.
+                if (queue.isIdle() && !queuedBackends.contains(normalize(queue.backend().getServerInfo().getName()))) {
+                    iterator.remove();
+                    continue;
+                }
+                if (queue.startPing(now)) {
+                    pings.add(queue);
+                }
+                for (BackendQueue.Entry entry : queue.admit(now)) {
+                    entries.remove(entry.player.getUniqueId());
+                    moves.add(entry);
+                }
+                if (showPositions) {
+                    queue.forEachPosition((entry, position) -> {
+                        if (position != entry.shownPosition || now - entry.shownAt >= ACTION_BAR_REFRESH_NANOS) {
+                            entry.shownPosition = position;
+                            entry.shownAt = now;
+                            notices.add(entry);
+                        }
+                    });
+                }
+            }
+        }
+
+        for (BackendQueue queue : pings) {
+            ping(queue);
+        }
+        for (BackendQueue.Entry entry : moves) {
+            move(entry);
+        }
+        if (!notices.isEmpty()) {
+            VirtualServer waitingRoom = serverContainer.findServerByName(settings.server()).orElse(null);
+            if (waitingRoom != null) {
+                for (BackendQueue.Entry entry : notices) {
+                    String text = "Position " + entry.shownPosition + " in the queue for "
+                            + entry.queue.backend().getServerInfo().getName();
+                    packetSender.sendCachedActionBar(waitingRoom, entry.player, text, NamedTextColor.GOLD);
+                }
+            }
+        }
+    }
+
+    private void ping(BackendQueue queue) {
+        CompletableFuture<ServerPing> ping;
+        try {
+            ping = queue.backend().ping();
+        } catch (RuntimeException exception) {
+            ping = CompletableFuture.failedFuture(exception);
+        }
+        ping.whenComplete((result, error) -> {
+            synchronized (lock) {
+                ServerPing.Players players = error == null && result != null
+                        ? result.getPlayers().orElse(null)
+                        : null;
+                if (error != null || result == null) {
+                    queue.pingFailed();
+                } else if (players == null) {
+                    queue.pinged(0, 0);
+                } else {
+                    queue.pinged(players.getOnline(), players.getMax());
+                }
+            }
+        });
+    }
+
+    private void move(BackendQueue.Entry entry) {
+        Player player = entry.player;
+        if (!player.isActive()) {
+            synchronized (lock) {
+                entry.queue.abandoned();
+            }
+            return;
+        }
+
+        admitting.add(player.getUniqueId());
+        long started = System.nanoTime();
+        CompletableFuture<ConnectionRequestBuilder.Result> request;
+        try {
+            request = player.createConnectionRequest(entry.queue.backend()).connect();
+        } catch (RuntimeException exception) {
+            request = CompletableFuture.failedFuture(exception);
+        }
+        connector.disconnect(player);
+        request.whenComplete((result, error) -> executor.execute(
+                () -> joined(entry, started, error == null && result != null && result.isSuccessful())
+        ));
+    }
+
+    private void joined(BackendQueue.Entry entry, long started, boolean success) {
+        Player player = entry.player;
+        admitting.remove(player.getUniqueId());
+        long now = System.nanoTime();
+        if (success) {
+            admissions.increment();
+        }
+        VirtualServer waitingRoom = success || !player.isActive() ? null : waitingRoom();
+        boolean parked = waitingRoom != null && park(player, waitingRoom);
+        synchronized (lock) {
+            if (success || player.isActive()) {
+                entry.queue.completed(now, now - started, success);
+            } else {
+                entry.queue.abandoned();
+            }
+            if (parked && !entries.containsKey(player.getUniqueId())) {
+                entry.queue.add(entry, true);
+                entries.put(player.getUniqueId(), entry);
+            }
+        }
+    }
+
+    private boolean park(Player player, VirtualServer waitingRoom) {
+        Optional<VirtualServer> current = connectionStorage.getVirtualServer(player);
+        if (current.isPresent() && current.get().equals(waitingRoom)) {
+            return true;
+        }
+        if (current.isPresent()) {
+            connector.disconnect(player);
+        }
+        try {
+            return connector.connect(waitingRoom, player);
+        } catch (PlayerAlreadyConnectedException exception) {
+            return false;
+        }
+    }
+
+    private VirtualServer waitingRoom() {
+        Optional<VirtualServer> existing = serverContainer.findServerByName(settings.server());
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        try {
+            return launcher.launch(settings.server());
+        } catch (VirtualServerAlreadyLaunchedException exception) {
+            return serverContainer.findServerByName(settings.server()).orElse(null);
+        } catch (RuntimeException exception) {
+            logger.warn("Unable to launch the queue server {}", settings.server(), exception);
+            return null;
+        }
+    }
+
+    private int laneOf(Player player) {
+        List<String> permissions = settings.priorityPermissions();
+        for (int lane = 0; lane < permissions.size(); lane++) {
+            if (player.hasPermission(permissions.get(lane))) {
+                return lane;
+            }
+        }
+        return permissions.size();
+    }
+
+    private int queuedCount() {
+        synchronized (lock) {
+            return entries.size();
+        }
+    }
+
+    private static String normalize(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,70 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.queue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Waiting room in front of backend servers.
+ *
+ * @param server              virtual server players wait in, launched on demand
+ * @param backends            backends whose connections are queued automatically when they come from another server
+ * @param ratePerSecond       players moved to one backend per second while it keeps up
+ * @param burst               moves that may happen at once after a quiet period
+ * @param maxInFlight         connections to one backend that may be in progress at the same time
+ * @param targetJoinLatency   join latency above which the rate of a backend is cut back
+ * @param capacityInterval    delay between two pings reading a backend's online and maximum players
+ * @param positionInterval    delay between two refreshes of the positions shown in the action bar
+ * @param priorityPermissions permissions of the priority lanes, highest first; everyone else waits in the last lane
+ */
+public record JoinQueueSettings(
+        String server,
+        List<String> backends,
+        long ratePerSecond,
+        int burst,
+        int maxInFlight,
+        Duration targetJoinLatency,
+        Duration capacityInterval,
+        Duration positionInterval,
+        List<String> priorityPermissions
+) {
+    public static final String DEFAULT_SERVER = "queue";
+    public static final long DEFAULT_RATE_PER_SECOND = 5;
+    public static final int DEFAULT_BURST = 10;
+    public static final int DEFAULT_MAX_IN_FLIGHT = 20;
+    public static final Duration DEFAULT_TARGET_JOIN_LATENCY = Duration.ofMillis(2000);
+    public static final Duration DEFAULT_CAPACITY_INTERVAL = Duration.ofSeconds(5);
+    public static final Duration DEFAULT_POSITION_INTERVAL = Duration.ofMillis(500);
+    public static final List<String> DEFAULT_PRIORITY_PERMISSIONS = List.of("proxyvirtualizer.queue.priority");
+
+    public JoinQueueSettings {
+        if (server == null || server.isBlank()) {
+            throw new IllegalArgumentException("Queue server name cannot be blank");
+        }
+        backends = List.copyOf(Objects.requireNonNull(backends, "backends"));
+        Objects.requireNonNull(targetJoinLatency, "targetJoinLatency");
+        Objects.requireNonNull(capacityInterval, "capacityInterval");
+        Objects.requireNonNull(positionInterval, "positionInterval");
+        priorityPermissions = List.copyOf(Objects.requireNonNull(priorityPermissions, "priorityPermissions"));
+        if (ratePerSecond < 1 || burst < 1 || maxInFlight < 1) {
+            throw new IllegalArgumentException("Queue rate, burst and in-flight limit must be positive");
+        }
+        if (targetJoinLatency.isZero() || capacityInterval.isZero() || positionInterval.isZero()) {
+            throw new IllegalArgumentException("Queue latency target and intervals must be positive");
+        }
+    }
+
+    public static JoinQueueSettings defaults() {
+        return new JoinQueueSettings(
+                DEFAULT_SERVER,
+                List.of(),
+                DEFAULT_RATE_PER_SECOND,
+                DEFAULT_BURST,
+                DEFAULT_MAX_IN_FLIGHT,
+                DEFAULT_TARGET_JOIN_LATENCY,
+                DEFAULT_CAPACITY_INTERVAL,
+                DEFAULT_POSITION_INTERVAL,
+                DEFAULT_PRIORITY_PERMISSIONS
+        );
+    }
+}
@@ -0,0 +1,257 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.queue;
+
+import com.velocitypowered.api.event.EventTask;
+import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.connection.DisconnectEvent;
+import com.velocitypowered.api.event.player.PlayerChooseInitialServerEvent;
+import com.velocitypowered.api.event.player.ServerConnectedEvent;
+import com.velocitypowered.api.proxy.Player;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.metrics.Counter;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.metrics.PluginMetrics;
+import org.slf4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds new logins on the proxy while the backends are saturated and lets them through in paced batches.
+ * <p>
+ * Initial backend connections are tracked from the choice of the initial server until the player is
+ * connected. Once too many are in progress, or their smoothed duration exceeds the limit, the initial
+ * server choice of each new login is held open. The login then stays parked on the proxy without a
+ * backend. Every batch interval, held logins are released first come first served, limited by the
+ * release rate and the free pending slots. A login held past the maximum wait is released regardless,
+ * before the client gives up. The shield lifts once nobody is held and the backends are back under both
+ * limits.
+ * <p>
+ * A login cannot enter a virtual server instead: the limbo bootstrap respawns a player already in play,
+ * and a player only gets there by joining a backend.
+ */
+public final class LoginShield {
+    private static final String BYPASS_PERMISSION = "proxyvirtualizer.queue.bypass";
+    private static final double LATENCY_WEIGHT = 0.2D;
+
+    private final LoginShieldSettings settings;
+    private final Logger logger;
+    private final Counter held;
+    private final ScheduledExecutorService executor;
+
+    private final Object lock = new Object();
+    private final ArrayDeque<Waiter> waiting = new ArrayDeque<>();
+    private final Map<UUID, Long> connecting = new HashMap<>();
+    private final TokenBucket bucket;
+    private long latencyNanos;
+    private boolean shielding;
+
+    public LoginShield(LoginShieldSettings settings, PluginMetrics metrics, Logger logger) {
+        this.settings = Objects.requireNonNull(settings, "settings");
+        this.logger = Objects.requireNonNull(logger, "logger");
+        this.bucket = new TokenBucket(settings.batchSize(), System.nanoTime());
+        this.held = metrics.getRegistry().counter(
+                "proxyvirtualizer_login_shield_held_total", "Logins held while the backends were saturated"
+        );
+        metrics.getRegistry().gauge(
+                "proxyvirtualizer_login_shield_waiting", "Logins currently held by the login shield", this::waitingCount
+        );
+        if (!settings.enabled()) {
+            this.executor = null;
+            return;
+        }
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "proxyvirtualizer-login-shield");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long batchMillis = settings.batchInterval().toMillis();
+        this.executor.scheduleAtFixedRate(this::releaseSafely, batchMillis, batchMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Subscribe
+    public EventTask onChooseInitialServer(PlayerChooseInitialServerEvent event) {
+        if (executor == null) {
+            return null;
+        }
+        Player player = event.getPlayer();
+        long now = System.nanoTime();
+        Waiter waiter;
+        synchronized (lock) {
+            if (player.hasPermission(BYPASS_PERMISSION) || (!shielding && !saturated())) {
+                connecting.put(player.getUniqueId(), now);
+                return null;
+            }
+            if (!shielding) {
+                shielding = true;
+                logger.info(
+                        "Backends are saturated ({} connections pending, {} ms to connect), holding new logins",
+                        connecting.size(),
+                        TimeUnit.NANOSECONDS.toMillis(latencyNanos)
+                );
+            }
+            waiter = new Waiter(player.getUniqueId(), now);
+            waiting.addLast(waiter);
+        }
+        held.increment();
+        return EventTask.resumeWhenComplete(waiter.released);
+    }
+
+    @Subscribe
+    public void onServerConnected(ServerConnectedEvent event) {
+        if (executor == null || event.getPreviousServer().isPresent()) {
+            return;
+        }
+        long now = System.nanoTime();
+        synchronized (lock) {
+            Long started = connecting.remove(event.getPlayer().getUniqueId());
+            if (started != null) {
+                sample(now - started);
+            }
+        }
+    }
+
+    @Subscribe
+    public void onDisconnect(DisconnectEvent event) {
+        if (executor == null) {
+            return;
+        }
+        UUID playerId = event.getPlayer().getUniqueId();
+        Waiter waiter = null;
+        synchronized (lock) {
+            connecting.remove(playerId);
+            for (Iterator<Waiter> iterator = waiting.iterator(); iterator.hasNext(); ) {
+                Waiter candidate = iterator.next();
+                if (candidate.playerId.equals(playerId)) {
+                    iterator.remove();
+                    waiter = candidate;
+                    break;
+                }
+            }
+        }
+        if (waiter != null) {
+            waiter.released.complete(null);
+        }
+    }
+
+    /**
+     * @return a status line, or {@code null} while the shield is disabled
+     */
+    public String describe() {
+        if (executor == null) {
+            return null;
+        }
+        synchronized (lock) {
+            return String.format(
+                    Locale.ROOT,
+                    "Login shield %s: %d held, %d connecting, connect %d ms",
+                    shielding ? "up" : "down",
+                    waiting.size(),
+                    connecting.size(),
+                    TimeUnit.NANOSECONDS.toMillis(latencyNanos)
+            );
+        }
+    }
+
+    /**
+     * Releases every held login so no player is left waiting on a stopped proxy.
+     */
+    public void shutdown() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdownNow();
+        List<Waiter> released;
+        synchronized (lock) {
+            released = new ArrayList<>(waiting);
+            waiting.clear();
+        }
+        for (Waiter waiter : released) {
+            waiter.released.complete(null);
+        }
+    }
+
+    private void releaseSafely() {
+        try {
+            release();
+        } catch (RuntimeException exception) {
+            logger.warn("Login shield release failed", exception);
+        }
+    }
+
+    private void release() {
+        long now = System.nanoTime();
+        List<Waiter> released = new ArrayList<>();
+        synchronized (lock) {
+            expireConnecting(now);
+            bucket.refill(now, settings.releaseRate());
+            while (!waiting.isEmpty()) {
+                Waiter head = waiting.peekFirst();
+                boolean overdue = now - head.heldAt >= settings.maxWait().toNanos();
+                if (!overdue && (connecting.size() >= settings.maxPending() || !bucket.tryAcquire())) {
+                    break;
+                }
+                waiting.pollFirst();
+                connecting.put(head.playerId, now);
+                released.add(head);
+            }
+            if (shielding && waiting.isEmpty() && !saturated()) {
+                shielding = false;
+                logger.info("Backends caught up, the login shield is lifted");
+            }
+        }
+        for (Waiter waiter : released) {
+            waiter.released.complete(null);
+        }
+    }
+
+    /**
+     * Counts connections that never reported back as taking the whole maximum wait, then forgets them.
+     */
+    private void expireConnecting(long now) {
+        long limit = settings.maxWait().toNanos();
+        for (Iterator<Long> iterator = connecting.values().iterator(); iterator.hasNext(); ) {
+            long started = iterator.next();
+            if (now - started >= limit) {
+                iterator.remove();
+                sample(limit);
+            }
+        }
+    }
+
+    private void sample(long connectNanos) {
+        latencyNanos = latencyNanos == 0
+                ? connectNanos
+                : (long) (latencyNanos * (1.0D - LATENCY_WEIGHT) + connectNanos * LATENCY_WEIGHT);
+    }
+
+    private boolean saturated() {
+        return connecting.size() >= settings.maxPending()
+                || latencyNanos > settings.maxConnectLatency().toNanos();
+    }
+
+    private int waitingCount() {
+        synchronized (lock) {
+            return waiting.size();
+        }
+    }
+
+    private static final class Waiter {
+        private final UUID playerId;
+        private final long heldAt;
+        private final CompletableFuture<Void> released = new CompletableFuture<>();
+
+        private Waiter(UUID playerId, long heldAt) {
+            this.playerId = playerId;
+            this.heldAt = heldAt;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.queue;
+
+import java.time.Duration;
+
+/**
+ * Pacing of logins while the backends are saturated.
+ *
+ * @param enabled           whether logins may be held at all
+ * @param maxPending        initial backend connections in progress at which new logins are held
+ * @param maxConnectLatency smoothed initial connection time at which new logins are held
+ * @param releaseRate       held logins released per second
+ * @param batchInterval     delay between two release batches
+ * @param maxWait           time after which a held login is released regardless, kept below the client timeout
+ */
+public record LoginShieldSettings(
+        boolean enabled,
+        int maxPending,
+        Duration maxConnectLatency,
+        long releaseRate,
+        Duration batchInterval,
+        Duration maxWait
+) {
+    public static final boolean DEFAULT_ENABLED = false;
+    public static final int DEFAULT_MAX_PENDING = 50;
+    public static final Duration DEFAULT_MAX_CONNECT_LATENCY = Duration.ofMillis(3000);
+    public static final long DEFAULT_RELEASE_RATE = 10;
+    public static final Duration DEFAULT_BATCH_INTERVAL = Duration.ofMillis(250);
+    public static final Duration DEFAULT_MAX_WAIT = Duration.ofSeconds(25);
+
+    public LoginShieldSettings {
+        if (maxConnectLatency == null || batchInterval == null || maxWait == null) {
+            throw new IllegalArgumentException("Login shield durations cannot be null");
+        }
+        if (maxPending < 1 || releaseRate < 1) {
+            throw new IllegalArgumentException("Login shield pending limit and release rate must be positive");
+        }
+        if (maxConnectLatency.isZero() || batchInterval.isZero() || maxWait.isZero()) {
+            throw new IllegalArgumentException("Login shield latency, batch interval and wait must be positive");
+        }
+    }
+
+    /**
+     * @return logins released by one batch at the configured rate, at least one
+     */
+    public int batchSize() {
+        return (int) Math.max(1L, releaseRate * batchInterval.toMillis() / 1000L);
+    }
+
+    public static LoginShieldSettings defaults() {
+        return new LoginShieldSettings(
+                DEFAULT_ENABLED,
+                DEFAULT_MAX_PENDING,
+                DEFAULT_MAX_CONNECT_LATENCY,
+                DEFAULT_RELEASE_RATE,
+                DEFAULT_BATCH_INTERVAL,
+                DEFAULT_MAX_WAIT
+        );
+    }
+}
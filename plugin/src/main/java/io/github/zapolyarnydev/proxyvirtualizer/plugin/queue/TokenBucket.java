@@ -0,0 +1,39 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.queue;
+
+/**
+ * Token bucket refilled continuously at a rate that may change between refills. Not thread-safe.
+ */
+final class TokenBucket {
+    private final int capacity;
+    private double tokens;
+    private long refilledAt;
+
+    TokenBucket(int capacity, long now) {
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.refilledAt = now;
+    }
+
+    /**
+     * Adds the tokens earned since the previous refill at the given rate, up to the capacity.
+     */
+    void refill(long now, double tokensPerSecond) {
+        long elapsed = now - refilledAt;
+        refilledAt = now;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * tokensPerSecond / 1_000_000_000.0D);
+        }
+    }
+
+    boolean tryAcquire() {
+        if (tokens < 1.0D) {
+            return false;
+        }
+        tokens -= 1.0D;
+        return true;
+    }
+
+    double tokens() {
+        return tokens;
+    }
+}
@@ -4,16 +4,23 @@ import io.github.zapolyarnydev.proxyvirtualizer.api.registry.ServerContainer;
 import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer;
 
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public final class InMemoryServerContainer implements ServerContainer {
 
     private final Map<String, VirtualServer> serversByName = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public void addListener(Listener listener) {
+        listeners.add(Objects.requireNonNull(listener, "listener"));
+    }
 
     @Override
     public Set<VirtualServer> getServers() {
@@ -29,6 +36,9 @@ public final class InMemoryServerContainer implements ServerContainer {
         if (previous != null) {
             throw new IllegalStateException("Virtual server already registered: " + virtualServer.getName());
         }
+        for (Listener listener : listeners) {
+            listener.serverRegistered(virtualServer);
+        }
     }
 
     @Override
@@ -37,7 +47,11 @@ public final class InMemoryServerContainer implements ServerContainer {
             return;
         }
 
-        serversByName.remove(normalize(virtualServer.getName()), virtualServer);
+        if (serversByName.remove(normalize(virtualServer.getName()), virtualServer)) {
+            for (Listener listener : listeners) {
+                listener.serverRemoved(virtualServer);
+            }
+        }
     }
 
     @Override
@@ -54,4 +68,13 @@ public final class InMemoryServerContainer implements ServerContainer {
         }
         return name.toLowerCase(Locale.ROOT);
     }
+
+    /**
+     * Observes servers as they are registered and removed.
+     */
+    public interface Listener {
+        void serverRegistered(VirtualServer virtualServer);
+
+        void serverRemoved(VirtualServer virtualServer);
+    }
 }
@@ -1,24 +1,40 @@
 package io.github.zapolyarnydev.proxyvirtualizer.plugin.server;
 
 import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer;
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.tick.Ticker;
+import io.github.zapolyarnydev.proxyvirtualizer.api.signal.SignalBus;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.server.profile.ServerProfile;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.server.tick.TickScheduler;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.signal.DefaultSignalBus;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.spatial.GridPlayerPositionIndex;
 
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Protocols and packet rules live in one immutable {@link PacketMatrix}; edits replace it under the
+ * server lock, so readers on the packet path take a single volatile read and never copy.
+ */
 public final class DefaultVirtualServer implements VirtualServer {
 
     private final String name;
-    private final Set<Integer> supportedProtocolVersions = ConcurrentHashMap.newKeySet();
-    private final Map<String, Map<Integer, PacketVersionRule>> packetVersions = new ConcurrentHashMap<>();
+    private volatile PacketMatrix matrix = PacketMatrix.EMPTY;
+    private volatile LimboSpawn spawn = LimboSpawn.DEFAULT;
+    private final Ticker ticker;
+    private final GridPlayerPositionIndex positionIndex = new GridPlayerPositionIndex();
+    private final SignalBus signalBus;
 
-    public DefaultVirtualServer(String name) {
+    public DefaultVirtualServer(String name, TickScheduler tickScheduler, DefaultSignalBus signalBus) {
         if (name == null || name.isBlank()) {
             throw new IllegalArgumentException("Virtual server name cannot be blank");
         }
+        Objects.requireNonNull(tickScheduler, "tickScheduler");
+        Objects.requireNonNull(signalBus, "signalBus");
         this.name = name;
+        this.ticker = tickScheduler.createTicker(name);
+        this.signalBus = signalBus.scope(this);
     }
 
     @Override
@@ -26,64 +42,85 @@ public final class DefaultVirtualServer implements VirtualServer {
         return name;
     }
 
+    @Override
+    public Ticker getTicker() {
+        return ticker;
+    }
+
+    @Override
+    public SignalBus getSignalBus() {
+        return signalBus;
+    }
+
+    @Override
+    public GridPlayerPositionIndex getPositionIndex() {
+        return positionIndex;
+    }
+
     @Override
     public Set<Integer> getSupportedProtocolVersions() {
-        return Set.copyOf(supportedProtocolVersions);
+        return matrix.protocols();
     }
 
     @Override
-    public void allowProtocolVersion(int protocolVersion) {
-        supportedProtocolVersions.add(protocolVersion);
+    public synchronized void allowProtocolVersion(int protocolVersion) {
+        matrix = matrix.withProtocol(protocolVersion);
     }
 
     @Override
-    public void disallowProtocolVersion(int protocolVersion) {
-        supportedProtocolVersions.remove(protocolVersion);
+    public synchronized void disallowProtocolVersion(int protocolVersion) {
+        matrix = matrix.withoutProtocol(protocolVersion);
     }
 
     @Override
     public boolean isProtocolVersionSupported(int protocolVersion) {
-        return supportedProtocolVersions.isEmpty() || supportedProtocolVersions.contains(protocolVersion);
+        return matrix.supports(protocolVersion);
     }
 
     @Override
-    public PacketVersionRule registerPacketVersion(String packetKey, int protocolVersion, int packetVersion) {
+    public synchronized PacketVersionRule registerPacketVersion(String packetKey, int protocolVersion, int packetVersion) {
         String normalizedPacketKey = normalizePacketKey(packetKey);
         PacketVersionRule rule = new PacketVersionRule(normalizedPacketKey, protocolVersion, packetVersion);
-        packetVersions
-                .computeIfAbsent(normalizedPacketKey, ignored -> new ConcurrentHashMap<>())
-                .put(protocolVersion, rule);
+        matrix = matrix.withRule(rule);
         return rule;
     }
 
     @Override
     public Optional<PacketVersionRule> getPacketVersion(String packetKey, int protocolVersion) {
-        String normalizedPacketKey = normalizePacketKey(packetKey);
-        return Optional.ofNullable(packetVersions.getOrDefault(normalizedPacketKey, Map.of()).get(protocolVersion));
+        return matrix.rule(normalizePacketKey(packetKey), protocolVersion);
     }
 
     @Override
-    public boolean removePacketVersion(String packetKey, int protocolVersion) {
-        String normalizedPacketKey = normalizePacketKey(packetKey);
-        Map<Integer, PacketVersionRule> rulesByProtocol = packetVersions.get(normalizedPacketKey);
-        if (rulesByProtocol == null) {
-            return false;
-        }
-
-        boolean removed = rulesByProtocol.remove(protocolVersion) != null;
-        if (rulesByProtocol.isEmpty()) {
-            packetVersions.remove(normalizedPacketKey, rulesByProtocol);
-        }
-        return removed;
+    public synchronized boolean removePacketVersion(String packetKey, int protocolVersion) {
+        PacketMatrix current = matrix;
+        matrix = current.withoutRule(normalizePacketKey(packetKey), protocolVersion);
+        return matrix != current;
     }
 
     @Override
     public Map<String, Set<PacketVersionRule>> getPacketVersionMatrix() {
-        Map<String, Set<PacketVersionRule>> snapshot = new ConcurrentHashMap<>();
-        for (Map.Entry<String, Map<Integer, PacketVersionRule>> entry : packetVersions.entrySet()) {
-            snapshot.put(entry.getKey(), Set.copyOf(entry.getValue().values()));
-        }
-        return Map.copyOf(snapshot);
+        return matrix.view();
+    }
+
+    /**
+     * @return the current protocols and packet rules as one consistent snapshot
+     */
+    public PacketMatrix getPacketMatrix() {
+        return matrix;
+    }
+
+    public LimboSpawn getSpawn() {
+        return spawn;
+    }
+
+    /**
+     * Replaces the protocols, packet rules and spawn with those of the profile. Connected players stay;
+     * the new spawn applies to players entering afterwards.
+     */
+    public synchronized void applyProfile(ServerProfile profile) {
+        Objects.requireNonNull(profile, "profile");
+        matrix = profile.matrix();
+        spawn = profile.spawn();
     }
 
     @Override
@@ -2,58 +2,69 @@ package io.github.zapolyarnydev.proxyvirtualizer.plugin.server;
 
 import com.velocitypowered.api.proxy.Player;
 import com.velocitypowered.api.proxy.ProxyServer;
-import com.velocitypowered.api.network.ProtocolVersion;
 import io.github.zapolyarnydev.proxyvirtualizer.api.connector.ConnectionStorage;
 import io.github.zapolyarnydev.proxyvirtualizer.api.connector.Connector;
 import io.github.zapolyarnydev.proxyvirtualizer.api.exception.VirtualServerAlreadyLaunchedException;
 import io.github.zapolyarnydev.proxyvirtualizer.api.registry.ServerContainer;
 import io.github.zapolyarnydev.proxyvirtualizer.api.server.Launcher;
 import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer;
-import io.github.zapolyarnydev.proxyvirtualizer.plugin.packet.VirtualPacketKeys;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.command.DefaultVirtualCommandRouter;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.server.profile.ServerProfile;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.server.tick.TickScheduler;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.signal.DefaultSignalBus;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.world.DefaultWorldManager;
 
 import java.util.Objects;
 
 public final class DefaultVirtualServerLauncher implements Launcher {
-    private static final int PACKET_ID_GAME_EVENT_1_21_4 = 0x23;
-    private static final int PACKET_ID_PLAYER_POSITION_1_21_4 = 0x42;
-
     private final Object lock = new Object();
     private final ProxyServer proxyServer;
     private final ServerContainer serverContainer;
     private final ConnectionStorage connectionStorage;
     private final Connector connector;
+    private final TickScheduler tickScheduler;
+    private final DefaultWorldManager worldManager;
+    private final DefaultVirtualCommandRouter commandRouter;
+    private final DefaultSignalBus signalBus;
 
     public DefaultVirtualServerLauncher(
             ProxyServer proxyServer,
             ServerContainer serverContainer,
             ConnectionStorage connectionStorage,
-            Connector connector
+            Connector connector,
+            TickScheduler tickScheduler,
+            DefaultWorldManager worldManager,
+            DefaultVirtualCommandRouter commandRouter,
+            DefaultSignalBus signalBus
     ) {
         this.proxyServer = Objects.requireNonNull(proxyServer, "proxyServer");
         this.serverContainer = Objects.requireNonNull(serverContainer, "serverContainer");
         this.connectionStorage = Objects.requireNonNull(connectionStorage, "connectionStorage");
         this.connector = Objects.requireNonNull(connector, "connector");
+        this.tickScheduler = Objects.requireNonNull(tickScheduler, "tickScheduler");
+        this.worldManager = Objects.requireNonNull(worldManager, "worldManager");
+        this.commandRouter = Objects.requireNonNull(commandRouter, "commandRouter");
+        this.signalBus = Objects.requireNonNull(signalBus, "signalBus");
     }
 
     @Override
     public VirtualServer launch(String name) throws VirtualServerAlreadyLaunchedException {
+        return launch(ServerProfile.defaults(name));
+    }
+
+    /**
+     * Launches a virtual server with the protocols, packet rules and spawn of the profile. The world of
+     * the profile is not loaded here.
+     */
+    public DefaultVirtualServer launch(ServerProfile profile) throws VirtualServerAlreadyLaunchedException {
+        Objects.requireNonNull(profile, "profile");
         synchronized (lock) {
-            if (serverContainer.findServerByName(name).isPresent()) {
-                throw new VirtualServerAlreadyLaunchedException("Virtual server already launched: " + name);
+            if (serverContainer.findServerByName(profile.name()).isPresent()) {
+                throw new VirtualServerAlreadyLaunchedException("Virtual server already launched: " + profile.name());
             }
 
-            VirtualServer virtualServer = new DefaultVirtualServer(name);
-            int targetProtocol = ProtocolVersion.MINECRAFT_1_21_4.getProtocol();
-            virtualServer.allowProtocolVersion(targetProtocol);
-            virtualServer.registerPacketVersion(VirtualPacketKeys.LIMBO_BOOTSTRAP, targetProtocol, 1);
-            virtualServer.registerPacketVersion(VirtualPacketKeys.GAME_EVENT, targetProtocol, PACKET_ID_GAME_EVENT_1_21_4);
-            virtualServer.registerPacketVersion(VirtualPacketKeys.PLAYER_POSITION, targetProtocol, PACKET_ID_PLAYER_POSITION_1_21_4);
-            virtualServer.registerPacketVersion(VirtualPacketKeys.RESPAWN, targetProtocol, 1);
-            virtualServer.registerPacketVersion(VirtualPacketKeys.KEEP_ALIVE, targetProtocol, 1);
-            virtualServer.registerPacketVersion(VirtualPacketKeys.CHAT, targetProtocol, 1);
-            virtualServer.registerPacketVersion(VirtualPacketKeys.ACTION_BAR, targetProtocol, 1);
-            virtualServer.registerPacketVersion(VirtualPacketKeys.TITLE, targetProtocol, 1);
-            virtualServer.registerPacketVersion(VirtualPacketKeys.DISCONNECT, targetProtocol, 1);
+            DefaultVirtualServer virtualServer = new DefaultVirtualServer(profile.name(), tickScheduler, signalBus);
+            virtualServer.applyProfile(profile);
             serverContainer.register(virtualServer);
             return virtualServer;
         }
@@ -80,6 +91,10 @@ public final class DefaultVirtualServerLauncher implements Launcher {
                 connector.sendToPreviousServer(player);
             }
 
+            worldManager.unload(virtualServer);
+            commandRouter.unregisterAll(virtualServer);
+            signalBus.closeScope(virtualServer);
+            virtualServer.getTicker().stop();
             serverContainer.remove(virtualServer);
         }
     }
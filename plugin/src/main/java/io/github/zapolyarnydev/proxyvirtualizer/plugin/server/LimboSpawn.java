@@ -0,0 +1,26 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.server;
+
+/**
+ * Position and rotation a player is placed at when entering a virtual server. Limbo chunks are sent
+ * around the chunk of the position.
+ */
+public record LimboSpawn(double x, double y, double z, float yaw, float pitch) {
+    public static final LimboSpawn DEFAULT = new LimboSpawn(0.0D, 1024.0D, 0.0D, 0.0F, 0.0F);
+
+    public LimboSpawn {
+        if (!Double.isFinite(x) || !Double.isFinite(y) || !Double.isFinite(z)) {
+            throw new IllegalArgumentException("Spawn position must be finite");
+        }
+        if (!Float.isFinite(yaw) || !Float.isFinite(pitch)) {
+            throw new IllegalArgumentException("Spawn rotation must be finite");
+        }
+    }
+
+    public int chunkX() {
+        return (int) Math.floor(x) >> 4;
+    }
+
+    public int chunkZ() {
+        return (int) Math.floor(z) >> 4;
+    }
+}
@@ -0,0 +1,123 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.server;
+
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer.PacketVersionRule;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Immutable protocol versions and packet version rules of a virtual server. A change produces a new
+ * matrix, so a server swaps its whole matrix with a single write and readers never see half of an edit.
+ * The per-key view returned by {@link #view()} is built once with the matrix.
+ */
+public final class PacketMatrix {
+    public static final PacketMatrix EMPTY = new PacketMatrix(Set.of(), Map.of());
+
+    private final Set<Integer> protocols;
+    private final Map<String, Map<Integer, PacketVersionRule>> rules;
+    private final Map<String, Set<PacketVersionRule>> view;
+
+    private PacketMatrix(Set<Integer> protocols, Map<String, Map<Integer, PacketVersionRule>> rules) {
+        this.protocols = Set.copyOf(protocols);
+        Map<String, Map<Integer, PacketVersionRule>> copiedRules = new HashMap<>();
+        Map<String, Set<PacketVersionRule>> copiedView = new HashMap<>();
+        for (Map.Entry<String, Map<Integer, PacketVersionRule>> entry : rules.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                copiedRules.put(entry.getKey(), Map.copyOf(entry.getValue()));
+                copiedView.put(entry.getKey(), Set.copyOf(entry.getValue().values()));
+            }
+        }
+        this.rules = Map.copyOf(copiedRules);
+        this.view = Map.copyOf(copiedView);
+    }
+
+    public static PacketMatrix of(Collection<Integer> protocols, Collection<PacketVersionRule> rules) {
+        Map<String, Map<Integer, PacketVersionRule>> byKey = new HashMap<>();
+        for (PacketVersionRule rule : rules) {
+            byKey.computeIfAbsent(rule.packetKey(), ignored -> new HashMap<>()).put(rule.protocolVersion(), rule);
+        }
+        return new PacketMatrix(new HashSet<>(protocols), byKey);
+    }
+
+    /**
+     * @return allowed protocol versions; an empty set allows every version
+     */
+    public Set<Integer> protocols() {
+        return protocols;
+    }
+
+    public boolean supports(int protocolVersion) {
+        return protocols.isEmpty() || protocols.contains(protocolVersion);
+    }
+
+    public Optional<PacketVersionRule> rule(String packetKey, int protocolVersion) {
+        Map<Integer, PacketVersionRule> byProtocol = rules.get(packetKey);
+        return byProtocol == null ? Optional.empty() : Optional.ofNullable(byProtocol.get(protocolVersion));
+    }
+
+    /**
+     * @return whether any protocol version has a rule for the packet key
+     */
+    public boolean hasRules(String packetKey) {
+        return rules.containsKey(packetKey);
+    }
+
+    public Map<String, Set<PacketVersionRule>> view() {
+        return view;
+    }
+
+    public PacketMatrix withProtocol(int protocolVersion) {
+        if (protocols.contains(protocolVersion)) {
+            return this;
+        }
+        Set<Integer> changed = new HashSet<>(protocols);
+        changed.add(protocolVersion);
+        return new PacketMatrix(changed, rules);
+    }
+
+    public PacketMatrix withoutProtocol(int protocolVersion) {
+        if (!protocols.contains(protocolVersion)) {
+            return this;
+        }
+        Set<Integer> changed = new HashSet<>(protocols);
+        changed.remove(protocolVersion);
+        return new PacketMatrix(changed, rules);
+    }
+
+    public PacketMatrix withRule(PacketVersionRule rule) {
+        Map<String, Map<Integer, PacketVersionRule>> changed = new HashMap<>(rules);
+        Map<Integer, PacketVersionRule> byProtocol = new HashMap<>(changed.getOrDefault(rule.packetKey(), Map.of()));
+        byProtocol.put(rule.protocolVersion(), rule);
+        changed.put(rule.packetKey(), byProtocol);
+        return new PacketMatrix(protocols, changed);
+    }
+
+    public PacketMatrix withoutRule(String packetKey, int protocolVersion) {
+        Map<Integer, PacketVersionRule> current = rules.get(packetKey);
+        if (current == null || !current.containsKey(protocolVersion)) {
+            return this;
+        }
+        Map<String, Map<Integer, PacketVersionRule>> changed = new HashMap<>(rules);
+        Map<Integer, PacketVersionRule> byProtocol = new HashMap<>(current);
+        byProtocol.remove(protocolVersion);
+        changed.put(packetKey, byProtocol);
+        return new PacketMatrix(protocols, changed);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        return object instanceof PacketMatrix that && protocols.equals(that.protocols) && rules.equals(that.rules);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * protocols.hashCode() + rules.hashCode();
+    }
+}
@@ -0,0 +1,74 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.server.profile;
+
+import com.velocitypowered.api.network.ProtocolVersion;
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer.PacketVersionRule;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.packet.VirtualPacketKeys;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.server.LimboSpawn;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.server.PacketMatrix;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Immutable definition of a virtual server: its allowed protocols and packet version rules, the limbo
+ * spawn and an optional world source.
+ *
+ * @param world world source relative to {@code worlds/}, or {@code null} for the plain limbo
+ */
+public record ServerProfile(String name, PacketMatrix matrix, LimboSpawn spawn, String world) {
+    private static final int PACKET_ID_GAME_EVENT_1_21_4 = 0x23;
+    private static final int PACKET_ID_PLAYER_POSITION_1_21_4 = 0x42;
+    private static final int PACKET_ID_CHUNK_DATA_1_21_4 = 0x28;
+    private static final int PACKET_ID_CHUNK_BATCH_START_1_21_4 = 0x0D;
+    private static final int PACKET_ID_CHUNK_BATCH_FINISHED_1_21_4 = 0x0C;
+    private static final int PACKET_ID_CHUNK_CACHE_CENTER_1_21_4 = 0x58;
+    private static final int PACKET_ID_FORGET_LEVEL_CHUNK_1_21_4 = 0x22;
+
+    private static final PacketMatrix DEFAULT_MATRIX = createDefaultMatrix();
+
+    public ServerProfile {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Virtual server name cannot be blank");
+        }
+        Objects.requireNonNull(matrix, "matrix");
+        Objects.requireNonNull(spawn, "spawn");
+        if (world != null && world.isBlank()) {
+            world = null;
+        }
+    }
+
+    /**
+     * @return profile of a server launched without a definition: protocol 1.21.4 with the built-in
+     * packet ids, the default spawn and no world
+     */
+    public static ServerProfile defaults(String name) {
+        return new ServerProfile(name, DEFAULT_MATRIX, LimboSpawn.DEFAULT, null);
+    }
+
+    /**
+     * @return the protocols and packet ids the limbo ships with
+     */
+    public static PacketMatrix defaultMatrix() {
+        return DEFAULT_MATRIX;
+    }
+
+    private static PacketMatrix createDefaultMatrix() {
+        int protocol = ProtocolVersion.MINECRAFT_1_21_4.getProtocol();
+        return PacketMatrix.of(List.of(protocol), List.of(
+                new PacketVersionRule(VirtualPacketKeys.LIMBO_BOOTSTRAP, protocol, 1),
+                new PacketVersionRule(VirtualPacketKeys.GAME_EVENT, protocol, PACKET_ID_GAME_EVENT_1_21_4),
+                new PacketVersionRule(VirtualPacketKeys.PLAYER_POSITION, protocol, PACKET_ID_PLAYER_POSITION_1_21_4),
+                new PacketVersionRule(VirtualPacketKeys.CHUNK_DATA, protocol, PACKET_ID_CHUNK_DATA_1_21_4),
+                new PacketVersionRule(VirtualPacketKeys.CHUNK_BATCH_START, protocol, PACKET_ID_CHUNK_BATCH_START_1_21_4),
+                new PacketVersionRule(VirtualPacketKeys.CHUNK_BATCH_FINISHED, protocol, PACKET_ID_CHUNK_BATCH_FINISHED_1_21_4),
+                new PacketVersionRule(VirtualPacketKeys.CHUNK_CACHE_CENTER, protocol, PACKET_ID_CHUNK_CACHE_CENTER_1_21_4),
+                new PacketVersionRule(VirtualPacketKeys.FORGET_LEVEL_CHUNK, protocol, PACKET_ID_FORGET_LEVEL_CHUNK_1_21_4),
+                new PacketVersionRule(VirtualPacketKeys.RESPAWN, protocol, 1),
+                new PacketVersionRule(VirtualPacketKeys.KEEP_ALIVE, protocol, 1),
+                new PacketVersionRule(VirtualPacketKeys.CHAT, protocol, 1),
+                new PacketVersionRule(VirtualPacketKeys.ACTION_BAR, protocol, 1),
+                new PacketVersionRule(VirtualPacketKeys.TITLE, protocol, 1),
+                new PacketVersionRule(VirtualPacketKeys.DISCONNECT, protocol, 1)
+        ));
+    }
+}
@@ -0,0 +1,204 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.server.profile;
+
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer.PacketVersionRule;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.server.LimboSpawn;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.server.PacketMatrix;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Compiles {@code servers.properties} into immutable {@link ServerProfile}s.
+ * <p>
+ * Every error is collected with the key it concerns, and a server with errors is left out of the result.
+ */
+final class ServerProfileCompiler {
+    static final String SERVERS_KEY = "servers";
+    static final String SERVER_PREFIX = "server.";
+
+    private static final String PROTOCOLS = "protocols";
+    private static final String DEFAULT_PACKETS = "default-packets";
+    private static final String PACKET_PREFIX = "packet.";
+    private static final String SPAWN = "spawn";
+    private static final String WORLD = "world";
+    private static final String PACKET_OFF = "off";
+
+    private ServerProfileCompiler() {
+    }
+
+    static Result compile(Properties properties) {
+        List<String> errors = new ArrayList<>();
+        Map<String, String> names = new LinkedHashMap<>();
+        for (String value : properties.getProperty(SERVERS_KEY, "").split(",")) {
+            String name = value.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (name.indexOf('.') >= 0 || name.chars().anyMatch(Character::isWhitespace)) {
+                errors.add(SERVERS_KEY + ": server name '" + name + "' must not contain dots or spaces");
+            } else if (names.putIfAbsent(normalize(name), name) != null) {
+                errors.add(SERVERS_KEY + ": server '" + name + "' is listed twice");
+            }
+        }
+
+        Map<String, Map<String, String>> settingsByServer = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (!key.startsWith(SERVER_PREFIX)) {
+                if (!key.equals(SERVERS_KEY)) {
+                    errors.add(key + ": unknown key");
+                }
+                continue;
+            }
+            String rest = key.substring(SERVER_PREFIX.length());
+            int dot = rest.indexOf('.');
+            String name = dot < 0 ? rest : rest.substring(0, dot);
+            if (dot < 0 || !names.containsValue(name)) {
+                errors.add(key + ": server '" + name + "' is not listed in " + SERVERS_KEY);
+                continue;
+            }
+            settingsByServer.computeIfAbsent(name, ignored -> new HashMap<>())
+                    .put(rest.substring(dot + 1), properties.getProperty(key).trim());
+        }
+
+        Map<String, ServerProfile> profiles = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : names.entrySet()) {
+            String name = entry.getValue();
+            int errorsBefore = errors.size();
+            ServerProfile profile = compileServer(name, settingsByServer.getOrDefault(name, Map.of()), errors);
+            if (errors.size() == errorsBefore) {
+                profiles.put(entry.getKey(), profile);
+            }
+        }
+        return new Result(profiles, errors);
+    }
+
+    private static ServerProfile compileServer(String name, Map<String, String> settings, List<String> errors) {
+        String prefix = SERVER_PREFIX + name + ".";
+        PacketMatrix defaults = ServerProfile.defaultMatrix();
+        boolean defaultPackets = true;
+        String defaultPacketsValue = settings.get(DEFAULT_PACKETS);
+        if (defaultPacketsValue != null) {
+            if (defaultPacketsValue.equalsIgnoreCase("true") || defaultPacketsValue.equalsIgnoreCase("false")) {
+                defaultPackets = Boolean.parseBoolean(defaultPacketsValue);
+            } else {
+                errors.add(prefix + DEFAULT_PACKETS + ": expected true or false");
+            }
+        }
+
+        Set<Integer> protocols = new LinkedHashSet<>(defaultPackets ? defaults.protocols() : Set.of());
+        String protocolsValue = settings.get(PROTOCOLS);
+        if (protocolsValue != null) {
+            protocols.clear();
+            for (String value : protocolsValue.split(",")) {
+                if (value.isBlank()) {
+                    continue;
+                }
+                try {
+                    protocols.add(Integer.parseInt(value.trim()));
+                } catch (NumberFormatException exception) {
+                    errors.add(prefix + PROTOCOLS + ": '" + value.trim() + "' is not a protocol number");
+                }
+            }
+        }
+
+        Map<String, PacketVersionRule> rules = new LinkedHashMap<>();
+        if (defaultPackets) {
+            for (Set<PacketVersionRule> packetRules : defaults.view().values()) {
+                for (PacketVersionRule rule : packetRules) {
+                    rules.put(rule.packetKey() + "." + rule.protocolVersion(), rule);
+                }
+            }
+        }
+
+        LimboSpawn spawn = LimboSpawn.DEFAULT;
+        String world = null;
+        for (Map.Entry<String, String> setting : settings.entrySet()) {
+            String key = setting.getKey();
+            String value = setting.getValue();
+            switch (key) {
+                case PROTOCOLS, DEFAULT_PACKETS -> {
+                }
+                case SPAWN -> {
+                    LimboSpawn parsed = parseSpawn(value);
+                    if (parsed == null) {
+                        errors.add(prefix + SPAWN + ": expected x,y,z or x,y,z,yaw,pitch");
+                    } else {
+                        spawn = parsed;
+                    }
+                }
+                case WORLD -> world = value;
+                default -> {
+                    if (!key.startsWith(PACKET_PREFIX)) {
+                        errors.add(prefix + key + ": unknown key");
+                        continue;
+                    }
+                    String packet = key.substring(PACKET_PREFIX.length());
+                    int dot = packet.lastIndexOf('.');
+                    Integer protocol = dot <= 0 ? null : parseInt(packet.substring(dot + 1));
+                    if (protocol == null) {
+                        errors.add(prefix + key + ": expected " + PACKET_PREFIX + "<packet key>.<protocol>");
+                        continue;
+                    }
+                    String packetKey = packet.substring(0, dot);
+                    if (value.equalsIgnoreCase(PACKET_OFF)) {
+                        rules.remove(packet);
+                        continue;
+                    }
+                    Integer packetVersion = parseInt(value);
+                    if (packetVersion == null) {
+                        errors.add(prefix + key + ": expected a packet id or '" + PACKET_OFF + "'");
+                        continue;
+                    }
+                    rules.put(packet, new PacketVersionRule(packetKey, protocol, packetVersion));
+                }
+            }
+        }
+        return new ServerProfile(name, PacketMatrix.of(protocols, rules.values()), spawn, world);
+    }
+
+    private static LimboSpawn parseSpawn(String value) {
+        String[] parts = value.split(",");
+        if (parts.length != 3 && parts.length != 5) {
+            return null;
+        }
+        try {
+            double x = Double.parseDouble(parts[0].trim());
+            double y = Double.parseDouble(parts[1].trim());
+            double z = Double.parseDouble(parts[2].trim());
+            float yaw = parts.length == 5 ? Float.parseFloat(parts[3].trim()) : 0.0F;
+            float pitch = parts.length == 5 ? Float.parseFloat(parts[4].trim()) : 0.0F;
+            return new LimboSpawn(x, y, z, yaw, pitch);
+        } catch (IllegalArgumentException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Accepts decimal and {@code 0x} prefixed hexadecimal numbers.
+     */
+    private static Integer parseInt(String value) {
+        try {
+            return Integer.decode(value.trim());
+        } catch (NumberFormatException exception) {
+            return null;
+        }
+    }
+
+    static String normalize(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @param profiles compiled profiles keyed by lower-case server name, in file order
+     * @param errors   problems found, each prefixed with its key
+     */
+    record Result(Map<String, ServerProfile> profiles, List<String> errors) {
+    }
+}
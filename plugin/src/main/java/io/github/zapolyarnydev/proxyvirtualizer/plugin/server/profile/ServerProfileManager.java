@@ -0,0 +1,320 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.server.profile;
+
+import io.github.zapolyarnydev.proxyvirtualizer.api.registry.ServerContainer;
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.server.DefaultVirtualServer;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.server.DefaultVirtualServerLauncher;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.world.DefaultWorldManager;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the virtual servers defined in {@code servers.properties}.
+ * <p>
+ * The file is compiled into immutable {@link ServerProfile}s on startup and every time it changes. The
+ * new profiles are compared with the applied ones: new servers are launched in parallel, changed ones
+ * get the new profile swapped in at once without losing their players, and servers removed from the file
+ * are stopped. A reload whose file has errors changes nothing. Servers launched by other means are left
+ * alone unless the file names them.
+ */
+public final class ServerProfileManager {
+    public static final String FILE_NAME = "servers.properties";
+
+    private final DefaultVirtualServerLauncher launcher;
+    private final ServerContainer serverContainer;
+    private final DefaultWorldManager worldManager;
+    private final ServerProfileSettings settings;
+    private final Path dataDirectory;
+    private final Logger logger;
+    private final AtomicInteger threadSequence = new AtomicInteger();
+    private final Object reloadLock = new Object();
+    private volatile Map<String, ServerProfile> profiles = Map.of();
+    private volatile WatchService watchService;
+
+    public ServerProfileManager(
+            DefaultVirtualServerLauncher launcher,
+            ServerContainer serverContainer,
+            DefaultWorldManager worldManager,
+            ServerProfileSettings settings,
+            Path dataDirectory,
+            Logger logger
+    ) {
+        this.launcher = Objects.requireNonNull(launcher, "launcher");
+        this.serverContainer = Objects.requireNonNull(serverContainer, "serverContainer");
+        this.worldManager = Objects.requireNonNull(worldManager, "worldManager");
+        this.settings = Objects.requireNonNull(settings, "settings");
+        this.dataDirectory = dataDirectory;
+        this.logger = Objects.requireNonNull(logger, "logger");
+    }
+
+    /**
+     * Launches the defined servers, skipping those with errors, and starts watching the file.
+     */
+    public void start() {
+        if (dataDirectory == null) {
+            return;
+        }
+        Path file = dataDirectory.resolve(FILE_NAME);
+        try {
+            if (Files.notExists(file)) {
+                Files.createDirectories(dataDirectory);
+                try (InputStream defaults = ServerProfileManager.class.getClassLoader().getResourceAsStream(FILE_NAME)) {
+                    if (defaults != null) {
+                        Files.copy(defaults, file);
+                    }
+                }
+            }
+        } catch (IOException exception) {
+            logger.warn("Unable to create {}", file, exception);
+        }
+
+        ServerProfileCompiler.Result result = compile(file);
+        if (result != null) {
+            synchronized (reloadLock) {
+                apply(result.profiles());
+            }
+        }
+        if (settings.watch()) {
+            startWatcher();
+        }
+    }
+
+    /**
+     * Compiles the file again and applies the difference to the running servers.
+     *
+     * @return {@code false} if the file could not be read or has errors, in which case nothing changed
+     */
+    public boolean reload() {
+        if (dataDirectory == null) {
+            return false;
+        }
+        ServerProfileCompiler.Result result = compile(dataDirectory.resolve(FILE_NAME));
+        if (result == null || !result.errors().isEmpty()) {
+            logger.warn("{} was not applied, the running servers are unchanged", FILE_NAME);
+            return false;
+        }
+        synchronized (reloadLock) {
+            apply(result.profiles());
+        }
+        return true;
+    }
+
+    /**
+     * @return applied profiles keyed by lower-case server name
+     */
+    public Map<String, ServerProfile> getProfiles() {
+        return profiles;
+    }
+
+    public void shutdown() {
+        WatchService current = watchService;
+        watchService = null;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException exception) {
+                logger.debug("Unable to close the {} watcher", FILE_NAME, exception);
+            }
+        }
+    }
+
+    private ServerProfileCompiler.Result compile(Path file) {
+        Properties properties = new Properties();
+        try {
+            if (Files.exists(file)) {
+                try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    properties.load(reader);
+                }
+            }
+        } catch (IOException | IllegalArgumentException exception) {
+            logger.warn("Unable to read {}", file, exception);
+            return null;
+        }
+
+        ServerProfileCompiler.Result result = ServerProfileCompiler.compile(properties);
+        for (String error : result.errors()) {
+            logger.warn("{}: {}", FILE_NAME, error);
+        }
+        return result;
+    }
+
+    private void apply(Map<String, ServerProfile> next) {
+        Map<String, ServerProfile> previous = profiles;
+        int stopped = 0;
+        for (Map.Entry<String, ServerProfile> entry : previous.entrySet()) {
+            if (!next.containsKey(entry.getKey())) {
+                launcher.stop(entry.getValue().name());
+                stopped++;
+            }
+        }
+
+        List<ServerProfile> launches = new ArrayList<>();
+        int updated = 0;
+        for (Map.Entry<String, ServerProfile> entry : next.entrySet()) {
+            ServerProfile profile = entry.getValue();
+            ServerProfile applied = previous.get(entry.getKey());
+            Optional<VirtualServer> running = serverContainer.findServerByName(profile.name());
+            if (running.isEmpty()) {
+                launches.add(profile);
+                continue;
+            }
+            if (profile.equals(applied) || !(running.get() instanceof DefaultVirtualServer server)) {
+                continue;
+            }
+            server.applyProfile(profile);
+            if (applied == null || !Objects.equals(applied.world(), profile.world())) {
+                applyWorld(server, profile);
+            }
+            updated++;
+        }
+
+        int launched = launchAll(launches);
+        profiles = Map.copyOf(next);
+        if (launched + updated + stopped > 0) {
+            logger.info(
+                    "Applied {}: {} servers launched, {} updated, {} stopped",
+                    FILE_NAME,
+                    launched,
+                    updated,
+                    stopped
+            );
+        }
+    }
+
+    /**
+     * Launches the servers on a short-lived pool, so that their worlds load side by side.
+     *
+     * @return number of servers that were launched
+     */
+    private int launchAll(List<ServerProfile> launches) {
+        int threads = Math.min(settings.launchThreads(), launches.size());
+        if (threads <= 1) {
+            int launched = 0;
+            for (ServerProfile profile : launches) {
+                launched += launch(profile) ? 1 : 0;
+            }
+            return launched;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "proxyvirtualizer-server-launch-" + threadSequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<CompletableFuture<Boolean>> futures = new ArrayList<>(launches.size());
+            for (ServerProfile profile : launches) {
+                futures.add(CompletableFuture.supplyAsync(() -> launch(profile), executor));
+            }
+            int launched = 0;
+            for (CompletableFuture<Boolean> future : futures) {
+                launched += future.join() ? 1 : 0;
+            }
+            return launched;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private boolean launch(ServerProfile profile) {
+        DefaultVirtualServer server;
+        try {
+            server = launcher.launch(profile);
+        } catch (RuntimeException exception) {
+            logger.warn("Unable to launch virtual server {}", profile.name(), exception);
+            return false;
+        }
+        if (profile.world() != null) {
+            applyWorld(server, profile);
+        }
+        return true;
+    }
+
+    private void applyWorld(DefaultVirtualServer server, ServerProfile profile) {
+        if (profile.world() == null) {
+            worldManager.unload(server);
+            return;
+        }
+        try {
+            worldManager.load(server, Path.of(profile.world()));
+        } catch (IOException | RuntimeException exception) {
+            logger.warn("Unable to load world {} into virtual server {}", profile.world(), profile.name(), exception);
+        }
+    }
+
+    private void startWatcher() {
+        try {
+            WatchService service = dataDirectory.getFileSystem().newWatchService();
+            dataDirectory.register(
+                    service,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY
+            );
+            watchService = service;
+        } catch (IOException | UnsupportedOperationException exception) {
+            logger.warn("Unable to watch {}, changes apply after a restart", FILE_NAME, exception);
+            return;
+        }
+        Thread thread = new Thread(this::watch, "proxyvirtualizer-server-profiles");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void watch() {
+        long delayMillis = settings.reloadDelay().toMillis();
+        try {
+            while (true) {
+                WatchService service = watchService;
+                if (service == null) {
+                    return;
+                }
+                if (!touchesFile(service.take())) {
+                    continue;
+                }
+                // Editors often write a file in several steps; wait until it has been quiet for a while.
+                WatchKey key;
+                while ((key = service.poll(delayMillis, TimeUnit.MILLISECONDS)) != null) {
+                    touchesFile(key);
+                }
+                reload();
+            }
+        } catch (ClosedWatchServiceException | InterruptedException ignored) {
+            // Shutting down.
+        } catch (RuntimeException exception) {
+            logger.warn("{} watcher stopped, changes apply after a restart", FILE_NAME, exception);
+        }
+    }
+
+    private static boolean touchesFile(WatchKey key) {
+        boolean touched = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || FILE_NAME.equals(String.valueOf(event.context()))) {
+                touched = true;
+            }
+        }
+        key.reset();
+        return touched;
+    }
+}
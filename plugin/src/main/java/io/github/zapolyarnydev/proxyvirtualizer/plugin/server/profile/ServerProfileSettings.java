@@ -0,0 +1,28 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.server.profile;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Loading of virtual server definitions from {@code servers.properties}.
+ *
+ * @param watch         whether edits to the file are applied while the proxy runs
+ * @param reloadDelay   quiet period after the last change of the file before it is reloaded
+ * @param launchThreads threads launching servers and loading their worlds in parallel
+ */
+public record ServerProfileSettings(boolean watch, Duration reloadDelay, int launchThreads) {
+    public static final boolean DEFAULT_WATCH = true;
+    public static final Duration DEFAULT_RELOAD_DELAY = Duration.ofMillis(500);
+    public static final int DEFAULT_LAUNCH_THREADS = 4;
+
+    public ServerProfileSettings {
+        Objects.requireNonNull(reloadDelay, "reloadDelay");
+        if (launchThreads < 1) {
+            throw new IllegalArgumentException("Server launch threads must be positive");
+        }
+    }
+
+    public static ServerProfileSettings defaults() {
+        return new ServerProfileSettings(DEFAULT_WATCH, DEFAULT_RELOAD_DELAY, DEFAULT_LAUNCH_THREADS);
+    }
+}
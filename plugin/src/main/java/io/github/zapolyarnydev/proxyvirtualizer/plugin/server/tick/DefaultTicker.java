@@ -0,0 +1,276 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.server.tick;
+
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.tick.TickMetrics;
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.tick.TickTask;
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.tick.TickTaskHandle;
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.tick.Ticker;
+import org.slf4j.Logger;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+final class DefaultTicker implements Ticker {
+    private static final double NANOS_PER_MILLI = 1_000_000.0D;
+    private static final int AVERAGE_WINDOW = 16;
+    private static final TaskEntry[] NO_TASKS = new TaskEntry[0];
+
+    private final String name;
+    private final TickScheduler scheduler;
+    private final int budgetPercent;
+    private final Logger logger;
+    private final Object lock = new Object();
+    // Set while tasks run, so a restarted schedule cannot overlap a tick still in progress.
+    private final AtomicBoolean ticking = new AtomicBoolean();
+
+    private volatile int targetTps;
+    // Replaced under lock; a tick runs the array it read at its start.
+    private volatile TaskEntry[] tasks = NO_TASKS;
+
+    // Guarded by lock.
+    private ScheduledFuture<?> future;
+    private long generation;
+    private long periodNanos;
+    private long budgetNanos;
+    private long startNanos;
+    private long scheduledSlot;
+    private long tickNumber;
+    private int cursor;
+    private long lastStartNanos;
+    private double averageIntervalNanos;
+
+    private volatile long tickCount;
+    private volatile long overrunCount;
+    private volatile long skippedTicks;
+    private volatile long deferredTasks;
+    private volatile double averageTickNanos;
+    private volatile long maxTickNanos;
+    private volatile long lastLagNanos;
+    private volatile double measuredTps;
+
+    DefaultTicker(String name, TickScheduler scheduler, int targetTps, int budgetPercent, Logger logger) {
+        this.name = Objects.requireNonNull(name, "name");
+        this.scheduler = Objects.requireNonNull(scheduler, "scheduler");
+        this.targetTps = targetTps;
+        this.budgetPercent = budgetPercent;
+        this.logger = Objects.requireNonNull(logger, "logger");
+    }
+
+    @Override
+    public TickTaskHandle register(TickTask task) {
+        Objects.requireNonNull(task, "task");
+        TaskEntry entry = new TaskEntry(task);
+        synchronized (lock) {
+            TaskEntry[] current = tasks;
+            TaskEntry[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = entry;
+            tasks = grown;
+        }
+        return entry;
+    }
+
+    @Override
+    public void start() {
+        synchronized (lock) {
+            if (future != null) {
+                return;
+            }
+            long currentGeneration = ++generation;
+            periodNanos = TimeUnit.SECONDS.toNanos(1) / targetTps;
+            budgetNanos = periodNanos * budgetPercent / 100;
+            long phase = scheduler.nextPhase(periodNanos);
+            startNanos = System.nanoTime() + phase;
+            scheduledSlot = 0L;
+            lastStartNanos = 0L;
+            averageIntervalNanos = periodNanos;
+            future = scheduler.schedule(() -> runTick(currentGeneration), phase, periodNanos);
+        }
+    }
+
+    @Override
+    public void stop() {
+        synchronized (lock) {
+            if (future == null) {
+                return;
+            }
+            generation++;
+            future.cancel(false);
+            future = null;
+            measuredTps = 0.0D;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        synchronized (lock) {
+            return future != null;
+        }
+    }
+
+    @Override
+    public int getTargetTps() {
+        return targetTps;
+    }
+
+    @Override
+    public void setTargetTps(int targetTps) {
+        if (targetTps < 1 || targetTps > TickSettings.MAX_TPS) {
+            throw new IllegalArgumentException("Tick rate must be between 1 and " + TickSettings.MAX_TPS);
+        }
+        synchronized (lock) {
+            this.targetTps = targetTps;
+            if (future != null) {
+                stop();
+                start();
+            }
+        }
+    }
+
+    @Override
+    public TickMetrics getMetrics() {
+        return new TickMetrics(
+                tickCount,
+                overrunCount,
+                skippedTicks,
+                deferredTasks,
+                averageTickNanos / NANOS_PER_MILLI,
+                maxTickNanos / NANOS_PER_MILLI,
+                lastLagNanos / NANOS_PER_MILLI,
+                measuredTps
+        );
+    }
+
+    /**
+     * Claims the next slot and snapshots the tasks under the lock, then runs them without holding it,
+     * so a slow task never blocks {@link #stop()}, {@link #setTargetTps(int)} or task registration.
+     */
+    private void runTick(long expectedGeneration) {
+        if (!ticking.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            tick(expectedGeneration);
+        } finally {
+            ticking.set(false);
+        }
+    }
+
+    private void tick(long expectedGeneration) {
+        long now;
+        long tick;
+        long period;
+        long budget;
+        TaskEntry[] due;
+        int start;
+        synchronized (lock) {
+            if (expectedGeneration != generation) {
+                return;
+            }
+
+            now = System.nanoTime();
+            long expectedStart = startNanos + scheduledSlot * periodNanos;
+            if (now < expectedStart) {
+                // Catch-up run for a slot that was already skipped.
+                return;
+            }
+
+            long lag = now - expectedStart;
+            if (lag >= periodNanos) {
+                long behind = lag / periodNanos;
+                skippedTicks += behind;
+                scheduledSlot += behind;
+                lag -= behind * periodNanos;
+            }
+            scheduledSlot++;
+            lastLagNanos = lag;
+
+            if (lastStartNanos != 0L) {
+                averageIntervalNanos += ((now - lastStartNanos) - averageIntervalNanos) / AVERAGE_WINDOW;
+                measuredTps = TimeUnit.SECONDS.toNanos(1) / Math.max(1.0D, averageIntervalNanos);
+            }
+            lastStartNanos = now;
+
+            tick = tickNumber++;
+            period = periodNanos;
+            budget = budgetNanos;
+            due = tasks;
+            start = cursor < due.length ? cursor : 0;
+        }
+
+        int executed = runTasks(due, start, tick, now, budget);
+
+        long duration = System.nanoTime() - now;
+        synchronized (lock) {
+            if (executed < due.length) {
+                deferredTasks += due.length - executed;
+                cursor = (start + executed) % due.length;
+            } else {
+                cursor = 0;
+            }
+            if (duration > period) {
+                overrunCount++;
+            }
+            if (duration > maxTickNanos) {
+                maxTickNanos = duration;
+            }
+            averageTickNanos += (duration - averageTickNanos) / AVERAGE_WINDOW;
+            tickCount++;
+        }
+    }
+
+    /**
+     * @return how many tasks ran before the budget was used up
+     */
+    private static int runTasks(TaskEntry[] due, int start, long tick, long tickStart, long budget) {
+        int size = due.length;
+        for (int executed = 0; executed < size; executed++) {
+            due[(start + executed) % size].run(tick);
+            if (executed + 1 < size && System.nanoTime() - tickStart >= budget) {
+                return executed + 1;
+            }
+        }
+        return size;
+    }
+
+    private final class TaskEntry implements TickTaskHandle {
+        private final TickTask task;
+        private final AtomicBoolean active = new AtomicBoolean(true);
+
+        private TaskEntry(TickTask task) {
+            this.task = task;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!active.compareAndSet(true, false)) {
+                return false;
+            }
+            synchronized (lock) {
+                TaskEntry[] current = tasks;
+                for (int i = 0; i < current.length; i++) {
+                    if (current[i] == this) {
+                        TaskEntry[] shrunk = new TaskEntry[current.length - 1];
+                        System.arraycopy(current, 0, shrunk, 0, i);
+                        System.arraycopy(current, i + 1, shrunk, i, current.length - i - 1);
+                        tasks = shrunk;
+                        break;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private void run(long tick) {
+            if (!active.get()) {
+                return;
+            }
+            try {
+                task.tick(tick);
+            } catch (Throwable throwable) {
+                logger.warn("Tick task failed in virtual server {}", name, throwable);
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.server.tick;
+
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.tick.Ticker;
+import org.slf4j.Logger;
+
+import java.util.Objects;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Small scheduler pool shared by the tickers of all virtual servers.
+ * <p>
+ * Tickers get a phase offset within their period so servers with the same rate do not all tick
+ * at the same instant.
+ */
+public final class TickScheduler {
+    private static final int PHASE_SLOTS = 8;
+
+    private final TickSettings settings;
+    private final Logger logger;
+    private final ScheduledThreadPoolExecutor executor;
+    private final AtomicInteger phaseSequence = new AtomicInteger();
+
+    public TickScheduler(TickSettings settings, Logger logger) {
+        this.settings = Objects.requireNonNull(settings, "settings");
+        this.logger = Objects.requireNonNull(logger, "logger");
+        AtomicInteger threadSequence = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(settings.threads(), runnable -> {
+            Thread thread = new Thread(runnable, "proxyvirtualizer-tick-" + threadSequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.setRemoveOnCancelPolicy(true);
+    }
+
+    public Ticker createTicker(String name) {
+        return new DefaultTicker(name, this, settings.defaultTps(), settings.budgetPercent(), logger);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    long nextPhase(long periodNanos) {
+        return periodNanos * (phaseSequence.getAndIncrement() % PHASE_SLOTS) / PHASE_SLOTS;
+    }
+
+    ScheduledFuture<?> schedule(Runnable tick, long initialDelayNanos, long periodNanos) {
+        return executor.scheduleAtFixedRate(tick, initialDelayNanos, periodNanos, TimeUnit.NANOSECONDS);
+    }
+}
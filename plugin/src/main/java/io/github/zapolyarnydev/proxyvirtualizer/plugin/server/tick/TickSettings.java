@@ -0,0 +1,31 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.server.tick;
+
+/**
+ * Settings of the shared tick scheduler.
+ *
+ * @param threads       size of the scheduler pool shared by all virtual servers
+ * @param defaultTps    tick rate of newly created tickers
+ * @param budgetPercent share of the tick period tasks may use before the rest is deferred
+ */
+public record TickSettings(int threads, int defaultTps, int budgetPercent) {
+    public static final int DEFAULT_THREADS = 2;
+    public static final int DEFAULT_TPS = 20;
+    public static final int DEFAULT_BUDGET_PERCENT = 80;
+    public static final int MAX_TPS = 1000;
+
+    public TickSettings {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Tick threads must be positive");
+        }
+        if (defaultTps < 1 || defaultTps > MAX_TPS) {
+            throw new IllegalArgumentException("Tick rate must be between 1 and " + MAX_TPS);
+        }
+        if (budgetPercent < 1 || budgetPercent > 100) {
+            throw new IllegalArgumentException("Tick budget must be between 1 and 100 percent");
+        }
+    }
+
+    public static TickSettings defaults() {
+        return new TickSettings(DEFAULT_THREADS, DEFAULT_TPS, DEFAULT_BUDGET_PERCENT);
+    }
+}
@@ -1,33 +1,138 @@
 package io.github.zapolyarnydev.proxyvirtualizer.plugin.signal;
 
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ProxyServer;
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer;
+import io.github.zapolyarnydev.proxyvirtualizer.api.signal.BatchSignalHandler;
 import io.github.zapolyarnydev.proxyvirtualizer.api.signal.Signal;
 import io.github.zapolyarnydev.proxyvirtualizer.api.signal.SignalBus;
 import io.github.zapolyarnydev.proxyvirtualizer.api.signal.SignalHandler;
+import io.github.zapolyarnydev.proxyvirtualizer.api.signal.SignalHandlerPolicy;
 import io.github.zapolyarnydev.proxyvirtualizer.api.signal.SignalSubscription;
+import io.github.zapolyarnydev.proxyvirtualizer.api.signal.VirtualServerSignal;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.diagnostics.SignalDispatchEvent;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.metrics.PluginMetrics;
 import org.slf4j.Logger;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.function.Predicate;
 
+/**
+ * Signal bus with three kinds of subscriptions: shared ones, offered every signal; player-keyed ones,
+ * kept in a small array per player id and offered only signals whose source is that player; and
+ * server-scoped ones, made through {@link #scope(VirtualServer)} and offered only signals tagged with
+ * that server.
+ * <p>
+ * {@link #publishAll(Collection)} resolves each subscriber list once per batch and walks it subscriber by
+ * subscriber, so a batch handler gets all of its signals in a single call.
+ * <p>
+ * Every subscription is isolated by a {@link HandlerGuard}: handlers over their run time budget move to
+ * the offload pool, failing handlers are suspended and retried, and failures are logged in aggregate.
+ */
 public final class DefaultSignalBus implements SignalBus {
     @SuppressWarnings("rawtypes")
     private static final Class GLOBAL_SIGNAL_TYPE = Signal.class;
 
+    private final ProxyServer proxyServer;
     private final Logger logger;
+    private final PluginMetrics metrics;
+    private final SignalSettings settings;
+    private final SignalOffloadPool offloadPool;
     private final CopyOnWriteArrayList<SubscriptionImpl<?>> subscriptions = new CopyOnWriteArrayList<>();
+    private final Map<UUID, SubscriptionImpl<?>[]> playerSubscriptions = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Integer> playerSubscriptionTypes = new ConcurrentHashMap<>();
+    private final Map<VirtualServer, ServerScope> scopes = new ConcurrentHashMap<>();
+    private final AtomicLong subscriptionVersion = new AtomicLong();
 
-    public DefaultSignalBus(Logger logger) {
+    public DefaultSignalBus(ProxyServer proxyServer, Logger logger, PluginMetrics metrics, SignalSettings settings) {
+        this.proxyServer = Objects.requireNonNull(proxyServer, "proxyServer");
         this.logger = Objects.requireNonNull(logger, "logger");
+        this.metrics = Objects.requireNonNull(metrics, "metrics");
+        this.settings = Objects.requireNonNull(settings, "settings");
+        this.offloadPool = new SignalOffloadPool(settings.offloadThreads(), settings.offloadQueueSize());
     }
 
     @Override
     public void publish(Signal<?, ?> signal) {
         Objects.requireNonNull(signal, "signal");
+        metrics.recordSignal(signal);
         for (SubscriptionImpl<?> subscription : subscriptions) {
             subscription.tryHandle(signal);
         }
+        if (!playerSubscriptions.isEmpty() && signal.source() instanceof Player player) {
+            SubscriptionImpl<?>[] keyed = playerSubscriptions.get(player.getUniqueId());
+            if (keyed != null) {
+                for (SubscriptionImpl<?> subscription : keyed) {
+                    subscription.tryHandle(signal);
+                }
+            }
+        }
+        if (signal instanceof VirtualServerSignal<?, ?> tagged && tagged.server() != null) {
+            ServerScope scope = scopes.get(tagged.server());
+            if (scope != null) {
+                for (SubscriptionImpl<?> subscription : scope.subscriptions) {
+                    subscription.tryHandle(signal);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void publishAll(Collection<? extends Signal<?, ?>> signals) {
+        Objects.requireNonNull(signals, "signals");
+        if (signals.isEmpty()) {
+            return;
+        }
+        if (signals.size() == 1) {
+            publish(signals.iterator().next());
+            return;
+        }
+
+        for (Signal<?, ?> signal : signals) {
+            metrics.recordSignal(signal);
+        }
+        for (SubscriptionImpl<?> subscription : subscriptions) {
+            subscription.tryHandleAll(signals);
+        }
+        if (!playerSubscriptions.isEmpty()) {
+            forEachGroup(
+                    signals,
+                    signal -> signal.source() instanceof Player player ? player.getUniqueId() : null,
+                    playerSubscriptions,
+                    (keyed, signalsOfPlayer) -> {
+                        for (SubscriptionImpl<?> subscription : keyed) {
+                            subscription.tryHandleAll(signalsOfPlayer);
+                        }
+                    }
+            );
+        }
+        if (!scopes.isEmpty()) {
+            forEachGroup(
+                    signals,
+                    signal -> signal instanceof VirtualServerSignal<?, ?> tagged ? tagged.server() : null,
+                    scopes,
+                    (scope, signalsOfServer) -> {
+                        for (SubscriptionImpl<?> subscription : scope.subscriptions) {
+                            subscription.tryHandleAll(signalsOfServer);
+                        }
+                    }
+            );
+        }
     }
 
     @Override
@@ -48,25 +153,286 @@ public final class DefaultSignalBus implements SignalBus {
         Objects.requireNonNull(filter, "filter");
         Objects.requireNonNull(handler, "handler");
 
-        SubscriptionImpl<T> subscription = new SubscriptionImpl<>(signalType, filter, handler);
-        subscriptions.add(subscription);
+        return addSubscription(subscriptions, signalType, filter, handler, null);
+    }
+
+    @Override
+    public <T extends Signal<?, ?>> SignalSubscription subscribeBatch(
+            Class<T> signalType,
+            Predicate<? super T> filter,
+            BatchSignalHandler<? super T> handler
+    ) {
+        Objects.requireNonNull(signalType, "signalType");
+        Objects.requireNonNull(filter, "filter");
+        Objects.requireNonNull(handler, "handler");
+        return addSubscription(subscriptions, signalType, filter, null, handler);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The subscription is dropped when the player disconnects. For a player who is not online it is
+     * returned already inactive.
+     */
+    @Override
+    public <T extends Signal<?, ?>> SignalSubscription subscribe(
+            UUID playerId,
+            Class<T> signalType,
+            SignalHandler<? super T> handler
+    ) {
+        Objects.requireNonNull(playerId, "playerId");
+        Objects.requireNonNull(signalType, "signalType");
+        Objects.requireNonNull(handler, "handler");
+        return addPlayerSubscription(playerId, signalType, signal -> true, handler);
+    }
+
+    private <T extends Signal<?, ?>> SignalSubscription addPlayerSubscription(
+            UUID playerId,
+            Class<T> signalType,
+            Predicate<? super T> filter,
+            SignalHandler<? super T> handler
+    ) {
+        SubscriptionImpl<T> subscription = new SubscriptionImpl<>(playerId, null, signalType, filter, handler, null);
+        // Checked and counted inside compute, which forgetPlayer's remove cannot interleave with.
+        playerSubscriptions.compute(playerId, (ignored, current) -> {
+            if (!isOnline(playerId)) {
+                subscription.active.set(false);
+                return current;
+            }
+            countPlayerSubscription(signalType, 1);
+            if (current == null) {
+                return new SubscriptionImpl<?>[]{subscription};
+            }
+            SubscriptionImpl<?>[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = subscription;
+            return grown;
+        });
         return subscription;
     }
 
+    /**
+     * Returns the bus view of a virtual server, creating it on first use.
+     */
+    public SignalBus scope(VirtualServer server) {
+        return scopes.computeIfAbsent(Objects.requireNonNull(server, "server"), ServerScope::new);
+    }
+
+    /**
+     * Drops the view of a stopped virtual server together with its subscriptions.
+     */
+    public void closeScope(VirtualServer server) {
+        ServerScope scope = scopes.remove(Objects.requireNonNull(server, "server"));
+        if (scope == null) {
+            return;
+        }
+        for (SubscriptionImpl<?> subscription : scope.subscriptions) {
+            subscription.active.set(false);
+        }
+        scope.subscriptions.clear();
+        subscriptionVersion.incrementAndGet();
+    }
+
+    public void shutdown() {
+        offloadPool.shutdown();
+    }
+
+    /**
+     * Drops the player-keyed subscriptions of a disconnected player.
+     */
+    public void forgetPlayer(UUID playerId) {
+        SubscriptionImpl<?>[] removed = playerSubscriptions.remove(Objects.requireNonNull(playerId, "playerId"));
+        if (removed == null) {
+            return;
+        }
+        for (SubscriptionImpl<?> subscription : removed) {
+            if (subscription.active.compareAndSet(true, false)) {
+                countPlayerSubscription(subscription.signalType, -1);
+            }
+        }
+    }
+
+    /**
+     * @return whether an active subscription would receive signals of the given type, ignoring filters
+     */
+    public boolean hasSubscribers(Class<? extends Signal<?, ?>> signalType) {
+        for (SubscriptionImpl<?> subscription : subscriptions) {
+            if (subscription.active.get() && subscription.signalType.isAssignableFrom(signalType)) {
+                return true;
+            }
+        }
+        for (Class<?> subscribedType : playerSubscriptionTypes.keySet()) {
+            if (subscribedType.isAssignableFrom(signalType)) {
+                return true;
+            }
+        }
+        for (ServerScope scope : scopes.values()) {
+            for (SubscriptionImpl<?> subscription : scope.subscriptions) {
+                if (subscription.active.get() && subscription.signalType.isAssignableFrom(signalType)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return a counter incremented whenever a shared subscription is added or removed, or the first
+     * player-keyed subscription to a signal type is added or the last one removed
+     */
+    public long getSubscriptionVersion() {
+        return subscriptionVersion.get();
+    }
+
+    private <T extends Signal<?, ?>> SignalSubscription addSubscription(
+            CopyOnWriteArrayList<SubscriptionImpl<?>> owner,
+            Class<T> signalType,
+            Predicate<? super T> filter,
+            SignalHandler<? super T> handler,
+            BatchSignalHandler<? super T> batchHandler
+    ) {
+        SubscriptionImpl<T> subscription = new SubscriptionImpl<>(null, owner, signalType, filter, handler, batchHandler);
+        owner.add(subscription);
+        subscriptionVersion.incrementAndGet();
+        return subscription;
+    }
+
+    /**
+     * Hands each target the signals of the batch carrying its key. A batch with a single key is passed
+     * on as it is, and with a single target only its signals are collected; grouping by key is left
+     * for mixed batches with several targets.
+     */
+    private static <K, V> void forEachGroup(
+            Collection<? extends Signal<?, ?>> batch,
+            Function<Signal<?, ?>, K> key,
+            Map<K, V> targets,
+            BiConsumer<V, Collection<? extends Signal<?, ?>>> action
+    ) {
+        K firstKey = null;
+        boolean singleKey = true;
+        for (Signal<?, ?> signal : batch) {
+            K groupKey = key.apply(signal);
+            if (groupKey == null) {
+                singleKey = false;
+            } else if (firstKey == null) {
+                firstKey = groupKey;
+            } else if (singleKey && !firstKey.equals(groupKey)) {
+                singleKey = false;
+            }
+        }
+        if (firstKey == null) {
+            return;
+        }
+        if (singleKey) {
+            V target = targets.get(firstKey);
+            if (target != null) {
+                action.accept(target, batch);
+            }
+            return;
+        }
+
+        if (targets.size() == 1) {
+            Iterator<Map.Entry<K, V>> only = targets.entrySet().iterator();
+            if (!only.hasNext()) {
+                return;
+            }
+            Map.Entry<K, V> target = only.next();
+            List<Signal<?, ?>> signalsOfTarget = new ArrayList<>();
+            for (Signal<?, ?> signal : batch) {
+                if (target.getKey().equals(key.apply(signal))) {
+                    signalsOfTarget.add(signal);
+                }
+            }
+            if (!signalsOfTarget.isEmpty()) {
+                action.accept(target.getValue(), signalsOfTarget);
+            }
+            return;
+        }
+
+        Map<K, List<Signal<?, ?>>> groups = new LinkedHashMap<>();
+        for (Signal<?, ?> signal : batch) {
+            K groupKey = key.apply(signal);
+            if (groupKey != null) {
+                groups.computeIfAbsent(groupKey, ignored -> new ArrayList<>()).add(signal);
+            }
+        }
+        groups.forEach((groupKey, signalsOfGroup) -> {
+            V target = targets.get(groupKey);
+            if (target != null) {
+                action.accept(target, signalsOfGroup);
+            }
+        });
+    }
+
+    private boolean isOnline(UUID playerId) {
+        return proxyServer.getPlayer(playerId).map(Player::isActive).orElse(false);
+    }
+
+    private void countPlayerSubscription(Class<?> signalType, int delta) {
+        boolean[] changed = new boolean[1];
+        playerSubscriptionTypes.compute(signalType, (ignored, count) -> {
+            int updated = (count == null ? 0 : count) + delta;
+            changed[0] = count == null || updated <= 0;
+            return updated <= 0 ? null : updated;
+        });
+        if (changed[0]) {
+            subscriptionVersion.incrementAndGet();
+        }
+    }
+
+    private void removePlayerSubscription(SubscriptionImpl<?> subscription) {
+        playerSubscriptions.computeIfPresent(subscription.playerId, (ignored, current) -> {
+            int index = Arrays.asList(current).indexOf(subscription);
+            if (index < 0) {
+                return current;
+            }
+            if (current.length == 1) {
+                return null;
+            }
+            SubscriptionImpl<?>[] shrunk = new SubscriptionImpl<?>[current.length - 1];
+            System.arraycopy(current, 0, shrunk, 0, index);
+            System.arraycopy(current, index + 1, shrunk, index, current.length - index - 1);
+            return shrunk;
+        });
+        countPlayerSubscription(subscription.signalType, -1);
+    }
+
     private final class SubscriptionImpl<T extends Signal<?, ?>> implements SignalSubscription {
+        private final UUID playerId;
+        private final CopyOnWriteArrayList<SubscriptionImpl<?>> owner;
         private final Class<T> signalType;
         private final Predicate<? super T> filter;
         private final SignalHandler<? super T> handler;
+        private final BatchSignalHandler<? super T> batchHandler;
+        private final HandlerGuard guard;
         private final AtomicBoolean active = new AtomicBoolean(true);
 
         private SubscriptionImpl(
+                UUID playerId,
+                CopyOnWriteArrayList<SubscriptionImpl<?>> owner,
                 Class<T> signalType,
                 Predicate<? super T> filter,
-                SignalHandler<? super T> handler
+                SignalHandler<? super T> handler,
+                BatchSignalHandler<? super T> batchHandler
         ) {
+            this.playerId = playerId;
+            this.owner = owner;
             this.signalType = signalType;
             this.filter = filter;
             this.handler = handler;
+            this.batchHandler = batchHandler;
+            Object target = handler != null ? handler : batchHandler;
+            this.guard = new HandlerGuard(
+                    target.getClass().getName() + " (" + signalType.getSimpleName() + ")",
+                    settings.policy(),
+                    settings.errorLogInterval().toNanos(),
+                    logger
+            );
+        }
+
+        @Override
+        public SignalSubscription withPolicy(SignalHandlerPolicy policy) {
+            guard.setPolicy(policy);
+            return this;
         }
 
         @Override
@@ -74,24 +440,206 @@ public final class DefaultSignalBus implements SignalBus {
             if (!active.compareAndSet(true, false)) {
                 return false;
             }
-            subscriptions.remove(this);
+            if (playerId != null) {
+                removePlayerSubscription(this);
+                return true;
+            }
+            owner.remove(this);
+            subscriptionVersion.incrementAndGet();
             return true;
         }
 
         private void tryHandle(Signal<?, ?> signal) {
+            if (batchHandler != null) {
+                tryHandleAll(List.of(signal));
+                return;
+            }
             if (!active.get() || !signalType.isInstance(signal)) {
                 return;
             }
 
             T typedSignal = signalType.cast(signal);
+            if (guard.suspended()) {
+                return;
+            }
             try {
                 if (!filter.test(typedSignal)) {
                     return;
                 }
-                handler.handle(typedSignal);
             } catch (Throwable throwable) {
-                logger.warn("Signal handler failed for {}", signal.getClass().getName(), throwable);
+                guard.failed(0, offloadPool, signal, throwable);
+                return;
+            }
+            // The trial call of a suspended handler is claimed only once the call is certain to be made.
+            if (!guard.allows()) {
+                return;
+            }
+            dispatch(signal, 1, () -> handler.handle(typedSignal));
+        }
+
+        private void tryHandleAll(Collection<? extends Signal<?, ?>> batch) {
+            if (!active.get()) {
+                return;
+            }
+            if (batchHandler == null) {
+                for (Signal<?, ?> signal : batch) {
+                    tryHandle(signal);
+                }
+                return;
+            }
+
+            if (guard.suspended()) {
+                return;
+            }
+            List<T> matching = new ArrayList<>(batch.size());
+            for (Signal<?, ?> signal : batch) {
+                if (!signalType.isInstance(signal)) {
+                    continue;
+                }
+                T typedSignal = signalType.cast(signal);
+                try {
+                    if (filter.test(typedSignal)) {
+                        matching.add(typedSignal);
+                    }
+                } catch (Throwable throwable) {
+                    guard.failed(0, offloadPool, signal, throwable);
+                    return;
+                }
+            }
+            if (!matching.isEmpty() && guard.allows()) {
+                List<T> signals = Collections.unmodifiableList(matching);
+                dispatch(signals.get(0), signals.size(), () -> batchHandler.handle(signals));
+            }
+        }
+
+        /**
+         * Runs the call here, or on the offload lane once the handler has overrun its budget.
+         */
+        private void dispatch(Signal<?, ?> first, int batchSize, Runnable call) {
+            SignalOffloadPool.Lane lane = guard.lane();
+            if (lane == null) {
+                invoke(first, batchSize, call);
+            } else if (!lane.submit(() -> invoke(first, batchSize, call))) {
+                if (lane.isRetired()) {
+                    // The lane drained and handed the handler back after it was looked up.
+                    invoke(first, batchSize, call);
+                } else {
+                    guard.trialSkipped();
+                    guard.dropped();
+                }
+            }
+        }
+
+        private void invoke(Signal<?, ?> first, int batchSize, Runnable call) {
+            Object target = handler != null ? handler : batchHandler;
+            SignalDispatchEvent event = SignalDispatchEvent.start();
+            long started = System.nanoTime();
+            Throwable failure = null;
+            try {
+                call.run();
+            } catch (Throwable throwable) {
+                failure = throwable;
+            }
+            long duration = System.nanoTime() - started;
+            metrics.recordHandler(duration);
+            event.finish(first, target, batchSize);
+            if (failure == null) {
+                guard.succeeded(duration, offloadPool);
+            } else {
+                guard.failed(duration, offloadPool, first, failure);
+            }
+        }
+    }
+
+    /**
+     * Subscriptions of one virtual server. Publishing through the view goes to the whole bus, which hands
+     * tagged signals back to the scope of their server.
+     */
+    private final class ServerScope implements SignalBus {
+        private final VirtualServer server;
+        private final CopyOnWriteArrayList<SubscriptionImpl<?>> subscriptions = new CopyOnWriteArrayList<>();
+
+        private ServerScope(VirtualServer server) {
+            this.server = server;
+        }
+
+        @Override
+        public void publish(Signal<?, ?> signal) {
+            DefaultSignalBus.this.publish(signal);
+        }
+
+        @Override
+        public void publishAll(Collection<? extends Signal<?, ?>> signals) {
+            DefaultSignalBus.this.publishAll(signals);
+        }
+
+        @Override
+        public SignalSubscription subscribe(SignalHandler<? super Signal<?, ?>> handler) {
+            Objects.requireNonNull(handler, "handler");
+            @SuppressWarnings("unchecked")
+            Class<Signal<?, ?>> type = (Class<Signal<?, ?>>) GLOBAL_SIGNAL_TYPE;
+            return subscribe(type, signal -> true, handler);
+        }
+
+        @Override
+        public <T extends Signal<?, ?>> SignalSubscription subscribe(
+                Class<T> signalType,
+                Predicate<? super T> filter,
+                SignalHandler<? super T> handler
+        ) {
+            Objects.requireNonNull(signalType, "signalType");
+            Objects.requireNonNull(filter, "filter");
+            Objects.requireNonNull(handler, "handler");
+            ensureOpen();
+            return addSubscription(subscriptions, signalType, filter, handler, null);
+        }
+
+        @Override
+        public <T extends Signal<?, ?>> SignalSubscription subscribeBatch(
+                Class<T> signalType,
+                Predicate<? super T> filter,
+                BatchSignalHandler<? super T> handler
+        ) {
+            Objects.requireNonNull(signalType, "signalType");
+            Objects.requireNonNull(filter, "filter");
+            Objects.requireNonNull(handler, "handler");
+            ensureOpen();
+            return addSubscription(subscriptions, signalType, filter, null, handler);
+        }
+
+        /**
+         * Indexed by player like {@link DefaultSignalBus#subscribe(UUID, Class, SignalHandler)}, and offered
+         * only signals tagged with this server while the scope is open.
+         */
+        @Override
+        public <T extends Signal<?, ?>> SignalSubscription subscribe(
+                UUID playerId,
+                Class<T> signalType,
+                SignalHandler<? super T> handler
+        ) {
+            Objects.requireNonNull(playerId, "playerId");
+            Objects.requireNonNull(signalType, "signalType");
+            Objects.requireNonNull(handler, "handler");
+            ensureOpen();
+            return addPlayerSubscription(
+                    playerId,
+                    signalType,
+                    signal -> signal instanceof VirtualServerSignal<?, ?> tagged
+                            && server.equals(tagged.server())
+                            && scopes.get(server) == this,
+                    handler
+            );
+        }
+
+        private void ensureOpen() {
+            if (scopes.get(server) != this) {
+                throw new IllegalStateException("Virtual server " + server.getName() + " is stopped");
             }
         }
+
+        @Override
+        public String toString() {
+            return "ServerScope{server='" + server.getName() + "'}";
+        }
     }
 }
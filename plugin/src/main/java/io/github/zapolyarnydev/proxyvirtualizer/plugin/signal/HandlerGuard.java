@@ -0,0 +1,260 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.signal;
+
+import io.github.zapolyarnydev.proxyvirtualizer.api.signal.Signal;
+import io.github.zapolyarnydev.proxyvirtualizer.api.signal.SignalHandlerPolicy;
+import org.slf4j.Logger;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Run time budget, circuit breaker and failure log of one subscription.
+ * <p>
+ * A handler that overruns its budget {@code overrunThreshold} times within the failure window is moved
+ * to an offload lane, so a lone GC pause or JIT warm-up does not move it. Once it has stayed within
+ * budget for the offload recovery period, its lane is retired when it next runs empty, and from then on
+ * it runs on the publishing thread again. A handler that fails {@code failureThreshold} times within the
+ * window is suspended; after the open duration one trial call is let through, which either resumes it
+ * or suspends it again. Failures are reported at most once per
+ * log interval, with the number of failures folded into the report.
+ */
+final class HandlerGuard {
+    private final String name;
+    private final Logger logger;
+    private final long logIntervalNanos;
+    private final AtomicLong lastReport;
+    private final AtomicInteger unreportedFailures = new AtomicInteger();
+    private final AtomicInteger droppedSignals = new AtomicInteger();
+    private volatile SignalHandlerPolicy policy;
+    private volatile State state = State.CLOSED;
+    private volatile SignalOffloadPool.Lane lane;
+    private long openedAt;
+    private long windowStart;
+    private int failures;
+    private long overrunWindowStart;
+    private int overruns;
+    private long lastOverrunAt;
+
+    HandlerGuard(String name, SignalHandlerPolicy policy, long logIntervalNanos, Logger logger) {
+        this.name = name;
+        this.policy = Objects.requireNonNull(policy, "policy");
+        this.logIntervalNanos = logIntervalNanos;
+        this.logger = logger;
+        this.lastReport = new AtomicLong(System.nanoTime() - logIntervalNanos);
+    }
+
+    void setPolicy(SignalHandlerPolicy policy) {
+        this.policy = Objects.requireNonNull(policy, "policy");
+    }
+
+    /**
+     * @return the offload lane of the handler, or {@code null} while it runs on the publishing thread;
+     * a lane that retired after it was returned refuses tasks, which then run on the publishing thread
+     */
+    SignalOffloadPool.Lane lane() {
+        SignalOffloadPool.Lane current = lane;
+        if (current == null || !current.isRetired()) {
+            return current;
+        }
+        synchronized (this) {
+            if (lane == current) {
+                lane = null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return whether calls are refused right now; unlike {@link #allows()} this never claims the trial call
+     */
+    boolean suspended() {
+        State current = state;
+        if (current == State.CLOSED) {
+            return false;
+        }
+        if (current == State.HALF_OPEN) {
+            return true;
+        }
+        synchronized (this) {
+            return state == State.OPEN && System.nanoTime() - openedAt < policy.openDuration().toNanos();
+        }
+    }
+
+    /**
+     * @return whether a call may run now; a suspended handler lets exactly one trial call through, which
+     * must then end in {@link #succeeded}, {@link #failed} or {@link #trialSkipped}
+     */
+    boolean allows() {
+        State current = state;
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.HALF_OPEN) {
+            return false;
+        }
+
+        synchronized (this) {
+            if (state == State.OPEN && System.nanoTime() - openedAt >= policy.openDuration().toNanos()) {
+                state = State.HALF_OPEN;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    void succeeded(long durationNanos, SignalOffloadPool pool) {
+        checkBudget(durationNanos, pool);
+        if (state != State.HALF_OPEN) {
+            return;
+        }
+        synchronized (this) {
+            if (state != State.HALF_OPEN) {
+                return;
+            }
+            state = State.CLOSED;
+            failures = 0;
+        }
+        logger.info("Signal handler {} recovered and is resumed", name);
+    }
+
+    void failed(long durationNanos, SignalOffloadPool pool, Signal<?, ?> signal, Throwable throwable) {
+        checkBudget(durationNanos, pool);
+        long now = System.nanoTime();
+        SignalHandlerPolicy current = policy;
+        boolean suspended = false;
+        synchronized (this) {
+            if (state == State.HALF_OPEN) {
+                state = State.OPEN;
+                openedAt = now;
+            } else if (current.failureThreshold() > 0 && state == State.CLOSED) {
+                if (now - windowStart > current.failureWindow().toNanos()) {
+                    windowStart = now;
+                    failures = 0;
+                }
+                if (++failures >= current.failureThreshold()) {
+                    state = State.OPEN;
+                    openedAt = now;
+                    suspended = true;
+                }
+            }
+        }
+
+        if (suspended) {
+            logger.warn(
+                    "Signal handler {} failed {} times within {} ms and is suspended for {} ms",
+                    name,
+                    current.failureThreshold(),
+                    current.failureWindow().toMillis(),
+                    current.openDuration().toMillis()
+            );
+        }
+        if (claimReport(now)) {
+            int folded = unreportedFailures.getAndSet(0);
+            logger.warn(
+                    "Signal handler {} failed for {}{}",
+                    name,
+                    signal.getClass().getName(),
+                    folded == 0 ? "" : " (" + folded + " more failures since the last report)",
+                    throwable
+            );
+        } else {
+            unreportedFailures.incrementAndGet();
+        }
+    }
+
+    /**
+     * Gives back a trial call that was claimed but never ran, so the next call can claim it again.
+     */
+    void trialSkipped() {
+        if (state != State.HALF_OPEN) {
+            return;
+        }
+        synchronized (this) {
+            if (state == State.HALF_OPEN) {
+                state = State.OPEN;
+            }
+        }
+    }
+
+    /**
+     * Records a signal the offload lane had no room for.
+     */
+    void dropped() {
+        droppedSignals.incrementAndGet();
+        if (claimReport(System.nanoTime())) {
+            logger.warn("Signal handler {} falls behind; {} signals were dropped", name, droppedSignals.getAndSet(0));
+        }
+    }
+
+    private void checkBudget(long durationNanos, SignalOffloadPool pool) {
+        SignalHandlerPolicy current = policy;
+        long budget = current.maxRunTime().toNanos();
+        if (budget == 0) {
+            return;
+        }
+        if (durationNanos <= budget) {
+            SignalOffloadPool.Lane currentLane = lane;
+            if (currentLane != null && !current.offloadRecovery().isZero()) {
+                checkRecovery(currentLane, current);
+            }
+            return;
+        }
+
+        long now = System.nanoTime();
+        synchronized (this) {
+            lastOverrunAt = now;
+            if (lane != null) {
+                if (lane.keep()) {
+                    return;
+                }
+                lane = null;
+            }
+            if (now - overrunWindowStart > current.failureWindow().toNanos()) {
+                overrunWindowStart = now;
+                overruns = 0;
+            }
+            if (++overruns < current.overrunThreshold()) {
+                return;
+            }
+            overruns = 0;
+            lane = pool.newLane();
+        }
+        logger.warn(
+                "Signal handler {} ran for {} us, over its {} us budget {} times within {} ms; it now runs off the publishing thread",
+                name,
+                TimeUnit.NANOSECONDS.toMicros(durationNanos),
+                TimeUnit.NANOSECONDS.toMicros(budget),
+                current.overrunThreshold(),
+                current.failureWindow().toMillis()
+        );
+    }
+
+    private void checkRecovery(SignalOffloadPool.Lane currentLane, SignalHandlerPolicy current) {
+        long now = System.nanoTime();
+        synchronized (this) {
+            if (lane != currentLane
+                    || now - lastOverrunAt < current.offloadRecovery().toNanos()
+                    || !currentLane.retireWhenIdle()) {
+                return;
+            }
+        }
+        logger.info(
+                "Signal handler {} stayed within its budget for {} ms; it runs on the publishing thread once its lane drains",
+                name,
+                current.offloadRecovery().toMillis()
+        );
+    }
+
+    private boolean claimReport(long now) {
+        long last = lastReport.get();
+        return now - last >= logIntervalNanos && lastReport.compareAndSet(last, now);
+    }
+
+    private enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+}
@@ -0,0 +1,121 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.signal;
+
+import com.velocitypowered.api.network.ProtocolVersion;
+import io.github.zapolyarnydev.proxyvirtualizer.api.signal.Signal;
+import io.github.zapolyarnydev.proxyvirtualizer.api.signal.player.PlayerLookSignal;
+import io.github.zapolyarnydev.proxyvirtualizer.api.signal.player.PlayerMoveSignal;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.connector.VirtualSession;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.network.NettyBuffers;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.spatial.GridPlayerPositionIndex;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Decides at the raw tap stage whether an inbound frame is worth decoding, by peeking its packet id.
+ * <p>
+ * An id passes when a signal decoded from it has subscribers, or when it carries a position and the
+ * player's virtual server keeps a position index. Signal bits are kept per protocol and rebuilt
+ * lazily after the subscriptions of the bus change.
+ */
+final class InboundPacketFilter {
+    private static final Map<ProtocolVersion, List<RawPacket>> RAW_PACKETS = Map.of(
+            ProtocolVersion.MINECRAFT_1_21_4, List.of(
+                    new RawPacket(
+                            VelocitySignalBridge.PACKET_ID_SET_PLAYER_POSITION_1_21_4,
+                            true,
+                            List.of(PlayerMoveSignal.class)
+                    ),
+                    new RawPacket(
+                            VelocitySignalBridge.PACKET_ID_SET_PLAYER_POSITION_AND_ROTATION_1_21_4,
+                            true,
+                            List.of(PlayerMoveSignal.class, PlayerLookSignal.class)
+                    ),
+                    new RawPacket(
+                            VelocitySignalBridge.PACKET_ID_SET_PLAYER_ROTATION_1_21_4,
+                            false,
+                            List.of(PlayerLookSignal.class)
+                    )
+            )
+    );
+
+    private final DefaultSignalBus signalBus;
+    private final AtomicReferenceArray<Table> tables = new AtomicReferenceArray<>(ProtocolVersion.values().length);
+
+    InboundPacketFilter(DefaultSignalBus signalBus) {
+        this.signalBus = Objects.requireNonNull(signalBus, "signalBus");
+    }
+
+    /**
+     * @param frame inbound buffer positioned at the packet id; it is not modified
+     */
+    boolean accepts(VirtualSession session, Object frame) {
+        Table table = table(session.getProtocolVersion());
+        if (table.isEmpty()) {
+            return false;
+        }
+
+        int packetId;
+        try {
+            packetId = NettyBuffers.peekVarInt(frame);
+        } catch (ReflectiveOperationException | RuntimeException exception) {
+            return true;
+        }
+        if (Table.contains(table.signalIds(), packetId)) {
+            return true;
+        }
+        if (!Table.contains(table.positionIds(), packetId)) {
+            return false;
+        }
+        return session.getServer().getPositionIndex() instanceof GridPlayerPositionIndex;
+    }
+
+    private Table table(ProtocolVersion protocolVersion) {
+        long version = signalBus.getSubscriptionVersion();
+        Table table = tables.get(protocolVersion.ordinal());
+        if (table != null && table.version() == version) {
+            return table;
+        }
+
+        long[] signalIds = new long[0];
+        long[] positionIds = new long[0];
+        for (RawPacket packet : RAW_PACKETS.getOrDefault(protocolVersion, List.of())) {
+            if (packet.position()) {
+                positionIds = Table.add(positionIds, packet.id());
+            }
+            for (Class<? extends Signal<?, ?>> signalType : packet.signals()) {
+                if (signalBus.hasSubscribers(signalType)) {
+                    signalIds = Table.add(signalIds, packet.id());
+                    break;
+                }
+            }
+        }
+        table = new Table(version, signalIds, positionIds);
+        tables.set(protocolVersion.ordinal(), table);
+        return table;
+    }
+
+    private record RawPacket(int id, boolean position, List<Class<? extends Signal<?, ?>>> signals) {
+    }
+
+    private record Table(long version, long[] signalIds, long[] positionIds) {
+        private boolean isEmpty() {
+            return signalIds.length == 0 && positionIds.length == 0;
+        }
+
+        private static boolean contains(long[] bits, int packetId) {
+            int word = packetId >>> 6;
+            return packetId >= 0 && word < bits.length && (bits[word] & (1L << packetId)) != 0;
+        }
+
+        private static long[] add(long[] bits, int packetId) {
+            int word = packetId >>> 6;
+            long[] grown = bits.length > word ? bits : Arrays.copyOf(bits, word + 1);
+            grown[word] |= 1L << packetId;
+            return grown;
+        }
+    }
+}
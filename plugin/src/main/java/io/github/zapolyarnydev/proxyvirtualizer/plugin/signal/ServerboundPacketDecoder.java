@@ -0,0 +1,75 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.signal;
+
+import com.velocitypowered.api.network.ProtocolVersion;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Decodes raw serverbound play frames into Velocity packet objects through the proxy's own
+ * packet registry, the way {@code minecraft-decoder} does for live connections.
+ * Registry methods are resolved once, on first use.
+ */
+final class ServerboundPacketDecoder {
+    private static final String STATE_REGISTRY_CLASS = "com.velocitypowered.proxy.protocol.StateRegistry";
+    private static final String DIRECTION_CLASS = "com.velocitypowered.proxy.protocol.ProtocolUtils$Direction";
+    private static final String BYTE_BUF_CLASS = "io.netty.buffer.ByteBuf";
+
+    private static volatile Registry registry;
+
+    private ServerboundPacketDecoder() {
+    }
+
+    /**
+     * Decodes a frame positioned after its packet id.
+     *
+     * @return the decoded packet, or {@code null} if Velocity does not register the id
+     */
+    static Object decode(ProtocolVersion protocolVersion, int packetId, Object byteBuf)
+            throws ReflectiveOperationException {
+        Registry resolved = registry();
+        Object protocolRegistry = resolved.getProtocolRegistry.invoke(resolved.play, resolved.serverbound, protocolVersion);
+        Object packet = protocolRegistry.getClass().getMethod("createPacket", int.class).invoke(protocolRegistry, packetId);
+        if (packet == null) {
+            return null;
+        }
+        try {
+            packet.getClass()
+                    .getMethod("decode", resolved.byteBufClass, resolved.directionClass, ProtocolVersion.class)
+                    .invoke(packet, byteBuf, resolved.serverbound, protocolVersion);
+        } catch (InvocationTargetException exception) {
+            if (exception.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw exception;
+        }
+        return packet;
+    }
+
+    private static Registry registry() throws ReflectiveOperationException {
+        Registry resolved = registry;
+        if (resolved == null) {
+            ClassLoader classLoader = ServerboundPacketDecoder.class.getClassLoader();
+            Class<?> stateRegistryClass = Class.forName(STATE_REGISTRY_CLASS, true, classLoader);
+            Class<?> directionClass = Class.forName(DIRECTION_CLASS, true, classLoader);
+            resolved = new Registry(
+                    stateRegistryClass.getField("PLAY").get(null),
+                    directionClass.getField("SERVERBOUND").get(null),
+                    directionClass,
+                    Class.forName(BYTE_BUF_CLASS, true, classLoader),
+                    stateRegistryClass.getMethod("getProtocolRegistry", directionClass, ProtocolVersion.class)
+            );
+            registry = resolved;
+        }
+        return resolved;
+    }
+
+    private record Registry(
+            Object play,
+            Object serverbound,
+            Class<?> directionClass,
+            Class<?> byteBufClass,
+            Method getProtocolRegistry
+    ) {
+    }
+}
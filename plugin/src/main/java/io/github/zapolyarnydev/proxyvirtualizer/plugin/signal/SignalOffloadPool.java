@@ -0,0 +1,135 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.signal;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threads for handlers that overran their run time budget. Each such handler gets a bounded lane
+ * whose tasks run one at a time and in submission order, so moving a handler keeps its signal order.
+ * A lane handing its handler back is retired only once its last task has finished, so the handler never
+ * runs on the lane and on a publishing thread at the same time.
+ */
+final class SignalOffloadPool {
+    private static final int DRAIN_BATCH = 64;
+    private static final int RETIRED = -1;
+
+    private final ExecutorService executor;
+    private final int queueSize;
+
+    SignalOffloadPool(int threads, int queueSize) {
+        this.queueSize = queueSize;
+        AtomicInteger threadSequence = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "proxyvirtualizer-signal-offload-" + threadSequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    Lane newLane() {
+        return new Lane();
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    final class Lane {
+        private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+        // Waiting tasks plus the running one, or RETIRED once the lane accepts nothing more.
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean retiring = new AtomicBoolean();
+
+        /**
+         * @return {@code false} if the task was not taken, because the lane is full or {@link #isRetired()}
+         */
+        boolean submit(Runnable task) {
+            int current;
+            do {
+                current = size.get();
+                if (current == RETIRED || current > queueSize) {
+                    return false;
+                }
+            } while (!size.compareAndSet(current, current + 1));
+            pending.add(task);
+            schedule();
+            return true;
+        }
+
+        /**
+         * Lets the lane retire as soon as no task is waiting or running. Until then it keeps taking
+         * tasks, so signals published meanwhile stay behind the earlier ones.
+         *
+         * @return {@code false} if the lane was already retiring
+         */
+        boolean retireWhenIdle() {
+            if (!retiring.compareAndSet(false, true)) {
+                return false;
+            }
+            tryRetire();
+            return true;
+        }
+
+        /**
+         * Cancels a pending retirement.
+         *
+         * @return {@code false} if the lane has already retired and must not be used anymore
+         */
+        boolean keep() {
+            retiring.set(false);
+            return !isRetired();
+        }
+
+        boolean isRetired() {
+            return size.get() == RETIRED;
+        }
+
+        private void tryRetire() {
+            if (retiring.get()) {
+                size.compareAndSet(0, RETIRED);
+            }
+        }
+
+        private void schedule() {
+            if (!draining.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException exception) {
+                pending.clear();
+                size.set(0);
+                draining.set(false);
+                tryRetire();
+            }
+        }
+
+        private void drain() {
+            try {
+                for (int i = 0; i < DRAIN_BATCH; i++) {
+                    Runnable task = pending.poll();
+                    if (task == null) {
+                        break;
+                    }
+                    try {
+                        task.run();
+                    } finally {
+                        size.decrementAndGet();
+                    }
+                }
+            } finally {
+                tryRetire();
+                draining.set(false);
+                if (!pending.isEmpty()) {
+                    schedule();
+                }
+            }
+        }
+    }
+}
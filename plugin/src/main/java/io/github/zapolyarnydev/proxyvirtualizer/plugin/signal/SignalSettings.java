@@ -0,0 +1,48 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.signal;
+
+import io.github.zapolyarnydev.proxyvirtualizer.api.signal.SignalHandlerPolicy;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Isolation of signal handlers.
+ *
+ * @param policy           limits of subscriptions that do not set their own
+ * @param offloadThreads   threads running handlers moved off the publishing thread
+ * @param offloadQueueSize signals a moved handler may have pending before new ones are dropped
+ * @param errorLogInterval minimum time between two failure reports of one handler
+ */
+public record SignalSettings(
+        SignalHandlerPolicy policy,
+        int offloadThreads,
+        int offloadQueueSize,
+        Duration errorLogInterval
+) {
+    public static final int DEFAULT_OFFLOAD_THREADS = 2;
+    public static final int DEFAULT_OFFLOAD_QUEUE_SIZE = 4096;
+    public static final Duration DEFAULT_ERROR_LOG_INTERVAL = Duration.ofSeconds(10);
+
+    public SignalSettings {
+        Objects.requireNonNull(policy, "policy");
+        Objects.requireNonNull(errorLogInterval, "errorLogInterval");
+        if (offloadThreads < 1) {
+            throw new IllegalArgumentException("Signal offload threads must be positive");
+        }
+        if (offloadQueueSize < 1) {
+            throw new IllegalArgumentException("Signal offload queue size must be positive");
+        }
+        if (errorLogInterval.isNegative()) {
+            throw new IllegalArgumentException("Signal error log interval cannot be negative");
+        }
+    }
+
+    public static SignalSettings defaults() {
+        return new SignalSettings(
+                SignalHandlerPolicy.defaults(),
+                DEFAULT_OFFLOAD_THREADS,
+                DEFAULT_OFFLOAD_QUEUE_SIZE,
+                DEFAULT_ERROR_LOG_INTERVAL
+        );
+    }
+}
@@ -2,14 +2,12 @@ package io.github.zapolyarnydev.proxyvirtualizer.plugin.signal;
 
 import com.velocitypowered.api.event.Subscribe;
 import com.velocitypowered.api.event.command.CommandExecuteEvent;
-import com.velocitypowered.api.event.connection.DisconnectEvent;
-import com.velocitypowered.api.event.connection.PostLoginEvent;
 import com.velocitypowered.api.event.player.PlayerChatEvent;
 import com.velocitypowered.api.network.ProtocolVersion;
 import com.velocitypowered.api.proxy.Player;
 import com.velocitypowered.api.proxy.ProxyServer;
-import io.github.zapolyarnydev.proxyvirtualizer.api.connector.ConnectionStorage;
-import io.github.zapolyarnydev.proxyvirtualizer.api.signal.SignalBus;
+import io.github.zapolyarnydev.proxyvirtualizer.api.command.CommandLine;
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer;
 import io.github.zapolyarnydev.proxyvirtualizer.api.signal.player.PlayerChatPayload;
 import io.github.zapolyarnydev.proxyvirtualizer.api.signal.player.PlayerChatSignal;
 import io.github.zapolyarnydev.proxyvirtualizer.api.signal.player.PlayerCommandPayload;
@@ -19,66 +17,121 @@ import io.github.zapolyarnydev.proxyvirtualizer.api.signal.player.PlayerLookSign
 import io.github.zapolyarnydev.proxyvirtualizer.api.signal.player.PlayerMovePayload;
 import io.github.zapolyarnydev.proxyvirtualizer.api.signal.player.PlayerMoveSignal;
 import io.github.zapolyarnydev.proxyvirtualizer.api.signal.player.PlayerPacketSignalKind;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.capture.CaptureService;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.command.DefaultVirtualCommandRouter;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.command.TabCompletePackets;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.connector.InMemoryConnectionStorage;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.connector.VirtualSession;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.diagnostics.PacketInspectionEvent;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.keepalive.KeepAliveService;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.metrics.PluginMetrics;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.network.MinecraftConnections;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.network.OutboundQueueService;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.world.DefaultWorldManager;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.spatial.GridPlayerPositionIndex;
 import org.slf4j.Logger;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
-
+import java.util.concurrent.Executor;
+
+/**
+ * Turns inbound traffic of players inside virtual servers into signals. Packet taps are added to a
+ * player's pipeline when they enter a virtual server and removed when they leave, so players on
+ * backend servers never pass through the plugin.
+ * <p>
+ * Commands are routed through the {@link DefaultVirtualCommandRouter} before their signal is published,
+ * and tab completion requests for routed commands are answered from the tap without reaching Velocity.
+ */
 public final class VelocitySignalBridge {
     private static final String PIPELINE_HANDLER_MINECRAFT_DECODER = "minecraft-decoder";
     private static final String PIPELINE_HANDLER_MAIN = "handler";
     private static final String SIGNAL_TAP_PREFIX = "proxyvirtualizer-signal-tap-";
 
-    private static final int PACKET_ID_SET_PLAYER_POSITION_1_21_4 = 0x1C;
-    private static final int PACKET_ID_SET_PLAYER_POSITION_AND_ROTATION_1_21_4 = 0x1D;
-    private static final int PACKET_ID_SET_PLAYER_ROTATION_1_21_4 = 0x1E;
+    static final int PACKET_ID_SET_PLAYER_POSITION_1_21_4 = 0x1C;
+    static final int PACKET_ID_SET_PLAYER_POSITION_AND_ROTATION_1_21_4 = 0x1D;
+    static final int PACKET_ID_SET_PLAYER_ROTATION_1_21_4 = 0x1E;
 
     private final ProxyServer proxyServer;
-    private final ConnectionStorage connectionStorage;
-    private final SignalBus signalBus;
+    private final InMemoryConnectionStorage connectionStorage;
+    private final DefaultSignalBus signalBus;
+    private final DefaultVirtualCommandRouter commandRouter;
+    private final KeepAliveService keepAliveService;
+    private final DefaultWorldManager worldManager;
+    private final OutboundQueueService outboundQueues;
+    private final CaptureService captureService;
+    private final PluginMetrics metrics;
     private final Logger logger;
-    private final Map<UUID, TapRegistration> installedTapNames = new ConcurrentHashMap<>();
+    private final InboundPacketFilter packetFilter;
 
     public VelocitySignalBridge(
             ProxyServer proxyServer,
-            ConnectionStorage connectionStorage,
-            SignalBus signalBus,
+            InMemoryConnectionStorage connectionStorage,
+            DefaultSignalBus signalBus,
+            DefaultVirtualCommandRouter commandRouter,
+            KeepAliveService keepAliveService,
+            DefaultWorldManager worldManager,
+            OutboundQueueService outboundQueues,
+            CaptureService captureService,
+            PluginMetrics metrics,
             Logger logger
     ) {
         this.proxyServer = Objects.requireNonNull(proxyServer, "proxyServer");
         this.connectionStorage = Objects.requireNonNull(connectionStorage, "connectionStorage");
         this.signalBus = Objects.requireNonNull(signalBus, "signalBus");
+        this.commandRouter = Objects.requireNonNull(commandRouter, "commandRouter");
+        this.keepAliveService = Objects.requireNonNull(keepAliveService, "keepAliveService");
+        this.worldManager = Objects.requireNonNull(worldManager, "worldManager");
+        this.outboundQueues = Objects.requireNonNull(outboundQueues, "outboundQueues");
+        this.captureService = Objects.requireNonNull(captureService, "captureService");
+        this.metrics = Objects.requireNonNull(metrics, "metrics");
         this.logger = Objects.requireNonNull(logger, "logger");
+        this.packetFilter = new InboundPacketFilter(signalBus);
     }
 
-    @Subscribe
-    public void onPostLogin(PostLoginEvent event) {
-        installPacketTap(event.getPlayer());
+    /**
+     * Adds the packet taps of a session to its player's pipeline. The pipeline is changed on the
+     * channel's event loop; calling this again for the same session does nothing.
+     */
+    public void attach(VirtualSession session) {
+        Objects.requireNonNull(session, "session");
+        if (!session.claimPacketTap()) {
+            return;
+        }
+        if (!runOnEventLoop(session.getPlayer(), () -> installPacketTap(session))) {
+            session.releasePacketTap();
+        }
     }
 
-    @Subscribe
-    public void onDisconnect(DisconnectEvent event) {
-        uninstallPacketTap(event.getPlayer());
+    /**
+     * Removes the packet taps of a session leaving its virtual server, on the channel's event loop.
+     */
+    public void detach(VirtualSession session) {
+        Objects.requireNonNull(session, "session");
+        if (session.releasePacketTap()) {
+            runOnEventLoop(session.getPlayer(), () -> uninstallPacketTap(session.getPlayer()));
+        }
     }
 
     @Subscribe
     public void onChat(PlayerChatEvent event) {
         Player player = event.getPlayer();
-        if (!connectionStorage.isInVirtualServer(player)) {
+        VirtualSession session = connectedSession(player);
+        if (session == null) {
             return;
         }
-        ensurePacketTapInstalled(player);
-        if (hasInstalledPacketTap(player)) {
+        attach(session);
+        if (session.hasPacketTap()) {
             return;
         }
-        signalBus.publish(new PlayerChatSignal(player, new PlayerChatPayload(event.getMessage())));
+        signalBus.publish(new PlayerChatSignal(
+                player,
+                new PlayerChatPayload(event.getMessage()),
+                session.getServer()
+        ));
     }
 
     @Subscribe
@@ -86,121 +139,134 @@ public final class VelocitySignalBridge {
         if (!(event.getCommandSource() instanceof Player player)) {
             return;
         }
-        if (!connectionStorage.isInVirtualServer(player)) {
+        VirtualSession session = connectedSession(player);
+        if (session == null) {
             return;
         }
-        ensurePacketTapInstalled(player);
-        if (hasInstalledPacketTap(player)) {
+        attach(session);
+        if (session.hasPacketTap()) {
             return;
         }
 
-        String rawCommand = event.getCommand();
-        CommandParts parts = splitCommand(rawCommand);
-        PlayerCommandPayload payload = new PlayerCommandPayload(
-                rawCommand,
-                parts.label(),
-                List.copyOf(parts.arguments()),
+        CommandLine command = CommandLine.of(event.getCommand());
+        commandRouter.dispatch(session.getServer(), player, command);
+        PlayerCommandPayload payload = PlayerCommandPayload.of(
+                command,
                 event.getInvocationInfo().source().name(),
                 event.getInvocationInfo().signedState().name()
         );
-        signalBus.publish(new PlayerCommandSignal(player, payload));
+        signalBus.publish(new PlayerCommandSignal(player, payload, session.getServer()));
+    }
+
+    /**
+     * Feeds a captured raw frame through the same decode path as live traffic and publishes the
+     * resulting signals. Virtual server membership is not checked, so stand-in players can be used.
+     */
+    public void replayInboundFrame(Player player, Object frame) {
+        Objects.requireNonNull(player, "player");
+        Objects.requireNonNull(frame, "frame");
+        decodeRawInboundFrame(player, null, frame);
+
+        try {
+            Object copy = duplicateByteBuf(frame);
+            int packetId = readVarInt(copy);
+            Object packet = ServerboundPacketDecoder.decode(player.getProtocolVersion(), packetId, copy);
+            if (packet != null) {
+                inspectDecodedChatOrCommandPacket(player, null, packet);
+                inspectDecodedMovementPacket(player, null, packet);
+            }
+        } catch (ReflectiveOperationException | RuntimeException exception) {
+            metrics.recordDecodeError();
+            logger.debug("Failed to decode replayed packet for player {}", player.getUsername(), exception);
+        }
     }
 
     public void shutdown() {
         for (Player player : proxyServer.getAllPlayers()) {
-            uninstallPacketTap(player);
+            connectionStorage.getSession(player).ifPresent(this::detach);
         }
-        installedTapNames.clear();
     }
 
-    private boolean hasInstalledPacketTap(Player player) {
-        TapRegistration registration = installedTapNames.get(player.getUniqueId());
-        return registration != null && (registration.rawInstalled() || registration.decodedInstalled());
+    private VirtualSession connectedSession(Player player) {
+        VirtualSession session = connectionStorage.getSession(player).orElse(null);
+        return session != null && session.isConnected() ? session : null;
     }
 
-    private void ensurePacketTapInstalled(Player player) {
-        if (hasInstalledPacketTap(player)) {
-            return;
+    private boolean runOnEventLoop(Player player, Runnable task) {
+        try {
+            Object connection = MinecraftConnections.connection(player);
+            Executor eventLoop = connection == null ? null : MinecraftConnections.eventLoop(connection);
+            if (eventLoop == null) {
+                return false;
+            }
+            eventLoop.execute(task);
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException exception) {
+            logger.debug("Unable to reach the event loop of player {}", player.getUsername(), exception);
+            return false;
         }
-        installPacketTap(player);
-    }
-
-    private boolean hasRawPacketTap(Player player) {
-        TapRegistration registration = installedTapNames.get(player.getUniqueId());
-        return registration != null && registration.rawInstalled();
     }
 
-    private void installPacketTap(Player player) {
-        Objects.requireNonNull(player, "player");
-
-        UUID playerId = player.getUniqueId();
-        TapRegistration tapRegistration = new TapRegistration(
-                SIGNAL_TAP_PREFIX + playerId + "-raw",
-                SIGNAL_TAP_PREFIX + playerId + "-decoded",
-                false,
-                false
-        );
-        TapRegistration existing = installedTapNames.putIfAbsent(playerId, tapRegistration);
-        if (existing != null) {
+    private void installPacketTap(VirtualSession session) {
+        Player player = session.getPlayer();
+        if (!session.isConnected()) {
             return;
         }
 
         try {
             Object pipeline = resolvePipeline(player);
             if (pipeline == null) {
-                installedTapNames.remove(playerId, tapRegistration);
+                session.releasePacketTap();
                 return;
             }
 
-            boolean rawInstalled = installRawPacketTap(player, pipeline, tapRegistration.rawTapName());
-            boolean decodedInstalled = installDecodedPacketTap(player, pipeline, tapRegistration.decodedTapName());
-            installedTapNames.put(playerId, tapRegistration.withInstalled(rawInstalled, decodedInstalled));
+            boolean rawInstalled = installRawPacketTap(session, pipeline, rawTapName(player));
+            boolean decodedInstalled = installDecodedPacketTap(session, pipeline, decodedTapName(player));
+            session.setPacketTaps(rawInstalled, decodedInstalled);
             if (!rawInstalled && !decodedInstalled) {
-                installedTapNames.remove(playerId);
                 logger.debug("Failed to install signal packet taps for player {}", player.getUsername());
             }
         } catch (ReflectiveOperationException | RuntimeException exception) {
-            installedTapNames.remove(playerId);
             logger.debug("Unable to install signal packet taps for player {}", player.getUsername(), exception);
         }
     }
 
     private void uninstallPacketTap(Player player) {
-        Objects.requireNonNull(player, "player");
-        TapRegistration tapRegistration = installedTapNames.remove(player.getUniqueId());
-        if (tapRegistration == null) {
-            return;
-        }
-
         try {
             Object pipeline = resolvePipeline(player);
             if (pipeline == null) {
                 return;
             }
-            removePipelineHandler(pipeline, tapRegistration.rawTapName());
-            removePipelineHandler(pipeline, tapRegistration.decodedTapName());
+            removePipelineHandler(pipeline, rawTapName(player));
+            removePipelineHandler(pipeline, decodedTapName(player));
         } catch (ReflectiveOperationException | RuntimeException exception) {
             logger.debug("Unable to remove signal packet taps for player {}", player.getUsername(), exception);
         }
     }
 
-    private boolean installRawPacketTap(Player player, Object pipeline, String tapName) throws ReflectiveOperationException {
+    private boolean installRawPacketTap(VirtualSession session, Object pipeline, String tapName)
+            throws ReflectiveOperationException {
         if (getPipelineHandler(pipeline, tapName) != null) {
-            return true;
+            removePipelineHandler(pipeline, tapName);
         }
-        Object handler = createInboundTapHandler(player, this::inspectRawInboundMessage);
+        Object handler = createInboundTapHandler(session, (tapped, message) -> {
+            captureAndInspectRawInboundMessage(tapped, message);
+            return false;
+        });
         if (addBefore(pipeline, PIPELINE_HANDLER_MINECRAFT_DECODER, tapName, handler)) {
             return true;
         }
-        logger.debug("Failed to install raw signal packet tap for player {}", player.getUsername());
+        logger.debug("Failed to install raw signal packet tap for player {}", session.getPlayer().getUsername());
         return false;
     }
 
-    private boolean installDecodedPacketTap(Player player, Object pipeline, String tapName) throws ReflectiveOperationException {
+    private boolean installDecodedPacketTap(VirtualSession session, Object pipeline, String tapName)
+            throws ReflectiveOperationException {
+        Player player = session.getPlayer();
         if (getPipelineHandler(pipeline, tapName) != null) {
-            return true;
+            removePipelineHandler(pipeline, tapName);
         }
-        Object handler = createInboundTapHandler(player, this::inspectDecodedInboundMessage);
+        Object handler = createInboundTapHandler(session, this::inspectDecodedInboundMessage);
         if (addAfter(pipeline, PIPELINE_HANDLER_MINECRAFT_DECODER, tapName, handler)
                 || addBefore(pipeline, PIPELINE_HANDLER_MAIN, tapName, handler)
                 || addLast(pipeline, tapName, handler)) {
@@ -210,7 +276,8 @@ public final class VelocitySignalBridge {
         return false;
     }
 
-    private Object createInboundTapHandler(Player player, InboundInspector inspector) throws ClassNotFoundException {
+    private Object createInboundTapHandler(VirtualSession session, InboundInspector inspector) throws ClassNotFoundException {
+        Player player = session.getPlayer();
         ClassLoader classLoader = player.getClass().getClassLoader();
         Class<?> channelInboundHandlerClass = Class.forName("io.netty.channel.ChannelInboundHandler", true, classLoader);
 
@@ -227,8 +294,9 @@ public final class VelocitySignalBridge {
             try {
                 return switch (methodName) {
                     case "channelRead" -> {
-                        inspector.inspect(player, args[1]);
-                        invokeContext(args[0], "fireChannelRead", new Class<?>[]{Object.class}, new Object[]{args[1]});
+                        if (!inspector.inspect(session, args[1])) {
+                            invokeContext(args[0], "fireChannelRead", new Class<?>[]{Object.class}, new Object[]{args[1]});
+                        }
                         yield null;
                     }
                     case "channelRegistered" -> forwardInboundEvent(args[0], "fireChannelRegistered");
@@ -240,7 +308,10 @@ public final class VelocitySignalBridge {
                         invokeContext(args[0], "fireUserEventTriggered", new Class<?>[]{Object.class}, new Object[]{args[1]});
                         yield null;
                     }
-                    case "channelWritabilityChanged" -> forwardInboundEvent(args[0], "fireChannelWritabilityChanged");
+                    case "channelWritabilityChanged" -> {
+                        outboundQueues.onWritabilityChanged(player);
+                        yield forwardInboundEvent(args[0], "fireChannelWritabilityChanged");
+                    }
                     case "exceptionCaught" -> {
                         invokeContext(args[0], "fireExceptionCaught", new Class<?>[]{Throwable.class}, new Object[]{args[1]});
                         yield null;
@@ -281,63 +352,153 @@ public final class VelocitySignalBridge {
         return null;
     }
 
-    private void inspectInboundMessage(Player player, Object message) {
-        inspectDecodedInboundMessage(player, message);
-        inspectRawInboundMessage(player, message);
+    private void inspectInboundMessage(VirtualSession session, Object message) {
+        inspectDecodedInboundMessage(session, message);
+        inspectRawInboundMessage(session, message);
     }
 
-    private void inspectDecodedInboundMessage(Player player, Object message) {
-        if (!connectionStorage.isInVirtualServer(player)) {
-            return;
+    /**
+     * @return {@code true} if the message was answered here and must not be passed on
+     */
+    private boolean inspectDecodedInboundMessage(VirtualSession session, Object message) {
+        if (!session.isConnected()) {
+            return false;
         }
         if (message == null) {
-            return;
+            return false;
+        }
+
+        Player player = session.getPlayer();
+        PacketInspectionEvent event = PacketInspectionEvent.start();
+        if (inspectDecodedKeepAlivePacket(player, message)) {
+            event.finishDecoded(message, player, connectionStorage);
+            return false;
+        }
+        if (answerTabComplete(session, message)) {
+            event.finishDecoded(message, player, connectionStorage);
+            return true;
+        }
+        inspectDecodedChatOrCommandPacket(player, session.getServer(), message);
+        inspectDecodedMovementPacket(player, session.getServer(), message);
+        event.finishDecoded(message, player, connectionStorage);
+        if (!session.hasRawPacketTap() && isByteBuf(message)) {
+            inspectRawInboundMessage(session, message);
         }
+        return false;
+    }
 
-        inspectDecodedChatOrCommandPacket(player, message);
-        inspectDecodedMovementPacket(player, message);
-        if (!hasRawPacketTap(player) && isByteBuf(message)) {
-            inspectRawInboundMessage(player, message);
+    private void captureAndInspectRawInboundMessage(VirtualSession session, Object message) {
+        if (message == null || !isByteBuf(message)) {
+            return;
+        }
+        session.recordInboundFrame();
+        captureService.capture(session.getPlayer(), message);
+        if (session.isConnected() && packetFilter.accepts(session, message)) {
+            decodeRawInboundFrame(session.getPlayer(), session.getServer(), message);
         }
     }
 
-    private void inspectRawInboundMessage(Player player, Object message) {
-        if (!connectionStorage.isInVirtualServer(player)) {
+    private void inspectRawInboundMessage(VirtualSession session, Object message) {
+        if (!session.isConnected()) {
             return;
         }
         if (message == null) {
             return;
         }
-        if (!ProtocolVersion.MINECRAFT_1_21_4.equals(player.getProtocolVersion())) {
+        if (!isByteBuf(message) || !packetFilter.accepts(session, message)) {
             return;
         }
-        if (!isByteBuf(message)) {
+        decodeRawInboundFrame(session.getPlayer(), session.getServer(), message);
+    }
+
+    /**
+     * @param server virtual server of the player, or {@code null} for replayed frames
+     */
+    private void decodeRawInboundFrame(Player player, VirtualServer server, Object message) {
+        if (!ProtocolVersion.MINECRAFT_1_21_4.equals(player.getProtocolVersion())) {
             return;
         }
 
+        PacketInspectionEvent event = PacketInspectionEvent.start();
         try {
             Object copy = duplicateByteBuf(message);
             int packetId = readVarInt(copy);
             switch (packetId) {
-                case PACKET_ID_SET_PLAYER_POSITION_1_21_4 -> publishPosition(player, copy, PlayerPacketSignalKind.POSITION);
-                case PACKET_ID_SET_PLAYER_POSITION_AND_ROTATION_1_21_4 -> publishPositionAndRotation(player, copy);
-                case PACKET_ID_SET_PLAYER_ROTATION_1_21_4 -> publishRotation(player, copy, PlayerPacketSignalKind.ROTATION);
+                case PACKET_ID_SET_PLAYER_POSITION_1_21_4 ->
+                        publishPosition(player, server, copy, PlayerPacketSignalKind.POSITION);
+                case PACKET_ID_SET_PLAYER_POSITION_AND_ROTATION_1_21_4 -> publishPositionAndRotation(player, server, copy);
+                case PACKET_ID_SET_PLAYER_ROTATION_1_21_4 -> publishRotation(player, server, copy, PlayerPacketSignalKind.ROTATION);
                 default -> {
                 }
             }
+            event.finishRaw(packetId, player, connectionStorage);
         } catch (ReflectiveOperationException | RuntimeException exception) {
+            metrics.recordDecodeError();
             logger.debug("Failed to inspect inbound packet for player {}", player.getUsername(), exception);
         }
     }
 
-    private boolean inspectDecodedChatOrCommandPacket(Player player, Object message) {
+    private boolean inspectDecodedKeepAlivePacket(Player player, Object message) {
+        if (!message.getClass().getName().endsWith("KeepAlivePacket")) {
+            return false;
+        }
+
+        try {
+            Object randomId = message.getClass().getMethod("getRandomId").invoke(message);
+            if (randomId instanceof Long id) {
+                keepAliveService.handleResponse(player, id);
+            }
+        } catch (ReflectiveOperationException | RuntimeException exception) {
+            metrics.recordDecodeError();
+            logger.debug("Failed to inspect keep-alive packet for player {}", player.getUsername(), exception);
+        }
+        return true;
+    }
+
+    /**
+     * Answers completion of a command routed by the virtual server. Other requests, such as those for
+     * proxy commands, are left to Velocity.
+     */
+    private boolean answerTabComplete(VirtualSession session, Object message) {
+        if (!TabCompletePackets.isRequest(message) || !commandRouter.hasCommands(session.getServer())) {
+            return false;
+        }
+
+        Player player = session.getPlayer();
+        try {
+            String typed = TabCompletePackets.command(message);
+            if (typed == null || !typed.startsWith("/")) {
+                return false;
+            }
+            CommandLine command = CommandLine.of(typed.substring(1));
+            List<String> offers = commandRouter.suggest(session.getServer(), player, command);
+            if (offers.isEmpty() && !commandRouter.isRegistered(session.getServer(), command)) {
+                return false;
+            }
+
+            int replaced = command.endsWithSeparator() ? command.raw().length() : command.tokenStart(command.size() - 1);
+            int start = 1 + replaced;
+            Object response = TabCompletePackets.response(message, start, typed.length() - start, offers);
+            MinecraftConnections.write(MinecraftConnections.connection(player), response);
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException exception) {
+            metrics.recordDecodeError();
+            logger.debug("Failed to answer tab completion for player {}", player.getUsername(), exception);
+            return false;
+        }
+    }
+
+    /**
+     * @param server virtual server whose commands are routed, or {@code null} for replayed frames
+     */
+    private boolean inspectDecodedChatOrCommandPacket(Player player, VirtualServer server, Object message) {
         String className = message.getClass().getName();
 
         try {
             if (className.endsWith("SessionPlayerChatPacket") || className.endsWith("KeyedPlayerChatPacket")) {
                 String chatMessage = tryInvokeStringGetter(message, "getMessage");
                 if (chatMessage != null) {
-                    signalBus.publish(new PlayerChatSignal(player, new PlayerChatPayload(chatMessage)));
+                    signalBus.publish(new PlayerChatSignal(player, new PlayerChatPayload(chatMessage), server));
                     return true;
                 }
             }
@@ -346,9 +507,9 @@ public final class VelocitySignalBridge {
                 String legacyMessage = tryInvokeStringGetter(message, "getMessage");
                 if (legacyMessage != null) {
                     if (legacyMessage.startsWith("/")) {
-                        publishCommandFromRaw(player, legacyMessage.substring(1), "PLAYER", "UNSUPPORTED");
+                        publishCommandFromRaw(player, server, legacyMessage.substring(1), "PLAYER", "UNSUPPORTED");
                     } else {
-                        signalBus.publish(new PlayerChatSignal(player, new PlayerChatPayload(legacyMessage)));
+                        signalBus.publish(new PlayerChatSignal(player, new PlayerChatPayload(legacyMessage), server));
                     }
                     return true;
                 }
@@ -360,18 +521,19 @@ public final class VelocitySignalBridge {
                 String command = tryInvokeStringGetter(message, "getCommand");
                 if (command != null) {
                     String signedState = resolveSignedStateName(message);
-                    publishCommandFromRaw(player, command, "PLAYER", signedState);
+                    publishCommandFromRaw(player, server, command, "PLAYER", signedState);
                     return true;
                 }
             }
         } catch (ReflectiveOperationException | RuntimeException exception) {
+            metrics.recordDecodeError();
             logger.debug("Failed to inspect decoded chat/command packet for player {}", player.getUsername(), exception);
         }
 
         return false;
     }
 
-    private boolean inspectDecodedMovementPacket(Player player, Object message) {
+    private boolean inspectDecodedMovementPacket(Player player, VirtualServer server, Object message) {
         String className = message.getClass().getName();
         if (!className.contains("MovePlayerPacket")) {
             return false;
@@ -397,19 +559,25 @@ public final class VelocitySignalBridge {
                 return false;
             }
 
+            if (hasPosition) {
+                updatePositionIndex(player, server, x, y, z);
+            }
+
             if (hasPosition && hasRotation) {
-                signalBus.publish(new PlayerMoveSignal(player, new PlayerMovePayload(
-                        x, y, z,
-                        isOnGround(flags),
-                        hasHorizontalCollision(flags),
-                        PlayerPacketSignalKind.POSITION_AND_ROTATION
-                )));
-                signalBus.publish(new PlayerLookSignal(player, new PlayerLookPayload(
-                        yaw, pitch,
-                        isOnGround(flags),
-                        hasHorizontalCollision(flags),
-                        PlayerPacketSignalKind.POSITION_AND_ROTATION
-                )));
+                signalBus.publishAll(List.of(
+                        new PlayerMoveSignal(player, new PlayerMovePayload(
+                                x, y, z,
+                                isOnGround(flags),
+                                hasHorizontalCollision(flags),
+                                PlayerPacketSignalKind.POSITION_AND_ROTATION
+                        ), server),
+                        new PlayerLookSignal(player, new PlayerLookPayload(
+                                yaw, pitch,
+                                isOnGround(flags),
+                                hasHorizontalCollision(flags),
+                                PlayerPacketSignalKind.POSITION_AND_ROTATION
+                        ), server)
+                ));
                 return true;
             }
 
@@ -419,7 +587,7 @@ public final class VelocitySignalBridge {
                         isOnGround(flags),
                         hasHorizontalCollision(flags),
                         PlayerPacketSignalKind.POSITION
-                )));
+                ), server));
                 return true;
             }
 
@@ -428,32 +596,38 @@ public final class VelocitySignalBridge {
                     isOnGround(flags),
                     hasHorizontalCollision(flags),
                     PlayerPacketSignalKind.ROTATION
-            )));
+            ), server));
             return true;
         } catch (ReflectiveOperationException | RuntimeException exception) {
+            metrics.recordDecodeError();
             logger.debug("Failed to inspect decoded movement packet for player {}", player.getUsername(), exception);
             return false;
         }
     }
 
-    private void publishCommandFromRaw(Player player, String rawCommand, String invocationSource, String signedState) {
-        CommandParts parts = splitCommand(rawCommand);
-        signalBus.publish(new PlayerCommandSignal(player, new PlayerCommandPayload(
-                rawCommand,
-                parts.label(),
-                List.copyOf(parts.arguments()),
-                invocationSource,
-                signedState
-        )));
+    private void publishCommandFromRaw(
+            Player player,
+            VirtualServer server,
+            String rawCommand,
+            String invocationSource,
+            String signedState
+    ) {
+        CommandLine command = CommandLine.of(rawCommand);
+        if (server != null) {
+            commandRouter.dispatch(server, player, command);
+        }
+        PlayerCommandPayload payload = PlayerCommandPayload.of(command, invocationSource, signedState);
+        signalBus.publish(new PlayerCommandSignal(player, payload, server));
     }
 
-    private void publishPosition(Player player, Object byteBuf, PlayerPacketSignalKind kind)
+    private void publishPosition(Player player, VirtualServer server, Object byteBuf, PlayerPacketSignalKind kind)
             throws ReflectiveOperationException {
         double x = readDouble(byteBuf);
         double y = readDouble(byteBuf);
         double z = readDouble(byteBuf);
         int flags = readUnsignedByte(byteBuf);
 
+        updatePositionIndex(player, server, x, y, z);
         signalBus.publish(new PlayerMoveSignal(player, new PlayerMovePayload(
                 x,
                 y,
@@ -461,10 +635,10 @@ public final class VelocitySignalBridge {
                 isOnGround(flags),
                 hasHorizontalCollision(flags),
                 kind
-        )));
+        ), server));
     }
 
-    private void publishPositionAndRotation(Player player, Object byteBuf)
+    private void publishPositionAndRotation(Player player, VirtualServer server, Object byteBuf)
             throws ReflectiveOperationException {
         double x = readDouble(byteBuf);
         double y = readDouble(byteBuf);
@@ -473,24 +647,27 @@ public final class VelocitySignalBridge {
         float pitch = readFloat(byteBuf);
         int flags = readUnsignedByte(byteBuf);
 
-        signalBus.publish(new PlayerMoveSignal(player, new PlayerMovePayload(
-                x,
-                y,
-                z,
-                isOnGround(flags),
-                hasHorizontalCollision(flags),
-                PlayerPacketSignalKind.POSITION_AND_ROTATION
-        )));
-        signalBus.publish(new PlayerLookSignal(player, new PlayerLookPayload(
-                yaw,
-                pitch,
-                isOnGround(flags),
-                hasHorizontalCollision(flags),
-                PlayerPacketSignalKind.POSITION_AND_ROTATION
-        )));
+        updatePositionIndex(player, server, x, y, z);
+        signalBus.publishAll(List.of(
+                new PlayerMoveSignal(player, new PlayerMovePayload(
+                        x,
+                        y,
+                        z,
+                        isOnGround(flags),
+                        hasHorizontalCollision(flags),
+                        PlayerPacketSignalKind.POSITION_AND_ROTATION
+                ), server),
+                new PlayerLookSignal(player, new PlayerLookPayload(
+                        yaw,
+                        pitch,
+                        isOnGround(flags),
+                        hasHorizontalCollision(flags),
+                        PlayerPacketSignalKind.POSITION_AND_ROTATION
+                ), server)
+        ));
     }
 
-    private void publishRotation(Player player, Object byteBuf, PlayerPacketSignalKind kind)
+    private void publishRotation(Player player, VirtualServer server, Object byteBuf, PlayerPacketSignalKind kind)
             throws ReflectiveOperationException {
         float yaw = readFloat(byteBuf);
         float pitch = readFloat(byteBuf);
@@ -502,7 +679,14 @@ public final class VelocitySignalBridge {
                 isOnGround(flags),
                 hasHorizontalCollision(flags),
                 kind
-        )));
+        ), server));
+    }
+
+    private void updatePositionIndex(Player player, VirtualServer server, double x, double y, double z) {
+        if (server != null && server.getPositionIndex() instanceof GridPlayerPositionIndex positionIndex) {
+            positionIndex.update(player, x, y, z);
+        }
+        worldManager.updatePosition(player, x, z);
     }
 
     private static boolean isOnGround(int flags) {
@@ -781,44 +965,23 @@ public final class VelocitySignalBridge {
         return null;
     }
 
-    private static CommandParts splitCommand(String rawCommand) {
-        if (rawCommand == null || rawCommand.isBlank()) {
-            return new CommandParts("", List.of());
-        }
-
-        String normalized = rawCommand.stripLeading();
-        if (normalized.isEmpty()) {
-            return new CommandParts("", List.of());
-        }
-
-        String[] parts = normalized.split("\\s+");
-        String label = parts.length == 0 ? "" : parts[0];
-        if (parts.length <= 1) {
-            return new CommandParts(label, List.of());
-        }
-
-        List<String> arguments = new ArrayList<>(parts.length - 1);
-        for (int i = 1; i < parts.length; i++) {
-            arguments.add(parts[i]);
-        }
-        return new CommandParts(label, arguments);
-    }
-
-    private record CommandParts(String label, List<String> arguments) {
-    }
-
     private static <T> T firstNonNull(T first, T second) {
         return first != null ? first : second;
     }
 
-    private record TapRegistration(String rawTapName, String decodedTapName, boolean rawInstalled, boolean decodedInstalled) {
-        private TapRegistration withInstalled(boolean rawInstalled, boolean decodedInstalled) {
-            return new TapRegistration(rawTapName, decodedTapName, rawInstalled, decodedInstalled);
-        }
+    private static String rawTapName(Player player) {
+        return SIGNAL_TAP_PREFIX + player.getUniqueId() + "-raw";
+    }
+
+    private static String decodedTapName(Player player) {
+        return SIGNAL_TAP_PREFIX + player.getUniqueId() + "-decoded";
     }
 
     @FunctionalInterface
     private interface InboundInspector {
-        void inspect(Player player, Object message);
+        /**
+         * @return {@code true} to stop the message from reaching the next handler
+         */
+        boolean inspect(VirtualSession session, Object message);
     }
 }
@@ -0,0 +1,691 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.spatial;
+
+import com.velocitypowered.api.proxy.Player;
+import io.github.zapolyarnydev.proxyvirtualizer.api.spatial.PlayerPositionIndex;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * Uniform-grid spatial hash over the horizontal plane.
+ * <p>
+ * Players occupy slots in parallel coordinate arrays; each grid cell keeps a compact array of slot
+ * numbers. Moving inside a cell only overwrites coordinates, moving across cells is a swap-remove
+ * from one cell array and an append to another, so steady-state updates do not allocate.
+ */
+public final class GridPlayerPositionIndex implements PlayerPositionIndex {
+    public static final double DEFAULT_CELL_SIZE = 16.0D;
+
+    private static final int INITIAL_SLOTS = 16;
+    private static final int INITIAL_CELL_CAPACITY = 4;
+
+    private final double cellSize;
+    private final double inverseCellSize;
+    private final StampedLock lock = new StampedLock();
+    private final Map<UUID, Integer> slotsByPlayer = new HashMap<>();
+    private final CellTable cells = new CellTable();
+
+    private Player[] players = new Player[INITIAL_SLOTS];
+    private double[] xs = new double[INITIAL_SLOTS];
+    private double[] ys = new double[INITIAL_SLOTS];
+    private double[] zs = new double[INITIAL_SLOTS];
+    private long[] cellKeys = new long[INITIAL_SLOTS];
+    private int[] indexInCell = new int[INITIAL_SLOTS];
+    private int[] freeSlots = new int[INITIAL_SLOTS];
+    private int freeCount;
+    private int slotHighWater;
+
+    private int minCellX = Integer.MAX_VALUE;
+    private int maxCellX = Integer.MIN_VALUE;
+    private int minCellZ = Integer.MAX_VALUE;
+    private int maxCellZ = Integer.MIN_VALUE;
+
+    public GridPlayerPositionIndex() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    public GridPlayerPositionIndex(double cellSize) {
+        if (!(cellSize > 0.0D) || Double.isInfinite(cellSize)) {
+            throw new IllegalArgumentException("Cell size must be positive");
+        }
+        this.cellSize = cellSize;
+        this.inverseCellSize = 1.0D / cellSize;
+    }
+
+    /**
+     * Records the position of a player, inserting the player if needed.
+     */
+    public void update(Player player, double x, double y, double z) {
+        Objects.requireNonNull(player, "player");
+        if (Double.isNaN(x) || Double.isNaN(y) || Double.isNaN(z)) {
+            return;
+        }
+
+        long key = cellKey(cellCoordinate(x), cellCoordinate(z));
+        long stamp = lock.writeLock();
+        try {
+            Integer existing = slotsByPlayer.get(player.getUniqueId());
+            int slot;
+            if (existing == null) {
+                slot = allocateSlot();
+                slotsByPlayer.put(player.getUniqueId(), slot);
+                players[slot] = player;
+                addToCell(slot, key);
+            } else {
+                slot = existing;
+                players[slot] = player;
+                if (cellKeys[slot] != key) {
+                    removeFromCell(slot);
+                    addToCell(slot, key);
+                }
+            }
+            xs[slot] = x;
+            ys[slot] = y;
+            zs[slot] = z;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean remove(Player player) {
+        if (player == null) {
+            return false;
+        }
+        long stamp = lock.writeLock();
+        try {
+            Integer slot = slotsByPlayer.remove(player.getUniqueId());
+            if (slot == null) {
+                return false;
+            }
+            removeFromCell(slot);
+            players[slot] = null;
+            releaseSlot(slot);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            slotsByPlayer.clear();
+            cells.clear();
+            Arrays.fill(players, null);
+            freeCount = 0;
+            slotHighWater = 0;
+            minCellX = Integer.MAX_VALUE;
+            maxCellX = Integer.MIN_VALUE;
+            minCellZ = Integer.MAX_VALUE;
+            maxCellZ = Integer.MIN_VALUE;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return slotsByPlayer.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public boolean contains(Player player) {
+        if (player == null) {
+            return false;
+        }
+        long stamp = lock.readLock();
+        try {
+            return slotsByPlayer.containsKey(player.getUniqueId());
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public int forEachInBox(
+            double minX, double minY, double minZ,
+            double maxX, double maxY, double maxZ,
+            Consumer<? super Player> consumer
+    ) {
+        Objects.requireNonNull(consumer, "consumer");
+        if (minX > maxX || minY > maxY || minZ > maxZ) {
+            return 0;
+        }
+
+        long stamp = lock.readLock();
+        try {
+            int fromX = Math.max(cellCoordinate(minX), minCellX);
+            int toX = Math.min(cellCoordinate(maxX), maxCellX);
+            int fromZ = Math.max(cellCoordinate(minZ), minCellZ);
+            int toZ = Math.min(cellCoordinate(maxZ), maxCellZ);
+            if (fromX > toX || fromZ > toZ) {
+                return 0;
+            }
+
+            int visited = 0;
+            if (((long) toX - fromX + 1) * ((long) toZ - fromZ + 1) > cells.size()) {
+                for (int i = 0; i < cells.capacity(); i++) {
+                    Cell cell = cells.valueAt(i);
+                    if (cell != null) {
+                        visited += visitBox(cell, minX, minY, minZ, maxX, maxY, maxZ, consumer);
+                    }
+                }
+                return visited;
+            }
+
+            for (int cellX = fromX; cellX <= toX; cellX++) {
+                for (int cellZ = fromZ; cellZ <= toZ; cellZ++) {
+                    Cell cell = cells.get(cellKey(cellX, cellZ));
+                    if (cell != null) {
+                        visited += visitBox(cell, minX, minY, minZ, maxX, maxY, maxZ, consumer);
+                    }
+                }
+            }
+            return visited;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public int forEachInRadius(double x, double y, double z, double radius, Consumer<? super Player> consumer) {
+        Objects.requireNonNull(consumer, "consumer");
+        if (!(radius >= 0.0D)) {
+            return 0;
+        }
+
+        double radiusSquared = radius * radius;
+        long stamp = lock.readLock();
+        try {
+            int fromX = Math.max(cellCoordinate(x - radius), minCellX);
+            int toX = Math.min(cellCoordinate(x + radius), maxCellX);
+            int fromZ = Math.max(cellCoordinate(z - radius), minCellZ);
+            int toZ = Math.min(cellCoordinate(z + radius), maxCellZ);
+            if (fromX > toX || fromZ > toZ) {
+                return 0;
+            }
+
+            int visited = 0;
+            if (((long) toX - fromX + 1) * ((long) toZ - fromZ + 1) > cells.size()) {
+                for (int i = 0; i < cells.capacity(); i++) {
+                    Cell cell = cells.valueAt(i);
+                    if (cell != null) {
+                        visited += visitRadius(cell, x, y, z, radiusSquared, consumer);
+                    }
+                }
+                return visited;
+            }
+
+            for (int cellX = fromX; cellX <= toX; cellX++) {
+                for (int cellZ = fromZ; cellZ <= toZ; cellZ++) {
+                    Cell cell = cells.get(cellKey(cellX, cellZ));
+                    if (cell != null) {
+                        visited += visitRadius(cell, x, y, z, radiusSquared, consumer);
+                    }
+                }
+            }
+            return visited;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public List<Player> getNearest(double x, double y, double z, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+
+        long stamp = lock.readLock();
+        try {
+            int population = slotsByPlayer.size();
+            if (population == 0) {
+                return List.of();
+            }
+
+            NearestHeap heap = new NearestHeap(Math.min(limit, population));
+            int centerX = cellCoordinate(x);
+            int centerZ = cellCoordinate(z);
+            long maxRing = Math.max(
+                    Math.max(Math.abs((long) centerX - minCellX), Math.abs((long) maxCellX - centerX)),
+                    Math.max(Math.abs((long) centerZ - minCellZ), Math.abs((long) maxCellZ - centerZ))
+            );
+
+            for (long ring = 0; ring <= maxRing; ring++) {
+                if (heap.isFull()) {
+                    double ringDistance = (ring - 1) * cellSize;
+                    if (ringDistance > 0.0D && ringDistance * ringDistance > heap.worstDistance()) {
+                        break;
+                    }
+                }
+                // Once the square walked so far covers more cells than are occupied, scanning the
+                // occupied cells directly is cheaper than probing empty ones ring after ring.
+                long side = 2 * ring + 1;
+                if (side * side > cells.size()) {
+                    offerCellsFrom(centerX, centerZ, ring, x, y, z, heap);
+                    break;
+                }
+                visitRing(centerX, centerZ, (int) ring, x, y, z, heap);
+            }
+            return heap.toSortedPlayers(players);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private void visitRing(int centerX, int centerZ, int ring, double x, double y, double z, NearestHeap heap) {
+        if (ring == 0) {
+            offerCell(centerX, centerZ, x, y, z, heap);
+            return;
+        }
+        for (long offset = -ring; offset <= ring; offset++) {
+            offerCell((long) centerX + offset, (long) centerZ - ring, x, y, z, heap);
+            offerCell((long) centerX + offset, (long) centerZ + ring, x, y, z, heap);
+        }
+        for (long offset = -ring + 1; offset <= ring - 1; offset++) {
+            offerCell((long) centerX - ring, (long) centerZ + offset, x, y, z, heap);
+            offerCell((long) centerX + ring, (long) centerZ + offset, x, y, z, heap);
+        }
+    }
+
+    /**
+     * Offers every occupied cell at least {@code fromRing} rings away from the center, the ones not
+     * walked yet.
+     */
+    private void offerCellsFrom(int centerX, int centerZ, long fromRing, double x, double y, double z, NearestHeap heap) {
+        for (int i = 0; i < cells.capacity(); i++) {
+            Cell cell = cells.valueAt(i);
+            if (cell == null) {
+                continue;
+            }
+            long key = cells.keyAt(i);
+            long ring = Math.max(Math.abs((long) (int) (key >> 32) - centerX), Math.abs((long) (int) key - centerZ));
+            if (ring >= fromRing) {
+                offerCell(cell, x, y, z, heap);
+            }
+        }
+    }
+
+    private void offerCell(long cellX, long cellZ, double x, double y, double z, NearestHeap heap) {
+        // Cells past the int range do not exist; skipping them also keeps wrapped keys from offering a cell twice.
+        if (cellX < Integer.MIN_VALUE || cellX > Integer.MAX_VALUE || cellZ < Integer.MIN_VALUE || cellZ > Integer.MAX_VALUE) {
+            return;
+        }
+        offerCell(cells.get(cellKey((int) cellX, (int) cellZ)), x, y, z, heap);
+    }
+
+    private void offerCell(Cell cell, double x, double y, double z, NearestHeap heap) {
+        if (cell == null) {
+            return;
+        }
+        for (int i = 0; i < cell.size; i++) {
+            int slot = cell.slots[i];
+            heap.offer(slot, distanceSquared(slot, x, y, z));
+        }
+    }
+
+    private int visitBox(
+            Cell cell,
+            double minX, double minY, double minZ,
+            double maxX, double maxY, double maxZ,
+            Consumer<? super Player> consumer
+    ) {
+        int visited = 0;
+        for (int i = 0; i < cell.size; i++) {
+            int slot = cell.slots[i];
+            double px = xs[slot];
+            double py = ys[slot];
+            double pz = zs[slot];
+            if (px >= minX && px <= maxX && py >= minY && py <= maxY && pz >= minZ && pz <= maxZ) {
+                consumer.accept(players[slot]);
+                visited++;
+            }
+        }
+        return visited;
+    }
+
+    private int visitRadius(Cell cell, double x, double y, double z, double radiusSquared, Consumer<? super Player> consumer) {
+        int visited = 0;
+        for (int i = 0; i < cell.size; i++) {
+            int slot = cell.slots[i];
+            if (distanceSquared(slot, x, y, z) <= radiusSquared) {
+                consumer.accept(players[slot]);
+                visited++;
+            }
+        }
+        return visited;
+    }
+
+    private double distanceSquared(int slot, double x, double y, double z) {
+        double dx = xs[slot] - x;
+        double dy = ys[slot] - y;
+        double dz = zs[slot] - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private void addToCell(int slot, long key) {
+        Cell cell = cells.get(key);
+        if (cell == null) {
+            cell = new Cell();
+            cells.put(key, cell);
+            int cellX = (int) (key >> 32);
+            int cellZ = (int) key;
+            minCellX = Math.min(minCellX, cellX);
+            maxCellX = Math.max(maxCellX, cellX);
+            minCellZ = Math.min(minCellZ, cellZ);
+            maxCellZ = Math.max(maxCellZ, cellZ);
+        }
+        if (cell.size == cell.slots.length) {
+            cell.slots = Arrays.copyOf(cell.slots, cell.size * 2);
+        }
+        cell.slots[cell.size] = slot;
+        indexInCell[slot] = cell.size;
+        cell.size++;
+        cellKeys[slot] = key;
+    }
+
+    private void removeFromCell(int slot) {
+        long key = cellKeys[slot];
+        Cell cell = cells.get(key);
+        if (cell == null) {
+            return;
+        }
+        int index = indexInCell[slot];
+        int last = cell.size - 1;
+        if (index != last) {
+            int moved = cell.slots[last];
+            cell.slots[index] = moved;
+            indexInCell[moved] = index;
+        }
+        cell.size = last;
+        if (last == 0) {
+            cells.remove(key);
+            int cellX = (int) (key >> 32);
+            int cellZ = (int) key;
+            if (cellX == minCellX || cellX == maxCellX || cellZ == minCellZ || cellZ == maxCellZ) {
+                recomputeBounds();
+            }
+        }
+    }
+
+    /**
+     * Shrinks the occupied bounds after an edge cell emptied, so one player who once went far away does
+     * not widen every later query.
+     */
+    private void recomputeBounds() {
+        minCellX = Integer.MAX_VALUE;
+        maxCellX = Integer.MIN_VALUE;
+        minCellZ = Integer.MAX_VALUE;
+        maxCellZ = Integer.MIN_VALUE;
+        for (int i = 0; i < cells.capacity(); i++) {
+            if (cells.valueAt(i) == null) {
+                continue;
+            }
+            long key = cells.keyAt(i);
+            int cellX = (int) (key >> 32);
+            int cellZ = (int) key;
+            minCellX = Math.min(minCellX, cellX);
+            maxCellX = Math.max(maxCellX, cellX);
+            minCellZ = Math.min(minCellZ, cellZ);
+            maxCellZ = Math.max(maxCellZ, cellZ);
+        }
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (slotHighWater == players.length) {
+            int capacity = players.length * 2;
+            players = Arrays.copyOf(players, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            zs = Arrays.copyOf(zs, capacity);
+            cellKeys = Arrays.copyOf(cellKeys, capacity);
+            indexInCell = Arrays.copyOf(indexInCell, capacity);
+            freeSlots = Arrays.copyOf(freeSlots, capacity);
+        }
+        return slotHighWater++;
+    }
+
+    private void releaseSlot(int slot) {
+        freeSlots[freeCount++] = slot;
+    }
+
+    private int cellCoordinate(double coordinate) {
+        double scaled = Math.floor(coordinate * inverseCellSize);
+        if (scaled >= Integer.MAX_VALUE) {
+            return Integer.MAX_VALUE;
+        }
+        if (scaled <= Integer.MIN_VALUE) {
+            return Integer.MIN_VALUE;
+        }
+        return (int) scaled;
+    }
+
+    private static long cellKey(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+
+    private static final class Cell {
+        private int[] slots = new int[INITIAL_CELL_CAPACITY];
+        private int size;
+    }
+
+    /**
+     * Open-addressing map from packed cell coordinates to cells, avoiding boxed keys.
+     */
+    private static final class CellTable {
+        private static final int INITIAL_CAPACITY = 64;
+
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private Cell[] values = new Cell[INITIAL_CAPACITY];
+        private int size;
+
+        private int size() {
+            return size;
+        }
+
+        private int capacity() {
+            return values.length;
+        }
+
+        private Cell valueAt(int index) {
+            return values[index];
+        }
+
+        private long keyAt(int index) {
+            return keys[index];
+        }
+
+        private Cell get(long key) {
+            int mask = values.length - 1;
+            int index = mix(key) & mask;
+            while (true) {
+                Cell value = values[index];
+                if (value == null) {
+                    return null;
+                }
+                if (keys[index] == key) {
+                    return value;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        private void put(long key, Cell cell) {
+            if ((size + 1) * 2 > values.length) {
+                resize(values.length * 2);
+            }
+            int mask = values.length - 1;
+            int index = mix(key) & mask;
+            while (values[index] != null) {
+                if (keys[index] == key) {
+                    values[index] = cell;
+                    return;
+                }
+                index = (index + 1) & mask;
+            }
+            keys[index] = key;
+            values[index] = cell;
+            size++;
+        }
+
+        private void remove(long key) {
+            int mask = values.length - 1;
+            int index = mix(key) & mask;
+            while (values[index] != null) {
+                if (keys[index] == key) {
+                    shiftBack(index, mask);
+                    size--;
+                    return;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        private void clear() {
+            Arrays.fill(values, null);
+            size = 0;
+        }
+
+        private void shiftBack(int hole, int mask) {
+            int current = hole;
+            while (true) {
+                current = (current + 1) & mask;
+                Cell value = values[current];
+                if (value == null) {
+                    values[hole] = null;
+                    return;
+                }
+                int home = mix(keys[current]) & mask;
+                boolean movable = hole <= current
+                        ? home <= hole || home > current
+                        : home <= hole && home > current;
+                if (movable) {
+                    keys[hole] = keys[current];
+                    values[hole] = value;
+                    hole = current;
+                }
+            }
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            Cell[] oldValues = values;
+            keys = new long[capacity];
+            values = new Cell[capacity];
+            size = 0;
+            for (int i = 0; i < oldValues.length; i++) {
+                if (oldValues[i] != null) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int mix(long key) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32));
+        }
+    }
+
+    /**
+     * Bounded max-heap keeping the closest slots seen so far.
+     */
+    private static final class NearestHeap {
+        private final int[] slots;
+        private final double[] distances;
+        private int size;
+
+        private NearestHeap(int capacity) {
+            this.slots = new int[capacity];
+            this.distances = new double[capacity];
+        }
+
+        private boolean isFull() {
+            return size == slots.length;
+        }
+
+        private double worstDistance() {
+            return distances[0];
+        }
+
+        private void offer(int slot, double distance) {
+            if (size < slots.length) {
+                int index = size++;
+                slots[index] = slot;
+                distances[index] = distance;
+                siftUp(index);
+                return;
+            }
+            if (distance >= distances[0]) {
+                return;
+            }
+            slots[0] = slot;
+            distances[0] = distance;
+            siftDown(0);
+        }
+
+        private List<Player> toSortedPlayers(Player[] players) {
+            Player[] sorted = new Player[size];
+            while (size > 0) {
+                sorted[size - 1] = players[slots[0]];
+                size--;
+                slots[0] = slots[size];
+                distances[0] = distances[size];
+                siftDown(0);
+            }
+            return List.of(sorted);
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (distances[parent] >= distances[index]) {
+                    return;
+                }
+                swap(parent, index);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int left = index * 2 + 1;
+                if (left >= size) {
+                    return;
+                }
+                int largest = left;
+                int right = left + 1;
+                if (right < size && distances[right] > distances[left]) {
+                    largest = right;
+                }
+                if (distances[index] >= distances[largest]) {
+                    return;
+                }
+                swap(index, largest);
+                index = largest;
+            }
+        }
+
+        private void swap(int first, int second) {
+            int slot = slots[first];
+            slots[first] = slots[second];
+            slots[second] = slot;
+            double distance = distances[first];
+            distances[first] = distances[second];
+            distances[second] = distance;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.state;
+
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Launch state of a virtual server: its name, supported protocol versions and packet version matrix,
+ * both sorted so equal states compare equal.
+ */
+record ServerState(String name, List<Integer> protocols, List<VirtualServer.PacketVersionRule> rules) {
+    private static final Comparator<VirtualServer.PacketVersionRule> RULE_ORDER = Comparator
+            .comparing(VirtualServer.PacketVersionRule::packetKey)
+            .thenComparingInt(VirtualServer.PacketVersionRule::protocolVersion);
+
+    ServerState {
+        protocols = protocols.stream().sorted().toList();
+        rules = rules.stream().sorted(RULE_ORDER).toList();
+    }
+
+    static ServerState of(VirtualServer server) {
+        List<VirtualServer.PacketVersionRule> rules = new ArrayList<>();
+        for (Set<VirtualServer.PacketVersionRule> packetRules : server.getPacketVersionMatrix().values()) {
+            rules.addAll(packetRules);
+        }
+        return new ServerState(server.getName(), List.copyOf(server.getSupportedProtocolVersions()), rules);
+    }
+
+    /**
+     * Makes the protocols and packet matrix of a freshly launched server match this state.
+     */
+    void applyTo(VirtualServer server) {
+        for (int protocol : server.getSupportedProtocolVersions()) {
+            if (!protocols.contains(protocol)) {
+                server.disallowProtocolVersion(protocol);
+            }
+        }
+        for (int protocol : protocols) {
+            server.allowProtocolVersion(protocol);
+        }
+        for (Map.Entry<String, Set<VirtualServer.PacketVersionRule>> entry : server.getPacketVersionMatrix().entrySet()) {
+            for (VirtualServer.PacketVersionRule rule : entry.getValue()) {
+                if (!rules.contains(rule)) {
+                    server.removePacketVersion(rule.packetKey(), rule.protocolVersion());
+                }
+            }
+        }
+        for (VirtualServer.PacketVersionRule rule : rules) {
+            server.registerPacketVersion(rule.packetKey(), rule.protocolVersion(), rule.packetVersion());
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.state;
+
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Memory-mapped log of warm restart state.
+ * <p>
+ * Layout (big-endian): a header of {@link #MAGIC}, the generation and the write time in epoch millis,
+ * followed by records. A log starts with a full snapshot and then grows by appended changes; a later
+ * record for the same server or player replaces an earlier one. The generation is written last, once
+ * the snapshot is on disk, so a log with generation zero is incomplete and ignored. A record's tag is
+ * written after its body into zeroed space, so an unfinished record reads as the end of the log.
+ */
+final class WarmStateLog implements Closeable {
+    static final long MAGIC = 0x5056_5741_524D_0001L;
+
+    private static final int GENERATION_OFFSET = Long.BYTES;
+    private static final int HEADER_BYTES = Long.BYTES * 3;
+    private static final byte RECORD_SERVER = 1;
+    private static final byte RECORD_SERVER_REMOVED = 2;
+    private static final byte RECORD_AFFINITY = 3;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private boolean closed;
+
+    private WarmStateLog(FileChannel channel, MappedByteBuffer buffer) {
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Replaces the file with an empty log of the given capacity. The log stays invisible to
+     * {@link #read} until {@link #commit} is called.
+     */
+    static WarmStateLog create(Path file, int capacity) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        FileChannel channel = FileChannel.open(
+                file,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE
+        );
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            buffer.putLong(MAGIC);
+            buffer.putLong(0L);
+            buffer.putLong(System.currentTimeMillis());
+            return new WarmStateLog(channel, buffer);
+        } catch (IOException | RuntimeException exception) {
+            channel.close();
+            throw exception;
+        }
+    }
+
+    /**
+     * Forces the snapshot written so far to disk, then marks the log valid with its generation.
+     */
+    void commit(long generation) {
+        buffer.force();
+        buffer.putLong(GENERATION_OFFSET, generation);
+        buffer.force(GENERATION_OFFSET, Long.BYTES);
+    }
+
+    /**
+     * @return {@code false} if the log has no room left for the record
+     */
+    boolean appendServer(ServerState state) {
+        int start = buffer.position();
+        try {
+            buffer.position(start + 1);
+            putString(state.name());
+            buffer.putInt(state.protocols().size());
+            for (int protocol : state.protocols()) {
+                buffer.putInt(protocol);
+            }
+            buffer.putInt(state.rules().size());
+            for (VirtualServer.PacketVersionRule rule : state.rules()) {
+                putString(rule.packetKey());
+                buffer.putInt(rule.protocolVersion());
+                buffer.putInt(rule.packetVersion());
+            }
+            buffer.put(start, RECORD_SERVER);
+            return true;
+        } catch (BufferOverflowException exception) {
+            buffer.position(start);
+            return false;
+        }
+    }
+
+    boolean appendServerRemoved(String name) {
+        int start = buffer.position();
+        try {
+            buffer.position(start + 1);
+            putString(name);
+            buffer.put(start, RECORD_SERVER_REMOVED);
+            return true;
+        } catch (BufferOverflowException exception) {
+            buffer.position(start);
+            return false;
+        }
+    }
+
+    boolean appendAffinity(UUID playerId, String server) {
+        int start = buffer.position();
+        try {
+            buffer.position(start + 1);
+            buffer.putLong(playerId.getMostSignificantBits());
+            buffer.putLong(playerId.getLeastSignificantBits());
+            putString(server);
+            buffer.put(start, RECORD_AFFINITY);
+            return true;
+        } catch (BufferOverflowException exception) {
+            buffer.position(start);
+            return false;
+        }
+    }
+
+    /**
+     * Writes the pages touched since the previous call to disk; one call covers a whole batch of records.
+     */
+    void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            buffer.force();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Replays a log in write order.
+     *
+     * @return generation of the log, or {@code 0} if the file is missing, foreign or was never committed
+     */
+    static long read(Path file, Visitor visitor) throws IOException {
+        if (Files.notExists(file)) {
+            return 0L;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                return 0L;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getLong() != MAGIC) {
+                return 0L;
+            }
+            long generation = buffer.getLong();
+            buffer.getLong();
+            if (generation == 0L || visitor == null) {
+                return generation;
+            }
+
+            try {
+                while (buffer.hasRemaining()) {
+                    byte tag = buffer.get();
+                    switch (tag) {
+                        case RECORD_SERVER -> {
+                            String name = getString(buffer);
+                            List<Integer> protocols = new ArrayList<>();
+                            for (int i = buffer.getInt(); i > 0; i--) {
+                                protocols.add(buffer.getInt());
+                            }
+                            List<VirtualServer.PacketVersionRule> rules = new ArrayList<>();
+                            for (int i = buffer.getInt(); i > 0; i--) {
+                                rules.add(new VirtualServer.PacketVersionRule(getString(buffer), buffer.getInt(), buffer.getInt()));
+                            }
+                            visitor.server(new ServerState(name, protocols, rules));
+                        }
+                        case RECORD_SERVER_REMOVED -> visitor.serverRemoved(getString(buffer));
+                        case RECORD_AFFINITY -> visitor.affinity(new UUID(buffer.getLong(), buffer.getLong()), getString(buffer));
+                        default -> {
+                            return generation;
+                        }
+                    }
+                }
+            } catch (BufferUnderflowException exception) {
+                return generation;
+            }
+            return generation;
+        }
+    }
+
+    private void putString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(MappedByteBuffer buffer) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    interface Visitor {
+        void server(ServerState state);
+
+        void serverRemoved(String name);
+
+        void affinity(UUID playerId, String server);
+    }
+}
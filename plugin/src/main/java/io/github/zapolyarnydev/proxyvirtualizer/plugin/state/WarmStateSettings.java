@@ -0,0 +1,38 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.state;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Persistence of launched virtual servers and previous-server affinity across restarts.
+ *
+ * @param enabled       whether the state is loaded on startup and written while running
+ * @param flushInterval delay between two batches of appended changes, each followed by one fsync
+ * @param maxFileBytes  mapped size of a state file; a full file is compacted into the other one
+ * @param maxPlayers    players whose previous server is remembered, the least recent are forgotten first
+ */
+public record WarmStateSettings(boolean enabled, Duration flushInterval, long maxFileBytes, int maxPlayers) {
+    public static final boolean DEFAULT_ENABLED = true;
+    public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofSeconds(1);
+    public static final long DEFAULT_MAX_FILE_BYTES = 16L * 1024 * 1024;
+    public static final int DEFAULT_MAX_PLAYERS = 100_000;
+    public static final long MIN_FILE_BYTES = 64L * 1024;
+    public static final long MAX_FILE_BYTES = Integer.MAX_VALUE;
+
+    public WarmStateSettings {
+        Objects.requireNonNull(flushInterval, "flushInterval");
+        if (flushInterval.isZero()) {
+            throw new IllegalArgumentException("Warm state flush interval must be positive");
+        }
+        if (maxFileBytes < MIN_FILE_BYTES || maxFileBytes > MAX_FILE_BYTES) {
+            throw new IllegalArgumentException("Warm state file size must be between " + MIN_FILE_BYTES + " and " + MAX_FILE_BYTES + " bytes");
+        }
+        if (maxPlayers < 0) {
+            throw new IllegalArgumentException("Warm state player limit cannot be negative");
+        }
+    }
+
+    public static WarmStateSettings defaults() {
+        return new WarmStateSettings(DEFAULT_ENABLED, DEFAULT_FLUSH_INTERVAL, DEFAULT_MAX_FILE_BYTES, DEFAULT_MAX_PLAYERS);
+    }
+}
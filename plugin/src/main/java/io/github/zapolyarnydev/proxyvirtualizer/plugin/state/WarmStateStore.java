@@ -0,0 +1,346 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.state;
+
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import io.github.zapolyarnydev.proxyvirtualizer.api.registry.ServerContainer;
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.Launcher;
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.connector.InMemoryConnectionStorage;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.connector.VirtualSession;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the launched virtual servers, with their packet matrices, and the previous server of each player
+ * across proxy restarts.
+ * <p>
+ * State lives in two memory-mapped {@link WarmStateLog} files under {@code state/} in the plugin data
+ * directory. The newest committed one is replayed on startup, then a fresh snapshot is written into the
+ * other file, which becomes the active log. Changes are appended in batches every flush interval, each
+ * batch followed by a single fsync; when the active log fills up, the state is compacted into the other
+ * file. A crash at any point leaves at least one committed file behind.
+ */
+public final class WarmStateStore implements InMemoryConnectionStorage.Listener {
+    private static final String STATE_DIRECTORY = "state";
+    private static final String[] FILE_NAMES = {"warm-0.bin", "warm-1.bin"};
+
+    private final ProxyServer proxyServer;
+    private final ServerContainer serverContainer;
+    private final WarmStateSettings settings;
+    private final Logger logger;
+    private final Path[] files = new Path[FILE_NAMES.length];
+    private final Map<UUID, String> affinities;
+    private final Map<UUID, String> pendingAffinities = new ConcurrentHashMap<>();
+    private final Map<String, ServerState> restoredServers = new LinkedHashMap<>();
+    private final ScheduledExecutorService executor;
+    private volatile boolean restored;
+
+    // Confined to the executor thread once the constructor returns.
+    private final Map<String, ServerState> writtenServers = new HashMap<>();
+    private WarmStateLog log;
+    private int activeFile = FILE_NAMES.length - 1;
+    private long generation;
+    private boolean overflowReported;
+
+    public WarmStateStore(
+            ProxyServer proxyServer,
+            ServerContainer serverContainer,
+            WarmStateSettings settings,
+            Path dataDirectory,
+            Logger logger
+    ) {
+        this.proxyServer = Objects.requireNonNull(proxyServer, "proxyServer");
+        this.serverContainer = Objects.requireNonNull(serverContainer, "serverContainer");
+        this.settings = Objects.requireNonNull(settings, "settings");
+        this.logger = Objects.requireNonNull(logger, "logger");
+        Path directory = Objects.requireNonNull(dataDirectory, "dataDirectory").resolve(STATE_DIRECTORY);
+        for (int i = 0; i < FILE_NAMES.length; i++) {
+            files[i] = directory.resolve(FILE_NAMES[i]);
+        }
+        int maxPlayers = settings.maxPlayers();
+        this.affinities = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, String> eldest) {
+                return size() > maxPlayers;
+            }
+        };
+
+        if (!settings.enabled()) {
+            this.executor = null;
+            return;
+        }
+        load();
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "proxyvirtualizer-warm-state");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.execute(this::compactSafely);
+        long flushMillis = settings.flushInterval().toMillis();
+        this.executor.scheduleWithFixedDelay(this::flushSafely, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Launches the virtual servers that were running before the restart, with their saved protocols and
+     * packet matrices. Servers already launched, such as those defined in {@code servers.properties}, keep
+     * their current definition. Servers launched afterwards are tracked from then on.
+     */
+    public void restore(Launcher launcher) {
+        Objects.requireNonNull(launcher, "launcher");
+        int launched = 0;
+        for (ServerState state : restoredServers.values()) {
+            if (serverContainer.findServerByName(state.name()).isPresent()) {
+                continue;
+            }
+            try {
+                VirtualServer server = launcher.launch(state.name());
+                state.applyTo(server);
+                launched++;
+            } catch (RuntimeException exception) {
+                logger.warn("Unable to restore virtual server {}", state.name(), exception);
+            }
+        }
+        restoredServers.clear();
+        restored = true;
+        if (launched > 0) {
+            logger.info("Restored {} virtual servers", launched);
+        }
+    }
+
+    /**
+     * @return the backend the player was on before last entering a virtual server, if it is still
+     * registered with the proxy
+     */
+    public Optional<RegisteredServer> findPreviousServer(Player player) {
+        Objects.requireNonNull(player, "player");
+        String name;
+        synchronized (affinities) {
+            name = affinities.get(player.getUniqueId());
+        }
+        return name == null ? Optional.empty() : proxyServer.getServer(name);
+    }
+
+    @Override
+    public void sessionOpened(VirtualSession session) {
+        RegisteredServer previousServer = session.getPreviousServer();
+        if (executor == null || previousServer == null) {
+            return;
+        }
+        UUID playerId = session.getPlayer().getUniqueId();
+        String name = previousServer.getServerInfo().getName();
+        String replaced;
+        synchronized (affinities) {
+            replaced = affinities.put(playerId, name);
+        }
+        if (!name.equals(replaced)) {
+            pendingAffinities.put(playerId, name);
+        }
+    }
+
+    @Override
+    public void sessionClosed(VirtualSession session) {
+    }
+
+    /**
+     * Writes the last changes and closes the active log.
+     */
+    public void shutdown() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warn("Warm state writer did not stop in time, the last changes are not saved");
+                return;
+            }
+            flush();
+            if (log != null) {
+                log.close();
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException exception) {
+            logger.warn("Unable to save the warm state", exception);
+        }
+    }
+
+    private void load() {
+        long started = System.nanoTime();
+        int newest = -1;
+        long newestGeneration = 0L;
+        for (int i = 0; i < files.length; i++) {
+            try {
+                long fileGeneration = WarmStateLog.read(files[i], null);
+                if (fileGeneration > newestGeneration) {
+                    newest = i;
+                    newestGeneration = fileGeneration;
+                }
+            } catch (IOException exception) {
+                logger.warn("Unable to read warm state file {}", files[i], exception);
+            }
+        }
+        if (newest < 0) {
+            return;
+        }
+
+        try {
+            WarmStateLog.read(files[newest], new WarmStateLog.Visitor() {
+                @Override
+                public void server(ServerState state) {
+                    restoredServers.put(normalize(state.name()), state);
+                }
+
+                @Override
+                public void serverRemoved(String name) {
+                    restoredServers.remove(normalize(name));
+                }
+
+                @Override
+                public void affinity(UUID playerId, String server) {
+                    affinities.put(playerId, server);
+                }
+            });
+        } catch (IOException exception) {
+            logger.warn("Unable to load warm state from {}, starting cold", files[newest], exception);
+            restoredServers.clear();
+            affinities.clear();
+            return;
+        }
+        activeFile = newest;
+        generation = newestGeneration;
+        writtenServers.putAll(restoredServers);
+        logger.info(
+                "Loaded warm state ({} virtual servers, {} players) in {} ms",
+                restoredServers.size(),
+                affinities.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)
+        );
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (IOException | RuntimeException exception) {
+            logger.warn("Unable to write the warm state", exception);
+        }
+    }
+
+    private void flush() throws IOException {
+        if (log == null) {
+            compact();
+            return;
+        }
+
+        List<ServerState> changedServers = new ArrayList<>();
+        List<String> removedServers = new ArrayList<>();
+        if (restored) {
+            Map<String, ServerState> current = new HashMap<>();
+            for (VirtualServer server : serverContainer.getServers()) {
+                current.put(normalize(server.getName()), ServerState.of(server));
+            }
+            for (Map.Entry<String, ServerState> entry : current.entrySet()) {
+                if (!entry.getValue().equals(writtenServers.put(entry.getKey(), entry.getValue()))) {
+                    changedServers.add(entry.getValue());
+                }
+            }
+            for (Iterator<Map.Entry<String, ServerState>> iterator = writtenServers.entrySet().iterator(); iterator.hasNext(); ) {
+                Map.Entry<String, ServerState> entry = iterator.next();
+                if (!current.containsKey(entry.getKey())) {
+                    removedServers.add(entry.getValue().name());
+                    iterator.remove();
+                }
+            }
+        }
+
+        boolean fits = true;
+        for (ServerState state : changedServers) {
+            fits &= log.appendServer(state);
+        }
+        for (String name : removedServers) {
+            fits &= log.appendServerRemoved(name);
+        }
+        int appended = changedServers.size() + removedServers.size();
+        for (Iterator<Map.Entry<UUID, String>> iterator = pendingAffinities.entrySet().iterator(); iterator.hasNext(); ) {
+            Map.Entry<UUID, String> entry = iterator.next();
+            iterator.remove();
+            fits &= log.appendAffinity(entry.getKey(), entry.getValue());
+            appended++;
+        }
+
+        if (!fits) {
+            compact();
+        } else if (appended > 0) {
+            log.force();
+        }
+    }
+
+    private void compactSafely() {
+        try {
+            compact();
+        } catch (IOException | RuntimeException exception) {
+            logger.warn("Unable to write the warm state", exception);
+        }
+    }
+
+    /**
+     * Writes the whole state into the inactive file and switches to it once committed.
+     */
+    private void compact() throws IOException {
+        int target = (activeFile + 1) % files.length;
+        WarmStateLog next = WarmStateLog.create(files[target], (int) settings.maxFileBytes());
+        boolean fits = true;
+        for (ServerState state : writtenServers.values()) {
+            fits &= next.appendServer(state);
+        }
+        List<Map.Entry<UUID, String>> players;
+        synchronized (affinities) {
+            players = new ArrayList<>(affinities.entrySet().size());
+            for (Map.Entry<UUID, String> entry : affinities.entrySet()) {
+                players.add(Map.entry(entry.getKey(), entry.getValue()));
+            }
+        }
+        for (Map.Entry<UUID, String> entry : players) {
+            if (!next.appendAffinity(entry.getKey(), entry.getValue())) {
+                fits = false;
+                break;
+            }
+        }
+        next.commit(++generation);
+
+        WarmStateLog previous = log;
+        log = next;
+        activeFile = target;
+        if (previous != null) {
+            previous.close();
+        }
+        if (!fits && !overflowReported) {
+            overflowReported = true;
+            logger.warn(
+                    "Warm state does not fit in {} bytes, some players' previous servers are not saved",
+                    settings.maxFileBytes()
+            );
+        }
+    }
+
+    private static String normalize(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,290 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.world;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Anvil world whose region files are memory-mapped read-only. Chunks are decompressed and decoded on demand;
+ * only the 1.18+ chunk layout (lowercase {@code sections} with {@code block_states}) is supported.
+ */
+final class AnvilWorldSnapshot extends WorldSnapshot {
+    private static final Pattern REGION_FILE = Pattern.compile("r\\.(-?\\d+)\\.(-?\\d+)\\.mca");
+    private static final int SECTOR_BYTES = 4096;
+    private static final int HEADER_BYTES = 2 * SECTOR_BYTES;
+    private static final byte COMPRESSION_GZIP = 1;
+    private static final byte COMPRESSION_ZLIB = 2;
+    private static final byte COMPRESSION_NONE = 3;
+    private static final double DEFAULT_SPAWN_Y = 100.0D;
+
+    private final Map<Long, MappedByteBuffer> regions;
+    private final BlockStateRegistry blockStates;
+    private final int chunkCount;
+    private final double spawnX;
+    private final double spawnY;
+    private final double spawnZ;
+
+    private AnvilWorldSnapshot(
+            Path source,
+            int minY,
+            int sectionCount,
+            Map<Long, MappedByteBuffer> regions,
+            BlockStateRegistry blockStates,
+            double[] spawn
+    ) {
+        super(source, minY, sectionCount);
+        this.regions = regions;
+        this.blockStates = blockStates;
+        this.spawnX = spawn[0];
+        this.spawnY = spawn[1];
+        this.spawnZ = spawn[2];
+
+        int chunks = 0;
+        for (MappedByteBuffer region : regions.values()) {
+            for (int i = 0; i < 1024; i++) {
+                if (region.getInt(i * 4) != 0) {
+                    chunks++;
+                }
+            }
+        }
+        this.chunkCount = chunks;
+    }
+
+    /**
+     * Opens a world directory (containing {@code region/}) or a region directory.
+     */
+    static AnvilWorldSnapshot open(Path source, BlockStateRegistry blockStates, int minY, int sectionCount)
+            throws IOException {
+        Path regionDirectory = Files.isDirectory(source.resolve("region")) ? source.resolve("region") : source;
+        if (!Files.isDirectory(regionDirectory)) {
+            throw new IOException("Not a world or region directory: " + source);
+        }
+
+        Map<Long, MappedByteBuffer> regions = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(regionDirectory, "r.*.mca")) {
+            for (Path file : files) {
+                Matcher matcher = REGION_FILE.matcher(file.getFileName().toString());
+                if (!matcher.matches() || Files.size(file) < HEADER_BYTES) {
+                    continue;
+                }
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    int regionX = Integer.parseInt(matcher.group(1));
+                    int regionZ = Integer.parseInt(matcher.group(2));
+                    regions.put(chunkKey(regionX, regionZ), mapped);
+                }
+            }
+        }
+        if (regions.isEmpty()) {
+            throw new IOException("No region files found in " + regionDirectory);
+        }
+
+        return new AnvilWorldSnapshot(
+                source,
+                minY,
+                sectionCount,
+                Map.copyOf(regions),
+                blockStates,
+                readSpawn(regionDirectory == source ? source.resolveSibling("level.dat") : source.resolve("level.dat"))
+        );
+    }
+
+    @Override
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    @Override
+    public boolean hasChunk(int chunkX, int chunkZ) {
+        MappedByteBuffer region = regions.get(chunkKey(chunkX >> 5, chunkZ >> 5));
+        return region != null && region.getInt(headerIndex(chunkX, chunkZ)) != 0;
+    }
+
+    @Override
+    public double getSpawnX() {
+        return spawnX;
+    }
+
+    @Override
+    public double getSpawnY() {
+        return spawnY;
+    }
+
+    @Override
+    public double getSpawnZ() {
+        return spawnZ;
+    }
+
+    @Override
+    ChunkColumn readChunk(int chunkX, int chunkZ) throws IOException {
+        MappedByteBuffer region = regions.get(chunkKey(chunkX >> 5, chunkZ >> 5));
+        if (region == null) {
+            return null;
+        }
+        int location = region.getInt(headerIndex(chunkX, chunkZ));
+        int offset = (location >>> 8) * SECTOR_BYTES;
+        if (offset < HEADER_BYTES || offset + 5 > region.capacity()) {
+            return null;
+        }
+
+        int length = region.getInt(offset);
+        byte compression = region.get(offset + 4);
+        if (length <= 1 || offset + 4 + length > region.capacity()) {
+            throw new IOException("Corrupted chunk " + chunkX + "," + chunkZ + " in " + getSource());
+        }
+        ByteBuffer payload = region.slice(offset + 5, length - 1);
+        Map<String, Object> root = NbtReader.readRoot(decompress(payload, compression));
+        return decode(root);
+    }
+
+    private ChunkColumn decode(Map<String, Object> root) {
+        Object status = root.get("Status");
+        if (status instanceof String value && !value.endsWith("full")) {
+            return null;
+        }
+        List<Object> sections = NbtReader.list(root, "sections");
+        if (sections.isEmpty()) {
+            return null;
+        }
+
+        int[][] blocks = new int[sectionCount()][];
+        byte[][] skyLight = new byte[sectionCount()][];
+        byte[][] blockLight = new byte[sectionCount()][];
+        for (Object element : sections) {
+            if (!(element instanceof Map<?, ?> map)) {
+                continue;
+            }
+            Map<String, Object> section = NbtReader.cast(map);
+            int index = NbtReader.intValue(section, "Y", Integer.MIN_VALUE) - minSectionY();
+            if (index < 0 || index >= sectionCount()) {
+                continue;
+            }
+            blocks[index] = decodeBlockStates(NbtReader.compound(section, "block_states"));
+            if (section.get("SkyLight") instanceof byte[] light && light.length == ChunkColumn.LIGHT_ARRAY_BYTES) {
+                skyLight[index] = light;
+            }
+            if (section.get("BlockLight") instanceof byte[] light && light.length == ChunkColumn.LIGHT_ARRAY_BYTES) {
+                blockLight[index] = light;
+            }
+        }
+        return new ChunkColumn(blocks, skyLight, blockLight);
+    }
+
+    private int[] decodeBlockStates(Map<String, Object> container) {
+        if (container == null) {
+            return null;
+        }
+        List<Object> palette = NbtReader.list(container, "palette");
+        if (palette.isEmpty()) {
+            return null;
+        }
+
+        int[] paletteIds = new int[palette.size()];
+        boolean allAir = true;
+        for (int i = 0; i < paletteIds.length; i++) {
+            Map<String, Object> entry = palette.get(i) instanceof Map<?, ?> map ? NbtReader.cast(map) : Map.of();
+            String name = entry.get("Name") instanceof String value ? value : "minecraft:air";
+            paletteIds[i] = blockStates.resolve(name, NbtReader.compound(entry, "Properties"));
+            allAir &= blockStates.isAir(paletteIds[i]);
+        }
+        if (allAir) {
+            return null;
+        }
+
+        int[] states = new int[ChunkColumn.SECTION_VOLUME];
+        if (paletteIds.length == 1 || !(container.get("data") instanceof long[] data)) {
+            Arrays.fill(states, paletteIds[0]);
+            return states;
+        }
+
+        int bits = Math.max(4, 32 - Integer.numberOfLeadingZeros(paletteIds.length - 1));
+        int perLong = Long.SIZE / bits;
+        long mask = (1L << bits) - 1;
+        for (int i = 0; i < states.length; i++) {
+            int word = i / perLong;
+            int paletteIndex = word < data.length ? (int) ((data[word] >>> ((i % perLong) * bits)) & mask) : 0;
+            states[i] = paletteIndex < paletteIds.length ? paletteIds[paletteIndex] : paletteIds[0];
+        }
+        return states;
+    }
+
+    private static byte[] decompress(ByteBuffer payload, byte compression) throws IOException {
+        switch (compression) {
+            case COMPRESSION_ZLIB -> {
+                Inflater inflater = new Inflater();
+                try {
+                    inflater.setInput(payload);
+                    byte[] output = new byte[Math.max(1024, payload.remaining() * 4)];
+                    int length = 0;
+                    while (!inflater.finished()) {
+                        if (length == output.length) {
+                            output = Arrays.copyOf(output, output.length * 2);
+                        }
+                        int inflated = inflater.inflate(output, length, output.length - length);
+                        if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                            throw new IOException("Truncated zlib chunk data");
+                        }
+                        length += inflated;
+                    }
+                    return Arrays.copyOf(output, length);
+                } catch (DataFormatException exception) {
+                    throw new IOException("Malformed zlib chunk data", exception);
+                } finally {
+                    inflater.end();
+                }
+            }
+            case COMPRESSION_GZIP -> {
+                try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(toArray(payload)))) {
+                    return input.readAllBytes();
+                }
+            }
+            case COMPRESSION_NONE -> {
+                return toArray(payload);
+            }
+            default -> throw new IOException("Unsupported chunk compression " + compression);
+        }
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static double[] readSpawn(Path levelFile) {
+        double[] spawn = {0.5D, DEFAULT_SPAWN_Y, 0.5D};
+        if (!Files.isRegularFile(levelFile)) {
+            return spawn;
+        }
+        try (GZIPInputStream input = new GZIPInputStream(Files.newInputStream(levelFile))) {
+            Map<String, Object> data = NbtReader.compound(NbtReader.readRoot(input.readAllBytes()), "Data");
+            if (data != null) {
+                spawn[0] = NbtReader.intValue(data, "SpawnX", 0) + 0.5D;
+                spawn[1] = NbtReader.intValue(data, "SpawnY", (int) DEFAULT_SPAWN_Y);
+                spawn[2] = NbtReader.intValue(data, "SpawnZ", 0) + 0.5D;
+            }
+        } catch (IOException ignored) {
+
+        }
+        return spawn;
+    }
+
+    private static int headerIndex(int chunkX, int chunkZ) {
+        return ((chunkX & 31) + (chunkZ & 31) * 32) * 4;
+    }
+}
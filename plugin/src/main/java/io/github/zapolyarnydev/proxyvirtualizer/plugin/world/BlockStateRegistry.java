@@ -0,0 +1,138 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.world;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps block states stored in worlds ({@code minecraft:oak_log[axis=y]}) to network block state ids.
+ * <p>
+ * The mapping is read from a text file with one {@code state=id} line per entry. A state is
+ * looked up with its properties first and by block name alone second, so listing the default states
+ * is enough for simple scenery. Unknown states resolve to the configured fallback id.
+ */
+final class BlockStateRegistry {
+    private static final String AIR = "minecraft:air";
+    private static final String CAVE_AIR = "minecraft:cave_air";
+    private static final String VOID_AIR = "minecraft:void_air";
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final int unknownStateId;
+    private final int caveAirId;
+    private final int voidAirId;
+
+    private BlockStateRegistry(Map<String, Integer> ids, int unknownStateId) {
+        this.ids.putAll(ids);
+        this.ids.putIfAbsent(AIR, 0);
+        this.unknownStateId = unknownStateId;
+        this.caveAirId = this.ids.getOrDefault(CAVE_AIR, 0);
+        this.voidAirId = this.ids.getOrDefault(VOID_AIR, 0);
+    }
+
+    static BlockStateRegistry load(Path file, int unknownStateId) throws IOException {
+        Map<String, Integer> ids = new ConcurrentHashMap<>();
+        if (file != null && Files.exists(file)) {
+            int lineNumber = 0;
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                lineNumber++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                int separator = trimmed.lastIndexOf('=');
+                try {
+                    if (separator <= 0) {
+                        throw new NumberFormatException("missing id");
+                    }
+                    int id = Integer.parseInt(trimmed.substring(separator + 1).trim());
+                    ids.put(normalize(trimmed.substring(0, separator)), id);
+                } catch (NumberFormatException exception) {
+                    throw new IOException("Invalid block state mapping at " + file + ":" + lineNumber, exception);
+                }
+            }
+        }
+        return new BlockStateRegistry(ids, unknownStateId);
+    }
+
+    int size() {
+        return ids.size();
+    }
+
+    boolean isAir(int stateId) {
+        return stateId == 0 || stateId == caveAirId || stateId == voidAirId;
+    }
+
+    /**
+     * Resolves an Anvil palette entry ({@code Name} plus optional {@code Properties} compound).
+     */
+    int resolve(String name, Map<String, Object> properties) {
+        if (properties == null || properties.isEmpty()) {
+            return resolve(name);
+        }
+
+        StringBuilder state = new StringBuilder(name).append('[');
+        boolean first = true;
+        for (Map.Entry<String, Object> entry : new TreeMap<>(properties).entrySet()) {
+            if (!first) {
+                state.append(',');
+            }
+            state.append(entry.getKey()).append('=').append(entry.getValue());
+            first = false;
+        }
+        return resolve(state.append(']').toString());
+    }
+
+    /**
+     * Resolves a block state string, as used by schematic palettes.
+     */
+    int resolve(String state) {
+        Integer id = ids.get(state);
+        if (id != null) {
+            return id;
+        }
+
+        String normalized = normalize(state);
+        id = ids.get(normalized);
+        if (id == null) {
+            int propertiesStart = normalized.indexOf('[');
+            id = propertiesStart < 0 ? null : ids.get(normalized.substring(0, propertiesStart));
+        }
+        int resolved = id == null ? unknownStateId : id;
+        ids.putIfAbsent(state, resolved);
+        return resolved;
+    }
+
+    private static String normalize(String state) {
+        String trimmed = state.trim();
+        int propertiesStart = trimmed.indexOf('[');
+        String name = propertiesStart < 0 ? trimmed : trimmed.substring(0, propertiesStart);
+        if (name.indexOf(':') < 0) {
+            name = "minecraft:" + name;
+        }
+        if (propertiesStart < 0 || !trimmed.endsWith("]")) {
+            return name;
+        }
+
+        Map<String, String> properties = new TreeMap<>();
+        for (String property : trimmed.substring(propertiesStart + 1, trimmed.length() - 1).split(",")) {
+            int separator = property.indexOf('=');
+            if (separator > 0) {
+                properties.put(property.substring(0, separator).trim(), property.substring(separator + 1).trim());
+            }
+        }
+        StringBuilder normalized = new StringBuilder(name).append('[');
+        boolean first = true;
+        for (Map.Entry<String, String> entry : properties.entrySet()) {
+            if (!first) {
+                normalized.append(',');
+            }
+            normalized.append(entry.getKey()).append('=').append(entry.getValue());
+            first = false;
+        }
+        return normalized.append(']').toString();
+    }
+}
@@ -0,0 +1,13 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.world;
+
+/**
+ * Decoded chunk column in network block state ids, indexed by section from the bottom of the dimension.
+ *
+ * @param blockStates 4096 block states per section in {@code (y * 16 + z) * 16 + x} order, {@code null} for air
+ * @param skyLight    2048 byte nibble arrays per section, {@code null} for full sky light
+ * @param blockLight  2048 byte nibble arrays per section, {@code null} for no block light
+ */
+record ChunkColumn(int[][] blockStates, byte[][] skyLight, byte[][] blockLight) {
+    static final int SECTION_VOLUME = 16 * 16 * 16;
+    static final int LIGHT_ARRAY_BYTES = SECTION_VOLUME / 2;
+}
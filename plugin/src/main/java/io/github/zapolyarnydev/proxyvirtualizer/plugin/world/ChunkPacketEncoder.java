@@ -0,0 +1,177 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.world;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Encodes {@link ChunkColumn}s into the 1.21.4 "chunk data and update light" packet.
+ * Heightmaps and block entities are left empty; every section uses the configured biome.
+ */
+final class ChunkPacketEncoder {
+    private static final int MAX_INDIRECT_BITS = 8;
+    private static final int MIN_INDIRECT_BITS = 4;
+    private static final byte NBT_TAG_COMPOUND = 10;
+    private static final byte NBT_TAG_END = 0;
+    private static final byte[] FULL_LIGHT = new byte[ChunkColumn.LIGHT_ARRAY_BYTES];
+
+    static {
+        Arrays.fill(FULL_LIGHT, (byte) 0xFF);
+    }
+
+    private final BlockStateRegistry blockStates;
+    private final int globalPaletteBits;
+    private final int biomeId;
+
+    ChunkPacketEncoder(BlockStateRegistry blockStates, int globalPaletteBits, int biomeId) {
+        this.blockStates = blockStates;
+        this.globalPaletteBits = globalPaletteBits;
+        this.biomeId = biomeId;
+    }
+
+    byte[] encode(int packetId, int chunkX, int chunkZ, ChunkColumn column) throws IOException {
+        ByteArrayOutputStream sections = new ByteArrayOutputStream();
+        DataOutputStream sectionOut = new DataOutputStream(sections);
+        int sectionCount = column.blockStates().length;
+        for (int section = 0; section < sectionCount; section++) {
+            writeSection(sectionOut, column.blockStates()[section]);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(sections.size() + 4 * 1024);
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeVarInt(out, packetId);
+        out.writeInt(chunkX);
+        out.writeInt(chunkZ);
+        out.writeByte(NBT_TAG_COMPOUND);
+        out.writeByte(NBT_TAG_END);
+        writeVarInt(out, sections.size());
+        sections.writeTo(out);
+        writeVarInt(out, 0); // block entities
+        writeLight(out, column, sectionCount);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private void writeSection(DataOutputStream out, int[] states) throws IOException {
+        if (states == null) {
+            out.writeShort(0);
+            writeSingleValued(out, 0);
+            writeSingleValued(out, biomeId);
+            return;
+        }
+
+        int nonAir = 0;
+        for (int state : states) {
+            if (!blockStates.isAir(state)) {
+                nonAir++;
+            }
+        }
+        out.writeShort(nonAir);
+
+        int[] palette = states.clone();
+        Arrays.sort(palette);
+        int paletteSize = 0;
+        for (int i = 0; i < palette.length; i++) {
+            if (i == 0 || palette[i] != palette[i - 1]) {
+                palette[paletteSize++] = palette[i];
+            }
+        }
+
+        if (paletteSize == 1) {
+            writeSingleValued(out, palette[0]);
+        } else {
+            int bits = Math.max(MIN_INDIRECT_BITS, 32 - Integer.numberOfLeadingZeros(paletteSize - 1));
+            boolean indirect = bits <= MAX_INDIRECT_BITS;
+            if (!indirect) {
+                bits = globalPaletteBits;
+            }
+            out.writeByte(bits);
+            if (indirect) {
+                writeVarInt(out, paletteSize);
+                for (int i = 0; i < paletteSize; i++) {
+                    writeVarInt(out, palette[i]);
+                }
+            }
+
+            int perLong = Long.SIZE / bits;
+            long[] data = new long[(states.length + perLong - 1) / perLong];
+            for (int i = 0; i < states.length; i++) {
+                long value = indirect ? Arrays.binarySearch(palette, 0, paletteSize, states[i]) : states[i];
+                data[i / perLong] |= value << ((i % perLong) * bits);
+            }
+            writeVarInt(out, data.length);
+            for (long word : data) {
+                out.writeLong(word);
+            }
+        }
+        writeSingleValued(out, biomeId);
+    }
+
+    /**
+     * Light sections span one section below and above the world. Sections without stored sky light are
+     * sent fully lit so scenery without light data stays visible.
+     */
+    private static void writeLight(DataOutputStream out, ChunkColumn column, int sectionCount) throws IOException {
+        int lightSections = sectionCount + 2;
+        long[] skyMask = new long[(lightSections + 63) >> 6];
+        long[] blockMask = new long[skyMask.length];
+        long[] emptySkyMask = new long[skyMask.length];
+        int skyArrays = 0;
+        int blockArrays = 0;
+        for (int lightSection = 1; lightSection < lightSections; lightSection++) {
+            skyMask[lightSection >> 6] |= 1L << lightSection;
+            skyArrays++;
+            int section = lightSection - 1;
+            if (section < sectionCount && column.blockLight() != null && column.blockLight()[section] != null) {
+                blockMask[lightSection >> 6] |= 1L << lightSection;
+                blockArrays++;
+            }
+        }
+        emptySkyMask[0] |= 1L;
+
+        writeBitSet(out, skyMask);
+        writeBitSet(out, blockMask);
+        writeBitSet(out, emptySkyMask);
+        writeBitSet(out, new long[0]);
+
+        writeVarInt(out, skyArrays);
+        for (int lightSection = 1; lightSection < lightSections; lightSection++) {
+            int section = lightSection - 1;
+            byte[] light = section < sectionCount && column.skyLight() != null ? column.skyLight()[section] : null;
+            writeLightArray(out, light == null ? FULL_LIGHT : light);
+        }
+        writeVarInt(out, blockArrays);
+        for (int section = 0; section < sectionCount && blockArrays > 0; section++) {
+            if (column.blockLight() != null && column.blockLight()[section] != null) {
+                writeLightArray(out, column.blockLight()[section]);
+            }
+        }
+    }
+
+    private static void writeLightArray(DataOutputStream out, byte[] light) throws IOException {
+        writeVarInt(out, light.length);
+        out.write(light);
+    }
+
+    private static void writeBitSet(DataOutputStream out, long[] words) throws IOException {
+        writeVarInt(out, words.length);
+        for (long word : words) {
+            out.writeLong(word);
+        }
+    }
+
+    private static void writeSingleValued(DataOutputStream out, int value) throws IOException {
+        out.writeByte(0);
+        writeVarInt(out, value);
+        writeVarInt(out, 0);
+    }
+
+    static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+}
@@ -0,0 +1,222 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.world;
+
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ProxyServer;
+import io.github.zapolyarnydev.proxyvirtualizer.api.connector.ConnectionStorage;
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer;
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.tick.TickTaskHandle;
+import io.github.zapolyarnydev.proxyvirtualizer.api.world.VirtualWorld;
+import io.github.zapolyarnydev.proxyvirtualizer.api.world.WorldManager;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.packet.LimboChunkSettings;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.packet.VelocityVirtualPacketSender;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Loads world snapshots for virtual servers and streams them from each server's tick loop.
+ * <p>
+ * Relative sources are resolved against the {@code worlds} folder of the plugin data directory, and
+ * block states are mapped to network ids with {@code block-states.txt} from the data directory.
+ * The dimension layout matches the limbo dimension the players are respawned into.
+ */
+public final class DefaultWorldManager implements WorldManager {
+    private static final String WORLDS_DIRECTORY = "worlds";
+    private static final String BLOCK_STATES_FILE = "block-states.txt";
+
+    private final ProxyServer proxyServer;
+    private final ConnectionStorage connectionStorage;
+    private final VelocityVirtualPacketSender packetSender;
+    private final WorldSettings settings;
+    private final LimboChunkSettings dimension;
+    private final Path dataDirectory;
+    private final Logger logger;
+    private final WorldChunkCache cache;
+    private final Map<String, LoadedWorld> worlds = new ConcurrentHashMap<>();
+    private final Map<UUID, WorldStreamer> streamsByPlayer = new ConcurrentHashMap<>();
+
+    public DefaultWorldManager(
+            ProxyServer proxyServer,
+            ConnectionStorage connectionStorage,
+            VelocityVirtualPacketSender packetSender,
+            WorldSettings settings,
+            LimboChunkSettings dimension,
+            Path dataDirectory,
+            Logger logger
+    ) {
+        this.proxyServer = Objects.requireNonNull(proxyServer, "proxyServer");
+        this.connectionStorage = Objects.requireNonNull(connectionStorage, "connectionStorage");
+        this.packetSender = Objects.requireNonNull(packetSender, "packetSender");
+        this.settings = Objects.requireNonNull(settings, "settings");
+        this.dimension = Objects.requireNonNull(dimension, "dimension");
+        this.dataDirectory = dataDirectory == null ? Path.of(".") : dataDirectory;
+        this.logger = Objects.requireNonNull(logger, "logger");
+        this.cache = new WorldChunkCache(settings.cacheBytes());
+    }
+
+    @Override
+    public VirtualWorld load(VirtualServer virtualServer, Path source) throws IOException {
+        Objects.requireNonNull(virtualServer, "virtualServer");
+        Path resolved = resolveSource(Objects.requireNonNull(source, "source"));
+        if (Files.notExists(resolved)) {
+            throw new IOException("World source does not exist: " + resolved);
+        }
+
+        BlockStateRegistry blockStates = BlockStateRegistry.load(
+                dataDirectory.resolve(BLOCK_STATES_FILE),
+                settings.unknownBlockState()
+        );
+        if (blockStates.size() <= 1) {
+            logger.warn("{} is missing or empty, world blocks will use state {}",
+                    dataDirectory.resolve(BLOCK_STATES_FILE), settings.unknownBlockState());
+        }
+
+        WorldSnapshot world = SchematicWorldSnapshot.isSchematic(resolved)
+                ? SchematicWorldSnapshot.open(
+                        resolved, blockStates, dimension.minY(), dimension.sectionCount(), settings.schematicY()
+                )
+                : AnvilWorldSnapshot.open(resolved, blockStates, dimension.minY(), dimension.sectionCount());
+        WorldStreamer streamer = new WorldStreamer(
+                virtualServer,
+                world,
+                cache,
+                new ChunkPacketEncoder(blockStates, settings.globalPaletteBits(), dimension.biomeId()),
+                packetSender,
+                settings,
+                logger
+        );
+
+        boolean startTicker = !virtualServer.getTicker().isRunning();
+        LoadedWorld previous = worlds.get(virtualServer.getName());
+        boolean ownsTicker = startTicker || previous != null && previous.startedTicker();
+        TickTaskHandle handle = virtualServer.getTicker().register(streamer);
+        previous = worlds.put(virtualServer.getName(), new LoadedWorld(streamer, handle, ownsTicker));
+        if (previous != null) {
+            close(virtualServer, previous, false);
+        }
+        if (startTicker) {
+            virtualServer.getTicker().start();
+        }
+
+        for (Player player : proxyServer.getAllPlayers()) {
+            boolean inServer = connectionStorage.getVirtualServer(player)
+                    .map(virtualServer::equals)
+                    .orElse(false);
+            if (inServer) {
+                join(virtualServer, player);
+            }
+        }
+        logger.info("Loaded world {} ({} chunks) into virtual server {}",
+                resolved, world.getChunkCount(), virtualServer.getName());
+        return world;
+    }
+
+    @Override
+    public boolean unload(VirtualServer virtualServer) {
+        Objects.requireNonNull(virtualServer, "virtualServer");
+        LoadedWorld loaded = worlds.remove(virtualServer.getName());
+        if (loaded == null) {
+            return false;
+        }
+        close(virtualServer, loaded, loaded.startedTicker());
+        return true;
+    }
+
+    @Override
+    public Optional<VirtualWorld> getWorld(VirtualServer virtualServer) {
+        LoadedWorld loaded = worlds.get(virtualServer.getName());
+        return loaded == null ? Optional.empty() : Optional.of(loaded.streamer().getWorld());
+    }
+
+    /**
+     * Starts streaming the world of the server, if any, to a player that finished joining it.
+     */
+    public void join(VirtualServer virtualServer, Player player) {
+        LoadedWorld loaded = worlds.get(virtualServer.getName());
+        if (loaded == null) {
+            return;
+        }
+        WorldStreamer previous = streamsByPlayer.put(player.getUniqueId(), loaded.streamer());
+        if (previous != null && previous != loaded.streamer()) {
+            previous.leave(player);
+        }
+        loaded.streamer().join(player);
+    }
+
+    public void leave(Player player) {
+        WorldStreamer streamer = streamsByPlayer.remove(player.getUniqueId());
+        if (streamer != null) {
+            streamer.leave(player);
+        }
+    }
+
+    /**
+     * Records the decoded position of a player; chunks are re-centered on the next tick.
+     */
+    public void updatePosition(Player player, double x, double z) {
+        WorldStreamer streamer = streamsByPlayer.get(player.getUniqueId());
+        if (streamer != null) {
+            streamer.updatePosition(player, x, z);
+        }
+    }
+
+    public Path resolveSource(Path source) {
+        return source.isAbsolute() ? source : dataDirectory.resolve(WORLDS_DIRECTORY).resolve(source).normalize();
+    }
+
+    public int getStreamingPlayerCount() {
+        return streamsByPlayer.size();
+    }
+
+    public long getCacheSizeBytes() {
+        return cache.getSizeBytes();
+    }
+
+    public int getCachedChunkCount() {
+        return cache.size();
+    }
+
+    public long getCacheHits() {
+        return cache.getHits();
+    }
+
+    public long getCacheMisses() {
+        return cache.getMisses();
+    }
+
+    public WorldSettings getSettings() {
+        return settings;
+    }
+
+    public void shutdown() {
+        for (String name : worlds.keySet()) {
+            LoadedWorld loaded = worlds.remove(name);
+            if (loaded != null) {
+                loaded.handle().cancel();
+                loaded.streamer().getWorld().close();
+            }
+        }
+        streamsByPlayer.clear();
+        cache.clear();
+    }
+
+    private void close(VirtualServer virtualServer, LoadedWorld loaded, boolean stopTicker) {
+        loaded.handle().cancel();
+        if (stopTicker) {
+            virtualServer.getTicker().stop();
+        }
+        streamsByPlayer.values().removeIf(streamer -> streamer == loaded.streamer());
+        cache.invalidate(loaded.streamer().getWorld().id());
+        loaded.streamer().getWorld().close();
+    }
+
+    private record LoadedWorld(WorldStreamer streamer, TickTaskHandle handle, boolean startedTicker) {
+    }
+}
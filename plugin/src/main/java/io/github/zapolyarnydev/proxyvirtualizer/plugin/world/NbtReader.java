@@ -0,0 +1,130 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.world;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal reader of uncompressed file NBT. Compounds become {@link Map}s, lists become {@link List}s and
+ * arrays stay primitive arrays.
+ */
+final class NbtReader {
+    private static final int TAG_END = 0;
+    private static final int TAG_BYTE = 1;
+    private static final int TAG_SHORT = 2;
+    private static final int TAG_INT = 3;
+    private static final int TAG_LONG = 4;
+    private static final int TAG_FLOAT = 5;
+    private static final int TAG_DOUBLE = 6;
+    private static final int TAG_BYTE_ARRAY = 7;
+    private static final int TAG_STRING = 8;
+    private static final int TAG_LIST = 9;
+    private static final int TAG_COMPOUND = 10;
+    private static final int TAG_INT_ARRAY = 11;
+    private static final int TAG_LONG_ARRAY = 12;
+    private static final int MAX_DEPTH = 512;
+
+    private NbtReader() {
+    }
+
+    static Map<String, Object> readRoot(byte[] data) throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(data));
+        int type = input.readUnsignedByte();
+        if (type != TAG_COMPOUND) {
+            throw new IOException("NBT root must be a compound, got tag " + type);
+        }
+        input.readUTF();
+        return readCompound(input, 0);
+    }
+
+    static Map<String, Object> compound(Map<String, Object> parent, String key) {
+        return parent.get(key) instanceof Map<?, ?> map ? cast(map) : null;
+    }
+
+    static List<Object> list(Map<String, Object> parent, String key) {
+        return parent.get(key) instanceof List<?> list ? cast(list) : List.of();
+    }
+
+    static int intValue(Map<String, Object> parent, String key, int defaultValue) {
+        return parent.get(key) instanceof Number number ? number.intValue() : defaultValue;
+    }
+
+    static double doubleValue(Map<String, Object> parent, String key, double defaultValue) {
+        return parent.get(key) instanceof Number number ? number.doubleValue() : defaultValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T cast(Object value) {
+        return (T) value;
+    }
+
+    private static Map<String, Object> readCompound(DataInput input, int depth) throws IOException {
+        Map<String, Object> compound = new HashMap<>();
+        while (true) {
+            int type = input.readUnsignedByte();
+            if (type == TAG_END) {
+                return compound;
+            }
+            String name = input.readUTF();
+            compound.put(name, readPayload(input, type, depth + 1));
+        }
+    }
+
+    private static Object readPayload(DataInput input, int type, int depth) throws IOException {
+        if (depth > MAX_DEPTH) {
+            throw new IOException("NBT nesting is too deep");
+        }
+        return switch (type) {
+            case TAG_BYTE -> input.readByte();
+            case TAG_SHORT -> input.readShort();
+            case TAG_INT -> input.readInt();
+            case TAG_LONG -> input.readLong();
+            case TAG_FLOAT -> input.readFloat();
+            case TAG_DOUBLE -> input.readDouble();
+            case TAG_BYTE_ARRAY -> {
+                byte[] array = new byte[length(input)];
+                input.readFully(array);
+                yield array;
+            }
+            case TAG_STRING -> input.readUTF();
+            case TAG_LIST -> {
+                int elementType = input.readUnsignedByte();
+                int length = length(input);
+                List<Object> list = new ArrayList<>(length);
+                for (int i = 0; i < length; i++) {
+                    list.add(readPayload(input, elementType, depth + 1));
+                }
+                yield list;
+            }
+            case TAG_COMPOUND -> readCompound(input, depth);
+            case TAG_INT_ARRAY -> {
+                int[] array = new int[length(input)];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = input.readInt();
+                }
+                yield array;
+            }
+            case TAG_LONG_ARRAY -> {
+                long[] array = new long[length(input)];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = input.readLong();
+                }
+                yield array;
+            }
+            default -> throw new IOException("Unknown NBT tag " + type);
+        };
+    }
+
+    private static int length(DataInput input) throws IOException {
+        int length = input.readInt();
+        if (length < 0) {
+            throw new IOException("Negative NBT length " + length);
+        }
+        return length;
+    }
+}
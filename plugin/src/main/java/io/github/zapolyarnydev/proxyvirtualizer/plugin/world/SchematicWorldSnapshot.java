@@ -0,0 +1,159 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.world;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Sponge schematic (versions 1 to 3) pasted with its minimum corner at block {@code (0, y, 0)}.
+ * Schematic files are compressed as a whole, so the blocks are decoded once into per-chunk columns.
+ */
+final class SchematicWorldSnapshot extends WorldSnapshot {
+    private final Map<Long, ChunkColumn> columns;
+    private final double spawnX;
+    private final double spawnY;
+    private final double spawnZ;
+
+    private SchematicWorldSnapshot(
+            Path source,
+            int minY,
+            int sectionCount,
+            Map<Long, ChunkColumn> columns,
+            double spawnX,
+            double spawnY,
+            double spawnZ
+    ) {
+        super(source, minY, sectionCount);
+        this.columns = columns;
+        this.spawnX = spawnX;
+        this.spawnY = spawnY;
+        this.spawnZ = spawnZ;
+    }
+
+    static boolean isSchematic(Path source) {
+        String fileName = source.getFileName() == null ? "" : source.getFileName().toString();
+        return Files.isRegularFile(source) && (fileName.endsWith(".schem") || fileName.endsWith(".schematic"));
+    }
+
+    static SchematicWorldSnapshot open(
+            Path source,
+            BlockStateRegistry blockStates,
+            int minY,
+            int sectionCount,
+            int baseY
+    ) throws IOException {
+        Map<String, Object> root;
+        try (GZIPInputStream input = new GZIPInputStream(Files.newInputStream(source))) {
+            root = NbtReader.readRoot(input.readAllBytes());
+        }
+        Map<String, Object> schematic = NbtReader.compound(root, "Schematic");
+        if (schematic == null) {
+            schematic = root;
+        }
+
+        int width = NbtReader.intValue(schematic, "Width", 0) & 0xFFFF;
+        int height = NbtReader.intValue(schematic, "Height", 0) & 0xFFFF;
+        int length = NbtReader.intValue(schematic, "Length", 0) & 0xFFFF;
+        Map<String, Object> blocks = NbtReader.compound(schematic, "Blocks");
+        Map<String, Object> palette = NbtReader.compound(blocks != null ? blocks : schematic, "Palette");
+        Object data = blocks != null ? blocks.get("Data") : schematic.get("BlockData");
+        if (width == 0 || height == 0 || length == 0 || palette == null || !(data instanceof byte[] blockData)) {
+            throw new IOException("Unsupported or empty schematic: " + source);
+        }
+
+        int[] paletteIds = new int[palette.size()];
+        for (Map.Entry<String, Object> entry : palette.entrySet()) {
+            int index = entry.getValue() instanceof Number number ? number.intValue() : -1;
+            if (index < 0 || index >= paletteIds.length) {
+                throw new IOException("Invalid schematic palette index for " + entry.getKey());
+            }
+            paletteIds[index] = blockStates.resolve(entry.getKey());
+        }
+
+        int minSectionY = minY >> 4;
+        Map<Long, int[][]> sectionsByChunk = new HashMap<>();
+        int cursor = 0;
+        int volume = width * height * length;
+        for (int index = 0; index < volume; index++) {
+            int value = 0;
+            int shift = 0;
+            int read;
+            do {
+                if (cursor >= blockData.length || shift > 28) {
+                    throw new IOException("Truncated schematic block data: " + source);
+                }
+                read = blockData[cursor++];
+                value |= (read & 0x7F) << shift;
+                shift += 7;
+            } while ((read & 0x80) != 0);
+
+            int state = value < paletteIds.length ? paletteIds[value] : 0;
+            if (blockStates.isAir(state)) {
+                continue;
+            }
+            int x = index % width;
+            int z = (index / width) % length;
+            int y = baseY + index / (width * length);
+            int section = (y >> 4) - minSectionY;
+            if (section < 0 || section >= sectionCount) {
+                continue;
+            }
+
+            int[][] sections = sectionsByChunk.computeIfAbsent(
+                    chunkKey(x >> 4, z >> 4),
+                    ignored -> new int[sectionCount][]
+            );
+            if (sections[section] == null) {
+                sections[section] = new int[ChunkColumn.SECTION_VOLUME];
+            }
+            sections[section][((y & 15) * 16 + (z & 15)) * 16 + (x & 15)] = state;
+        }
+
+        Map<Long, ChunkColumn> columns = new HashMap<>(sectionsByChunk.size() * 2);
+        for (Map.Entry<Long, int[][]> entry : sectionsByChunk.entrySet()) {
+            columns.put(entry.getKey(), new ChunkColumn(entry.getValue(), null, null));
+        }
+        return new SchematicWorldSnapshot(
+                source,
+                minY,
+                sectionCount,
+                Map.copyOf(columns),
+                width / 2.0D,
+                baseY + height,
+                length / 2.0D
+        );
+    }
+
+    @Override
+    public int getChunkCount() {
+        return columns.size();
+    }
+
+    @Override
+    public boolean hasChunk(int chunkX, int chunkZ) {
+        return columns.containsKey(chunkKey(chunkX, chunkZ));
+    }
+
+    @Override
+    public double getSpawnX() {
+        return spawnX;
+    }
+
+    @Override
+    public double getSpawnY() {
+        return spawnY;
+    }
+
+    @Override
+    public double getSpawnZ() {
+        return spawnZ;
+    }
+
+    @Override
+    ChunkColumn readChunk(int chunkX, int chunkZ) {
+        return columns.get(chunkKey(chunkX, chunkZ));
+    }
+}
@@ -0,0 +1,122 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.world;
+
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.network.NettyBuffers;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Off-heap LRU cache of encoded world chunk packets with a byte budget shared by all worlds.
+ * <p>
+ * Entries are direct buffers owned by the cache; readers get retained duplicates, so evicting an entry
+ * never invalidates a packet that is still queued on a channel.
+ */
+final class WorldChunkCache {
+    private final long capacityBytes;
+    private final LinkedHashMap<ChunkKey, Entry> entries = new LinkedHashMap<>(256, 0.75F, true);
+    private long sizeBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    WorldChunkCache(long capacityBytes) {
+        this.capacityBytes = capacityBytes;
+    }
+
+    /**
+     * @return a retained duplicate owned by the caller, or {@code null} on a miss
+     */
+    synchronized Object retained(ChunkKey key) throws ReflectiveOperationException {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return NettyBuffers.retainedDuplicate(entry.buffer());
+    }
+
+    /**
+     * Stores the encoded packet and returns a buffer owned by the caller. Packets larger than the whole
+     * budget are returned without being cached.
+     */
+    Object put(ChunkKey key, byte[] packet) throws ReflectiveOperationException {
+        Object buffer = NettyBuffers.directBuffer(packet);
+        if (packet.length > capacityBytes) {
+            return buffer;
+        }
+
+        synchronized (this) {
+            Entry previous = entries.put(key, new Entry(buffer, packet.length));
+            sizeBytes += packet.length;
+            if (previous != null) {
+                sizeBytes -= previous.bytes();
+                NettyBuffers.release(previous.buffer());
+            }
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (sizeBytes > capacityBytes && iterator.hasNext()) {
+                Entry eldest = iterator.next();
+                iterator.remove();
+                sizeBytes -= eldest.bytes();
+                evictions++;
+                NettyBuffers.release(eldest.buffer());
+            }
+            return NettyBuffers.retainedDuplicate(buffer);
+        }
+    }
+
+    synchronized void invalidate(int worldId) {
+        Iterator<Map.Entry<ChunkKey, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<ChunkKey, Entry> entry = iterator.next();
+            if (entry.getKey().worldId() == worldId) {
+                iterator.remove();
+                sizeBytes -= entry.getValue().bytes();
+                releaseQuietly(entry.getValue().buffer());
+            }
+        }
+    }
+
+    synchronized void clear() {
+        for (Entry entry : entries.values()) {
+            releaseQuietly(entry.buffer());
+        }
+        entries.clear();
+        sizeBytes = 0;
+    }
+
+    synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    synchronized long getEvictions() {
+        return evictions;
+    }
+
+    private static void releaseQuietly(Object buffer) {
+        try {
+            NettyBuffers.release(buffer);
+        } catch (ReflectiveOperationException ignored) {
+
+        }
+    }
+
+    record ChunkKey(int worldId, int protocolVersion, int packetId, int chunkX, int chunkZ) {
+    }
+
+    private record Entry(Object buffer, int bytes) {
+    }
+}
@@ -0,0 +1,61 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.world;
+
+/**
+ * Streaming and caching limits of virtual server worlds.
+ *
+ * @param viewDistance      chunk radius streamed around each player
+ * @param chunksPerTick     chunks sent to a single player per tick
+ * @param bytesPerTick      encoded chunk bytes sent per world per tick
+ * @param cacheBytes        off-heap budget of the encoded chunk cache shared by all worlds
+ * @param globalPaletteBits bits per block of the direct (global) block palette
+ * @param unknownBlockState block state id used for blocks missing from the block state mapping
+ * @param schematicY        block y of the lowest layer of loaded schematics
+ */
+public record WorldSettings(
+        int viewDistance,
+        int chunksPerTick,
+        int bytesPerTick,
+        long cacheBytes,
+        int globalPaletteBits,
+        int unknownBlockState,
+        int schematicY
+) {
+    public static final int DEFAULT_VIEW_DISTANCE = 6;
+    public static final int DEFAULT_CHUNKS_PER_TICK = 4;
+    public static final int DEFAULT_BYTES_PER_TICK = 256 * 1024;
+    public static final long DEFAULT_CACHE_BYTES = 64L * 1024 * 1024;
+    public static final int DEFAULT_GLOBAL_PALETTE_BITS = 15;
+    public static final int DEFAULT_UNKNOWN_BLOCK_STATE = 1;
+    public static final int DEFAULT_SCHEMATIC_Y = 64;
+    public static final int MAX_VIEW_DISTANCE = 32;
+
+    public WorldSettings {
+        if (viewDistance < 0 || viewDistance > MAX_VIEW_DISTANCE) {
+            throw new IllegalArgumentException("World view distance must be between 0 and " + MAX_VIEW_DISTANCE);
+        }
+        if (chunksPerTick <= 0 || bytesPerTick <= 0) {
+            throw new IllegalArgumentException("World streaming rate limits must be positive");
+        }
+        if (cacheBytes < 0) {
+            throw new IllegalArgumentException("World chunk cache budget cannot be negative");
+        }
+        if (globalPaletteBits < 9 || globalPaletteBits > 31) {
+            throw new IllegalArgumentException("Global palette bits must be between 9 and 31");
+        }
+        if (unknownBlockState < 0) {
+            throw new IllegalArgumentException("Unknown block state id cannot be negative");
+        }
+    }
+
+    public static WorldSettings defaults() {
+        return new WorldSettings(
+                DEFAULT_VIEW_DISTANCE,
+                DEFAULT_CHUNKS_PER_TICK,
+                DEFAULT_BYTES_PER_TICK,
+                DEFAULT_CACHE_BYTES,
+                DEFAULT_GLOBAL_PALETTE_BITS,
+                DEFAULT_UNKNOWN_BLOCK_STATE,
+                DEFAULT_SCHEMATIC_Y
+        );
+    }
+}
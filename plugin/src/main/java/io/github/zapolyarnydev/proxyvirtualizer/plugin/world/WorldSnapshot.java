@@ -0,0 +1,61 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.world;
+
+import io.github.zapolyarnydev.proxyvirtualizer.api.world.VirtualWorld;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Read-only chunk source behind a {@link VirtualWorld}. Implementations must allow concurrent reads.
+ */
+abstract class WorldSnapshot implements VirtualWorld, AutoCloseable {
+    private static final AtomicInteger ID_SEQUENCE = new AtomicInteger();
+
+    private final int id = ID_SEQUENCE.incrementAndGet();
+    private final Path source;
+    private final int minSectionY;
+    private final int sectionCount;
+
+    WorldSnapshot(Path source, int minY, int sectionCount) {
+        this.source = Objects.requireNonNull(source, "source");
+        this.minSectionY = minY >> 4;
+        this.sectionCount = sectionCount;
+    }
+
+    /**
+     * @return process-unique id used to key cached packets
+     */
+    final int id() {
+        return id;
+    }
+
+    final int minSectionY() {
+        return minSectionY;
+    }
+
+    final int sectionCount() {
+        return sectionCount;
+    }
+
+    @Override
+    public final Path getSource() {
+        return source;
+    }
+
+    /**
+     * Decodes a chunk column.
+     *
+     * @return the column, or {@code null} if the snapshot has no complete chunk at this position
+     */
+    abstract ChunkColumn readChunk(int chunkX, int chunkZ) throws IOException;
+
+    @Override
+    public void close() {
+    }
+
+    static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,313 @@
+package io.github.zapolyarnydev.proxyvirtualizer.plugin.world;
+
+import com.velocitypowered.api.proxy.Player;
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.VirtualServer;
+import io.github.zapolyarnydev.proxyvirtualizer.api.server.tick.TickTask;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.network.MinecraftConnections;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.network.NettyBuffers;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.packet.VelocityVirtualPacketSender;
+import io.github.zapolyarnydev.proxyvirtualizer.plugin.packet.VirtualPacketKeys;
+import org.slf4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streams the chunks of one world to the players of its virtual server from the server's tick loop.
+ * <p>
+ * Every player receives the chunks around its last known chunk nearest first, at most
+ * {@link WorldSettings#chunksPerTick()} per tick, while all players share {@link WorldSettings#bytesPerTick()}.
+ * The player served first rotates every tick so a tight byte budget does not starve anyone.
+ */
+final class WorldStreamer implements TickTask {
+    private static final int CHUNK_DATA_PACKET_ID_1_21_4 = 0x28;
+    private static final int CHUNK_BATCH_START_PACKET_ID_1_21_4 = 0x0D;
+    private static final int CHUNK_BATCH_FINISHED_PACKET_ID_1_21_4 = 0x0C;
+    private static final int CHUNK_CACHE_CENTER_PACKET_ID_1_21_4 = 0x58;
+    private static final int FORGET_LEVEL_CHUNK_PACKET_ID_1_21_4 = 0x22;
+
+    private final VirtualServer virtualServer;
+    private final WorldSnapshot world;
+    private final WorldChunkCache cache;
+    private final ChunkPacketEncoder encoder;
+    private final VelocityVirtualPacketSender packetSender;
+    private final WorldSettings settings;
+    private final Logger logger;
+    private final int[] offsets;
+    private final Map<UUID, Session> sessions = new ConcurrentHashMap<>();
+    private final List<Session> tickSessions = new ArrayList<>();
+    private int rotation;
+
+    WorldStreamer(
+            VirtualServer virtualServer,
+            WorldSnapshot world,
+            WorldChunkCache cache,
+            ChunkPacketEncoder encoder,
+            VelocityVirtualPacketSender packetSender,
+            WorldSettings settings,
+            Logger logger
+    ) {
+        this.virtualServer = virtualServer;
+        this.world = world;
+        this.cache = cache;
+        this.encoder = encoder;
+        this.packetSender = packetSender;
+        this.settings = settings;
+        this.logger = logger;
+        this.offsets = spiralOffsets(settings.viewDistance());
+    }
+
+    WorldSnapshot getWorld() {
+        return world;
+    }
+
+    int getSessionCount() {
+        return sessions.size();
+    }
+
+    void join(Player player) {
+        Session session = new Session(player, chunkCoordinate(world.getSpawnX()), chunkCoordinate(world.getSpawnZ()));
+        sessions.put(player.getUniqueId(), session);
+        packetSender.teleport(virtualServer, player, world.getSpawnX(), world.getSpawnY(), world.getSpawnZ());
+    }
+
+    void leave(Player player) {
+        sessions.remove(player.getUniqueId());
+    }
+
+    void updatePosition(Player player, double x, double z) {
+        Session session = sessions.get(player.getUniqueId());
+        if (session != null) {
+            session.targetChunkX = chunkCoordinate(x);
+            session.targetChunkZ = chunkCoordinate(z);
+        }
+    }
+
+    @Override
+    public void tick(long tick) {
+        if (sessions.isEmpty()) {
+            return;
+        }
+
+        tickSessions.clear();
+        tickSessions.addAll(sessions.values());
+        int size = tickSessions.size();
+        int start = Math.floorMod(rotation++, size);
+        int budget = settings.bytesPerTick();
+        for (int i = 0; i < size && budget > 0; i++) {
+            budget -= stream(tickSessions.get((start + i) % size), budget);
+        }
+        tickSessions.clear();
+    }
+
+    private int stream(Session session, int budget) {
+        Player player = session.player;
+        if (!packetSender.isPacketAllowed(virtualServer, player, VirtualPacketKeys.CHUNK_DATA)) {
+            return 0;
+        }
+
+        try {
+            Object connection = MinecraftConnections.connection(player);
+            if (connection == null
+                    || MinecraftConnections.isClosed(connection)
+                    || !MinecraftConnections.isWritable(connection)) {
+                return 0;
+            }
+
+            int protocol = player.getProtocolVersion().getProtocol();
+            boolean dirty = recenter(session, connection, protocol);
+            int chunkDataId = packetId(VirtualPacketKeys.CHUNK_DATA, protocol, CHUNK_DATA_PACKET_ID_1_21_4);
+            boolean batched = packetSender.isPacketAllowed(virtualServer, player, VirtualPacketKeys.CHUNK_BATCH_START)
+                    && packetSender.isPacketAllowed(virtualServer, player, VirtualPacketKeys.CHUNK_BATCH_FINISHED);
+
+            int sentChunks = 0;
+            int sentBytes = 0;
+            while (session.cursor < offsets.length
+                    && sentChunks < settings.chunksPerTick()
+                    && sentBytes < budget) {
+                int chunkX = session.centerX + offsets[session.cursor];
+                int chunkZ = session.centerZ + offsets[session.cursor + 1];
+                session.cursor += 2;
+                if (!session.visited.add(WorldSnapshot.chunkKey(chunkX, chunkZ)) || !world.hasChunk(chunkX, chunkZ)) {
+                    continue;
+                }
+
+                Object packet = chunkPacket(protocol, chunkDataId, chunkX, chunkZ);
+                if (packet == null) {
+                    continue;
+                }
+                if (sentChunks == 0 && batched) {
+                    writeVarInts(connection, packetId(
+                            VirtualPacketKeys.CHUNK_BATCH_START, protocol, CHUNK_BATCH_START_PACKET_ID_1_21_4
+                    ));
+                }
+                sentBytes += NettyBuffers.readableBytes(packet);
+                MinecraftConnections.delayedWrite(connection, packet);
+                sentChunks++;
+            }
+
+            if (sentChunks > 0 && batched) {
+                writeVarInts(connection, packetId(
+                        VirtualPacketKeys.CHUNK_BATCH_FINISHED, protocol, CHUNK_BATCH_FINISHED_PACKET_ID_1_21_4
+                ), sentChunks);
+            }
+            if (dirty || sentChunks > 0) {
+                MinecraftConnections.flush(connection);
+            }
+            return sentBytes;
+        } catch (ReflectiveOperationException | RuntimeException exception) {
+            logger.debug("Unable to stream world chunks to {}", player.getUsername(), exception);
+            return 0;
+        }
+    }
+
+    /**
+     * Moves the client's chunk cache center to the player's chunk, forgets chunks that left the view
+     * distance and restarts the nearest-first scan.
+     */
+    private boolean recenter(Session session, Object connection, int protocol) throws ReflectiveOperationException {
+        int targetX = session.targetChunkX;
+        int targetZ = session.targetChunkZ;
+        if (session.centered && targetX == session.centerX && targetZ == session.centerZ) {
+            return false;
+        }
+
+        session.centerX = targetX;
+        session.centerZ = targetZ;
+        session.centered = true;
+        session.cursor = 0;
+        if (packetSender.isPacketAllowed(virtualServer, session.player, VirtualPacketKeys.CHUNK_CACHE_CENTER)) {
+            writeVarInts(connection, packetId(
+                    VirtualPacketKeys.CHUNK_CACHE_CENTER, protocol, CHUNK_CACHE_CENTER_PACKET_ID_1_21_4
+            ), targetX, targetZ);
+        }
+
+        boolean forget = packetSender.isPacketAllowed(
+                virtualServer, session.player, VirtualPacketKeys.FORGET_LEVEL_CHUNK
+        );
+        int forgetId = packetId(VirtualPacketKeys.FORGET_LEVEL_CHUNK, protocol, FORGET_LEVEL_CHUNK_PACKET_ID_1_21_4);
+        Iterator<Long> iterator = session.visited.iterator();
+        while (iterator.hasNext()) {
+            long key = iterator.next();
+            int chunkX = (int) (key >> 32);
+            int chunkZ = (int) key;
+            if (Math.max(Math.abs(chunkX - targetX), Math.abs(chunkZ - targetZ)) <= settings.viewDistance()) {
+                continue;
+            }
+            iterator.remove();
+            if (forget && world.hasChunk(chunkX, chunkZ)) {
+                writeForget(connection, forgetId, chunkX, chunkZ);
+            }
+        }
+        return true;
+    }
+
+    private Object chunkPacket(int protocol, int packetId, int chunkX, int chunkZ) throws ReflectiveOperationException {
+        WorldChunkCache.ChunkKey key = new WorldChunkCache.ChunkKey(world.id(), protocol, packetId, chunkX, chunkZ);
+        Object cached = cache.retained(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        try {
+            ChunkColumn column = world.readChunk(chunkX, chunkZ);
+            if (column == null) {
+                return null;
+            }
+            return cache.put(key, encoder.encode(packetId, chunkX, chunkZ, column));
+        } catch (IOException exception) {
+            logger.debug("Unable to read chunk {},{} of {}", chunkX, chunkZ, world.getSource(), exception);
+            return null;
+        }
+    }
+
+    private int packetId(String packetKey, int protocol, int fallback) {
+        return virtualServer.getPacketVersion(packetKey, protocol)
+                .map(VirtualServer.PacketVersionRule::packetVersion)
+                .orElse(fallback);
+    }
+
+    private static void writeVarInts(Object connection, int... values) throws ReflectiveOperationException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(values.length * 5);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            for (int value : values) {
+                ChunkPacketEncoder.writeVarInt(out, value);
+            }
+        } catch (IOException exception) {
+            throw new IllegalStateException(exception);
+        }
+        MinecraftConnections.delayedWrite(connection, NettyBuffers.wrap(bytes.toByteArray()));
+    }
+
+    /**
+     * The client reads the position as one long with Z in the upper half.
+     */
+    private static void writeForget(Object connection, int packetId, int chunkX, int chunkZ)
+            throws ReflectiveOperationException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(13);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            ChunkPacketEncoder.writeVarInt(out, packetId);
+            out.writeInt(chunkZ);
+            out.writeInt(chunkX);
+        } catch (IOException exception) {
+            throw new IllegalStateException(exception);
+        }
+        MinecraftConnections.delayedWrite(connection, NettyBuffers.wrap(bytes.toByteArray()));
+    }
+
+    private static int chunkCoordinate(double blockCoordinate) {
+        return (int) Math.floor(blockCoordinate) >> 4;
+    }
+
+    /**
+     * Chunk offsets within the view distance as {@code dx, dz} pairs, nearest first.
+     */
+    private static int[] spiralOffsets(int viewDistance) {
+        int side = viewDistance * 2 + 1;
+        long[] packed = new long[side * side];
+        int count = 0;
+        for (int dx = -viewDistance; dx <= viewDistance; dx++) {
+            for (int dz = -viewDistance; dz <= viewDistance; dz++) {
+                long distance = (long) dx * dx + (long) dz * dz;
+                packed[count++] = (distance << 16) | ((dx + viewDistance) << 8) | (dz + viewDistance);
+            }
+        }
+        Arrays.sort(packed);
+
+        int[] offsets = new int[count * 2];
+        for (int i = 0; i < count; i++) {
+            offsets[i * 2] = (int) ((packed[i] >> 8) & 0xFF) - viewDistance;
+            offsets[i * 2 + 1] = (int) (packed[i] & 0xFF) - viewDistance;
+        }
+        return offsets;
+    }
+
+    private static final class Session {
+        private final Player player;
+        private final Set<Long> visited = new HashSet<>();
+        private volatile int targetChunkX;
+        private volatile int targetChunkZ;
+        private int centerX;
+        private int centerZ;
+        private boolean centered;
+        private int cursor;
+
+        private Session(Player player, int chunkX, int chunkZ) {
+            this.player = player;
+            this.targetChunkX = chunkX;
+            this.targetChunkZ = chunkZ;
+        }
+    }
+}